@@ -0,0 +1,161 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.Collection;
+import java.util.Set;
+
+import rs.baselib.util.IWrapper;
+
+/**
+ * Base class for caches that add behaviour to another cache.
+ * <p>All methods delegate to the wrapped cache. Subclasses override the methods they need to change.
+ * Statistics are recorded by the subclasses in their own counter, the counter of the wrapped cache is not used.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public abstract class AbstractCacheWrapper<K,V> implements ICache<K, V>, IWrapper<ICache<K,V>> {
+
+	private ICache<K,V> wrapped;
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
+
+	/**
+	 * Constructor.
+	 * @param wrapped the cache that holds the values
+	 */
+	protected AbstractCacheWrapper(ICache<K,V> wrapped) {
+		if (wrapped == null) throw new IllegalArgumentException("Wrapped cache must be set");
+		this.wrapped = wrapped;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ICache<K, V> getWrapped() {
+		return wrapped;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Returns the footprint of the wrapped cache.</p>
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return wrapped.getEstimatedBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return wrapped.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return wrapped.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return wrapped.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsValue(Object value) {
+		return wrapped.containsValue(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key) {
+		return wrapped.get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V put(K key, V value) {
+		return wrapped.put(key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(Object key) {
+		return wrapped.remove(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		wrapped.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<K> keySet() {
+		return wrapped.keySet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<V> values() {
+		return wrapped.values();
+	}
+
+}
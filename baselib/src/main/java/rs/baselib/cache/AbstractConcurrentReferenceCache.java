@@ -0,0 +1,214 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import rs.baselib.util.CommonUtils;
+
+/**
+ * Base class for thread-safe caches that hold their values by {@link Reference}s.
+ * <p>The mappings are kept in a {@link ConcurrentHashMap}. Reads are lock-free, writes
+ * lock only the affected hash bin. Cleared references are removed from the map by
+ * their key through the {@link ReferenceCleaner}.</p>
+ * <p>{@code null} keys are not supported. Putting a {@code null} value removes the mapping
+ * so that {@link #get(Object)} behaves the same as for the non-concurrent caches.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public abstract class AbstractConcurrentReferenceCache<K,V> implements ICache<K, V> {
+
+	/** Default initial capacity of the map */
+	public static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	private ConcurrentMap<K,KeyReference<K,V>> cache;
+	private KeyReference.Owner<K,V> owner = this::purge;
+	private LongAdder purgedCount = new LongAdder();
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
+
+	/**
+	 * Constructor.
+	 */
+	protected AbstractConcurrentReferenceCache() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 * @param initialCapacity the number of mappings expected
+	 */
+	protected AbstractConcurrentReferenceCache(int initialCapacity) {
+		cache = new ConcurrentHashMap<K,KeyReference<K,V>>(initialCapacity);
+	}
+
+	/**
+	 * Creates the reference for a new mapping.
+	 * @param key the key of the mapping
+	 * @param value the value to be referenced
+	 * @param owner the owner that the reference must purge itself from
+	 * @return the new reference
+	 */
+	protected abstract KeyReference<K,V> createReference(K key, V value, KeyReference.Owner<K,V> owner);
+
+	/**
+	 * Returns the number of mappings that were removed because their values were cleared.
+	 * @return the number of purged mappings
+	 */
+	public long getPurgedCount() {
+		return purgedCount.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsValue(Object value) {
+		for (KeyReference<K,V> ref : cache.values()) {
+			if (CommonUtils.equals(ref.get(), value)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This method does not lock.</p>
+	 */
+	@Override
+	public V get(Object key) {
+		KeyReference<K,V> ref = cache.get(key);
+		V rc = ref != null ? ref.get() : null;
+		if ((ref != null) && (rc == null)) purge(ref);
+		if (rc != null) statsCounter.recordHits(1);
+		else statsCounter.recordMisses(1);
+		return rc;
+	}
+
+	/**
+	 * Removes the mapping of a cleared reference.
+	 * @param ref the reference
+	 * @return {@code true} when the mapping was removed
+	 */
+	protected boolean purge(KeyReference<K,V> ref) {
+		if (!cache.remove(ref.getKey(), ref)) return false;
+		purgedCount.increment();
+		statsCounter.recordEviction(RemovalCause.COLLECTED, 1);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A {@code null} value removes the mapping.</p>
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (value == null) return remove(key);
+		KeyReference<K,V> ref = cache.put(key, createReference(key, value, owner));
+		return ref != null ? ref.get() : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(Object key) {
+		KeyReference<K,V> ref = cache.remove(key);
+		return ref != null ? ref.get() : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is backed by the map and may contain keys whose values were
+	 * cleared by the garbage collector but not yet removed.</p>
+	 */
+	@Override
+	public Set<K> keySet() {
+		return cache.keySet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot of all values that were not yet cleared
+	 * by the garbage collector.</p>
+	 */
+	@Override
+	public Collection<V> values() {
+		List<V> rc = new ArrayList<V>(cache.size());
+		for (KeyReference<K,V> ref : cache.values()) {
+			V value = ref.get();
+			if (value != null) rc.add(value);
+		}
+		return rc;
+	}
+}
@@ -0,0 +1,474 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import rs.baselib.util.CommonUtils;
+
+/**
+ * A thread-safe cache that holds at most a configured number of entries or total weight.
+ * <p>The cache evicts entries according to its {@link EvictionPolicy}. With {@link EvictionPolicy#TINY_LFU}
+ * (default) new entries enter a small LRU window (1% of the maximum size). Entries leaving the window
+ * compete with the least recently used entry of the main space. The one with the higher estimated access
+ * frequency stays. The main space is a segmented LRU with a probation (20%) and a protected (80%) segment.
+ * With {@link EvictionPolicy#LRU} the least recently used entry is always evicted.</p>
+ * <p>When a {@link Weigher} is given, the maximum size applies to the total weight of all entries
+ * and the segments are sized by weight. An entry heavier than the maximum is not cached at all.</p>
+ * <p>A {@link RemovalListener} is notified about evicted, removed and replaced entries, but not when
+ * the cache is {@link #clear() cleared}.</p>
+ * <p>All operations run in amortized constant time. Values are held strongly so the memory usage
+ * does not depend on garbage collection.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class BoundedCache<K,V> implements ICache<K, V> {
+
+	private static final int WINDOW    = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private Map<K,Node<K,V>> cache = new HashMap<K,Node<K,V>>();
+	private NodeList<K,V> queues[];
+	private FrequencySketch sketch;
+	private EvictionPolicy policy;
+	private long maximumSize;
+	private long windowMaximum;
+	private long protectedMaximum;
+	private Weigher<? super K, ? super V> weigher;
+	private long weightedSize;
+	private RemovalListener<? super K, ? super V> removalListener;
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
+
+	/**
+	 * Constructor.
+	 * <p>The cache will use {@link EvictionPolicy#TINY_LFU}.</p>
+	 * @param maximumSize the maximum number of entries
+	 */
+	public BoundedCache(long maximumSize) {
+		this(maximumSize, EvictionPolicy.TINY_LFU);
+	}
+
+	/**
+	 * Constructor.
+	 * @param maximumSize the maximum number of entries
+	 * @param policy the eviction policy
+	 */
+	public BoundedCache(long maximumSize, EvictionPolicy policy) {
+		this(maximumSize, Weighers.SINGLETON, policy);
+	}
+
+	/**
+	 * Constructor.
+	 * <p>The cache will use {@link EvictionPolicy#TINY_LFU}.</p>
+	 * @param maximumWeight the maximum total weight of all entries
+	 * @param weigher the weigher of entries
+	 */
+	public BoundedCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+		this(maximumWeight, weigher, EvictionPolicy.TINY_LFU);
+	}
+
+	/**
+	 * Constructor.
+	 * @param maximumWeight the maximum total weight of all entries
+	 * @param weigher the weigher of entries
+	 * @param policy the eviction policy
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BoundedCache(long maximumWeight, Weigher<? super K, ? super V> weigher, EvictionPolicy policy) {
+		if (maximumWeight < 0) throw new IllegalArgumentException("maximumWeight must not be negative");
+		if (weigher == null) throw new IllegalArgumentException("weigher must be set");
+		if (policy == null) throw new IllegalArgumentException("policy must be set");
+		this.maximumSize = maximumWeight;
+		this.weigher     = weigher;
+		this.policy      = policy;
+		this.queues      = new NodeList[] { new NodeList<K,V>(), new NodeList<K,V>(), new NodeList<K,V>() };
+		if (policy == EvictionPolicy.TINY_LFU) {
+			// Weighted caches enlarge the sketch as the number of entries grows
+			this.sketch           = new FrequencySketch(isWeighted() ? 0 : maximumWeight);
+			this.windowMaximum    = Math.max(maximumWeight > 0 ? 1 : 0, maximumWeight / 100);
+			this.protectedMaximum = (long)(0.8d * (maximumWeight - windowMaximum));
+		} else {
+			this.windowMaximum    = maximumSize;
+			this.protectedMaximum = 0;
+		}
+	}
+
+	/**
+	 * Returns the maximum number of entries or the maximum total weight.
+	 * @return the maximum size
+	 */
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Returns the weigher of entries.
+	 * @return the weigher
+	 */
+	public Weigher<? super K, ? super V> getWeigher() {
+		return weigher;
+	}
+
+	/**
+	 * Returns whether the cache is bounded by weight instead of number of entries.
+	 * @return {@code true} when a weigher was set
+	 */
+	public boolean isWeighted() {
+		return weigher != Weighers.SINGLETON;
+	}
+
+	/**
+	 * Returns the total weight of all entries.
+	 * @return the weighted size (the number of entries when not {@link #isWeighted() weighted})
+	 */
+	public synchronized long getWeightedSize() {
+		return weightedSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void setRemovalListener(RemovalListener<? super K, ? super V> listener) {
+		this.removalListener = listener;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Returns the {@link #getWeightedSize() weighted size} when the cache is weighted as
+	 * weighers usually estimate the memory of entries.</p>
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return isWeighted() ? getWeightedSize() : -1L;
+	}
+
+	/**
+	 * Returns the eviction policy.
+	 * @return the policy
+	 */
+	public EvictionPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This method does not count as access.</p>
+	 */
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		return cache.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean containsValue(Object value) {
+		for (Node<K,V> node : cache.values()) {
+			if (CommonUtils.equals(node.value, value)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized V get(Object key) {
+		if (sketch != null) sketch.increment(key);
+		Node<K,V> node = cache.get(key);
+		if (node == null) {
+			statsCounter.recordMisses(1);
+			return null;
+		}
+		statsCounter.recordHits(1);
+		onAccess(node);
+		return node.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized V put(K key, V value) {
+		if (sketch != null) sketch.increment(key);
+		int weight = weigher.weigh(key, value);
+		if (weight < 0) throw new IllegalArgumentException("Negative weight: "+weight);
+		Node<K,V> node = cache.get(key);
+		if (weight > maximumSize) {
+			// Can never be held
+			if (node != null) unlink(node);
+			statsCounter.recordEviction(RemovalCause.SIZE, 1);
+			if (node != null) notifyRemoval(key, node.value, RemovalCause.REPLACED);
+			notifyRemoval(key, value, RemovalCause.SIZE);
+			return node != null ? node.value : null;
+		}
+		if (node != null) {
+			V rc = node.value;
+			node.value = value;
+			queues[node.queue].weight += weight - node.weight;
+			weightedSize += weight - node.weight;
+			node.weight = weight;
+			onAccess(node);
+			if (rc != value) notifyRemoval(key, rc, RemovalCause.REPLACED);
+			if (weightedSize > maximumSize) evict();
+			return rc;
+		}
+		node = new Node<K,V>(key, value, weight);
+		cache.put(key, node);
+		queues[WINDOW].addLast(node);
+		weightedSize += weight;
+		if ((sketch != null) && (cache.size() > sketch.capacity())) sketch.ensureCapacity(2L * cache.size());
+		evict();
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized V remove(Object key) {
+		Node<K,V> node = cache.get(key);
+		if (node == null) return null;
+		unlink(node);
+		notifyRemoval(node.key, node.value, RemovalCause.EXPLICIT);
+		return node.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void clear() {
+		cache.clear();
+		for (NodeList<K,V> queue : queues) queue.clear();
+		weightedSize = 0;
+		if (sketch != null) sketch.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public synchronized Set<K> keySet() {
+		return new LinkedHashSet<K>(cache.keySet());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public synchronized Collection<V> values() {
+		List<V> rc = new ArrayList<V>(cache.size());
+		for (Node<K,V> node : cache.values()) rc.add(node.value);
+		return rc;
+	}
+
+	/**
+	 * Moves the node according to the eviction policy after an access.
+	 * @param node the node accessed
+	 */
+	protected void onAccess(Node<K,V> node) {
+		switch (node.queue) {
+		case WINDOW:
+			queues[WINDOW].moveToEnd(node);
+			break;
+		case PROBATION:
+			queues[PROBATION].remove(node);
+			node.queue = PROTECTED;
+			queues[PROTECTED].addLast(node);
+			// Demote protected entries that exceed the segment
+			while (queues[PROTECTED].weight > protectedMaximum) {
+				Node<K,V> demoted = queues[PROTECTED].first();
+				queues[PROTECTED].remove(demoted);
+				demoted.queue = PROBATION;
+				queues[PROBATION].addLast(demoted);
+			}
+			break;
+		case PROTECTED:
+			queues[PROTECTED].moveToEnd(node);
+			break;
+		}
+	}
+
+	/**
+	 * Evicts entries until the maximum size is respected.
+	 */
+	protected void evict() {
+		// Move the window overflow into the probation space as candidates
+		Node<K,V> candidate = null;
+		while (queues[WINDOW].weight > windowMaximum) {
+			Node<K,V> node = queues[WINDOW].first();
+			queues[WINDOW].remove(node);
+			node.queue = PROBATION;
+			queues[PROBATION].addLast(node);
+			if (candidate == null) candidate = node;
+		}
+
+		// Let the candidates compete with the victims
+		while (weightedSize > maximumSize) {
+			Node<K,V> victim = queues[PROBATION].first();
+			if (victim == candidate) victim = queues[PROTECTED].first();
+			if (victim == null) victim = candidate != null ? candidate : queues[WINDOW].first();
+			if (victim == candidate) {
+				candidate = victim.next;
+			} else if ((candidate != null) && (sketch != null)) {
+				Node<K,V> next = candidate.next;
+				if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+					// Candidate is rejected, the victim survives
+					victim = candidate;
+				}
+				candidate = next;
+			}
+			unlink(victim);
+			statsCounter.recordEviction(RemovalCause.SIZE, 1);
+			notifyRemoval(victim.key, victim.value, RemovalCause.SIZE);
+		}
+	}
+
+	/**
+	 * Notifies the removal listener.
+	 * @param key the key
+	 * @param value the value removed
+	 * @param cause the cause of the removal
+	 */
+	protected void notifyRemoval(K key, V value, RemovalCause cause) {
+		if (removalListener != null) removalListener.onRemoval(key, value, cause);
+	}
+
+	/**
+	 * Removes the node from the map and its queue.
+	 * @param node the node
+	 */
+	private void unlink(Node<K,V> node) {
+		cache.remove(node.key);
+		queues[node.queue].remove(node);
+		weightedSize -= node.weight;
+	}
+
+	/**
+	 * A cache entry that is linked in one of the access order queues.
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 */
+	protected static final class Node<K,V> {
+		K key;
+		V value;
+		int weight;
+		int queue;
+		Node<K,V> prev;
+		Node<K,V> next;
+
+		Node(K key, V value, int weight) {
+			this.key    = key;
+			this.value  = value;
+			this.weight = weight;
+			this.queue  = WINDOW;
+		}
+	}
+
+	/**
+	 * A doubly-linked list of nodes in access order (least recently used first).
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 */
+	private static final class NodeList<K,V> {
+		Node<K,V> head;
+		Node<K,V> tail;
+		long weight;
+
+		Node<K,V> first() {
+			return head;
+		}
+
+		void addLast(Node<K,V> node) {
+			node.prev = tail;
+			node.next = null;
+			if (tail == null) head = node;
+			else tail.next = node;
+			tail = node;
+			weight += node.weight;
+		}
+
+		void remove(Node<K,V> node) {
+			if (node.prev == null) head = node.next;
+			else node.prev.next = node.next;
+			if (node.next == null) tail = node.prev;
+			else node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+
+		void moveToEnd(Node<K,V> node) {
+			if (tail == node) return;
+			remove(node);
+			addLast(node);
+		}
+
+		void clear() {
+			head = null;
+			tail = null;
+			weight = 0;
+		}
+	}
+}
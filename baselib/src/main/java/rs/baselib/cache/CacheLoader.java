@@ -0,0 +1,72 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes or retrieves values for a {@link ILoadingCache}.
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+@FunctionalInterface
+public interface CacheLoader<K,V> {
+
+	/**
+	 * Loads the value for the given key.
+	 * @param key the key
+	 * @return the value or {@code null} when no value exists for this key
+	 * @throws Exception when loading fails
+	 */
+	V load(K key) throws Exception;
+
+	/**
+	 * Loads a new value for a key that is already cached.
+	 * <p>The method is called when a cached value is refreshed in the background.
+	 * The default implementation calls {@link #load(Object)}.</p>
+	 * @param key the key
+	 * @param oldValue the value currently cached
+	 * @return the new value or {@code null} when no value exists anymore for this key
+	 * @throws Exception when loading fails, the old value will be kept
+	 */
+	default V reload(K key, V oldValue) throws Exception {
+		return load(key);
+	}
+
+	/**
+	 * Loads the values for the given keys.
+	 * <p>The default implementation calls {@link #load(Object)} for each key. Implementations should
+	 * override this method when the values can be retrieved more efficiently in one call, e.g. by
+	 * a single database query.</p>
+	 * @param keys the keys
+	 * @return the values found, keys without a value can be omitted
+	 * @throws Exception when loading fails
+	 */
+	default Map<K,V> loadAll(Collection<? extends K> keys) throws Exception {
+		Map<K,V> rc = new LinkedHashMap<K,V>();
+		for (K key : keys) {
+			V value = load(key);
+			if (value != null) rc.put(key, value);
+		}
+		return rc;
+	}
+}
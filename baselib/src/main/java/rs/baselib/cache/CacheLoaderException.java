@@ -0,0 +1,62 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * Exception thrown when a value cannot be loaded into a cache.
+ * <p>The exception thrown by the {@link CacheLoader} is available as cause.</p>
+ * @author ralph
+ *
+ */
+public class CacheLoaderException extends Exception {
+
+	/**
+	 * Serial ID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private Object key;
+
+	/**
+	 * Constructor.
+	 * @param key the key that was loaded
+	 * @param message error message
+	 * @param cause root cause exception
+	 */
+	public CacheLoaderException(Object key, String message, Throwable cause) {
+		super(message, cause);
+		this.key = key;
+	}
+
+	/**
+	 * Constructor.
+	 * @param key the key that was loaded
+	 * @param cause root cause exception
+	 */
+	public CacheLoaderException(Object key, Throwable cause) {
+		this(key, "Cannot load value for key: "+key, cause);
+	}
+
+	/**
+	 * Returns the key that was loaded.
+	 * @return the key (or keys in case of bulk loading)
+	 */
+	public Object getKey() {
+		return key;
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the statistics of a cache.
+ * <p>The load latencies are kept in a histogram with buckets of powers of two: bucket {@code i}
+ * counts the loads that took from 2<sup>i</sup> to 2<sup>i+1</sup>-1 nanoseconds.</p>
+ * @author ralph
+ * @see IStatsCounter
+ *
+ */
+public final class CacheStats {
+
+	/** Number of buckets in the load latency histogram */
+	public static final int HISTOGRAM_BUCKETS = 64;
+
+	/** The statistics of a cache that does not record anything */
+	public static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, null, null);
+
+	private long hitCount;
+	private long missCount;
+	private long loadSuccessCount;
+	private long loadFailureCount;
+	private long totalLoadTime;
+	private long evictionCounts[];
+	private long loadLatencyHistogram[];
+	private long entryCount;
+	private long estimatedBytes;
+
+	/**
+	 * Constructor.
+	 * @param hitCount number of lookups that found a value
+	 * @param missCount number of lookups that did not find a value
+	 * @param loadSuccessCount number of successful loads
+	 * @param loadFailureCount number of failed loads
+	 * @param totalLoadTime nanoseconds spent in loads
+	 * @param evictionCounts number of evictions, indexed by {@link RemovalCause#ordinal()} (can be {@code null})
+	 * @param loadLatencyHistogram load latency histogram (can be {@code null})
+	 */
+	public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTime, long evictionCounts[], long loadLatencyHistogram[]) {
+		this(hitCount, missCount, loadSuccessCount, loadFailureCount, totalLoadTime, evictionCounts, loadLatencyHistogram, -1L, -1L);
+	}
+
+	/**
+	 * Constructor.
+	 * @param hitCount number of lookups that found a value
+	 * @param missCount number of lookups that did not find a value
+	 * @param loadSuccessCount number of successful loads
+	 * @param loadFailureCount number of failed loads
+	 * @param totalLoadTime nanoseconds spent in loads
+	 * @param evictionCounts number of evictions, indexed by {@link RemovalCause#ordinal()} (can be {@code null})
+	 * @param loadLatencyHistogram load latency histogram (can be {@code null})
+	 * @param entryCount number of entries in the cache or -1 when unknown
+	 * @param estimatedBytes estimated memory used by the entries or -1 when unknown
+	 */
+	public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTime, long evictionCounts[], long loadLatencyHistogram[], long entryCount, long estimatedBytes) {
+		this.hitCount             = hitCount;
+		this.missCount            = missCount;
+		this.loadSuccessCount     = loadSuccessCount;
+		this.loadFailureCount     = loadFailureCount;
+		this.totalLoadTime        = totalLoadTime;
+		this.evictionCounts       = new long[RemovalCause.values().length];
+		this.loadLatencyHistogram = new long[HISTOGRAM_BUCKETS];
+		this.entryCount           = entryCount;
+		this.estimatedBytes       = estimatedBytes;
+		if (evictionCounts != null) System.arraycopy(evictionCounts, 0, this.evictionCounts, 0, Math.min(evictionCounts.length, this.evictionCounts.length));
+		if (loadLatencyHistogram != null) System.arraycopy(loadLatencyHistogram, 0, this.loadLatencyHistogram, 0, Math.min(loadLatencyHistogram.length, HISTOGRAM_BUCKETS));
+	}
+
+	/**
+	 * Returns a copy of these statistics with the given footprint of the cache.
+	 * @param entryCount number of entries in the cache or -1 when unknown
+	 * @param estimatedBytes estimated memory used by the entries or -1 when unknown
+	 * @return the new statistics
+	 */
+	public CacheStats withFootprint(long entryCount, long estimatedBytes) {
+		return new CacheStats(hitCount, missCount, loadSuccessCount, loadFailureCount, totalLoadTime, evictionCounts, loadLatencyHistogram, entryCount, estimatedBytes);
+	}
+
+	/**
+	 * Returns the number of lookups that found a value.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find a value.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of lookups.
+	 * @return hits and misses
+	 */
+	public long getRequestCount() {
+		return hitCount + missCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups that found a value.
+	 * @return the hit rate (1 when there were no lookups)
+	 */
+	public double getHitRate() {
+		long requestCount = getRequestCount();
+		return requestCount == 0 ? 1.0d : (double)hitCount / requestCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups that did not find a value.
+	 * @return the miss rate (0 when there were no lookups)
+	 */
+	public double getMissRate() {
+		long requestCount = getRequestCount();
+		return requestCount == 0 ? 0.0d : (double)missCount / requestCount;
+	}
+
+	/**
+	 * Returns the number of successful loads.
+	 * @return the load success count
+	 */
+	public long getLoadSuccessCount() {
+		return loadSuccessCount;
+	}
+
+	/**
+	 * Returns the number of failed loads.
+	 * @return the load failure count
+	 */
+	public long getLoadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 * Returns the number of loads.
+	 * @return successful and failed loads
+	 */
+	public long getLoadCount() {
+		return loadSuccessCount + loadFailureCount;
+	}
+
+	/**
+	 * Returns the time spent in loads.
+	 * @return the total load time in nanoseconds
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+
+	/**
+	 * Returns the average time of a load.
+	 * @return the average load time in nanoseconds
+	 */
+	public double getAverageLoadPenalty() {
+		long loadCount = getLoadCount();
+		return loadCount == 0 ? 0.0d : (double)totalLoadTime / loadCount;
+	}
+
+	/**
+	 * Returns the number of entries evicted for any cause.
+	 * @return the eviction count
+	 */
+	public long getEvictionCount() {
+		long rc = 0;
+		for (long count : evictionCounts) rc += count;
+		return rc;
+	}
+
+	/**
+	 * Returns the number of entries evicted for the given cause.
+	 * @param cause the cause
+	 * @return the eviction count
+	 */
+	public long getEvictionCount(RemovalCause cause) {
+		return evictionCounts[cause.ordinal()];
+	}
+
+	/**
+	 * Returns the load latency histogram.
+	 * @return a copy of the histogram
+	 */
+	public long[] getLoadLatencyHistogram() {
+		return loadLatencyHistogram.clone();
+	}
+
+	/**
+	 * Returns the estimated load latency at the given percentile.
+	 * @param percentile the percentile (0 to 100)
+	 * @return the upper bound of the histogram bucket in nanoseconds, 0 when nothing was loaded
+	 */
+	public long getLoadLatencyPercentile(double percentile) {
+		long total = 0;
+		for (long count : loadLatencyHistogram) total += count;
+		if (total == 0) return 0L;
+		long rank = Math.max(1L, (long)Math.ceil(total * percentile / 100d));
+		long seen = 0;
+		for (int i=0; i<HISTOGRAM_BUCKETS; i++) {
+			seen += loadLatencyHistogram[i];
+			if (seen >= rank) return i < HISTOGRAM_BUCKETS - 1 ? (1L << (i+1)) - 1 : Long.MAX_VALUE;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the number of entries in the cache when the snapshot was taken.
+	 * @return the entry count or -1 when unknown
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Returns the estimated memory used by the entries when the snapshot was taken.
+	 * @return the bytes or -1 when unknown
+	 */
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Long.hashCode(hitCount);
+		result = prime * result + Long.hashCode(missCount);
+		result = prime * result + Long.hashCode(loadSuccessCount);
+		result = prime * result + Long.hashCode(loadFailureCount);
+		result = prime * result + Long.hashCode(totalLoadTime);
+		result = prime * result + Arrays.hashCode(evictionCounts);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof CacheStats)) return false;
+		CacheStats other = (CacheStats)obj;
+		return (hitCount == other.hitCount) && (missCount == other.missCount)
+				&& (loadSuccessCount == other.loadSuccessCount) && (loadFailureCount == other.loadFailureCount)
+				&& (totalLoadTime == other.totalLoadTime) && Arrays.equals(evictionCounts, other.evictionCounts)
+				&& Arrays.equals(loadLatencyHistogram, other.loadLatencyHistogram)
+				&& (entryCount == other.entryCount) && (estimatedBytes == other.estimatedBytes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return getClass().getSimpleName()+"[hitCount="+hitCount+";missCount="+missCount
+				+";loadSuccessCount="+loadSuccessCount+";loadFailureCount="+loadFailureCount
+				+";totalLoadTime="+totalLoadTime+";evictionCount="+getEvictionCount()
+				+";entryCount="+entryCount+";estimatedBytes="+estimatedBytes+"]";
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Exports the statistics of a cache via JMX.
+ * <p>Counter attributes read a fresh snapshot of the {@link ICache#getStatsCounter() stats counter}.
+ * Only {@link #getEntryCount()} and {@link #getEstimatedBytes()} ask the cache for its footprint, which can
+ * take linear time, e.g. for a {@link TieredCache}.</p>
+ * @author ralph
+ *
+ */
+public class CacheStatsExporter implements ICacheStatsMXBean {
+
+	/** The JMX domain of the cache beans */
+	public static final String DOMAIN = "rs.baselib.cache";
+
+	/**
+	 * Registers the statistics of the cache with the platform MBean server.
+	 * @param cache the cache
+	 * @param name the name of the cache
+	 * @return the name of the registered bean
+	 * @throws JMException when the bean cannot be registered
+	 */
+	public static ObjectName register(ICache<?,?> cache, String name) throws JMException {
+		ObjectName rc = getObjectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new CacheStatsExporter(cache), rc);
+		return rc;
+	}
+
+	/**
+	 * Removes the statistics of the cache from the platform MBean server.
+	 * @param name the name of the cache
+	 * @throws JMException when the bean cannot be unregistered
+	 */
+	public static void unregister(String name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(getObjectName(name));
+	}
+
+	/**
+	 * Returns the JMX name of the cache statistics.
+	 * @param name the name of the cache
+	 * @return the JMX name
+	 * @throws JMException when the name is invalid
+	 */
+	public static ObjectName getObjectName(String name) throws JMException {
+		return new ObjectName(DOMAIN+":type=CacheStats,name="+ObjectName.quote(name));
+	}
+
+	private ICache<?,?> cache;
+
+	/**
+	 * Constructor.
+	 * @param cache the cache to be exported
+	 */
+	public CacheStatsExporter(ICache<?,?> cache) {
+		if (cache == null) throw new IllegalArgumentException("Cache must be set");
+		this.cache = cache;
+	}
+
+	/**
+	 * Returns the cache.
+	 * @return the cache
+	 */
+	public ICache<?, ?> getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the statistics recorded so far, without the footprint of the cache.
+	 * @return the counters
+	 */
+	protected CacheStats getCounters() {
+		return cache.getStatsCounter().snapshot();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getHitCount() {
+		return getCounters().getHitCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMissCount() {
+		return getCounters().getMissCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getHitRate() {
+		return getCounters().getHitRate();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLoadSuccessCount() {
+		return getCounters().getLoadSuccessCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLoadFailureCount() {
+		return getCounters().getLoadFailureCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getAverageLoadPenalty() {
+		return getCounters().getAverageLoadPenalty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLoadLatencyMedian() {
+		return getCounters().getLoadLatencyPercentile(50d);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getLoadLatency99thPercentile() {
+		return getCounters().getLoadLatencyPercentile(99d);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEvictionCount() {
+		return getCounters().getEvictionCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Long> getEvictionCounts() {
+		CacheStats stats = getCounters();
+		Map<String, Long> rc = new LinkedHashMap<String, Long>();
+		for (RemovalCause cause : RemovalCause.values()) {
+			if (cause.isEviction()) rc.put(cause.name(), stats.getEvictionCount(cause));
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEntryCount() {
+		return cache.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return cache.getEstimatedBytes();
+	}
+
+}
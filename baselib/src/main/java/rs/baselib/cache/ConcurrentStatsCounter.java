@@ -0,0 +1,112 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe stats counter based on {@link LongAdder}s.
+ * <p>The adders are striped internally, so concurrent threads rarely contend when recording.</p>
+ * @author ralph
+ *
+ */
+public class ConcurrentStatsCounter implements IStatsCounter {
+
+	private LongAdder hitCount = new LongAdder();
+	private LongAdder missCount = new LongAdder();
+	private LongAdder loadSuccessCount = new LongAdder();
+	private LongAdder loadFailureCount = new LongAdder();
+	private LongAdder totalLoadTime = new LongAdder();
+	private LongAdder evictionCounts[];
+	private LongAdder loadLatencyHistogram[];
+
+	/**
+	 * Constructor.
+	 */
+	public ConcurrentStatsCounter() {
+		evictionCounts = new LongAdder[RemovalCause.values().length];
+		for (int i=0; i<evictionCounts.length; i++) evictionCounts[i] = new LongAdder();
+		loadLatencyHistogram = new LongAdder[CacheStats.HISTOGRAM_BUCKETS];
+		for (int i=0; i<loadLatencyHistogram.length; i++) loadLatencyHistogram[i] = new LongAdder();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void recordHits(int count) {
+		hitCount.add(count);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void recordMisses(int count) {
+		missCount.add(count);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void recordLoadSuccess(long loadNanos) {
+		loadSuccessCount.increment();
+		recordLoadTime(loadNanos);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void recordLoadFailure(long loadNanos) {
+		loadFailureCount.increment();
+		recordLoadTime(loadNanos);
+	}
+
+	/**
+	 * Records the time of a load.
+	 * @param loadNanos the time the load took in nanoseconds
+	 */
+	protected void recordLoadTime(long loadNanos) {
+		if (loadNanos < 0) loadNanos = 0;
+		totalLoadTime.add(loadNanos);
+		loadLatencyHistogram[Math.max(0, 63 - Long.numberOfLeadingZeros(loadNanos))].increment();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void recordEviction(RemovalCause cause, int count) {
+		evictionCounts[cause.ordinal()].add(count);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CacheStats snapshot() {
+		long evictions[] = new long[evictionCounts.length];
+		for (int i=0; i<evictions.length; i++) evictions[i] = evictionCounts[i].sum();
+		long histogram[] = new long[loadLatencyHistogram.length];
+		for (int i=0; i<histogram.length; i++) histogram[i] = loadLatencyHistogram[i].sum();
+		return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(), totalLoadTime.sum(), evictions, histogram);
+	}
+
+}
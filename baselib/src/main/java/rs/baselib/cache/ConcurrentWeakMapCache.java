@@ -0,0 +1,53 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A thread-safe cache implementation using a {@link java.util.concurrent.ConcurrentHashMap} with {@link WeakReference}s.
+ * <p>This cache can be used as a drop-in replacement for {@link WeakMapCache} when multiple threads share the cache.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class ConcurrentWeakMapCache<K,V> extends AbstractConcurrentReferenceCache<K, V> {
+
+	/**
+	 * Constructor.
+	 */
+	public ConcurrentWeakMapCache() {
+	}
+
+	/**
+	 * Constructor.
+	 * @param initialCapacity the number of mappings expected
+	 */
+	public ConcurrentWeakMapCache(int initialCapacity) {
+		super(initialCapacity);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected KeyReference<K, V> createReference(K key, V value, KeyReference.Owner<K,V> owner) {
+		return new WeakKeyReference<K,V>(key, value, owner);
+	}
+}
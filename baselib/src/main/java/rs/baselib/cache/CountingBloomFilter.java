@@ -0,0 +1,243 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scalable Bloom filter with 4-bit counters that supports removal.
+ * <p>The filter answers whether an element might have been added. A negative answer is definite,
+ * a positive answer is wrong with about the configured false-positive rate.</p>
+ * <p>The filter starts with one stage sized for the expected number of elements. When a stage is full,
+ * a new stage with twice the capacity and half the false-positive rate is added, so the total
+ * rate stays below the target however many elements are added. Each stage uses
+ * about {@code -ln(p) / ln(2)^2} counters per element at half a byte each.</p>
+ * <p>Removing an element that was never added, or removing an element that was added to an older stage
+ * while a newer stage reports a false positive, can cause false negatives for other elements.
+ * Counters that reach their maximum are never decremented again.</p>
+ * <p>All methods are synchronized.</p>
+ * @author ralph
+ *
+ */
+public class CountingBloomFilter {
+
+	private static final int MAX_COUNT = 15;
+	private static final double LN2 = Math.log(2);
+
+	private double falsePositiveRate;
+	private List<Stage> stages = new ArrayList<Stage>();
+	private long count;
+
+	/**
+	 * Constructor.
+	 * @param expectedElements the number of elements expected
+	 * @param falsePositiveRate the target rate of false positives (0 to 1)
+	 */
+	public CountingBloomFilter(long expectedElements, double falsePositiveRate) {
+		if (expectedElements < 1) throw new IllegalArgumentException("expectedElements must be positive");
+		if ((falsePositiveRate <= 0d) || (falsePositiveRate >= 1d)) throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		this.falsePositiveRate = falsePositiveRate;
+		// The rates of all stages sum up to the target: p/2 + p/4 + ...
+		stages.add(new Stage(expectedElements, falsePositiveRate / 2d));
+	}
+
+	/**
+	 * Returns the target rate of false positives.
+	 * @return the false-positive rate
+	 */
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+
+	/**
+	 * Returns the number of elements added and not removed.
+	 * @return the number of elements
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of stages.
+	 * @return the number of stages
+	 */
+	public synchronized int getStageCount() {
+		return stages.size();
+	}
+
+	/**
+	 * Returns the memory used by the counters.
+	 * @return the number of bytes
+	 */
+	public synchronized long getMemoryBytes() {
+		long rc = 0;
+		for (Stage stage : stages) rc += 8L * stage.counters.length;
+		return rc;
+	}
+
+	/**
+	 * Adds the element.
+	 * @param element the element
+	 */
+	public synchronized void add(Object element) {
+		Stage stage = stages.get(stages.size()-1);
+		if (stage.count >= stage.capacity) {
+			stage = new Stage(2L * stage.capacity, stage.falsePositiveRate / 2d);
+			stages.add(stage);
+		}
+		stage.add(hash(element));
+		count++;
+	}
+
+	/**
+	 * Returns whether the element might have been added.
+	 * @param element the element
+	 * @return {@code false} when the element was definitely not added
+	 */
+	public synchronized boolean mightContain(Object element) {
+		long hash = hash(element);
+		for (int i=stages.size()-1; i>=0; i--) {
+			if (stages.get(i).contains(hash)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the element.
+	 * <p>The element is removed from the newest stage that might contain it.</p>
+	 * @param element the element that was added before
+	 * @return {@code true} when the element might have been contained
+	 */
+	public synchronized boolean remove(Object element) {
+		long hash = hash(element);
+		for (int i=stages.size()-1; i>=0; i--) {
+			Stage stage = stages.get(i);
+			if (stage.contains(hash)) {
+				stage.remove(hash);
+				count--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all elements.
+	 * <p>Only the first stage is kept.</p>
+	 */
+	public synchronized void clear() {
+		Stage first = stages.get(0);
+		stages.clear();
+		stages.add(new Stage(first.capacity, first.falsePositiveRate));
+		count = 0;
+	}
+
+	/**
+	 * Computes the 64-bit hash of an element.
+	 * <p>Character sequences and numbers are hashed from their content, so e.g. strings with the same
+	 * {@link Object#hashCode()} still use different counters. Other elements are hashed from their
+	 * {@link Object#hashCode()}.</p>
+	 * @param element the element
+	 * @return the hash
+	 */
+	static long hash(Object element) {
+		long h = 0;
+		if (element instanceof CharSequence) {
+			// FNV-1a
+			CharSequence s = (CharSequence)element;
+			h = 0xCBF29CE484222325L;
+			for (int i=0; i<s.length(); i++) {
+				h ^= s.charAt(i);
+				h *= 0x100000001B3L;
+			}
+		} else if ((element instanceof Double) || (element instanceof Float)) {
+			h = Double.doubleToLongBits(((Number)element).doubleValue());
+		} else if ((element instanceof Long) || (element instanceof Integer) || (element instanceof Short) || (element instanceof Byte)) {
+			h = ((Number)element).longValue();
+		} else if (element != null) {
+			h = element.hashCode();
+		}
+		// SplitMix64 finalizer
+		h ^= h >>> 30;
+		h *= 0xBF58476D1CE4E5B9L;
+		h ^= h >>> 27;
+		h *= 0x94D049BB133111EBL;
+		h ^= h >>> 31;
+		return h;
+	}
+
+	/**
+	 * A counting Bloom filter of fixed capacity.
+	 */
+	private static class Stage {
+		long capacity;
+		double falsePositiveRate;
+		long count;
+		long counters[];
+		int numCounters;
+		int numHashes;
+
+		Stage(long capacity, double falsePositiveRate) {
+			this.capacity          = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			long m = (long)Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+			m = Math.max(64, Math.min(m, 16L * (Integer.MAX_VALUE - 8)));
+			this.numCounters = (int)Math.min(m, Integer.MAX_VALUE);
+			this.numHashes   = Math.max(1, (int)Math.round((double)m / capacity * LN2));
+			this.counters    = new long[(numCounters + 15) / 16];
+		}
+
+		void add(long hash) {
+			int h1 = (int)hash;
+			int h2 = (int)(hash >>> 32);
+			for (int i=0; i<numHashes; i++) {
+				int index = Math.floorMod(h1 + i * h2, numCounters);
+				int shift = (index & 15) << 2;
+				int slot  = index >>> 4;
+				long value = (counters[slot] >>> shift) & 0xFL;
+				if (value < MAX_COUNT) counters[slot] += 1L << shift;
+			}
+			count++;
+		}
+
+		boolean contains(long hash) {
+			int h1 = (int)hash;
+			int h2 = (int)(hash >>> 32);
+			for (int i=0; i<numHashes; i++) {
+				int index = Math.floorMod(h1 + i * h2, numCounters);
+				if (((counters[index >>> 4] >>> ((index & 15) << 2)) & 0xFL) == 0) return false;
+			}
+			return true;
+		}
+
+		void remove(long hash) {
+			int h1 = (int)hash;
+			int h2 = (int)(hash >>> 32);
+			for (int i=0; i<numHashes; i++) {
+				int index = Math.floorMod(h1 + i * h2, numCounters);
+				int shift = (index & 15) << 2;
+				int slot  = index >>> 4;
+				long value = (counters[slot] >>> shift) & 0xFL;
+				// Saturated counters might count more elements than they can hold
+				if ((value > 0) && (value < MAX_COUNT)) counters[slot] -= 1L << shift;
+			}
+			count--;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * The policy that a size-bounded cache uses to select entries for eviction.
+ * @author ralph
+ * @see BoundedCache
+ *
+ */
+public enum EvictionPolicy {
+
+	/** Evicts the least recently used entry. */
+	LRU,
+
+	/**
+	 * Window TinyLFU: new entries pass a small LRU window and are admitted to the
+	 * segmented LRU main space only when they were accessed more frequently than the entry
+	 * that would be evicted for them.
+	 */
+	TINY_LFU;
+
+}
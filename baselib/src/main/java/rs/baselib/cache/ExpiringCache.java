@@ -0,0 +1,401 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache that removes entries from another cache after a given time.
+ * <p>Entries can expire a fixed time after they were written (time-to-live) and/or after they were
+ * last read (time-to-idle). Both policies can be set for the whole cache and overridden per entry
+ * by {@link #put(Object, Object, long, long, TimeUnit)}. Expired entries are never returned.
+ * They are removed from the wrapped cache by a {@link TimerWheel} in constant time per entry.</p>
+ * <p>The time is read from a {@link Ticker} which can be replaced for testing.</p>
+ * <p>The wrapped cache must not be modified directly. All methods of this class are synchronized.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class ExpiringCache<K,V> extends AbstractCacheWrapper<K, V> {
+
+	/** Marks an expiration policy as not set. */
+	public static final long NEVER = -1L;
+
+	private Map<Object,Expiration<K>> expirations = new HashMap<Object,Expiration<K>>();
+	private Ticker ticker;
+	private TimerWheel<Expiration<K>> timerWheel;
+	private long expireAfterWriteNanos = NEVER;
+	private long expireAfterAccessNanos = NEVER;
+
+	/**
+	 * Constructor.
+	 * <p>The cache will use a {@link SoftMapCache} to hold the values.</p>
+	 */
+	public ExpiringCache() {
+		this(new SoftMapCache<K,V>());
+	}
+
+	/**
+	 * Constructor.
+	 * @param wrapped the cache that holds the values
+	 */
+	public ExpiringCache(ICache<K,V> wrapped) {
+		this(wrapped, Ticker.SYSTEM);
+	}
+
+	/**
+	 * Constructor.
+	 * @param wrapped the cache that holds the values
+	 * @param ticker the time source
+	 */
+	public ExpiringCache(ICache<K,V> wrapped, Ticker ticker) {
+		super(wrapped);
+		if (ticker == null) throw new IllegalArgumentException("Ticker must be set");
+		this.ticker     = ticker;
+		this.timerWheel = new TimerWheel<Expiration<K>>(ticker.read());
+	}
+
+	/**
+	 * Returns the time source.
+	 * @return the ticker
+	 */
+	public Ticker getTicker() {
+		return ticker;
+	}
+
+	/**
+	 * Sets the time after writing an entry that it expires.
+	 * <p>The setting applies to entries written after this call.</p>
+	 * @param duration the duration or {@link #NEVER}
+	 * @param unit the time unit of the duration
+	 */
+	public synchronized void setExpireAfterWrite(long duration, TimeUnit unit) {
+		this.expireAfterWriteNanos = toNanos(duration, unit);
+	}
+
+	/**
+	 * Returns the time after writing an entry that it expires.
+	 * @param unit the time unit of the result
+	 * @return the duration or {@link #NEVER}
+	 */
+	public synchronized long getExpireAfterWrite(TimeUnit unit) {
+		return expireAfterWriteNanos != NEVER ? unit.convert(expireAfterWriteNanos, TimeUnit.NANOSECONDS) : NEVER;
+	}
+
+	/**
+	 * Sets the time after the last access to an entry that it expires.
+	 * <p>The setting applies to entries written after this call.</p>
+	 * @param duration the duration or {@link #NEVER}
+	 * @param unit the time unit of the duration
+	 */
+	public synchronized void setExpireAfterAccess(long duration, TimeUnit unit) {
+		this.expireAfterAccessNanos = toNanos(duration, unit);
+	}
+
+	/**
+	 * Returns the time after the last access to an entry that it expires.
+	 * @param unit the time unit of the result
+	 * @return the duration or {@link #NEVER}
+	 */
+	public synchronized long getExpireAfterAccess(TimeUnit unit) {
+		return expireAfterAccessNanos != NEVER ? unit.convert(expireAfterAccessNanos, TimeUnit.NANOSECONDS) : NEVER;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int size() {
+		cleanUp();
+		return super.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean isEmpty() {
+		cleanUp();
+		return super.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This method does not count as access.</p>
+	 */
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		long now = ticker.read();
+		cleanUp(now);
+		Expiration<K> expiration = expirations.get(key);
+		if ((expiration != null) && isExpired(expiration, now)) {
+			expire(expiration);
+			return false;
+		}
+		return super.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean containsValue(Object value) {
+		cleanUp();
+		return super.containsValue(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized V get(Object key) {
+		long now = ticker.read();
+		cleanUp(now);
+		Expiration<K> expiration = expirations.get(key);
+		if (expiration != null) {
+			if (isExpired(expiration, now)) {
+				expire(expiration);
+				getStatsCounter().recordMisses(1);
+				return null;
+			}
+			if (expiration.accessNanos != NEVER) {
+				expiration.accessTime = now;
+				expiration.time = expiration.deadline();
+				timerWheel.reschedule(expiration);
+			}
+		}
+		V rc = super.get(key);
+		if (rc != null) getStatsCounter().recordHits(1);
+		else getStatsCounter().recordMisses(1);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The entry expires according to the policies of this cache.</p>
+	 */
+	@Override
+	public synchronized V put(K key, V value) {
+		return put(key, value, expireAfterWriteNanos, expireAfterAccessNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Puts an entry that expires after the given time.
+	 * <p>The time-to-idle policy of the cache is applied as well.</p>
+	 * @param key the key
+	 * @param value the value
+	 * @param expireAfterWrite the time-to-live of this entry or {@link #NEVER}
+	 * @param unit the time unit of the duration
+	 * @return the previous value associated with {@code key}, or {@code null}
+	 */
+	public synchronized V put(K key, V value, long expireAfterWrite, TimeUnit unit) {
+		return put(key, value, toNanos(expireAfterWrite, unit), expireAfterAccessNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Puts an entry with its own expiration policies.
+	 * @param key the key
+	 * @param value the value
+	 * @param expireAfterWrite the time-to-live of this entry or {@link #NEVER}
+	 * @param expireAfterAccess the time-to-idle of this entry or {@link #NEVER}
+	 * @param unit the time unit of the durations
+	 * @return the previous value associated with {@code key}, or {@code null}
+	 */
+	public synchronized V put(K key, V value, long expireAfterWrite, long expireAfterAccess, TimeUnit unit) {
+		long now = ticker.read();
+		cleanUp(now);
+		long writeNanos  = toNanos(expireAfterWrite, unit);
+		long accessNanos = toNanos(expireAfterAccess, unit);
+		Expiration<K> expiration = expirations.remove(key);
+		boolean expired = false;
+		if (expiration != null) {
+			timerWheel.deschedule(expiration);
+			expired = isExpired(expiration, now);
+		}
+		V rc = null;
+		if ((writeNanos == 0) || (accessNanos == 0)) {
+			// Expires immediately
+			rc = super.remove(key);
+		} else {
+			if ((writeNanos != NEVER) || (accessNanos != NEVER)) {
+				expiration = new Expiration<K>(key);
+				expiration.writeTime   = now;
+				expiration.accessTime  = now;
+				expiration.writeNanos  = writeNanos;
+				expiration.accessNanos = accessNanos;
+				expiration.time        = expiration.deadline();
+				expirations.put(key, expiration);
+				timerWheel.schedule(expiration);
+			}
+			rc = super.put(key, value);
+		}
+		return expired ? null : rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized V remove(Object key) {
+		long now = ticker.read();
+		cleanUp(now);
+		Expiration<K> expiration = expirations.remove(key);
+		V rc = super.remove(key);
+		if (expiration != null) {
+			timerWheel.deschedule(expiration);
+			if (isExpired(expiration, now)) rc = null;
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void clear() {
+		expirations.clear();
+		timerWheel.clear();
+		super.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public synchronized Set<K> keySet() {
+		long now = ticker.read();
+		cleanUp(now);
+		Set<K> rc = new LinkedHashSet<K>();
+		for (K key : super.keySet()) {
+			Expiration<K> expiration = expirations.get(key);
+			if ((expiration == null) || !isExpired(expiration, now)) rc.add(key);
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public synchronized Collection<V> values() {
+		long now = ticker.read();
+		cleanUp(now);
+		List<V> rc = new ArrayList<V>();
+		for (K key : super.keySet()) {
+			Expiration<K> expiration = expirations.get(key);
+			if ((expiration == null) || !isExpired(expiration, now)) {
+				V value = super.get(key);
+				if (value != null) rc.add(value);
+			}
+		}
+		return rc;
+	}
+
+	/**
+	 * Removes all entries that expired until now.
+	 * <p>This method is called by all other methods. It can be called regularly when the cache is idle.</p>
+	 */
+	public synchronized void cleanUp() {
+		cleanUp(ticker.read());
+	}
+
+	/**
+	 * Advances the timer wheel to the given time and removes all expired entries.
+	 * @param now the current time in nanoseconds
+	 */
+	protected void cleanUp(long now) {
+		timerWheel.advance(now, this::expire);
+	}
+
+	/**
+	 * Removes the expired entry.
+	 * @param expiration the expiration of the entry
+	 */
+	private void expire(Expiration<K> expiration) {
+		timerWheel.deschedule(expiration);
+		if (expirations.remove(expiration.key, expiration)) {
+			super.remove(expiration.key);
+			getStatsCounter().recordEviction(RemovalCause.EXPIRED, 1);
+		}
+	}
+
+	/**
+	 * Returns whether the entry expired at the given time.
+	 * @param expiration the expiration of the entry
+	 * @param now the current time in nanoseconds
+	 * @return {@code true} when expired
+	 */
+	private boolean isExpired(Expiration<K> expiration, long now) {
+		return (expiration.time - now) <= 0L;
+	}
+
+	/**
+	 * Converts a duration to nanoseconds.
+	 * @param duration the duration or {@link #NEVER}
+	 * @param unit the unit
+	 * @return the nanoseconds or {@link #NEVER}
+	 */
+	private static long toNanos(long duration, TimeUnit unit) {
+		if (duration < 0) return NEVER;
+		return unit.toNanos(duration);
+	}
+
+	/**
+	 * The expiration information of an entry.
+	 * @param <K> the key type
+	 */
+	static class Expiration<K> extends TimerWheel.Timer {
+		K key;
+		long writeTime;
+		long accessTime;
+		long writeNanos;
+		long accessNanos;
+
+		Expiration(K key) {
+			this.key = key;
+		}
+
+		/**
+		 * Computes the deadline from the policies.
+		 * @return the time when the entry expires
+		 */
+		long deadline() {
+			long rc = Long.MAX_VALUE;
+			boolean set = false;
+			if (writeNanos != NEVER) {
+				rc = writeTime + writeNanos;
+				set = true;
+			}
+			if (accessNanos != NEVER) {
+				long accessDeadline = accessTime + accessNanos;
+				if (!set || ((accessDeadline - rc) < 0L)) rc = accessDeadline;
+			}
+			return rc;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * A probabilistic estimator of the access frequency of elements (count-min sketch).
+ * <p>Each element is counted in four 4-bit counters, the estimate is the minimum of these.
+ * All counters are halved when the number of increments reaches the sample size so that
+ * old popularity fades (aging). The sketch uses 8 bytes per 16 counters and does not
+ * allocate after construction unless it is {@link #ensureCapacity(long) enlarged}.</p>
+ * @author ralph
+ *
+ */
+class FrequencySketch {
+
+	private static final long SEEDS[] = new long[] {
+			0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+	};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long ONE_MASK   = 0x1111111111111111L;
+	private static final int  MAX_COUNT  = 15;
+
+	private long table[];
+	private int tableMask;
+	private int sampleSize;
+	private int size;
+
+	/**
+	 * Constructor.
+	 * @param maximumSize the maximum number of elements that the cache holds
+	 */
+	public FrequencySketch(long maximumSize) {
+		ensureCapacity(maximumSize);
+	}
+
+	/**
+	 * Enlarges the sketch for the given number of elements.
+	 * <p>All frequencies are lost when the sketch grows.</p>
+	 * @param maximumSize the maximum number of elements that the cache holds
+	 */
+	public void ensureCapacity(long maximumSize) {
+		int capacity = (int)Math.min(Math.max(maximumSize, 16), 1 << 30);
+		int length   = Integer.highestOneBit(capacity - 1) << 1;
+		if ((table != null) && (table.length >= length)) return;
+		table      = new long[length];
+		tableMask  = table.length - 1;
+		sampleSize = (int)Math.min(10L * capacity, Integer.MAX_VALUE);
+		size       = 0;
+	}
+
+	/**
+	 * Returns the number of elements that the sketch was sized for.
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return table.length;
+	}
+
+	/**
+	 * Returns the estimated number of occurrences of the element (0 to 15).
+	 * @param e the element
+	 * @return the estimated frequency
+	 */
+	public int frequency(Object e) {
+		int hash  = spread(e != null ? e.hashCode() : 0);
+		int start = (hash & 3) << 2;
+		int rc    = MAX_COUNT;
+		for (int i=0; i<4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int)((table[index] >>> ((start + i) << 2)) & 0xfL);
+			rc = Math.min(rc, count);
+		}
+		return rc;
+	}
+
+	/**
+	 * Increments the frequency of the element if it did not yet reach the maximum.
+	 * @param e the element
+	 */
+	public void increment(Object e) {
+		int hash  = spread(e != null ? e.hashCode() : 0);
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i=0; i<4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && (++size >= sampleSize)) reset();
+	}
+
+	/**
+	 * Clears all counters.
+	 */
+	public void clear() {
+		for (int i=0; i<table.length; i++) table[i] = 0L;
+		size = 0;
+	}
+
+	/**
+	 * Increments the counter j in table slot i.
+	 * @param i the table index
+	 * @param j the counter within the slot (0 to 15)
+	 * @return whether the counter was incremented
+	 */
+	private boolean incrementAt(int i, int j) {
+		int offset = j << 2;
+		long mask = 0xfL << offset;
+		if ((table[i] & mask) != mask) {
+			table[i] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Halves all counters.
+	 */
+	private void reset() {
+		int odd = 0;
+		for (int i=0; i<table.length; i++) {
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size >>> 1) - (odd >>> 2);
+	}
+
+	/**
+	 * Returns the table index for the hash and the given counter depth.
+	 * @param hash the spread hash
+	 * @param i the depth (0 to 3)
+	 * @return the table index
+	 */
+	private int indexOf(int hash, int i) {
+		long rc = (hash + SEEDS[i]) * SEEDS[i];
+		rc += rc >>> 32;
+		return (int)rc & tableMask;
+	}
+
+	/**
+	 * Applies a supplemental hash function against poor quality hash codes.
+	 * @param x the hash code
+	 * @return the spread hash
+	 */
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
@@ -203,4 +203,60 @@ public interface ICache<K,V> {
      */
     Collection<V> values();
 
+    // Listeners and statistics
+
+    /**
+     * Sets the listener that is notified when entries are removed (optional
+     * operation).
+     *
+     * @param listener the listener or {@code null}
+     * @throws UnsupportedOperationException if the cache does not notify
+     *         about removals
+     */
+    default void setRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        throw new UnsupportedOperationException("Removal listeners are not supported by "+getClass().getName());
+    }
+
+    /**
+     * Returns the recorder of statistics for this cache.
+     *
+     * @return the stats counter, {@link IStatsCounter#DISABLED} when no
+     *         statistics are recorded
+     */
+    default IStatsCounter getStatsCounter() {
+        return IStatsCounter.DISABLED;
+    }
+
+    /**
+     * Sets the recorder of statistics for this cache (optional operation).
+     * Use a {@link ConcurrentStatsCounter} to enable statistics. When caches
+     * wrap each other, the statistics should be enabled on the outermost
+     * cache only as lookups would be counted twice otherwise.
+     *
+     * @param statsCounter the stats counter or {@link IStatsCounter#DISABLED}
+     * @throws UnsupportedOperationException if the cache does not record
+     *         statistics
+     */
+    default void setStatsCounter(IStatsCounter statsCounter) {
+        throw new UnsupportedOperationException("Statistics are not supported by "+getClass().getName());
+    }
+
+    /**
+     * Returns the estimated memory used by the entries of this cache.
+     *
+     * @return the number of bytes or -1 when unknown
+     */
+    default long getEstimatedBytes() {
+        return -1L;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.
+     *
+     * @return the statistics including the current footprint of the cache
+     */
+    default CacheStats getStats() {
+        return getStatsCounter().snapshot().withFootprint(size(), getEstimatedBytes());
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.Map;
+
+/**
+ * Management interface for the statistics of a cache.
+ * @author ralph
+ * @see CacheStatsExporter
+ *
+ */
+public interface ICacheStatsMXBean {
+
+	/**
+	 * Returns the number of lookups that found a value.
+	 * @return the hit count
+	 */
+	long getHitCount();
+
+	/**
+	 * Returns the number of lookups that did not find a value.
+	 * @return the miss count
+	 */
+	long getMissCount();
+
+	/**
+	 * Returns the ratio of lookups that found a value.
+	 * @return the hit rate
+	 */
+	double getHitRate();
+
+	/**
+	 * Returns the number of successful loads.
+	 * @return the load success count
+	 */
+	long getLoadSuccessCount();
+
+	/**
+	 * Returns the number of failed loads.
+	 * @return the load failure count
+	 */
+	long getLoadFailureCount();
+
+	/**
+	 * Returns the average time of a load.
+	 * @return the average load time in nanoseconds
+	 */
+	double getAverageLoadPenalty();
+
+	/**
+	 * Returns the median load time.
+	 * @return the load time in nanoseconds
+	 */
+	long getLoadLatencyMedian();
+
+	/**
+	 * Returns the 99th percentile of the load time.
+	 * @return the load time in nanoseconds
+	 */
+	long getLoadLatency99thPercentile();
+
+	/**
+	 * Returns the number of entries evicted for any cause.
+	 * @return the eviction count
+	 */
+	long getEvictionCount();
+
+	/**
+	 * Returns the number of entries evicted by cause.
+	 * @return the eviction counts by the name of the {@link RemovalCause}
+	 */
+	Map<String,Long> getEvictionCounts();
+
+	/**
+	 * Returns the number of entries in the cache.
+	 * @return the entry count
+	 */
+	long getEntryCount();
+
+	/**
+	 * Returns the estimated memory used by the entries.
+	 * @return the bytes or -1 when unknown
+	 */
+	long getEstimatedBytes();
+
+}
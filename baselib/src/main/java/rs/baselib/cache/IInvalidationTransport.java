@@ -0,0 +1,54 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidation messages between the {@link InvalidationBus} instances of different processes.
+ * <p>Messages are byte arrays that are delivered as a whole or not at all. Implementations
+ * may deliver a message back to its sender, the bus ignores its own messages.</p>
+ * @author ralph
+ * @see MulticastInvalidationTransport
+ *
+ */
+public interface IInvalidationTransport extends Closeable {
+
+	/**
+	 * Starts receiving messages.
+	 * @param receiver the receiver of all messages, called by a transport thread
+	 * @throws IOException when the transport cannot be opened
+	 */
+	void start(Consumer<byte[]> receiver) throws IOException;
+
+	/**
+	 * Sends the message to all other buses.
+	 * @param message the message, not longer than {@link #getMaximumMessageSize()}
+	 * @throws IOException when the message cannot be sent
+	 */
+	void send(byte message[]) throws IOException;
+
+	/**
+	 * Returns the maximum length of a message.
+	 * @return the maximum number of bytes in a message
+	 */
+	int getMaximumMessageSize();
+
+}
@@ -0,0 +1,49 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A cache that loads missing values on demand.
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public interface ILoadingCache<K,V> extends ICache<K,V> {
+
+	/**
+	 * Returns the value for the key and loads it when it is not cached yet.
+	 * <p>Concurrent calls for the same key wait for a single load.</p>
+	 * @param key the key
+	 * @return the value or {@code null} when the loader did not find a value
+	 * @throws CacheLoaderException when loading fails
+	 */
+	V getOrLoad(K key) throws CacheLoaderException;
+
+	/**
+	 * Returns the values for the keys and loads all missing values in one call.
+	 * @param keys the keys
+	 * @return the values found in the order of the keys, keys without a value are omitted
+	 * @throws CacheLoaderException when loading fails
+	 */
+	Map<K,V> getAll(Collection<? extends K> keys) throws CacheLoaderException;
+
+}
@@ -0,0 +1,45 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * Converts objects into bytes and back for caches that store their data outside the Java heap.
+ * <p>Implementations must be thread-safe. They throw an {@link IllegalArgumentException}
+ * when an object cannot be converted.</p>
+ * @param <T> the type of objects
+ * @author ralph
+ * @see Serializers
+ *
+ */
+public interface ISerializer<T> {
+
+	/**
+	 * Converts the object into bytes.
+	 * @param object the object
+	 * @return the bytes
+	 */
+	byte[] serialize(T object);
+
+	/**
+	 * Converts the bytes back into an object.
+	 * @param data the bytes as produced by {@link #serialize(Object)}
+	 * @return the object
+	 */
+	T deserialize(byte[] data);
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * Records the statistics of a cache.
+ * <p>Implementations must be thread-safe and as cheap as possible as they are called on every access.</p>
+ * @author ralph
+ * @see ICache#setStatsCounter(IStatsCounter)
+ *
+ */
+public interface IStatsCounter {
+
+	/** A counter that does not record anything. */
+	public static final IStatsCounter DISABLED = new IStatsCounter() {
+		@Override
+		public void recordHits(int count) {
+		}
+
+		@Override
+		public void recordMisses(int count) {
+		}
+
+		@Override
+		public void recordLoadSuccess(long loadNanos) {
+		}
+
+		@Override
+		public void recordLoadFailure(long loadNanos) {
+		}
+
+		@Override
+		public void recordEviction(RemovalCause cause, int count) {
+		}
+
+		@Override
+		public CacheStats snapshot() {
+			return CacheStats.EMPTY;
+		}
+	};
+
+	/**
+	 * Records lookups that found a value.
+	 * @param count the number of hits
+	 */
+	void recordHits(int count);
+
+	/**
+	 * Records lookups that did not find a value.
+	 * @param count the number of misses
+	 */
+	void recordMisses(int count);
+
+	/**
+	 * Records a successful load of a value.
+	 * @param loadNanos the time the load took in nanoseconds
+	 */
+	void recordLoadSuccess(long loadNanos);
+
+	/**
+	 * Records a load that failed or did not return a value.
+	 * @param loadNanos the time the load took in nanoseconds
+	 */
+	void recordLoadFailure(long loadNanos);
+
+	/**
+	 * Records entries removed automatically by the cache.
+	 * @param cause the cause of the eviction
+	 * @param count the number of entries
+	 */
+	void recordEviction(RemovalCause cause, int count);
+
+	/**
+	 * Returns a snapshot of the statistics recorded so far.
+	 * @return the statistics
+	 */
+	CacheStats snapshot();
+
+}
@@ -0,0 +1,226 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A cache with primitive {@code int} keys.
+ * <p>The cache stores the keys widened to {@code long} in a {@link LongKeyCache}, so the methods taking
+ * an {@code int} key neither box the key nor allocate on lookup. The methods of {@link ICache}
+ * accept {@link Integer} keys and are provided for compatibility.</p>
+ * <p>All methods are thread-safe.</p>
+ * @param <V> the value type
+ * @author ralph
+ * @see LongKeyCache
+ *
+ */
+public class IntKeyCache<V> implements ICache<Integer, V> {
+
+	private LongKeyCache<V> cache;
+
+	/**
+	 * Constructor.
+	 * <p>The cache holds values strongly and is unbounded.</p>
+	 */
+	public IntKeyCache() {
+		this(ReferenceType.STRONG, LongKeyCache.UNBOUNDED);
+	}
+
+	/**
+	 * Constructor.
+	 * <p>The cache is unbounded.</p>
+	 * @param referenceType how values are referenced
+	 */
+	public IntKeyCache(ReferenceType referenceType) {
+		this(referenceType, LongKeyCache.UNBOUNDED);
+	}
+
+	/**
+	 * Constructor.
+	 * @param referenceType how values are referenced
+	 * @param maximumSize the maximum number of entries or {@link LongKeyCache#UNBOUNDED}
+	 */
+	public IntKeyCache(ReferenceType referenceType, long maximumSize) {
+		cache = new LongKeyCache<V>(referenceType, maximumSize);
+	}
+
+	/**
+	 * Returns how values are referenced.
+	 * @return the reference type
+	 */
+	public ReferenceType getReferenceType() {
+		return cache.getReferenceType();
+	}
+
+	/**
+	 * Returns the maximum number of entries.
+	 * @return the maximum size or {@link LongKeyCache#UNBOUNDED}
+	 */
+	public long getMaximumSize() {
+		return cache.getMaximumSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return cache.getStatsCounter();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		cache.setStatsCounter(statsCounter);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return (key instanceof Integer) && cache.containsKey(((Integer)key).longValue());
+	}
+
+	/**
+	 * Returns whether a value is cached for the key.
+	 * <p>This method does not count as access.</p>
+	 * @param key the key
+	 * @return {@code true} when the key is mapped
+	 */
+	public boolean containsKey(int key) {
+		return cache.containsKey((long)key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsValue(Object value) {
+		return cache.containsValue(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key) {
+		if (!(key instanceof Integer)) {
+			getStatsCounter().recordMisses(1);
+			return null;
+		}
+		return cache.get(((Integer)key).longValue());
+	}
+
+	/**
+	 * Returns the value of the key.
+	 * @param key the key
+	 * @return the value or {@code null} when not cached
+	 */
+	public V get(int key) {
+		return cache.get((long)key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V put(Integer key, V value) {
+		if (key == null) throw new NullPointerException("Key must not be null");
+		return cache.put(key.longValue(), value);
+	}
+
+	/**
+	 * Maps the key to the value.
+	 * <p>A {@code null} value removes the mapping.</p>
+	 * @param key the key
+	 * @param value the value
+	 * @return the previous value or {@code null}
+	 */
+	public V put(int key, V value) {
+		return cache.put((long)key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(Object key) {
+		if (!(key instanceof Integer)) return null;
+		return cache.remove(((Integer)key).longValue());
+	}
+
+	/**
+	 * Removes the mapping of the key.
+	 * @param key the key
+	 * @return the previous value or {@code null}
+	 */
+	public V remove(int key) {
+		return cache.remove((long)key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public Set<Integer> keySet() {
+		Set<Integer> rc = new LinkedHashSet<Integer>();
+		for (Long key : cache.keySet()) rc.add(key.intValue());
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public Collection<V> values() {
+		return cache.values();
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * A cache that invalidates its keys in other processes when they are written.
+ * <p>The wrapped cache is registered at the {@link InvalidationBus} under the given name. Changes in other
+ * processes remove the keys from the wrapped cache. Local writes and removals are broadcast through the bus.
+ * Writing a value that is equal to the cached value does not invalidate the key.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class InvalidatingCache<K,V> extends AbstractCacheWrapper<K, V> {
+
+	private InvalidationBus bus;
+	private String name;
+
+	/**
+	 * Constructor.
+	 * @param bus the bus
+	 * @param name the name of the cache, the same in all processes
+	 * @param wrapped the cache that holds the values
+	 * @param keySerializer the serializer of keys
+	 */
+	public InvalidatingCache(InvalidationBus bus, String name, ICache<K,V> wrapped, ISerializer<K> keySerializer) {
+		super(wrapped);
+		if (bus == null) throw new IllegalArgumentException("Bus must be set");
+		this.bus  = bus;
+		this.name = name;
+		bus.register(name, wrapped, keySerializer);
+	}
+
+	/**
+	 * Returns the bus.
+	 * @return the bus
+	 */
+	public InvalidationBus getBus() {
+		return bus;
+	}
+
+	/**
+	 * Returns the name of the cache.
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key) {
+		V rc = super.get(key);
+		if (rc != null) getStatsCounter().recordHits(1);
+		else getStatsCounter().recordMisses(1);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The key is invalidated in other processes, even when the same value is put again,
+	 * as the value might have been changed in place.</p>
+	 */
+	@Override
+	public V put(K key, V value) {
+		V rc = super.put(key, value);
+		bus.invalidate(name, key);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The key is invalidated in other processes.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+		V rc = super.remove(key);
+		bus.invalidate(name, (K)key);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>All keys are invalidated in other processes.</p>
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		bus.invalidateAll(name);
+	}
+
+	/**
+	 * Unregisters the cache from the bus.
+	 */
+	public void detach() {
+		bus.unregister(name);
+	}
+}
@@ -0,0 +1,437 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Broadcasts key invalidations between caches in different processes.
+ * <p>Each process registers its local caches under a name that is the same in all processes.
+ * A write to a cache {@link #invalidate(String, Object) invalidates} the key and all other processes
+ * remove the key from their cache with that name. They will fetch the new value on their next access.</p>
+ * <p>Invalidations are collected for the {@link #setFlushDelay(long, TimeUnit) flush delay}. Repeated
+ * invalidations of a key within this time are coalesced and all keys of a cache are sent in as few messages
+ * as the {@link IInvalidationTransport transport} allows.</p>
+ * <p>Message format: magic number, sender ID, cache name, number of keys (-1 for all keys),
+ * then length and bytes of each key as produced by the key serializer.</p>
+ * @author ralph
+ * @see InvalidatingCache
+ *
+ */
+public class InvalidationBus implements Closeable {
+
+	/** The default flush delay in milliseconds */
+	public static final long DEFAULT_FLUSH_DELAY = 10L;
+
+	private static final int MAGIC = 0x52534942;
+	private static final int ALL_KEYS = -1;
+
+	private static Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+	private IInvalidationTransport transport;
+	private long senderId = new Random().nextLong();
+	private Map<String,Registration<?>> registrations = new ConcurrentHashMap<String,Registration<?>>();
+	private Map<String,Set<Object>> pendingKeys = new LinkedHashMap<String,Set<Object>>();
+	private Set<String> pendingAll = new LinkedHashSet<String>();
+	private int pendingCount = 0;
+	private int maximumPendingKeys = 1000;
+	private long flushDelay = DEFAULT_FLUSH_DELAY;
+	private FlushingThread flushingThread;
+	private boolean started = false;
+	private LongAdder sentMessages = new LongAdder();
+	private LongAdder sentKeys = new LongAdder();
+	private LongAdder receivedKeys = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * @param transport the transport of the messages
+	 */
+	public InvalidationBus(IInvalidationTransport transport) {
+		if (transport == null) throw new IllegalArgumentException("Transport must be set");
+		this.transport = transport;
+	}
+
+	/**
+	 * Returns the transport.
+	 * @return the transport
+	 */
+	public IInvalidationTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Starts receiving invalidations.
+	 * @throws IOException when the transport cannot be started
+	 */
+	public synchronized void start() throws IOException {
+		if (started) return;
+		transport.start(this::receive);
+		started = true;
+	}
+
+	/**
+	 * Returns whether the bus was started.
+	 * @return {@code true} when invalidations are received
+	 */
+	public synchronized boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * Registers a cache.
+	 * <p>Invalidations received for the name remove the keys from the cache. The cache should be the
+	 * plain cache, not a wrapper that broadcasts its changes.</p>
+	 * @param <K> the key type
+	 * @param name the name of the cache, the same in all processes
+	 * @param cache the cache
+	 * @param keySerializer the serializer of keys
+	 */
+	public <K> void register(String name, ICache<K,?> cache, ISerializer<K> keySerializer) {
+		if ((name == null) || (cache == null) || (keySerializer == null)) throw new IllegalArgumentException("Name, cache and serializer must be set");
+		if (registrations.putIfAbsent(name, new Registration<K>(cache, keySerializer)) != null) {
+			throw new IllegalStateException("Cache already registered: "+name);
+		}
+	}
+
+	/**
+	 * Unregisters a cache.
+	 * @param name the name of the cache
+	 */
+	public void unregister(String name) {
+		registrations.remove(name);
+	}
+
+	/**
+	 * Returns the delay before invalidations are sent.
+	 * @param unit the time unit of the result
+	 * @return the delay
+	 */
+	public synchronized long getFlushDelay(TimeUnit unit) {
+		return unit.convert(flushDelay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sets the delay before invalidations are sent.
+	 * <p>Longer delays coalesce more invalidations but leave stale values longer in other processes.
+	 * Default is {@value #DEFAULT_FLUSH_DELAY} milliseconds.</p>
+	 * @param delay the delay
+	 * @param unit the time unit of the delay
+	 */
+	public synchronized void setFlushDelay(long delay, TimeUnit unit) {
+		this.flushDelay = unit.toMillis(Math.max(0, delay));
+	}
+
+	/**
+	 * Returns the number of pending keys that triggers an immediate flush.
+	 * @return the maximum number of pending keys
+	 */
+	public synchronized int getMaximumPendingKeys() {
+		return maximumPendingKeys;
+	}
+
+	/**
+	 * Sets the number of pending keys that triggers an immediate flush.
+	 * @param maximumPendingKeys the maximum number of pending keys
+	 */
+	public synchronized void setMaximumPendingKeys(int maximumPendingKeys) {
+		if (maximumPendingKeys < 1) throw new IllegalArgumentException("maximumPendingKeys must be positive");
+		this.maximumPendingKeys = maximumPendingKeys;
+	}
+
+	/**
+	 * Invalidates a key in all other processes.
+	 * @param <K> the key type
+	 * @param name the name of the cache
+	 * @param key the key
+	 */
+	public synchronized <K> void invalidate(String name, K key) {
+		if (pendingAll.contains(name)) return;
+		Set<Object> keys = pendingKeys.get(name);
+		if (keys == null) {
+			keys = new LinkedHashSet<Object>();
+			pendingKeys.put(name, keys);
+		}
+		if (keys.add(key)) pendingCount++;
+		scheduleFlush();
+	}
+
+	/**
+	 * Invalidates all keys of a cache in all other processes.
+	 * @param name the name of the cache
+	 */
+	public synchronized void invalidateAll(String name) {
+		Set<Object> keys = pendingKeys.remove(name);
+		if (keys != null) pendingCount -= keys.size();
+		pendingAll.add(name);
+		scheduleFlush();
+	}
+
+	/**
+	 * Sends all pending invalidations.
+	 */
+	public synchronized void flush() {
+		for (String name : pendingAll) {
+			send(name, null);
+		}
+		for (Map.Entry<String,Set<Object>> entry : pendingKeys.entrySet()) {
+			send(entry.getKey(), entry.getValue());
+		}
+		pendingAll.clear();
+		pendingKeys.clear();
+		pendingCount = 0;
+	}
+
+	/**
+	 * Sends all pending invalidations and closes the transport.
+	 * @throws IOException when the transport cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			flush();
+			if (flushingThread != null) {
+				flushingThread.interrupt();
+				flushingThread = null;
+			}
+			started = false;
+		}
+		transport.close();
+	}
+
+	/**
+	 * Returns the number of messages sent.
+	 * @return the number of messages
+	 */
+	public long getSentMessageCount() {
+		return sentMessages.sum();
+	}
+
+	/**
+	 * Returns the number of keys sent.
+	 * @return the number of keys
+	 */
+	public long getSentKeyCount() {
+		return sentKeys.sum();
+	}
+
+	/**
+	 * Returns the number of keys received from other processes.
+	 * @return the number of keys
+	 */
+	public long getReceivedKeyCount() {
+		return receivedKeys.sum();
+	}
+
+	/**
+	 * Flushes immediately when too many keys are pending or starts the flushing thread.
+	 */
+	private void scheduleFlush() {
+		if ((pendingCount >= maximumPendingKeys) || (flushDelay == 0)) {
+			flush();
+		} else if (flushingThread == null) {
+			flushingThread = new FlushingThread();
+			flushingThread.start();
+		}
+	}
+
+	/**
+	 * Sends the invalidations of a cache.
+	 * @param name the name of the cache
+	 * @param keys the keys or {@code null} for all keys
+	 */
+	@SuppressWarnings("unchecked")
+	private void send(String name, Set<Object> keys) {
+		Registration<Object> registration = (Registration<Object>)registrations.get(name);
+		if ((keys != null) && (registration == null)) {
+			log.warn("Cannot invalidate keys of unregistered cache: "+name);
+			return;
+		}
+		try {
+			if (keys == null) {
+				transport.send(encode(name, null, ALL_KEYS));
+				sentMessages.increment();
+				return;
+			}
+			byte nameBytes[] = name.getBytes(StandardCharsets.UTF_8);
+			int headerSize = 4 + 8 + 2 + nameBytes.length + 4;
+			int maxSize = transport.getMaximumMessageSize();
+			List<byte[]> batch = new ArrayList<byte[]>();
+			int size = headerSize;
+			for (Object key : keys) {
+				byte data[] = registration.keySerializer.serialize(key);
+				if (headerSize + 4 + data.length > maxSize) {
+					log.warn("Key too long for invalidation in "+name+": "+key);
+					continue;
+				}
+				if (size + 4 + data.length > maxSize) {
+					sendBatch(name, batch);
+					batch.clear();
+					size = headerSize;
+				}
+				batch.add(data);
+				size += 4 + data.length;
+			}
+			if (!batch.isEmpty()) sendBatch(name, batch);
+		} catch (IOException | RuntimeException e) {
+			log.error("Cannot send invalidations for "+name, e);
+		}
+	}
+
+	/**
+	 * Sends a message with the keys.
+	 * @param name the name of the cache
+	 * @param keys the serialized keys
+	 * @throws IOException when the message cannot be sent
+	 */
+	private void sendBatch(String name, List<byte[]> keys) throws IOException {
+		transport.send(encode(name, keys, keys.size()));
+		sentMessages.increment();
+		sentKeys.add(keys.size());
+	}
+
+	/**
+	 * Creates a message.
+	 * @param name the name of the cache
+	 * @param keys the serialized keys
+	 * @param count the number of keys or {@link #ALL_KEYS}
+	 * @return the message
+	 * @throws IOException when the message cannot be written
+	 */
+	private byte[] encode(String name, List<byte[]> keys, int count) throws IOException {
+		byte nameBytes[] = name.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeLong(senderId);
+		out.writeShort(nameBytes.length);
+		out.write(nameBytes);
+		out.writeInt(count);
+		if (keys != null) {
+			for (byte key[] : keys) {
+				out.writeInt(key.length);
+				out.write(key);
+			}
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Processes a message from the transport.
+	 * @param message the message
+	 */
+	@SuppressWarnings("unchecked")
+	protected void receive(byte message[]) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+			if (in.readInt() != MAGIC) return;
+			if (in.readLong() == senderId) return;
+			byte nameBytes[] = new byte[in.readUnsignedShort()];
+			in.readFully(nameBytes);
+			String name = new String(nameBytes, StandardCharsets.UTF_8);
+			Registration<Object> registration = (Registration<Object>)registrations.get(name);
+			if (registration == null) return;
+			int count = in.readInt();
+			if (count == ALL_KEYS) {
+				registration.cache.clear();
+				return;
+			}
+			for (int i=0; i<count; i++) {
+				byte key[] = new byte[in.readInt()];
+				in.readFully(key);
+				registration.cache.remove(registration.keySerializer.deserialize(key));
+			}
+			receivedKeys.add(count);
+		} catch (IOException | RuntimeException e) {
+			log.error("Cannot process invalidation message", e);
+		}
+	}
+
+	/**
+	 * A registered cache.
+	 * @param <K> the key type
+	 */
+	private static class Registration<K> {
+		ICache<K,?> cache;
+		ISerializer<K> keySerializer;
+
+		Registration(ICache<K,?> cache, ISerializer<K> keySerializer) {
+			this.cache         = cache;
+			this.keySerializer = keySerializer;
+		}
+	}
+
+	/**
+	 * The thread that sends the pending invalidations after the flush delay.
+	 * <p>The thread ends when no invalidations are pending anymore.</p>
+	 * @author ralph
+	 *
+	 */
+	protected class FlushingThread extends Thread {
+
+		/**
+		 * Constructor.
+		 */
+		public FlushingThread() {
+			super("InvalidationBus-Flushing");
+			setDaemon(true);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			long delay = 0L;
+			synchronized (InvalidationBus.this) {
+				if (flushingThread != this) return;
+				delay = flushDelay;
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				// Bus was closed
+				return;
+			}
+			synchronized (InvalidationBus.this) {
+				if (flushingThread != this) return;
+				flushingThread = null;
+				flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * A reference that knows the key it is mapped with in a cache.
+ * <p>When the garbage collector clears the reference, the {@link ReferenceCleaner} calls
+ * {@link #purge()} so that the mapping is removed by its key.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public interface KeyReference<K,V> {
+
+	/**
+	 * Returns the key of this mapping.
+	 * @return the key
+	 */
+	K getKey();
+
+	/**
+	 * Returns the referenced value.
+	 * @return the value or {@code null} if cleared
+	 */
+	V get();
+
+	/**
+	 * Removes this reference from its cache.
+	 * @return {@code true} when the mapping was removed, {@code false} when the key was mapped to another reference already
+	 */
+	boolean purge();
+
+	/**
+	 * The cache that a reference purges itself from.
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 */
+	@FunctionalInterface
+	public static interface Owner<K,V> {
+
+		/**
+		 * Removes the mapping of the cleared reference.
+		 * <p>The mapping must only be removed when it still maps to the reference.</p>
+		 * @param ref the reference that was cleared
+		 * @return {@code true} when the mapping was removed
+		 */
+		boolean purge(KeyReference<K,V> ref);
+	}
+}
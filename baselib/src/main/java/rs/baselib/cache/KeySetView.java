@@ -0,0 +1,122 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * The key set of a synchronized cache.
+ * <p>The set is backed by the cache: removing a key from the set removes the mapping from the cache.
+ * All methods synchronize on the cache. Iterators work on a snapshot of the keys, so they do not fail
+ * when the cache is modified meanwhile, e.g. by purging cleared references.</p>
+ * @param <K> the key type
+ * @author ralph
+ *
+ */
+class KeySetView<K> extends AbstractSet<K> {
+
+	private ICache<K,?> cache;
+	private Set<K> keys;
+
+	/**
+	 * Constructor.
+	 * @param cache the cache, used as lock
+	 * @param keys the key set of the map holding the mappings of the cache
+	 */
+	public KeySetView(ICache<K,?> cache, Set<K> keys) {
+		this.cache = cache;
+		this.keys  = keys;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		synchronized (cache) {
+			return keys.size();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(Object o) {
+		synchronized (cache) {
+			return keys.contains(o);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean remove(Object o) {
+		synchronized (cache) {
+			if (!keys.contains(o)) return false;
+			cache.remove(o);
+			return true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<K> iterator() {
+		Iterator<K> snapshot;
+		synchronized (cache) {
+			snapshot = new ArrayList<K>(keys).iterator();
+		}
+		return new Iterator<K>() {
+			private K last;
+			private boolean canRemove = false;
+
+			@Override
+			public boolean hasNext() {
+				return snapshot.hasNext();
+			}
+
+			@Override
+			public K next() {
+				last = snapshot.next();
+				canRemove = true;
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (!canRemove) throw new IllegalStateException("next() was not called");
+				canRemove = false;
+				cache.remove(last);
+			}
+		};
+	}
+}
@@ -0,0 +1,491 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache that loads missing values from a {@link CacheLoader}.
+ * <p>When several threads miss the same key at the same time, only one of them calls the loader.
+ * The others wait for the result of this load. Bulk requests by {@link #getAll(Collection)} pass all
+ * missing keys to {@link CacheLoader#loadAll(Collection)} at once.</p>
+ * <p>A failed load is not cached. All threads waiting for it receive a {@link CacheLoaderException}
+ * with the same cause and the next request for the key will call the loader again. A loader that
+ * returns {@code null} does not create a mapping.</p>
+ * <p>Values can be refreshed ahead of their expiry (stale-while-revalidate). When a value is read after the
+ * {@link #setRefreshAfterWrite(long, TimeUnit) refresh time} passed, the cached value is returned and
+ * one background reload is started on the {@link #setExecutor(Executor) executor}. A failed reload keeps the
+ * old value and the next attempt is delayed by an exponential backoff. A reload does not overwrite a value
+ * that was put or removed while it was running.</p>
+ * <p>The wrapped cache must be thread-safe when the cache is used by multiple threads.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class LoadingCache<K,V> extends AbstractCacheWrapper<K, V> implements ILoadingCache<K, V> {
+
+	private CacheLoader<K,V> loader;
+	private ConcurrentMap<K,CompletableFuture<V>> loads = new ConcurrentHashMap<K,CompletableFuture<V>>();
+	private ConcurrentMap<Object,RefreshState> refreshStates = new ConcurrentHashMap<Object,RefreshState>();
+	private long refreshAfterWriteNanos = -1L;
+	private long refreshBackoffNanos = TimeUnit.SECONDS.toNanos(1);
+	private Executor executor = Thread::startVirtualThread;
+	private Ticker ticker = Ticker.SYSTEM;
+
+	/**
+	 * Constructor.
+	 * <p>The values will be held in a {@link ConcurrentSoftMapCache}.</p>
+	 * @param loader the loader for missing values
+	 */
+	public LoadingCache(CacheLoader<K,V> loader) {
+		this(new ConcurrentSoftMapCache<K,V>(), loader);
+	}
+
+	/**
+	 * Constructor.
+	 * @param wrapped the cache that holds the values
+	 * @param loader the loader for missing values
+	 */
+	public LoadingCache(ICache<K,V> wrapped, CacheLoader<K,V> loader) {
+		super(wrapped);
+		if (loader == null) throw new IllegalArgumentException("Loader must be set");
+		this.loader = loader;
+	}
+
+	/**
+	 * Returns the loader.
+	 * @return the loader
+	 */
+	public CacheLoader<K, V> getLoader() {
+		return loader;
+	}
+
+	/**
+	 * Sets the time after writing a value when it shall be refreshed in the background.
+	 * @param duration the duration, a negative value disables refreshing
+	 * @param unit the time unit of the duration
+	 */
+	public void setRefreshAfterWrite(long duration, TimeUnit unit) {
+		this.refreshAfterWriteNanos = duration < 0 ? -1L : unit.toNanos(duration);
+	}
+
+	/**
+	 * Returns the time after writing a value when it shall be refreshed in the background.
+	 * @param unit the time unit of the result
+	 * @return the duration or a negative value when refreshing is disabled
+	 */
+	public long getRefreshAfterWrite(TimeUnit unit) {
+		return refreshAfterWriteNanos < 0 ? -1L : unit.convert(refreshAfterWriteNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Sets the initial delay before a failed refresh is retried.
+	 * <p>The delay doubles with each failure up to the refresh time. Default is 1 second.</p>
+	 * @param duration the delay
+	 * @param unit the time unit of the delay
+	 */
+	public void setRefreshBackoff(long duration, TimeUnit unit) {
+		this.refreshBackoffNanos = unit.toNanos(Math.max(0, duration));
+	}
+
+	/**
+	 * Returns the executor that runs the background refreshes.
+	 * @return the executor
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor that runs the background refreshes.
+	 * <p>Default starts a virtual thread for each refresh, so loaders may block on I/O.</p>
+	 * @param executor the executor
+	 */
+	public void setExecutor(Executor executor) {
+		if (executor == null) throw new IllegalArgumentException("Executor must be set");
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the number of keys with refresh information.
+	 * @return the number of refresh states
+	 */
+	int getRefreshStateCount() {
+		return refreshStates.size();
+	}
+
+	/**
+	 * Returns the time source for refreshing.
+	 * @return the ticker
+	 */
+	public Ticker getTicker() {
+		return ticker;
+	}
+
+	/**
+	 * Sets the time source for refreshing.
+	 * @param ticker the ticker
+	 */
+	public void setTicker(Ticker ticker) {
+		if (ticker == null) throw new IllegalArgumentException("Ticker must be set");
+		this.ticker = ticker;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A value that is due for refreshing is returned and reloaded in the background.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		V rc = super.get(key);
+		if (rc != null) getStatsCounter().recordHits(1);
+		else getStatsCounter().recordMisses(1);
+		if (refreshAfterWriteNanos >= 0) {
+			if (rc == null) {
+				refreshStates.remove(key);
+			} else {
+				RefreshState state = refreshStates.get(key);
+				long now = ticker.read();
+				if (state == null) {
+					// Value was not written through this cache
+					refreshStates.putIfAbsent(key, new RefreshState(now));
+				} else if (((now - state.writeTime) >= refreshAfterWriteNanos) && ((now - state.nextAttempt) >= 0L)) {
+					refresh((K)key, rc);
+				}
+			}
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V put(K key, V value) {
+		discardRefresh(key);
+		return store(key, value);
+	}
+
+	/**
+	 * Puts the value into the wrapped cache and restarts its refresh time.
+	 * @param key the key
+	 * @param value the value
+	 * @return the previous value
+	 */
+	private V store(K key, V value) {
+		V rc = super.put(key, value);
+		if (refreshAfterWriteNanos >= 0) {
+			refreshStates.put(key, new RefreshState(ticker.read()));
+			purgeRefreshStates();
+		}
+		return rc;
+	}
+
+	/**
+	 * Removes the refresh states of keys that the wrapped cache evicted or expired.
+	 * <p>The states are checked when there are clearly more states than cached values,
+	 * so the cost per write stays constant on average.</p>
+	 */
+	private void purgeRefreshStates() {
+		if (refreshStates.size() <= 2 * super.size() + 64) return;
+		ICache<K,V> wrapped = getWrapped();
+		refreshStates.keySet().removeIf(key -> !wrapped.containsKey(key));
+	}
+
+	/**
+	 * Prevents a running refresh of the key from writing its result.
+	 * @param key the key
+	 */
+	private void discardRefresh(Object key) {
+		CompletableFuture<V> future = loads.get(key);
+		if (future instanceof RefreshFuture) ((RefreshFuture<V>)future).discard();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(Object key) {
+		discardRefresh(key);
+		refreshStates.remove(key);
+		return super.remove(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		for (Object key : loads.keySet()) discardRefresh(key);
+		refreshStates.clear();
+		super.clear();
+	}
+
+	/**
+	 * Reloads the value for the key in the background.
+	 * <p>The cached value (if any) stays available until the reload finished. No new reload
+	 * is started when a load for the key is already in progress.</p>
+	 * @param key the key
+	 * @return the future of the reload, completing with the new value (or old value when the reload failed)
+	 */
+	public CompletableFuture<V> refresh(K key) {
+		return refresh(key, super.get(key));
+	}
+
+	/**
+	 * Reloads the value for the key in the background.
+	 * @param key the key
+	 * @param oldValue the value currently cached
+	 * @return the future of the reload
+	 */
+	protected CompletableFuture<V> refresh(K key, V oldValue) {
+		RefreshFuture<V> future = new RefreshFuture<V>();
+		CompletableFuture<V> inFlight = loads.putIfAbsent(key, future);
+		if (inFlight != null) return inFlight;
+		try {
+			executor.execute(() -> reload(key, oldValue, future));
+		} catch (RejectedExecutionException e) {
+			refreshFailed(key);
+			loads.remove(key, future);
+			future.complete(oldValue);
+		}
+		return future;
+	}
+
+	/**
+	 * Performs the reload of a value.
+	 * @param key the key
+	 * @param oldValue the value currently cached
+	 * @param future the future to be completed
+	 */
+	private void reload(K key, V oldValue, RefreshFuture<V> future) {
+		V rc = oldValue;
+		long start = ticker.read();
+		try {
+			V value = oldValue != null ? loader.reload(key, oldValue) : loader.load(key);
+			recordLoad(value != null, start);
+			// The mapping must still be the one the refresh started from
+			synchronized (future) {
+				if (future.isDiscarded()) {
+					rc = super.get(key);
+				} else if (value != null) {
+					store(key, value);
+					rc = value;
+				} else if (oldValue != null) {
+					refreshStates.remove(key);
+					super.remove(key);
+					rc = null;
+				}
+			}
+		} catch (Throwable t) {
+			recordLoad(false, start);
+			refreshFailed(key);
+		} finally {
+			loads.remove(key, future);
+			// The wrapped cache might have evicted the value meanwhile
+			if (!getWrapped().containsKey(key)) refreshStates.remove(key);
+			future.complete(rc);
+		}
+	}
+
+	/**
+	 * Delays the next refresh of the key after a failure.
+	 * @param key the key
+	 */
+	private void refreshFailed(K key) {
+		RefreshState state = refreshStates.get(key);
+		if (state == null) return;
+		long now = ticker.read();
+		long delay = refreshBackoffNanos;
+		for (int i=0; (i<state.failures) && (delay < refreshAfterWriteNanos); i++) delay <<= 1;
+		if (refreshAfterWriteNanos > 0) delay = Math.min(delay, refreshAfterWriteNanos);
+		RefreshState failed = new RefreshState(state.writeTime);
+		failed.failures    = state.failures + 1;
+		failed.nextAttempt = now + delay;
+		refreshStates.replace(key, state, failed);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V getOrLoad(K key) throws CacheLoaderException {
+		V rc = get(key);
+		if (rc != null) return rc;
+
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		CompletableFuture<V> inFlight = loads.putIfAbsent(key, future);
+		if (inFlight != null) return join(key, inFlight);
+
+		long start = ticker.read();
+		try {
+			// Another load might have finished in the meantime
+			rc = super.get(key);
+			if (rc == null) {
+				start = ticker.read();
+				rc = loader.load(key);
+				recordLoad(rc != null, start);
+				if (rc != null) put(key, rc);
+			}
+			future.complete(rc);
+		} catch (Throwable t) {
+			recordLoad(false, start);
+			future.completeExceptionally(t);
+		} finally {
+			loads.remove(key, future);
+		}
+		return join(key, future);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys) throws CacheLoaderException {
+		Map<K,V> found = new LinkedHashMap<K,V>();
+		Map<K,CompletableFuture<V>> waiting = new LinkedHashMap<K,CompletableFuture<V>>();
+		Map<K,CompletableFuture<V>> owned   = new LinkedHashMap<K,CompletableFuture<V>>();
+		for (K key : keys) {
+			if (found.containsKey(key) || waiting.containsKey(key) || owned.containsKey(key)) continue;
+			V value = get(key);
+			if (value != null) {
+				found.put(key, value);
+				continue;
+			}
+			CompletableFuture<V> future = new CompletableFuture<V>();
+			CompletableFuture<V> inFlight = loads.putIfAbsent(key, future);
+			if (inFlight != null) waiting.put(key, inFlight);
+			else owned.put(key, future);
+		}
+
+		// Load all keys that no other thread is loading
+		if (!owned.isEmpty()) {
+			long start = ticker.read();
+			try {
+				List<K> missing = new ArrayList<K>(owned.size());
+				for (Map.Entry<K,CompletableFuture<V>> entry : owned.entrySet()) {
+					V value = super.get(entry.getKey());
+					if (value != null) entry.getValue().complete(value);
+					else missing.add(entry.getKey());
+				}
+				start = ticker.read();
+				Map<K,V> loaded = missing.isEmpty() ? null : loader.loadAll(missing);
+				if (!missing.isEmpty()) recordLoad(loaded != null, start);
+				for (K key : missing) {
+					V value = loaded != null ? loaded.get(key) : null;
+					if (value != null) put(key, value);
+					owned.get(key).complete(value);
+				}
+			} catch (Throwable t) {
+				recordLoad(false, start);
+				for (CompletableFuture<V> future : owned.values()) future.completeExceptionally(t);
+			} finally {
+				for (Map.Entry<K,CompletableFuture<V>> entry : owned.entrySet()) {
+					loads.remove(entry.getKey(), entry.getValue());
+				}
+			}
+			waiting.putAll(owned);
+		}
+
+		// Collect the results in the order of the keys
+		Map<K,V> rc = new LinkedHashMap<K,V>();
+		for (K key : keys) {
+			if (rc.containsKey(key)) continue;
+			V value = found.get(key);
+			if (value == null) {
+				CompletableFuture<V> future = waiting.get(key);
+				if (future != null) value = join(key, future);
+			}
+			if (value != null) rc.put(key, value);
+		}
+		return rc;
+	}
+
+	/**
+	 * Records the outcome and time of a load.
+	 * @param success whether a value was loaded
+	 * @param start the time when the load started
+	 */
+	private void recordLoad(boolean success, long start) {
+		long nanos = ticker.read() - start;
+		if (success) getStatsCounter().recordLoadSuccess(nanos);
+		else getStatsCounter().recordLoadFailure(nanos);
+	}
+
+	/**
+	 * Waits for the load to finish.
+	 * @param key the key being loaded
+	 * @param future the future of the load
+	 * @return the value loaded
+	 * @throws CacheLoaderException when loading failed or the thread was interrupted
+	 */
+	protected V join(K key, CompletableFuture<V> future) throws CacheLoaderException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw new CacheLoaderException(key, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CacheLoaderException(key, "Interrupted while waiting for value of key: "+key, e);
+		}
+	}
+
+	/**
+	 * The future of a background refresh.
+	 * <p>A refresh is discarded when the key is written or removed while it runs.</p>
+	 * @param <V> the value type
+	 */
+	private static class RefreshFuture<V> extends CompletableFuture<V> {
+		private boolean discarded = false;
+
+		synchronized void discard() {
+			discarded = true;
+		}
+
+		synchronized boolean isDiscarded() {
+			return discarded;
+		}
+	}
+
+	/**
+	 * Refresh information of an entry.
+	 */
+	private static class RefreshState {
+		long writeTime;
+		long nextAttempt;
+		int failures;
+
+		RefreshState(long writeTime) {
+			this.writeTime   = writeTime;
+			this.nextAttempt = writeTime;
+		}
+	}
+}
@@ -0,0 +1,444 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import rs.baselib.util.CommonUtils;
+
+/**
+ * A cache with primitive {@code long} keys.
+ * <p>The keys are stored in an open-addressing table of primitive arrays, so the methods taking
+ * a {@code long} key neither box the key nor allocate on lookup. The methods of {@link ICache}
+ * accept {@link Long} keys and are provided for compatibility.</p>
+ * <p>Values can be held strongly, softly or weakly (see {@link ReferenceType}). Mappings of cleared
+ * references are removed by the {@link ReferenceCleaner}. When a maximum size is set, the cache
+ * evicts entries by the CLOCK algorithm, an approximation of LRU: each access marks the entry, and
+ * the eviction hand skips (and unmarks) marked entries.</p>
+ * <p>All methods are synchronized.</p>
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class LongKeyCache<V> implements ICache<Long, V> {
+
+	/** Marks a cache without maximum size. */
+	public static final long UNBOUNDED = -1L;
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private ReferenceType referenceType;
+	private long maximumSize;
+	private long keys[];
+	private Object values[];
+	private boolean referenced[];
+	private int count;
+	private int hand;
+	private KeyReference.Owner<Long,V> owner = this::purge;
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
+
+	/**
+	 * Constructor.
+	 * <p>The cache holds values strongly and is unbounded.</p>
+	 */
+	public LongKeyCache() {
+		this(ReferenceType.STRONG, UNBOUNDED);
+	}
+
+	/**
+	 * Constructor.
+	 * <p>The cache is unbounded.</p>
+	 * @param referenceType how values are referenced
+	 */
+	public LongKeyCache(ReferenceType referenceType) {
+		this(referenceType, UNBOUNDED);
+	}
+
+	/**
+	 * Constructor.
+	 * @param referenceType how values are referenced
+	 * @param maximumSize the maximum number of entries or {@link #UNBOUNDED}
+	 */
+	public LongKeyCache(ReferenceType referenceType, long maximumSize) {
+		if (referenceType == null) throw new IllegalArgumentException("referenceType must be set");
+		if ((maximumSize < 0) && (maximumSize != UNBOUNDED)) throw new IllegalArgumentException("maximumSize must not be negative");
+		this.referenceType = referenceType;
+		this.maximumSize   = maximumSize;
+		initTable(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Returns how values are referenced.
+	 * @return the reference type
+	 */
+	public ReferenceType getReferenceType() {
+		return referenceType;
+	}
+
+	/**
+	 * Returns the maximum number of entries.
+	 * @return the maximum size or {@link #UNBOUNDED}
+	 */
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return (key instanceof Long) && containsKey(((Long)key).longValue());
+	}
+
+	/**
+	 * Returns whether a value is cached for the key.
+	 * <p>This method does not count as access.</p>
+	 * @param key the key
+	 * @return {@code true} when the key is mapped
+	 */
+	public synchronized boolean containsKey(long key) {
+		int slot = findSlot(key);
+		return (slot >= 0) && (value(slot) != null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean containsValue(Object value) {
+		for (int i=0; i<values.length; i++) {
+			if ((values[i] != null) && CommonUtils.equals(value(i), value)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key) {
+		if (!(key instanceof Long)) {
+			statsCounter.recordMisses(1);
+			return null;
+		}
+		return get(((Long)key).longValue());
+	}
+
+	/**
+	 * Returns the value of the key.
+	 * @param key the key
+	 * @return the value or {@code null} when not cached
+	 */
+	public synchronized V get(long key) {
+		int slot = findSlot(key);
+		V rc = slot >= 0 ? value(slot) : null;
+		if (rc == null) {
+			if (slot >= 0) deleteSlot(slot);
+			statsCounter.recordMisses(1);
+			return null;
+		}
+		referenced[slot] = true;
+		statsCounter.recordHits(1);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V put(Long key, V value) {
+		if (key == null) throw new NullPointerException("Key must not be null");
+		return put(key.longValue(), value);
+	}
+
+	/**
+	 * Maps the key to the value.
+	 * <p>A {@code null} value removes the mapping.</p>
+	 * @param key the key
+	 * @param value the value
+	 * @return the previous value or {@code null}
+	 */
+	public synchronized V put(long key, V value) {
+		if (value == null) return remove(key);
+		int slot = findSlot(key);
+		if (slot >= 0) {
+			V rc = value(slot);
+			values[slot]     = reference(key, value);
+			referenced[slot] = true;
+			return rc;
+		}
+		if (maximumSize == 0) return null;
+		if ((maximumSize != UNBOUNDED) && (count >= maximumSize)) evict();
+		if (count + 1 > keys.length * LOAD_FACTOR) resize();
+		insert(key, reference(key, value));
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(Object key) {
+		if (!(key instanceof Long)) return null;
+		return remove(((Long)key).longValue());
+	}
+
+	/**
+	 * Removes the mapping of the key.
+	 * @param key the key
+	 * @return the previous value or {@code null}
+	 */
+	public synchronized V remove(long key) {
+		int slot = findSlot(key);
+		if (slot < 0) return null;
+		V rc = value(slot);
+		deleteSlot(slot);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void clear() {
+		initTable(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public synchronized Set<Long> keySet() {
+		Set<Long> rc = new LinkedHashSet<Long>();
+		for (int i=0; i<values.length; i++) {
+			if ((values[i] != null) && (value(i) != null)) rc.add(keys[i]);
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public synchronized Collection<V> values() {
+		List<V> rc = new ArrayList<V>(count);
+		for (int i=0; i<values.length; i++) {
+			if (values[i] != null) {
+				V value = value(i);
+				if (value != null) rc.add(value);
+			}
+		}
+		return rc;
+	}
+
+	/**
+	 * Removes the mapping of a cleared reference.
+	 * @param ref the reference
+	 * @return {@code true} when the mapping was removed
+	 */
+	protected synchronized boolean purge(KeyReference<Long,V> ref) {
+		int slot = findSlot(ref.getKey().longValue());
+		if ((slot < 0) || (values[slot] != ref)) return false;
+		deleteSlot(slot);
+		statsCounter.recordEviction(RemovalCause.COLLECTED, 1);
+		return true;
+	}
+
+	/**
+	 * Evicts one entry by the CLOCK algorithm.
+	 */
+	private void evict() {
+		int mask = keys.length - 1;
+		while (true) {
+			hand = (hand + 1) & mask;
+			if (values[hand] == null) continue;
+			if (referenced[hand] && (value(hand) != null)) {
+				referenced[hand] = false;
+				continue;
+			}
+			boolean collected = value(hand) == null;
+			deleteSlot(hand);
+			statsCounter.recordEviction(collected ? RemovalCause.COLLECTED : RemovalCause.SIZE, 1);
+			// The slot may hold a shifted entry now, so look at it again
+			hand = (hand - 1) & mask;
+			return;
+		}
+	}
+
+	/**
+	 * Creates the object stored for the value.
+	 * @param key the key
+	 * @param value the value
+	 * @return the value or its reference
+	 */
+	private Object reference(long key, V value) {
+		switch (referenceType) {
+		case SOFT:
+			return new SoftKeyReference<Long,V>(key, value, owner);
+		case WEAK:
+			return new WeakKeyReference<Long,V>(key, value, owner);
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * Returns the value of a slot.
+	 * @param slot the slot
+	 * @return the value or {@code null} when empty or cleared
+	 */
+	@SuppressWarnings("unchecked")
+	private V value(int slot) {
+		Object rc = values[slot];
+		if ((rc == null) || (referenceType == ReferenceType.STRONG)) return (V)rc;
+		return ((KeyReference<Long,V>)rc).get();
+	}
+
+	/**
+	 * Finds the slot of the key.
+	 * @param key the key
+	 * @return the slot or -1 when not found
+	 */
+	private int findSlot(long key) {
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; values[i] != null; i = (i+1) & mask) {
+			if (keys[i] == key) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Inserts a new key.
+	 * @param key the key
+	 * @param value the value or its reference
+	 */
+	private void insert(long key, Object value) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (values[i] != null) i = (i+1) & mask;
+		keys[i]       = key;
+		values[i]     = value;
+		referenced[i] = false;
+		count++;
+	}
+
+	/**
+	 * Removes the slot and shifts following entries of the probe sequence back.
+	 * @param slot the slot to delete
+	 */
+	private void deleteSlot(int slot) {
+		int mask = keys.length - 1;
+		int i = slot;
+		int j = slot;
+		while (true) {
+			j = (j+1) & mask;
+			if (values[j] == null) break;
+			int k = hash(keys[j]) & mask;
+			// Move j to i unless its home slot k lies cyclically in (i, j]
+			boolean stays = (i <= j) ? ((i < k) && (k <= j)) : ((i < k) || (k <= j));
+			if (!stays) {
+				keys[i]       = keys[j];
+				values[i]     = values[j];
+				referenced[i] = referenced[j];
+				i = j;
+			}
+		}
+		keys[i]       = 0L;
+		values[i]     = null;
+		referenced[i] = false;
+		count--;
+	}
+
+	/**
+	 * Doubles the table capacity.
+	 */
+	private void resize() {
+		long oldKeys[] = keys;
+		Object oldValues[] = values;
+		boolean oldReferenced[] = referenced;
+		initTable(keys.length * 2);
+		for (int i=0; i<oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				insert(oldKeys[i], oldValues[i]);
+				referenced[findSlot(oldKeys[i])] = oldReferenced[i];
+			}
+		}
+	}
+
+	/**
+	 * Creates empty table arrays.
+	 * @param capacity the capacity (power of two)
+	 */
+	private void initTable(int capacity) {
+		keys       = new long[capacity];
+		values     = new Object[capacity];
+		referenced = new boolean[capacity];
+		count      = 0;
+		hand       = 0;
+	}
+
+	/**
+	 * Spreads the bits of the key.
+	 * @param key the key
+	 * @return the hash
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+}
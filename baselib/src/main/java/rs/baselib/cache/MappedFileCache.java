@@ -0,0 +1,790 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import rs.baselib.util.CommonUtils;
+
+/**
+ * A persistent cache that stores its entries in memory-mapped files.
+ * <p>Entries are appended to a log of segment files in a directory. Each record carries a CRC32 checksum.
+ * When the cache is opened again (e.g. after a restart), the segments are scanned and the index is rebuilt,
+ * so the cache serves hits immediately. A record that was not written completely because of a crash fails the
+ * checksum. The log is then truncated at this position.</p>
+ * <p>Removals are written as tombstone records. Replaced and removed records are garbage that is reclaimed by
+ * compaction: when the garbage exceeds the {@link #setCompactionThreshold(double) threshold}, the live records
+ * of the segment with most garbage are copied to the end of the log and the segment file is deleted. When the
+ * cache exceeds its maximum size, the oldest segment is dropped together with its entries.</p>
+ * <p>The cache can be used standalone or as second level behind a small heap cache.
+ * It must be {@link #close() closed} to flush all data to disk.</p>
+ * <p>Reads can run concurrently, writes are exclusive.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class MappedFileCache<K,V> implements ICache<K, V>, Closeable {
+
+	/** Default size of a segment file: 64 MB */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	/** Default compaction threshold: 50% garbage */
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5d;
+
+	private static final int MAGIC = 0x52534331;
+	/** Bytes of the record header: magic, crc, key length, value length */
+	private static final int HEADER_SIZE = 16;
+	private static final int TOMBSTONE = -1;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private File directory;
+	private ISerializer<K> keySerializer;
+	private ISerializer<V> valueSerializer;
+	private int segmentSize;
+	private long maximumBytes;
+	private double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+	private ReadWriteLock lock = new ReentrantReadWriteLock();
+	private TreeMap<Integer,Segment> segments = new TreeMap<Integer,Segment>();
+	private Map<ByteKey,Long> index = new HashMap<ByteKey,Long>();
+	private Segment activeSegment;
+	private long garbageBytes;
+	private boolean closed;
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
+
+	/**
+	 * Constructor.
+	 * <p>Opens the cache in the given directory and recovers all entries stored there.</p>
+	 * @param directory the directory of the segment files
+	 * @param keySerializer the serializer of keys
+	 * @param valueSerializer the serializer of values
+	 * @param maximumBytes the maximum size of all segment files
+	 * @throws IOException when the files cannot be opened
+	 */
+	public MappedFileCache(File directory, ISerializer<K> keySerializer, ISerializer<V> valueSerializer, long maximumBytes) throws IOException {
+		this(directory, keySerializer, valueSerializer, maximumBytes, (int)Math.min(DEFAULT_SEGMENT_SIZE, maximumBytes));
+	}
+
+	/**
+	 * Constructor.
+	 * <p>Opens the cache in the given directory and recovers all entries stored there.</p>
+	 * @param directory the directory of the segment files
+	 * @param keySerializer the serializer of keys
+	 * @param valueSerializer the serializer of values
+	 * @param maximumBytes the maximum size of all segment files
+	 * @param segmentSize the size of a segment file, i.e. the maximum size of a single entry
+	 * @throws IOException when the files cannot be opened
+	 */
+	public MappedFileCache(File directory, ISerializer<K> keySerializer, ISerializer<V> valueSerializer, long maximumBytes, int segmentSize) throws IOException {
+		if ((keySerializer == null) || (valueSerializer == null)) throw new IllegalArgumentException("Serializers must be set");
+		if (segmentSize <= HEADER_SIZE) throw new IllegalArgumentException("segmentSize too small: "+segmentSize);
+		if (maximumBytes < 2L*segmentSize) throw new IllegalArgumentException("maximumBytes must be at least two segments");
+		this.directory       = directory;
+		this.keySerializer   = keySerializer;
+		this.valueSerializer = valueSerializer;
+		this.segmentSize     = segmentSize;
+		this.maximumBytes    = maximumBytes;
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Cannot create directory: "+directory);
+		recover();
+	}
+
+	/**
+	 * Returns the directory of the segment files.
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the ratio of garbage in all segments that triggers a compaction.
+	 * @return the compaction threshold (0 to 1)
+	 */
+	public double getCompactionThreshold() {
+		return compactionThreshold;
+	}
+
+	/**
+	 * Sets the ratio of garbage in all segments that triggers a compaction.
+	 * @param compactionThreshold the compaction threshold (0 to 1)
+	 */
+	public void setCompactionThreshold(double compactionThreshold) {
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/**
+	 * Returns the number of bytes used by all segment files.
+	 * @return the bytes on disk
+	 */
+	public long getDiskBytes() {
+		lock.readLock().lock();
+		try {
+			return (long)segments.size() * segmentSize;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes in records that were replaced or removed.
+	 * @return the garbage bytes
+	 */
+	public long getGarbageBytes() {
+		lock.readLock().lock();
+		try {
+			return garbageBytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return getDiskBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		ByteKey k = toKey(key);
+		if (k == null) return false;
+		lock.readLock().lock();
+		try {
+			return index.containsKey(k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This method deserializes all values.</p>
+	 */
+	@Override
+	public boolean containsValue(Object value) {
+		for (V v : values()) {
+			if (CommonUtils.equals(v, value)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key) {
+		ByteKey k = toKey(key);
+		if (k == null) return null;
+		byte value[] = null;
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			Long location = index.get(k);
+			if (location != null) value = readValue(location);
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (value == null) {
+			statsCounter.recordMisses(1);
+			return null;
+		}
+		statsCounter.recordHits(1);
+		return valueSerializer.deserialize(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException when the entry is larger than a segment
+	 * @throws UncheckedIOException when the segment files cannot be written
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) throw new NullPointerException("Key must not be null");
+		if (value == null) return remove(key);
+		ByteKey k = new ByteKey(keySerializer.serialize(key));
+		byte valueBytes[] = valueSerializer.serialize(value);
+		byte previous[] = null;
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			Long location = index.get(k);
+			if (location != null) {
+				previous = readValue(location);
+				release(location);
+			}
+			index.put(k, append(k.bytes, valueBytes));
+			maintain();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return previous != null ? valueSerializer.deserialize(previous) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws UncheckedIOException when the segment files cannot be written
+	 */
+	@Override
+	public V remove(Object key) {
+		ByteKey k = toKey(key);
+		if (k == null) return null;
+		byte previous[] = null;
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			Long location = index.remove(k);
+			if (location == null) return null;
+			previous = readValue(location);
+			release(location);
+			long tombstone = append(k.bytes, null);
+			release(tombstone);
+			maintain();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return valueSerializer.deserialize(previous);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>All segment files are deleted.</p>
+	 * @throws UncheckedIOException when the segment files cannot be written
+	 */
+	@Override
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			for (Segment segment : new ArrayList<Segment>(segments.values())) deleteSegment(segment);
+			index.clear();
+			garbageBytes = 0;
+			activeSegment = createSegment(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public Set<K> keySet() {
+		List<byte[]> keys = new ArrayList<byte[]>();
+		lock.readLock().lock();
+		try {
+			for (ByteKey key : index.keySet()) keys.add(key.bytes);
+		} finally {
+			lock.readLock().unlock();
+		}
+		Set<K> rc = new LinkedHashSet<K>();
+		for (byte key[] : keys) rc.add(keySerializer.deserialize(key));
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public Collection<V> values() {
+		List<byte[]> values = new ArrayList<byte[]>();
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			for (Long location : index.values()) values.add(readValue(location));
+		} finally {
+			lock.readLock().unlock();
+		}
+		List<V> rc = new ArrayList<V>(values.size());
+		for (byte value[] : values) rc.add(valueSerializer.deserialize(value));
+		return rc;
+	}
+
+	/**
+	 * Writes all changes to disk.
+	 */
+	public void flush() {
+		lock.writeLock().lock();
+		try {
+			for (Segment segment : segments.values()) segment.buffer.force();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Compacts the segment with most garbage.
+	 * <p>Compaction runs automatically when the garbage exceeds the threshold.</p>
+	 * @throws IOException when the segment files cannot be written
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			Segment victim = null;
+			for (Segment segment : segments.values()) {
+				if ((segment != activeSegment) && ((victim == null) || (segment.garbage > victim.garbage))) victim = segment;
+			}
+			if ((victim != null) && (victim.garbage > 0)) compact(victim);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Flushes all data to disk and closes the cache.
+	 */
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			if (closed) return;
+			for (Segment segment : segments.values()) segment.buffer.force();
+			segments.clear();
+			index.clear();
+			closed = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Opens all segment files and rebuilds the index.
+	 * @throws IOException when the files cannot be read
+	 */
+	private void recover() throws IOException {
+		File files[] = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		List<Integer> ids = new ArrayList<Integer>();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				try {
+					ids.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length()-SEGMENT_SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// Not a segment file
+				}
+			}
+		}
+		ids.sort(null);
+		for (Integer id : ids) {
+			Segment segment = openSegment(id);
+			scan(segment);
+			activeSegment = segment;
+		}
+		if (activeSegment == null) activeSegment = createSegment(0);
+	}
+
+	/**
+	 * Reads all valid records of the segment into the index.
+	 * <p>The segment is truncated at the first invalid record.</p>
+	 * @param segment the segment
+	 */
+	private void scan(Segment segment) {
+		MappedByteBuffer buffer = segment.buffer;
+		int position = 0;
+		while (position + HEADER_SIZE <= segmentSize) {
+			int size = validRecordSize(buffer, position);
+			if (size < 0) break;
+			int keyLength   = buffer.getInt(position+8);
+			int valueLength = buffer.getInt(position+12);
+			byte key[] = new byte[keyLength];
+			buffer.get(position+HEADER_SIZE, key);
+			long location = location(segment.id, position);
+			segment.end = position + size;
+			Long previous = valueLength == TOMBSTONE ? index.remove(new ByteKey(key)) : index.put(new ByteKey(key), location);
+			if (previous != null) release(previous);
+			if (valueLength == TOMBSTONE) release(location);
+			position += size;
+		}
+		segment.end = position;
+		// Wipe a partially written record
+		if ((position + HEADER_SIZE <= segmentSize) && (buffer.getInt(position) != 0)) {
+			for (int i=position; i<segmentSize; i++) buffer.put(i, (byte)0);
+		}
+	}
+
+	/**
+	 * Checks the record at the given position.
+	 * @param buffer the segment buffer
+	 * @param position the position of the record
+	 * @return the size of the record or -1 when no valid record exists
+	 */
+	private int validRecordSize(ByteBuffer buffer, int position) {
+		if (buffer.getInt(position) != MAGIC) return -1;
+		int keyLength   = buffer.getInt(position+8);
+		int valueLength = buffer.getInt(position+12);
+		if ((keyLength < 0) || (valueLength < TOMBSTONE)) return -1;
+		long size = (long)HEADER_SIZE + keyLength + Math.max(0, valueLength);
+		if (position + size > segmentSize) return -1;
+		ByteBuffer view = buffer.duplicate();
+		view.limit((int)(position + size));
+		view.position(position+8);
+		CRC32 crc = new CRC32();
+		crc.update(view);
+		if ((int)crc.getValue() != buffer.getInt(position+4)) return -1;
+		return (int)size;
+	}
+
+	/**
+	 * Appends a record to the log.
+	 * @param key the serialized key
+	 * @param value the serialized value or {@code null} for a tombstone
+	 * @return the location of the record
+	 * @throws IOException when a new segment cannot be created
+	 */
+	private long append(byte key[], byte value[]) throws IOException {
+		int valueLength = value != null ? value.length : TOMBSTONE;
+		long size = (long)HEADER_SIZE + key.length + (value != null ? value.length : 0);
+		if (size > segmentSize) throw new IllegalArgumentException("Entry too large: "+size+" bytes");
+		if (activeSegment.end + size > segmentSize) {
+			activeSegment = createSegment(activeSegment.id + 1);
+		}
+		MappedByteBuffer buffer = activeSegment.buffer;
+		int position = activeSegment.end;
+		buffer.putInt(position+8, key.length);
+		buffer.putInt(position+12, valueLength);
+		buffer.put(position+HEADER_SIZE, key);
+		if (value != null) buffer.put(position+HEADER_SIZE+key.length, value);
+		ByteBuffer view = buffer.duplicate();
+		view.limit((int)(position + size));
+		view.position(position+8);
+		CRC32 crc = new CRC32();
+		crc.update(view);
+		buffer.putInt(position+4, (int)crc.getValue());
+		buffer.putInt(position, MAGIC);
+		activeSegment.end += (int)size;
+		return location(activeSegment.id, position);
+	}
+
+	/**
+	 * Copies a record to the end of the log.
+	 * @param location the location of the record
+	 * @return the new location
+	 * @throws IOException when a new segment cannot be created
+	 */
+	private long copy(long location) throws IOException {
+		Segment source = segments.get(segmentId(location));
+		int position = offset(location);
+		int size = recordSize(source.buffer, position);
+		if (activeSegment.end + size > segmentSize) {
+			activeSegment = createSegment(activeSegment.id + 1);
+		}
+		byte record[] = new byte[size];
+		source.buffer.get(position, record);
+		activeSegment.buffer.put(activeSegment.end, record);
+		long rc = location(activeSegment.id, activeSegment.end);
+		activeSegment.end += size;
+		return rc;
+	}
+
+	/**
+	 * Accounts the record as garbage.
+	 * @param location the location of the record
+	 */
+	private void release(long location) {
+		Segment segment = segments.get(segmentId(location));
+		int size = recordSize(segment.buffer, offset(location));
+		segment.garbage += size;
+		garbageBytes += size;
+	}
+
+	/**
+	 * Enforces the maximum size and compacts when the garbage threshold is reached.
+	 * @throws IOException when the segment files cannot be written
+	 */
+	private void maintain() throws IOException {
+		// Drop oldest segments when too large
+		while (((long)segments.size() * segmentSize > maximumBytes) && (segments.size() > 1)) {
+			Segment oldest = segments.firstEntry().getValue();
+			evict(oldest);
+		}
+		// Compact when too much garbage
+		long total = (long)segments.size() * segmentSize;
+		if ((segments.size() > 2) && (garbageBytes > compactionThreshold * total)) {
+			Segment victim = null;
+			for (Segment segment : segments.values()) {
+				if ((segment != activeSegment) && ((victim == null) || (segment.garbage > victim.garbage))) victim = segment;
+			}
+			if ((victim != null) && (victim.garbage > 0)) compact(victim);
+		}
+	}
+
+	/**
+	 * Moves all live records of the segment to the end of the log and deletes it.
+	 * @param segment the segment to compact
+	 * @throws IOException when the segment files cannot be written
+	 */
+	private void compact(Segment segment) throws IOException {
+		boolean oldest = segments.firstKey().intValue() == segment.id;
+		MappedByteBuffer buffer = segment.buffer;
+		int position = 0;
+		while (position < segment.end) {
+			int size = recordSize(buffer, position);
+			int keyLength   = buffer.getInt(position+8);
+			int valueLength = buffer.getInt(position+12);
+			byte key[] = new byte[keyLength];
+			buffer.get(position+HEADER_SIZE, key);
+			ByteKey k = new ByteKey(key);
+			long location = location(segment.id, position);
+			if (valueLength != TOMBSTONE) {
+				Long current = index.get(k);
+				if ((current != null) && (current.longValue() == location)) index.put(k, copy(location));
+			} else if (!oldest && !index.containsKey(k)) {
+				// Older segments might still hold the removed record
+				release(copy(location));
+			}
+			position += size;
+		}
+		deleteSegment(segment);
+	}
+
+	/**
+	 * Drops the segment together with all entries stored in it.
+	 * @param segment the segment
+	 */
+	private void evict(Segment segment) {
+		MappedByteBuffer buffer = segment.buffer;
+		int position = 0;
+		while (position < segment.end) {
+			int size = recordSize(buffer, position);
+			byte key[] = new byte[buffer.getInt(position+8)];
+			buffer.get(position+HEADER_SIZE, key);
+			ByteKey k = new ByteKey(key);
+			Long current = index.get(k);
+			if ((current != null) && (current.longValue() == location(segment.id, position))) {
+				index.remove(k);
+				statsCounter.recordEviction(RemovalCause.SIZE, 1);
+			}
+			position += size;
+		}
+		deleteSegment(segment);
+	}
+
+	/**
+	 * Creates a new segment file.
+	 * @param id the id of the segment
+	 * @return the segment
+	 * @throws IOException when the file cannot be created
+	 */
+	private Segment createSegment(int id) throws IOException {
+		Files.deleteIfExists(getSegmentFile(id).toPath());
+		return openSegment(id);
+	}
+
+	/**
+	 * Opens (and creates) a segment file.
+	 * @param id the id of the segment
+	 * @return the segment
+	 * @throws IOException when the file cannot be opened
+	 */
+	private Segment openSegment(int id) throws IOException {
+		File file = getSegmentFile(id);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			Segment rc = new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+			segments.put(id, rc);
+			return rc;
+		}
+	}
+
+	/**
+	 * Removes the segment and deletes its file.
+	 * @param segment the segment
+	 */
+	private void deleteSegment(Segment segment) {
+		segments.remove(segment.id);
+		garbageBytes -= segment.garbage;
+		if (!segment.file.delete()) segment.file.deleteOnExit();
+	}
+
+	/**
+	 * Returns the file of a segment.
+	 * @param id the id of the segment
+	 * @return the file
+	 */
+	private File getSegmentFile(int id) {
+		return new File(directory, String.format("%s%010d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Reads the value of a record.
+	 * @param location the location of the record
+	 * @return the serialized value
+	 */
+	private byte[] readValue(long location) {
+		ByteBuffer buffer = segments.get(segmentId(location)).buffer;
+		int position = offset(location);
+		byte rc[] = new byte[buffer.getInt(position+12)];
+		buffer.get(position+HEADER_SIZE+buffer.getInt(position+8), rc);
+		return rc;
+	}
+
+	/**
+	 * Returns the size of a valid record.
+	 * @param buffer the segment buffer
+	 * @param position the position of the record
+	 * @return the size of the record
+	 */
+	private static int recordSize(ByteBuffer buffer, int position) {
+		return HEADER_SIZE + buffer.getInt(position+8) + Math.max(0, buffer.getInt(position+12));
+	}
+
+	/**
+	 * Serializes a key for lookups.
+	 * @param key the key
+	 * @return the key or {@code null} when the key cannot be in this cache
+	 */
+	@SuppressWarnings("unchecked")
+	private ByteKey toKey(Object key) {
+		if (key == null) return null;
+		try {
+			return new ByteKey(keySerializer.serialize((K)key));
+		} catch (ClassCastException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Throws an exception when the cache was closed.
+	 */
+	private void checkOpen() {
+		if (closed) throw new IllegalStateException("Cache was closed");
+	}
+
+	private static long location(int segmentId, int offset) {
+		return ((long)segmentId << 32) | offset;
+	}
+
+	private static int segmentId(long location) {
+		return (int)(location >>> 32);
+	}
+
+	private static int offset(long location) {
+		return (int)location;
+	}
+
+	/**
+	 * A segment file.
+	 */
+	private static class Segment {
+		int id;
+		File file;
+		MappedByteBuffer buffer;
+		int end;
+		long garbage;
+
+		Segment(int id, File file, MappedByteBuffer buffer) {
+			this.id     = id;
+			this.file   = file;
+			this.buffer = buffer;
+		}
+	}
+
+	/**
+	 * A serialized key.
+	 */
+	private static class ByteKey {
+		byte bytes[];
+		int hash;
+
+		ByteKey(byte bytes[]) {
+			this.bytes = bytes;
+			this.hash  = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof ByteKey)) return false;
+			return Arrays.equals(bytes, ((ByteKey)obj).bytes);
+		}
+	}
+}
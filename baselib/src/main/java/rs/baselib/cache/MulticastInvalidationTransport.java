@@ -0,0 +1,239 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transports invalidation messages by UDP multicast.
+ * <p>The time-to-live of the packets is 0, so they never leave the host. All processes that use the
+ * same group and port receive the messages. The loopback interface is used when it supports multicast,
+ * otherwise the default interface of the system.</p>
+ * <p>UDP does not guarantee delivery. Lost messages leave stale entries until they are written again,
+ * so caches should still expire their entries after a generous time.</p>
+ * @author ralph
+ *
+ */
+public class MulticastInvalidationTransport implements IInvalidationTransport {
+
+	/** The default multicast group (administratively scoped) */
+	public static final String DEFAULT_GROUP = "239.255.42.99";
+	/** The default port */
+	public static final int DEFAULT_PORT = 47699;
+	/** The maximum size of a message, below the usual loopback MTU */
+	public static final int MAXIMUM_MESSAGE_SIZE = 16384;
+
+	private static Logger log = LoggerFactory.getLogger(MulticastInvalidationTransport.class);
+
+	private InetAddress group;
+	private int port;
+	private NetworkInterface networkInterface;
+	private MulticastSocket socket;
+	private ReceiverThread receiverThread;
+
+	/**
+	 * Constructor.
+	 * <p>Uses the {@link #DEFAULT_GROUP default group} and {@link #DEFAULT_PORT port}.</p>
+	 * @throws IOException when the group address is invalid
+	 */
+	public MulticastInvalidationTransport() throws IOException {
+		this(DEFAULT_GROUP, DEFAULT_PORT);
+	}
+
+	/**
+	 * Constructor.
+	 * @param group the multicast group address
+	 * @param port the port
+	 * @throws IOException when the group address is invalid
+	 */
+	public MulticastInvalidationTransport(String group, int port) throws IOException {
+		this.group = InetAddress.getByName(group);
+		this.port  = port;
+		if (!this.group.isMulticastAddress()) throw new IllegalArgumentException("Not a multicast address: "+group);
+	}
+
+	/**
+	 * Returns the multicast group.
+	 * @return the group address
+	 */
+	public InetAddress getGroup() {
+		return group;
+	}
+
+	/**
+	 * Returns the port.
+	 * @return the port
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * Returns the network interface used.
+	 * @return the interface or {@code null} when the system default is used
+	 */
+	public synchronized NetworkInterface getNetworkInterface() {
+		return networkInterface;
+	}
+
+	/**
+	 * Sets the network interface to be used.
+	 * <p>Must be called before the transport is started.</p>
+	 * @param networkInterface the interface or {@code null} to choose automatically
+	 */
+	public synchronized void setNetworkInterface(NetworkInterface networkInterface) {
+		this.networkInterface = networkInterface;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void start(Consumer<byte[]> receiver) throws IOException {
+		if (socket != null) throw new IllegalStateException("Transport already started");
+		if (networkInterface == null) networkInterface = findLoopbackInterface();
+		MulticastSocket socket = new MulticastSocket(null);
+		try {
+			socket.setReuseAddress(true);
+			socket.bind(new InetSocketAddress(port));
+			socket.setTimeToLive(0);
+			// Other processes on this host must receive the messages
+			socket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+			if (networkInterface != null) socket.setNetworkInterface(networkInterface);
+			socket.joinGroup(new InetSocketAddress(group, port), networkInterface);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		this.socket = socket;
+		receiverThread = new ReceiverThread(socket, receiver);
+		receiverThread.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void send(byte message[]) throws IOException {
+		if (message.length > MAXIMUM_MESSAGE_SIZE) throw new IllegalArgumentException("Message too long: "+message.length);
+		MulticastSocket socket = null;
+		synchronized (this) {
+			socket = this.socket;
+		}
+		if (socket == null) throw new IOException("Transport not started");
+		socket.send(new DatagramPacket(message, message.length, group, port));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMaximumMessageSize() {
+		return MAXIMUM_MESSAGE_SIZE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (socket == null) return;
+		receiverThread.interrupt();
+		receiverThread = null;
+		try {
+			socket.leaveGroup(new InetSocketAddress(group, port), networkInterface);
+		} catch (IOException e) {
+			log.debug("Cannot leave multicast group", e);
+		} finally {
+			socket.close();
+			socket = null;
+		}
+	}
+
+	/**
+	 * Returns the loopback interface if it supports multicast.
+	 * @return the interface or {@code null}
+	 */
+	private static NetworkInterface findLoopbackInterface() {
+		try {
+			NetworkInterface rc = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+			if ((rc != null) && rc.isUp() && rc.supportsMulticast()) return rc;
+		} catch (SocketException e) {
+			log.debug("Cannot find loopback interface", e);
+		}
+		return null;
+	}
+
+	/**
+	 * The thread that receives the messages.
+	 * @author ralph
+	 *
+	 */
+	protected class ReceiverThread extends Thread {
+
+		private MulticastSocket socket;
+		private Consumer<byte[]> receiver;
+
+		/**
+		 * Constructor.
+		 * @param socket the socket to receive from
+		 * @param receiver the receiver of the messages
+		 */
+		public ReceiverThread(MulticastSocket socket, Consumer<byte[]> receiver) {
+			super("MulticastInvalidationTransport-Receiver");
+			setDaemon(true);
+			this.socket   = socket;
+			this.receiver = receiver;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			byte buffer[] = new byte[MAXIMUM_MESSAGE_SIZE];
+			while (!isInterrupted() && !socket.isClosed()) {
+				DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+				try {
+					socket.receive(packet);
+				} catch (IOException e) {
+					if (!socket.isClosed()) log.error("Cannot receive invalidation message", e);
+					return;
+				}
+				byte message[] = new byte[packet.getLength()];
+				System.arraycopy(packet.getData(), packet.getOffset(), message, 0, message.length);
+				try {
+					receiver.accept(message);
+				} catch (RuntimeException e) {
+					log.error("Cannot process invalidation message", e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,393 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache that answers lookups of unknown keys without asking the wrapped cache or its loader.
+ * <p>Two structures identify definite misses:</p>
+ * <ul>
+ * <li>A {@link CountingBloomFilter} of all known keys. Keys are registered by {@link #registerKey(Object)},
+ * by {@link #put(Object, Object)} of keys new to the wrapped cache and by successful loads. The filter is only consulted after
+ * {@link #setKeysComplete(boolean)} was called, i.e. when the application registered all keys that
+ * exist in the backing store. Keys deleted from the store shall be {@link #unregisterKey(Object) unregistered}.</li>
+ * <li>A small set of keys that were recently confirmed as missing by the wrapped cache or loader.
+ * These keys expire after the {@link #setMissTtl(long, TimeUnit) TTL} and the set is bounded
+ * by {@link #setMaximumMisses(int)}.</li>
+ * </ul>
+ * <p>The false-positive rate of the filter controls its memory: lower rates need more bits per key.
+ * A false positive only means that the lookup is passed to the wrapped cache as without this layer.</p>
+ * <p>When the wrapped cache is an {@link ILoadingCache}, {@link #getOrLoad(Object)} and {@link #getAll(Collection)}
+ * use its loader. Otherwise they only read the wrapped cache.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class NegativeLookupCache<K,V> extends AbstractCacheWrapper<K, V> implements ILoadingCache<K, V> {
+
+	private CountingBloomFilter filter;
+	private volatile boolean keysComplete = false;
+	private LinkedHashMap<Object,Long> misses;
+	private int maximumMisses = 1000;
+	private long missTtlNanos = TimeUnit.SECONDS.toNanos(60);
+	private Ticker ticker = Ticker.SYSTEM;
+	private AtomicLong definiteMissCount = new AtomicLong(0);
+
+	/**
+	 * Constructor.
+	 * <p>The filter is sized for 10,000 keys and a false-positive rate of 1%.</p>
+	 * @param wrapped the cache that holds the values
+	 */
+	public NegativeLookupCache(ICache<K,V> wrapped) {
+		this(wrapped, 10000, 0.01d);
+	}
+
+	/**
+	 * Constructor.
+	 * @param wrapped the cache that holds the values
+	 * @param expectedKeys the number of keys expected in the backing store (the filter grows when more are registered)
+	 * @param falsePositiveRate the target false-positive rate of the filter (0 to 1)
+	 */
+	public NegativeLookupCache(ICache<K,V> wrapped, long expectedKeys, double falsePositiveRate) {
+		super(wrapped);
+		this.filter = new CountingBloomFilter(expectedKeys, falsePositiveRate);
+		this.misses = new LinkedHashMap<Object,Long>(16, 0.75f, false) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object,Long> eldest) {
+				return size() > maximumMisses;
+			}
+		};
+	}
+
+	/**
+	 * Returns the filter of known keys.
+	 * @return the filter
+	 */
+	public CountingBloomFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Returns whether all keys of the backing store were registered.
+	 * @return {@code true} when the filter is used to detect misses
+	 */
+	public boolean isKeysComplete() {
+		return keysComplete;
+	}
+
+	/**
+	 * Sets whether all keys of the backing store were registered.
+	 * @param keysComplete {@code true} when the filter shall be used to detect misses
+	 */
+	public void setKeysComplete(boolean keysComplete) {
+		this.keysComplete = keysComplete;
+	}
+
+	/**
+	 * Returns the time that a confirmed miss is remembered.
+	 * @param unit the time unit of the result
+	 * @return the duration
+	 */
+	public long getMissTtl(TimeUnit unit) {
+		return unit.convert(missTtlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Sets the time that a confirmed miss is remembered.
+	 * <p>Default is 60 seconds. A duration of 0 disables remembering misses.</p>
+	 * @param duration the duration
+	 * @param unit the time unit of the duration
+	 */
+	public void setMissTtl(long duration, TimeUnit unit) {
+		this.missTtlNanos = unit.toNanos(Math.max(0, duration));
+	}
+
+	/**
+	 * Returns the maximum number of confirmed misses remembered.
+	 * @return the maximum number of misses
+	 */
+	public int getMaximumMisses() {
+		synchronized (misses) {
+			return maximumMisses;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of confirmed misses remembered.
+	 * <p>The oldest misses are dropped first. Default is 1,000.</p>
+	 * @param maximumMisses the maximum number of misses
+	 */
+	public void setMaximumMisses(int maximumMisses) {
+		if (maximumMisses < 0) throw new IllegalArgumentException("maximumMisses must not be negative");
+		synchronized (misses) {
+			this.maximumMisses = maximumMisses;
+			Iterator<Object> i = misses.keySet().iterator();
+			while ((misses.size() > maximumMisses) && i.hasNext()) {
+				i.next();
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the time source for expiring misses.
+	 * @return the ticker
+	 */
+	public Ticker getTicker() {
+		return ticker;
+	}
+
+	/**
+	 * Sets the time source for expiring misses.
+	 * @param ticker the ticker
+	 */
+	public void setTicker(Ticker ticker) {
+		if (ticker == null) throw new IllegalArgumentException("Ticker must be set");
+		this.ticker = ticker;
+	}
+
+	/**
+	 * Returns the number of lookups that were answered as definite misses.
+	 * @return the number of definite misses
+	 */
+	public long getDefiniteMissCount() {
+		return definiteMissCount.get();
+	}
+
+	/**
+	 * Registers a key that exists in the backing store.
+	 * <p>Registrations are counted: {@link #unregisterKey(Object)} removes one registration. A key
+	 * registered more often than unregistered only stays a possible hit, i.e. lookups are passed to the
+	 * wrapped cache. The filter is not asked whether it knows the key already, as a key that collides
+	 * with another key would never be counted then.</p>
+	 * @param key the key
+	 */
+	public void registerKey(K key) {
+		filter.add(key);
+		forgetMiss(key);
+	}
+
+	/**
+	 * Registers keys that exist in the backing store.
+	 * @param keys the keys
+	 */
+	public void registerKeys(Collection<? extends K> keys) {
+		for (K key : keys) registerKey(key);
+	}
+
+	/**
+	 * Unregisters a key that was deleted from the backing store.
+	 * <p>The value is removed from the wrapped cache as well.</p>
+	 * @param key the key
+	 */
+	public void unregisterKey(K key) {
+		filter.remove(key);
+		super.remove(key);
+	}
+
+	/**
+	 * Returns whether the key is known to be missing.
+	 * @param key the key
+	 * @return {@code true} when the key is not in the filter or was confirmed missing recently
+	 */
+	public boolean isDefiniteMiss(Object key) {
+		if (keysComplete && !filter.mightContain(key)) return true;
+		synchronized (misses) {
+			Long expiry = misses.get(key);
+			if (expiry == null) return false;
+			if ((ticker.read() - expiry) < 0L) return true;
+			misses.remove(key);
+		}
+		return false;
+	}
+
+	/**
+	 * Remembers a key that was confirmed missing.
+	 * @param key the key
+	 */
+	protected void rememberMiss(Object key) {
+		if ((missTtlNanos <= 0) || (maximumMisses == 0)) return;
+		synchronized (misses) {
+			misses.remove(key);
+			misses.put(key, ticker.read() + missTtlNanos);
+		}
+	}
+
+	/**
+	 * Forgets a key that was confirmed missing.
+	 * @param key the key
+	 */
+	protected void forgetMiss(Object key) {
+		synchronized (misses) {
+			misses.remove(key);
+		}
+	}
+
+	/**
+	 * Returns whether a lookup is a definite miss and records it.
+	 * @param key the key
+	 * @return {@code true} when the lookup can be answered with {@code null}
+	 */
+	private boolean checkDefiniteMiss(Object key) {
+		if (!isDefiniteMiss(key)) return false;
+		definiteMissCount.incrementAndGet();
+		getStatsCounter().recordMisses(1);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Definite misses return {@code null} without asking the wrapped cache.</p>
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		if (isDefiniteMiss(key)) return false;
+		return super.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Definite misses return {@code null} without asking the wrapped cache.</p>
+	 */
+	@Override
+	public V get(Object key) {
+		if (checkDefiniteMiss(key)) return null;
+		V rc = super.get(key);
+		if (rc != null) getStatsCounter().recordHits(1);
+		else getStatsCounter().recordMisses(1);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The key is registered as known when the wrapped cache did not hold it yet.</p>
+	 */
+	@Override
+	public V put(K key, V value) {
+		forgetMiss(key);
+		V rc = super.put(key, value);
+		if (rc == null) filter.add(key);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The key stays registered as it might still exist in the backing store.
+	 * Use {@link #unregisterKey(Object)} for deleted keys.</p>
+	 */
+	@Override
+	public V remove(Object key) {
+		return super.remove(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The confirmed misses are forgotten, the registered keys are kept.</p>
+	 */
+	@Override
+	public void clear() {
+		synchronized (misses) {
+			misses.clear();
+		}
+		super.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Definite misses return {@code null} without calling the loader. A key that the
+	 * loader does not find is remembered as a miss. A loaded key is registered unless
+	 * {@link #isKeysComplete() all keys were registered} already.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public V getOrLoad(K key) throws CacheLoaderException {
+		if (checkDefiniteMiss(key)) return null;
+		boolean register = !keysComplete && !super.containsKey(key);
+		V rc = null;
+		if (getWrapped() instanceof ILoadingCache) {
+			rc = ((ILoadingCache<K,V>)getWrapped()).getOrLoad(key);
+		} else {
+			rc = super.get(key);
+		}
+		if (rc != null) {
+			getStatsCounter().recordHits(1);
+			if (register) registerKey(key);
+		} else {
+			getStatsCounter().recordMisses(1);
+			rememberMiss(key);
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Only keys that are not definite misses are passed to the wrapped cache. Loaded keys
+	 * are registered as in {@link #getOrLoad(Object)}.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys) throws CacheLoaderException {
+		List<K> candidates = new ArrayList<K>(keys.size());
+		Set<K> register = new HashSet<K>();
+		for (K key : keys) {
+			if (!checkDefiniteMiss(key)) {
+				candidates.add(key);
+				if (!keysComplete && !super.containsKey(key)) register.add(key);
+			}
+		}
+		Map<K,V> found = null;
+		if (candidates.isEmpty()) {
+			found = new LinkedHashMap<K,V>();
+		} else if (getWrapped() instanceof ILoadingCache) {
+			found = ((ILoadingCache<K,V>)getWrapped()).getAll(candidates);
+		} else {
+			found = new LinkedHashMap<K,V>();
+			for (K key : candidates) {
+				V value = super.get(key);
+				if (value != null) found.put(key, value);
+			}
+		}
+		Map<K,V> rc = new LinkedHashMap<K,V>();
+		for (K key : candidates) {
+			V value = found.get(key);
+			if (value != null) {
+				rc.put(key, value);
+				if (register.remove(key)) registerKey(key);
+			} else {
+				rememberMiss(key);
+			}
+		}
+		getStatsCounter().recordHits(rc.size());
+		getStatsCounter().recordMisses(candidates.size() - rc.size());
+		return rc;
+	}
+
+}
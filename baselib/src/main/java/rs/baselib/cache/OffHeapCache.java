@@ -0,0 +1,552 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import rs.baselib.util.CommonUtils;
+
+/**
+ * A cache that stores keys and values outside the Java heap in direct {@link ByteBuffer}s.
+ * <p>Keys and values are converted by {@link ISerializer}s and appended to fixed-size slabs of direct
+ * memory. An open-addressing index of primitive arrays maps key hashes to slab positions, so the heap
+ * holds no objects per entry (12 bytes per entry in the index arrays). When all slabs are used, the
+ * oldest slab is reused and all entries written into it are evicted (first-in first-out). Hence the
+ * cache never uses more than its configured number of bytes.</p>
+ * <p>Records that are replaced or removed stay in their slab as garbage until the slab is reused.
+ * Objects returned by the cache are always new copies.</p>
+ * <p>Reads can run concurrently, writes are exclusive.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class OffHeapCache<K,V> implements ICache<K, V> {
+
+	/** Default size of a slab: 4 MB */
+	public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+	/** Bytes of the record header: hash, key length, value length */
+	private static final int HEADER_SIZE = 12;
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private ISerializer<K> keySerializer;
+	private ISerializer<V> valueSerializer;
+	private ReadWriteLock lock = new ReentrantReadWriteLock();
+	private long maximumBytes;
+	private int slabSize;
+
+	// The slab ring
+	private ByteBuffer slabs[];
+	private int slabEnds[];
+	private int writeSlab;
+	private int writePosition;
+
+	// The index
+	private int hashes[];
+	private long addresses[];
+	private int count;
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
+
+	/**
+	 * Constructor.
+	 * @param keySerializer the serializer of keys
+	 * @param valueSerializer the serializer of values
+	 * @param maximumBytes the maximum number of bytes to be used
+	 */
+	public OffHeapCache(ISerializer<K> keySerializer, ISerializer<V> valueSerializer, long maximumBytes) {
+		this(keySerializer, valueSerializer, maximumBytes, (int)Math.min(DEFAULT_SLAB_SIZE, maximumBytes));
+	}
+
+	/**
+	 * Constructor.
+	 * @param keySerializer the serializer of keys
+	 * @param valueSerializer the serializer of values
+	 * @param maximumBytes the maximum number of bytes to be used
+	 * @param slabSize the size of a slab, i.e. the maximum size of a single entry and the unit of eviction
+	 */
+	public OffHeapCache(ISerializer<K> keySerializer, ISerializer<V> valueSerializer, long maximumBytes, int slabSize) {
+		if ((keySerializer == null) || (valueSerializer == null)) throw new IllegalArgumentException("Serializers must be set");
+		if (slabSize <= HEADER_SIZE) throw new IllegalArgumentException("slabSize too small: "+slabSize);
+		if (maximumBytes < slabSize) throw new IllegalArgumentException("maximumBytes must be at least slabSize");
+		long slabCount = maximumBytes / slabSize;
+		if (slabCount > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many slabs, increase slabSize");
+		this.keySerializer   = keySerializer;
+		this.valueSerializer = valueSerializer;
+		this.slabSize        = slabSize;
+		this.maximumBytes    = slabCount * slabSize;
+		this.slabs           = new ByteBuffer[(int)slabCount];
+		this.slabEnds        = new int[(int)slabCount];
+		initIndex(16);
+	}
+
+	/**
+	 * Returns the maximum number of bytes used in direct memory.
+	 * @return the maximum bytes
+	 */
+	public long getMaximumBytes() {
+		return maximumBytes;
+	}
+
+	/**
+	 * Returns the size of a slab.
+	 * @return the slab size
+	 */
+	public int getSlabSize() {
+		return slabSize;
+	}
+
+	/**
+	 * Returns the number of bytes currently allocated in direct memory.
+	 * @return the allocated bytes
+	 */
+	public long getAllocatedBytes() {
+		lock.readLock().lock();
+		try {
+			long rc = 0;
+			for (ByteBuffer slab : slabs) if (slab != null) rc += slab.capacity();
+			return rc;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		return getAllocatedBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		byte keyBytes[] = serializeKey(key);
+		if (keyBytes == null) return false;
+		lock.readLock().lock();
+		try {
+			return findSlot(keyBytes, hash(keyBytes)) >= 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This method deserializes all values.</p>
+	 */
+	@Override
+	public boolean containsValue(Object value) {
+		for (V v : values()) {
+			if (CommonUtils.equals(v, value)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(Object key) {
+		byte keyBytes[] = serializeKey(key);
+		if (keyBytes == null) return null;
+		byte valueBytes[] = null;
+		lock.readLock().lock();
+		try {
+			int slot = findSlot(keyBytes, hash(keyBytes));
+			if (slot >= 0) valueBytes = readValue(addresses[slot]);
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (valueBytes == null) {
+			statsCounter.recordMisses(1);
+			return null;
+		}
+		statsCounter.recordHits(1);
+		return valueSerializer.deserialize(valueBytes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException when the entry is larger than a slab
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) throw new NullPointerException("Key must not be null");
+		if (value == null) return remove(key);
+		byte keyBytes[]   = keySerializer.serialize(key);
+		byte valueBytes[] = valueSerializer.serialize(value);
+		int recordSize = HEADER_SIZE + keyBytes.length + valueBytes.length;
+		if (recordSize > slabSize) throw new IllegalArgumentException("Entry too large: "+recordSize+" bytes");
+		int hash = hash(keyBytes);
+		byte previous[] = null;
+		lock.writeLock().lock();
+		try {
+			int slot = findSlot(keyBytes, hash);
+			if (slot >= 0) {
+				previous = readValue(addresses[slot]);
+				deleteSlot(slot);
+			}
+			long address = allocate(recordSize);
+			ByteBuffer slab = slabs[slab(address)];
+			int offset = offset(address);
+			slab.putInt(offset, hash);
+			slab.putInt(offset+4, keyBytes.length);
+			slab.putInt(offset+8, valueBytes.length);
+			slab.put(offset+HEADER_SIZE, keyBytes);
+			slab.put(offset+HEADER_SIZE+keyBytes.length, valueBytes);
+			insert(hash, address);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return previous != null ? valueSerializer.deserialize(previous) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(Object key) {
+		byte keyBytes[] = serializeKey(key);
+		if (keyBytes == null) return null;
+		byte previous[] = null;
+		lock.writeLock().lock();
+		try {
+			int slot = findSlot(keyBytes, hash(keyBytes));
+			if (slot < 0) return null;
+			previous = readValue(addresses[slot]);
+			deleteSlot(slot);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return valueSerializer.deserialize(previous);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The direct memory already allocated is kept for reuse.</p>
+	 */
+	@Override
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			initIndex(16);
+			Arrays.fill(slabEnds, 0);
+			writeSlab     = 0;
+			writePosition = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public Set<K> keySet() {
+		List<byte[]> keys = new ArrayList<byte[]>();
+		lock.readLock().lock();
+		try {
+			for (int i=0; i<addresses.length; i++) {
+				if (addresses[i] != 0) keys.add(readKey(addresses[i]));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		Set<K> rc = new LinkedHashSet<K>();
+		for (byte key[] : keys) rc.add(keySerializer.deserialize(key));
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot and is not backed by the cache.</p>
+	 */
+	@Override
+	public Collection<V> values() {
+		List<byte[]> values = new ArrayList<byte[]>();
+		lock.readLock().lock();
+		try {
+			for (int i=0; i<addresses.length; i++) {
+				if (addresses[i] != 0) values.add(readValue(addresses[i]));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		List<V> rc = new ArrayList<V>(values.size());
+		for (byte value[] : values) rc.add(valueSerializer.deserialize(value));
+		return rc;
+	}
+
+	/**
+	 * Serializes a key for lookups.
+	 * @param key the key
+	 * @return the bytes or {@code null} when the key cannot be in this cache
+	 */
+	@SuppressWarnings("unchecked")
+	private byte[] serializeKey(Object key) {
+		if (key == null) return null;
+		try {
+			return keySerializer.serialize((K)key);
+		} catch (ClassCastException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reserves space for a record in the slab ring.
+	 * <p>Reusing a slab evicts all entries written into it.</p>
+	 * @param size the size of the record
+	 * @return the address of the record
+	 */
+	private long allocate(int size) {
+		if (writePosition + size > slabSize) {
+			slabEnds[writeSlab] = writePosition;
+			writeSlab = (writeSlab + 1) % slabs.length;
+			writePosition = 0;
+			evictSlab(writeSlab);
+		}
+		if (slabs[writeSlab] == null) slabs[writeSlab] = ByteBuffer.allocateDirect(slabSize);
+		long rc = address(writeSlab, writePosition);
+		writePosition += size;
+		slabEnds[writeSlab] = writePosition;
+		return rc;
+	}
+
+	/**
+	 * Removes all entries from the index that point into the given slab.
+	 * @param slabIndex the slab
+	 */
+	private void evictSlab(int slabIndex) {
+		ByteBuffer slab = slabs[slabIndex];
+		int end = slabEnds[slabIndex];
+		int offset = 0;
+		while (offset < end) {
+			int hash = slab.getInt(offset);
+			int recordSize = HEADER_SIZE + slab.getInt(offset+4) + slab.getInt(offset+8);
+			long address = address(slabIndex, offset);
+			int mask = addresses.length - 1;
+			for (int i = hash & mask; addresses[i] != 0; i = (i+1) & mask) {
+				if (addresses[i] == address) {
+					deleteSlot(i);
+					statsCounter.recordEviction(RemovalCause.SIZE, 1);
+					break;
+				}
+			}
+			offset += recordSize;
+		}
+		slabEnds[slabIndex] = 0;
+	}
+
+	/**
+	 * Finds the index slot of the key.
+	 * @param keyBytes the serialized key
+	 * @param hash the hash of the key
+	 * @return the slot or -1 when not found
+	 */
+	private int findSlot(byte keyBytes[], int hash) {
+		int mask = addresses.length - 1;
+		for (int i = hash & mask; addresses[i] != 0; i = (i+1) & mask) {
+			if ((hashes[i] == hash) && keyEquals(addresses[i], keyBytes)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Inserts a record into the index.
+	 * @param hash the hash of the key
+	 * @param address the address of the record
+	 */
+	private void insert(int hash, long address) {
+		if (count + 1 > addresses.length * LOAD_FACTOR) resize();
+		int mask = addresses.length - 1;
+		int i = hash & mask;
+		while (addresses[i] != 0) i = (i+1) & mask;
+		hashes[i]    = hash;
+		addresses[i] = address;
+		count++;
+	}
+
+	/**
+	 * Removes the slot from the index and shifts following entries of the probe sequence back.
+	 * @param slot the slot to delete
+	 */
+	private void deleteSlot(int slot) {
+		int mask = addresses.length - 1;
+		int i = slot;
+		int j = slot;
+		while (true) {
+			j = (j+1) & mask;
+			if (addresses[j] == 0) break;
+			int k = hashes[j] & mask;
+			// Move j to i unless its home slot k lies cyclically in (i, j]
+			boolean stays = (i <= j) ? ((i < k) && (k <= j)) : ((i < k) || (k <= j));
+			if (!stays) {
+				hashes[i]    = hashes[j];
+				addresses[i] = addresses[j];
+				i = j;
+			}
+		}
+		hashes[i]    = 0;
+		addresses[i] = 0;
+		count--;
+	}
+
+	/**
+	 * Doubles the index capacity.
+	 */
+	private void resize() {
+		int oldHashes[]    = hashes;
+		long oldAddresses[] = addresses;
+		initIndex(oldAddresses.length * 2);
+		for (int i=0; i<oldAddresses.length; i++) {
+			if (oldAddresses[i] != 0) insert(oldHashes[i], oldAddresses[i]);
+		}
+	}
+
+	/**
+	 * Creates an empty index.
+	 * @param capacity the capacity (power of two)
+	 */
+	private void initIndex(int capacity) {
+		hashes    = new int[capacity];
+		addresses = new long[capacity];
+		count     = 0;
+	}
+
+	/**
+	 * Compares the key of the record with the given bytes.
+	 * @param address the address of the record
+	 * @param keyBytes the serialized key
+	 * @return {@code true} when the keys are equal
+	 */
+	private boolean keyEquals(long address, byte keyBytes[]) {
+		ByteBuffer slab = slabs[slab(address)];
+		int offset = offset(address);
+		if (slab.getInt(offset+4) != keyBytes.length) return false;
+		offset += HEADER_SIZE;
+		for (int i=0; i<keyBytes.length; i++) {
+			if (slab.get(offset+i) != keyBytes[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the key of a record.
+	 * @param address the address of the record
+	 * @return the serialized key
+	 */
+	private byte[] readKey(long address) {
+		ByteBuffer slab = slabs[slab(address)];
+		int offset = offset(address);
+		byte rc[] = new byte[slab.getInt(offset+4)];
+		slab.get(offset+HEADER_SIZE, rc);
+		return rc;
+	}
+
+	/**
+	 * Reads the value of a record.
+	 * @param address the address of the record
+	 * @return the serialized value
+	 */
+	private byte[] readValue(long address) {
+		ByteBuffer slab = slabs[slab(address)];
+		int offset = offset(address);
+		int keyLength = slab.getInt(offset+4);
+		byte rc[] = new byte[slab.getInt(offset+8)];
+		slab.get(offset+HEADER_SIZE+keyLength, rc);
+		return rc;
+	}
+
+	/**
+	 * Computes the hash of a serialized key.
+	 * @param keyBytes the serialized key
+	 * @return the hash
+	 */
+	private static int hash(byte keyBytes[]) {
+		int h = Arrays.hashCode(keyBytes);
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Encodes slab and offset into an address (0 is reserved for empty slots).
+	 * @param slab the slab index
+	 * @param offset the offset in the slab
+	 * @return the address
+	 */
+	private static long address(int slab, int offset) {
+		return (((long)slab << 32) | offset) + 1L;
+	}
+
+	private static int slab(long address) {
+		return (int)((address - 1L) >>> 32);
+	}
+
+	private static int offset(long address) {
+		return (int)(address - 1L);
+	}
+}
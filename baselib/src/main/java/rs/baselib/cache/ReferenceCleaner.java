@@ -0,0 +1,125 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes the mappings of cleared soft and weak references from their caches.
+ * <p>All reference caches register their references with the single queue of this cleaner.
+ * A daemon thread waits on the queue and purges each cleared reference from its cache by the key
+ * that the reference carries. This way memory is reclaimed promptly, even when a cache is idle.</p>
+ * @author ralph
+ * @see KeyReference
+ *
+ */
+public class ReferenceCleaner {
+
+	/**
+	 * Returns the shared cleaner.
+	 * <p>The cleaner thread is started with the first call. The call takes no lock, as
+	 * every soft and weak cache reference asks for the cleaner.</p>
+	 * @return the cleaner
+	 */
+	public static ReferenceCleaner getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Creates the shared cleaner when the class is initialized, i.e. with the first access.
+	 */
+	private static class Holder {
+		static final ReferenceCleaner INSTANCE = new ReferenceCleaner();
+	}
+
+	private ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+	private LongAdder purgedCount = new LongAdder();
+	private CleanerThread thread;
+
+	/**
+	 * Constructor.
+	 */
+	private ReferenceCleaner() {
+		thread = new CleanerThread();
+		thread.start();
+	}
+
+	/**
+	 * Returns the queue that references must be registered with.
+	 * <p>Only references implementing {@link KeyReference} will be purged.</p>
+	 * @return the queue
+	 */
+	public ReferenceQueue<Object> getQueue() {
+		return queue;
+	}
+
+	/**
+	 * Returns the number of references purged from all caches.
+	 * @return the number of purged references
+	 */
+	public long getPurgedCount() {
+		return purgedCount.sum();
+	}
+
+	/**
+	 * Purges the reference from its cache.
+	 * @param ref the reference that was cleared
+	 */
+	protected void purge(Reference<?> ref) {
+		// The key might be mapped to a new value already
+		if ((ref instanceof KeyReference) && ((KeyReference<?,?>)ref).purge()) {
+			purgedCount.increment();
+		}
+	}
+
+	/**
+	 * The thread that drains the queue.
+	 * @author ralph
+	 *
+	 */
+	protected class CleanerThread extends Thread {
+
+		/**
+		 * Constructor.
+		 */
+		public CleanerThread() {
+			super("ReferenceCleaner");
+			setDaemon(true);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			while (true) {
+				try {
+					purge(queue.remove());
+				} catch (InterruptedException e) {
+					// Keep on working, the cleaner lives as long as the JVM
+				} catch (Throwable t) {
+					LoggerFactory.getLogger(ReferenceCleaner.class).error("Cannot purge reference", t);
+				}
+			}
+		}
+	}
+}
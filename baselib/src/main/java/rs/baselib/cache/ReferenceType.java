@@ -0,0 +1,36 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * Defines how a cache references its values.
+ * @author ralph
+ *
+ */
+public enum ReferenceType {
+
+	/** Values are held strongly until removed or evicted. */
+	STRONG,
+
+	/** Values are held by {@link java.lang.ref.SoftReference}s and cleared when memory is low. */
+	SOFT,
+
+	/** Values are held by {@link java.lang.ref.WeakReference}s and cleared when no longer used elsewhere. */
+	WEAK;
+
+}
@@ -0,0 +1,49 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * The reason why an entry was removed from a cache.
+ * @author ralph
+ *
+ */
+public enum RemovalCause {
+
+	/** The entry was removed by the application. */
+	EXPLICIT,
+
+	/** The value of the entry was replaced by the application. */
+	REPLACED,
+
+	/** The value was cleared by the garbage collector. */
+	COLLECTED,
+
+	/** The entry expired. */
+	EXPIRED,
+
+	/** The entry was evicted because the cache exceeded its maximum size. */
+	SIZE;
+
+	/**
+	 * Returns whether the entry was removed automatically (and not by the application).
+	 * @return {@code true} when the removal was an eviction
+	 */
+	public boolean isEviction() {
+		return (this != EXPLICIT) && (this != REPLACED);
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * Is notified when an entry is removed from a cache.
+ * <p>Listeners are called synchronously while the cache is locked. They must return quickly
+ * and must not call the cache that notifies them.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ * @see ICache#setRemovalListener(RemovalListener)
+ *
+ */
+@FunctionalInterface
+public interface RemovalListener<K,V> {
+
+	/**
+	 * An entry was removed.
+	 * @param key the key
+	 * @param value the value that was removed
+	 * @param cause the reason of the removal
+	 */
+	void onRemoval(K key, V value, RemovalCause cause);
+
+}
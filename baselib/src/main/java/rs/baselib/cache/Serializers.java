@@ -0,0 +1,119 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Provides standard {@link ISerializer}s.
+ * @author ralph
+ *
+ */
+public class Serializers {
+
+	/** Serializes strings as UTF-8. */
+	public static final ISerializer<String> STRING = new ISerializer<String>() {
+		@Override
+		public byte[] serialize(String object) {
+			return object.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String deserialize(byte[] data) {
+			return new String(data, StandardCharsets.UTF_8);
+		}
+	};
+
+	/** Passes byte arrays unchanged. */
+	public static final ISerializer<byte[]> BYTE_ARRAY = new ISerializer<byte[]>() {
+		@Override
+		public byte[] serialize(byte[] object) {
+			return object;
+		}
+
+		@Override
+		public byte[] deserialize(byte[] data) {
+			return data;
+		}
+	};
+
+	/** Serializes longs as 8 bytes. */
+	public static final ISerializer<Long> LONG = new ISerializer<Long>() {
+		@Override
+		public byte[] serialize(Long object) {
+			return ByteBuffer.allocate(Long.BYTES).putLong(object.longValue()).array();
+		}
+
+		@Override
+		public Long deserialize(byte[] data) {
+			return ByteBuffer.wrap(data).getLong();
+		}
+	};
+
+	/** Serializes integers as 4 bytes. */
+	public static final ISerializer<Integer> INTEGER = new ISerializer<Integer>() {
+		@Override
+		public byte[] serialize(Integer object) {
+			return ByteBuffer.allocate(Integer.BYTES).putInt(object.intValue()).array();
+		}
+
+		@Override
+		public Integer deserialize(byte[] data) {
+			return ByteBuffer.wrap(data).getInt();
+		}
+	};
+
+	/**
+	 * Returns a serializer that uses Java object serialization.
+	 * @param <T> the type of objects
+	 * @return the serializer
+	 */
+	public static <T extends Serializable> ISerializer<T> java() {
+		return new ISerializer<T>() {
+			@Override
+			public byte[] serialize(T object) {
+				try {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					ObjectOutputStream oout = new ObjectOutputStream(out);
+					oout.writeObject(object);
+					oout.close();
+					return out.toByteArray();
+				} catch (IOException e) {
+					throw new IllegalArgumentException("Cannot serialize object", e);
+				}
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T deserialize(byte[] data) {
+				try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+					return (T)in.readObject();
+				} catch (IOException|ClassNotFoundException e) {
+					throw new IllegalArgumentException("Cannot deserialize object", e);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * A time source for caches that need to measure elapsed time.
+ * <p>Tests can provide their own implementation to control the time deterministically.</p>
+ * @author ralph
+ *
+ */
+@FunctionalInterface
+public interface Ticker {
+
+	/** The ticker that uses {@link System#nanoTime()}. */
+	public static final Ticker SYSTEM = System::nanoTime;
+
+	/**
+	 * Returns the number of nanoseconds elapsed since a fixed but arbitrary point in time.
+	 * @return the current time in nanoseconds
+	 */
+	long read();
+
+}
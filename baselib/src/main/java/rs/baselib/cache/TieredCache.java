@@ -0,0 +1,445 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.LoggerFactory;
+
+import rs.baselib.util.CommonUtils;
+
+/**
+ * A cache with a small, fast first tier (L1) in front of a large second tier (L2).
+ * <p>Typically L1 is a {@link BoundedCache} on the heap and L2 is an {@link OffHeapCache} or
+ * {@link MappedFileCache}. Lookups try L1 first, then L2. Values found in L2 are promoted to L1.
+ * When L1 evicts an entry, it is demoted to L2 unless L2 holds it already. Demotion requires L1 to
+ * support a {@link ICache#setRemovalListener(RemovalListener) removal listener}.</p>
+ * <p>Writes reach L2 according to the {@link WriteMode}. With {@link WriteMode#WRITE_BEHIND}, a background
+ * thread writes pending values after a delay, keeping only the last value of each key. Removals always
+ * reach both tiers immediately. {@link #flush()} writes all pending values and {@link #close()} must
+ * be called to not lose them.</p>
+ * <p>The cache counts the hits per tier to help sizing the tiers. All methods are synchronized.
+ * The tiers must not be modified directly.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class TieredCache<K,V> implements ICache<K, V>, Closeable {
+
+	/** Default delay of writes to L2 in write-behind mode: 1 second */
+	public static final long DEFAULT_WRITE_BEHIND_DELAY = 1000L;
+
+	private ICache<K,V> l1;
+	private ICache<K,V> l2;
+	private WriteMode writeMode;
+	private long writeBehindDelay = DEFAULT_WRITE_BEHIND_DELAY;
+	private Map<K,V> pendingWrites = new LinkedHashMap<K,V>();
+	private WriteBehindThread writeBehindThread;
+	private boolean demotionSupported;
+	private LongAdder l1HitCount = new LongAdder();
+	private LongAdder l2HitCount = new LongAdder();
+	private LongAdder missCount = new LongAdder();
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
+
+	/**
+	 * Constructor.
+	 * <p>The cache will write through to L2.</p>
+	 * @param l1 the first tier
+	 * @param l2 the second tier
+	 */
+	public TieredCache(ICache<K,V> l1, ICache<K,V> l2) {
+		this(l1, l2, WriteMode.WRITE_THROUGH);
+	}
+
+	/**
+	 * Constructor.
+	 * @param l1 the first tier
+	 * @param l2 the second tier
+	 * @param writeMode how writes reach the second tier
+	 */
+	public TieredCache(ICache<K,V> l1, ICache<K,V> l2, WriteMode writeMode) {
+		if ((l1 == null) || (l2 == null)) throw new IllegalArgumentException("Both tiers must be set");
+		if (writeMode == null) throw new IllegalArgumentException("writeMode must be set");
+		this.l1        = l1;
+		this.l2        = l2;
+		this.writeMode = writeMode;
+		try {
+			l1.setRemovalListener(this::demote);
+			demotionSupported = true;
+		} catch (UnsupportedOperationException e) {
+			demotionSupported = false;
+		}
+	}
+
+	/**
+	 * Returns the first tier.
+	 * @return the L1 cache
+	 */
+	public ICache<K, V> getL1() {
+		return l1;
+	}
+
+	/**
+	 * Returns the second tier.
+	 * @return the L2 cache
+	 */
+	public ICache<K, V> getL2() {
+		return l2;
+	}
+
+	/**
+	 * Returns how writes reach the second tier.
+	 * @return the write mode
+	 */
+	public WriteMode getWriteMode() {
+		return writeMode;
+	}
+
+	/**
+	 * Returns whether L1 evictions are demoted to L2.
+	 * @return {@code true} when L1 supports removal listeners
+	 */
+	public boolean isDemotionSupported() {
+		return demotionSupported;
+	}
+
+	/**
+	 * Returns the delay of writes to L2 in write-behind mode.
+	 * @param unit the time unit of the result
+	 * @return the delay
+	 */
+	public synchronized long getWriteBehindDelay(TimeUnit unit) {
+		return unit.convert(writeBehindDelay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sets the delay of writes to L2 in write-behind mode.
+	 * @param delay the delay
+	 * @param unit the time unit of the delay
+	 */
+	public synchronized void setWriteBehindDelay(long delay, TimeUnit unit) {
+		this.writeBehindDelay = Math.max(1L, unit.toMillis(delay));
+	}
+
+	/**
+	 * Returns the number of lookups answered by L1.
+	 * @return the L1 hits
+	 */
+	public long getL1HitCount() {
+		return l1HitCount.sum();
+	}
+
+	/**
+	 * Returns the number of lookups answered by L2.
+	 * @return the L2 hits
+	 */
+	public long getL2HitCount() {
+		return l2HitCount.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that found no value in any tier.
+	 * @return the misses
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Returns the ratio of all lookups that were answered by L1.
+	 * @return the L1 hit ratio (0 when there were no lookups)
+	 */
+	public double getL1HitRatio() {
+		long l1Hits   = l1HitCount.sum();
+		long requests = l1Hits + l2HitCount.sum() + missCount.sum();
+		return requests == 0 ? 0.0d : (double)l1Hits / requests;
+	}
+
+	/**
+	 * Returns the ratio of lookups missing L1 that were answered by L2.
+	 * @return the L2 hit ratio (0 when there were no lookups to L2)
+	 */
+	public double getL2HitRatio() {
+		long l2Hits   = l2HitCount.sum();
+		long requests = l2Hits + missCount.sum();
+		return requests == 0 ? 0.0d : (double)l2Hits / requests;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Returns the sum of both tiers or -1 when any tier is unknown.</p>
+	 */
+	@Override
+	public long getEstimatedBytes() {
+		long l1Bytes = l1.getEstimatedBytes();
+		long l2Bytes = l2.getEstimatedBytes();
+		return (l1Bytes < 0) || (l2Bytes < 0) ? -1L : l1Bytes + l2Bytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This method collects the keys of both tiers.</p>
+	 */
+	@Override
+	public synchronized int size() {
+		return keySet().size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean isEmpty() {
+		return l1.isEmpty() && pendingWrites.isEmpty() && l2.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This method does not count as access.</p>
+	 */
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		return l1.containsKey(key) || pendingWrites.containsKey(key) || l2.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean containsValue(Object value) {
+		for (V v : values()) {
+			if (CommonUtils.equals(v, value)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>A value found in L2 is promoted to L1.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public synchronized V get(Object key) {
+		V rc = l1.get(key);
+		if (rc != null) {
+			l1HitCount.increment();
+			statsCounter.recordHits(1);
+			return rc;
+		}
+		rc = pendingWrites.get(key);
+		if (rc == null) rc = l2.get(key);
+		if (rc != null) {
+			l2HitCount.increment();
+			statsCounter.recordHits(1);
+			l1.put((K)key, rc);
+		} else {
+			missCount.increment();
+			statsCounter.recordMisses(1);
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>In write-behind mode, a value that was held by L2 only is not returned.</p>
+	 */
+	@Override
+	public synchronized V put(K key, V value) {
+		if (value == null) return remove(key);
+		V rc = l1.put(key, value);
+		if (writeMode == WriteMode.WRITE_THROUGH) {
+			V previous = l2.put(key, value);
+			if (rc == null) rc = previous;
+		} else {
+			V previous = pendingWrites.put(key, value);
+			if (rc == null) rc = previous;
+			if (writeBehindThread == null) {
+				writeBehindThread = new WriteBehindThread();
+				writeBehindThread.start();
+			}
+		}
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized V remove(Object key) {
+		V rc = l1.remove(key);
+		V pending = pendingWrites.remove(key);
+		V previous = l2.remove(key);
+		if (rc == null) rc = pending != null ? pending : previous;
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void clear() {
+		pendingWrites.clear();
+		l1.clear();
+		l2.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The set is a snapshot of the keys of both tiers and is not backed by the cache.</p>
+	 */
+	@Override
+	public synchronized Set<K> keySet() {
+		Set<K> rc = new LinkedHashSet<K>(l1.keySet());
+		rc.addAll(pendingWrites.keySet());
+		rc.addAll(l2.keySet());
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The collection is a snapshot and is not backed by the cache. Values are not promoted.</p>
+	 */
+	@Override
+	public synchronized Collection<V> values() {
+		List<V> rc = new ArrayList<V>();
+		for (K key : keySet()) {
+			V value = l1.get(key);
+			if (value == null) value = pendingWrites.get(key);
+			if (value == null) value = l2.get(key);
+			if (value != null) rc.add(value);
+		}
+		return rc;
+	}
+
+	/**
+	 * Writes all pending values to L2.
+	 */
+	public synchronized void flush() {
+		if (pendingWrites.isEmpty()) return;
+		List<Map.Entry<K,V>> entries = new ArrayList<Map.Entry<K,V>>(pendingWrites.entrySet());
+		pendingWrites.clear();
+		for (Map.Entry<K,V> entry : entries) {
+			try {
+				l2.put(entry.getKey(), entry.getValue());
+			} catch (RuntimeException e) {
+				LoggerFactory.getLogger(getClass()).error("Cannot write to second tier: "+entry.getKey(), e);
+			}
+		}
+	}
+
+	/**
+	 * Writes all pending values to L2 and stops the background writer.
+	 * <p>The tiers are not closed.</p>
+	 */
+	@Override
+	public void close() {
+		WriteBehindThread thread = null;
+		synchronized (this) {
+			flush();
+			thread = writeBehindThread;
+			writeBehindThread = null;
+		}
+		if (thread != null) thread.interrupt();
+	}
+
+	/**
+	 * Demotes an entry evicted from L1.
+	 * @param key the key
+	 * @param value the value
+	 * @param cause the reason of the removal
+	 */
+	protected void demote(K key, V value, RemovalCause cause) {
+		if (!cause.isEviction() || (value == null)) return;
+		if (pendingWrites.remove(key) != null) {
+			l2.put(key, value);
+		} else if (!l2.containsKey(key)) {
+			l2.put(key, value);
+		}
+	}
+
+	/**
+	 * The thread that writes pending values to L2.
+	 * <p>The thread ends when no values are pending anymore.</p>
+	 * @author ralph
+	 *
+	 */
+	protected class WriteBehindThread extends Thread {
+
+		/**
+		 * Constructor.
+		 */
+		public WriteBehindThread() {
+			super("TieredCache-WriteBehind");
+			setDaemon(true);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			while (true) {
+				long delay = 0L;
+				synchronized (TieredCache.this) {
+					if (writeBehindThread != this) return;
+					delay = writeBehindDelay;
+				}
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					// Cache was closed
+					return;
+				}
+				synchronized (TieredCache.this) {
+					if (writeBehindThread != this) return;
+					flush();
+					if (pendingWrites.isEmpty()) {
+						writeBehindThread = null;
+						return;
+					}
+				}
+			}
+		}
+	}
+}
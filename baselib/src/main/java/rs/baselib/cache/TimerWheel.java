@@ -0,0 +1,216 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timer wheel that schedules timers in constant time.
+ * <p>The wheel has levels with buckets of increasing time span (about 1 second, 1 minute, 1 hour,
+ * 1 day and 6 days). A timer is placed into the bucket that covers its deadline. When time advances,
+ * only the buckets passed since the last advance are visited. Timers that are not due yet are moved
+ * into a bucket of a finer level, all others are reported as expired. This avoids periodic scans over
+ * all timers.</p>
+ * <p>This class is not thread-safe.</p>
+ * @param <T> the timer type
+ * @author ralph
+ *
+ */
+class TimerWheel<T extends TimerWheel.Timer> {
+
+	private static final int BUCKETS[] = new int[] { 64, 64, 32, 4, 1 };
+	private static final long SPANS[] = new long[] {
+			1L << 30, // 1.07s
+			1L << 36, // 1.14m
+			1L << 42, // 1.22h
+			1L << 47, // 1.63d
+			1L << 49, // 6.5d
+			1L << 49, // 6.5d
+	};
+	private static final long SHIFT[] = new long[SPANS.length];
+	static {
+		for (int i=0; i<SPANS.length; i++) SHIFT[i] = Long.numberOfTrailingZeros(SPANS[i]);
+	}
+
+	private Timer wheel[][];
+	private long nanos;
+
+	/**
+	 * Constructor.
+	 * @param nanos the current time in nanoseconds
+	 */
+	public TimerWheel(long nanos) {
+		this.nanos = nanos;
+		this.wheel = new Timer[BUCKETS.length][];
+		for (int i=0; i<BUCKETS.length; i++) {
+			wheel[i] = new Timer[BUCKETS[i]];
+			for (int j=0; j<BUCKETS[i]; j++) {
+				Timer sentinel = new Timer();
+				sentinel.prev = sentinel;
+				sentinel.next = sentinel;
+				wheel[i][j] = sentinel;
+			}
+		}
+	}
+
+	/**
+	 * Returns the time of the last advance.
+	 * @return the current time of the wheel in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Schedules the timer at its deadline.
+	 * <p>The timer must not be scheduled yet.</p>
+	 * @param timer the timer
+	 */
+	public void schedule(T timer) {
+		link(findBucket(timer.time), timer);
+	}
+
+	/**
+	 * Moves a timer to the bucket of its (changed) deadline.
+	 * @param timer the timer
+	 */
+	public void reschedule(T timer) {
+		if (timer.next != null) unlink(timer);
+		link(findBucket(timer.time), timer);
+	}
+
+	/**
+	 * Removes the timer from the wheel.
+	 * @param timer the timer
+	 */
+	public void deschedule(T timer) {
+		if (timer.next != null) unlink(timer);
+	}
+
+	/**
+	 * Removes all timers from the wheel.
+	 */
+	public void clear() {
+		for (Timer buckets[] : wheel) {
+			for (Timer sentinel : buckets) {
+				sentinel.prev = sentinel;
+				sentinel.next = sentinel;
+			}
+		}
+	}
+
+	/**
+	 * Advances the wheel to the current time and reports all timers that are due.
+	 * @param currentNanos the current time in nanoseconds
+	 * @param expired the consumer of expired timers (they are descheduled already)
+	 */
+	public void advance(long currentNanos, Consumer<T> expired) {
+		long previousNanos = nanos;
+		nanos = currentNanos;
+		for (int i=0; i<SHIFT.length-1; i++) {
+			long previousTicks = previousNanos >>> SHIFT[i];
+			long currentTicks  = currentNanos >>> SHIFT[i];
+			if ((currentTicks - previousTicks) <= 0L) break;
+			expire(i, previousTicks, currentTicks - previousTicks, expired);
+		}
+	}
+
+	/**
+	 * Visits the buckets of a level that the time passed.
+	 * @param level the level
+	 * @param previousTicks the tick of the last advance on this level
+	 * @param delta the number of ticks passed
+	 * @param expired the consumer of expired timers
+	 */
+	@SuppressWarnings("unchecked")
+	private void expire(int level, long previousTicks, long delta, Consumer<T> expired) {
+		Timer buckets[] = wheel[level];
+		int mask  = buckets.length - 1;
+		int steps = (int)Math.min(1 + delta, buckets.length);
+		int start = (int)(previousTicks & mask);
+		int end   = start + steps;
+		for (int i=start; i<end; i++) {
+			Timer sentinel = buckets[i & mask];
+			Timer timer = sentinel.next;
+			sentinel.prev = sentinel;
+			sentinel.next = sentinel;
+			while (timer != sentinel) {
+				Timer next = timer.next;
+				timer.prev = null;
+				timer.next = null;
+				if ((timer.time - nanos) > 0L) {
+					link(findBucket(timer.time), timer);
+				} else {
+					expired.accept((T)timer);
+				}
+				timer = next;
+			}
+		}
+	}
+
+	/**
+	 * Returns the bucket sentinel for the given deadline.
+	 * @param time the deadline in nanoseconds
+	 * @return the sentinel of the bucket
+	 */
+	private Timer findBucket(long time) {
+		long duration = time - nanos;
+		int length = wheel.length - 1;
+		for (int i=0; i<length; i++) {
+			if (duration < SPANS[i+1]) {
+				long ticks = time >>> SHIFT[i];
+				int index = (int)(ticks & (wheel[i].length - 1));
+				return wheel[i][index];
+			}
+		}
+		return wheel[length][0];
+	}
+
+	/**
+	 * Appends the timer to the bucket.
+	 * @param sentinel the bucket sentinel
+	 * @param timer the timer
+	 */
+	private static void link(Timer sentinel, Timer timer) {
+		timer.prev = sentinel.prev;
+		timer.next = sentinel;
+		sentinel.prev.next = timer;
+		sentinel.prev = timer;
+	}
+
+	/**
+	 * Removes the timer from its bucket.
+	 * @param timer the timer
+	 */
+	private static void unlink(Timer timer) {
+		timer.prev.next = timer.next;
+		timer.next.prev = timer.prev;
+		timer.prev = null;
+		timer.next = null;
+	}
+
+	/**
+	 * A timer in the wheel.
+	 */
+	static class Timer {
+		/** The deadline in nanoseconds */
+		long time;
+		Timer prev;
+		Timer next;
+	}
+}
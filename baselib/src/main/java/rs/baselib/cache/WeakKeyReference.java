@@ -0,0 +1,63 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A {@link WeakReference} that knows its key and cache.
+ * <p>The reference is registered with the queue of the {@link ReferenceCleaner}.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ *
+ */
+public class WeakKeyReference<K,V> extends WeakReference<V> implements KeyReference<K, V> {
+
+	private K key;
+	private Owner<K,V> owner;
+
+	/**
+	 * Constructor.
+	 * @param key the key
+	 * @param value the value
+	 * @param owner the cache holding the reference
+	 */
+	public WeakKeyReference(K key, V value, Owner<K,V> owner) {
+		super(value, ReferenceCleaner.getInstance().getQueue());
+		this.key   = key;
+		this.owner = owner;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public K getKey() {
+		return key;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean purge() {
+		return owner.purge(this);
+	}
+
+}
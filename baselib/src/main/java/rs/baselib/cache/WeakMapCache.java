@@ -17,12 +17,11 @@
  */
 package rs.baselib.cache;
 
-import java.lang.ref.Reference;
-import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,16 +30,17 @@ import rs.baselib.util.CommonUtils;
 
 /**
  * A cache implementation using a {@link HashMap} with {@link WeakReference}s.
+ * <p>Mappings of cleared references are removed by the {@link ReferenceCleaner}. As this happens
+ * in the background, all methods are synchronized.</p>
  * @author ralph
  *
  */
 public class WeakMapCache<K,V> implements ICache<K, V> {
 
-	private static int DEFAULT_CLEAR_COUNT = 10;
-	
-	private Map<K,WeakReference<V>> cache = new HashMap<K,WeakReference<V>>();
-	private ReferenceQueue<V> referenceQueue = new ReferenceQueue<V>();
-	private int clearCounter = DEFAULT_CLEAR_COUNT;
+	private Map<K,WeakKeyReference<K,V>> cache = new HashMap<K,WeakKeyReference<K,V>>();
+	private KeyReference.Owner<K,V> owner = this::purge;
+	private long purgedCount = 0L;
+	private volatile IStatsCounter statsCounter = IStatsCounter.DISABLED;
 	
 	/**
 	 * Constructor.
@@ -48,11 +48,35 @@ public class WeakMapCache<K,V> implements ICache<K, V> {
 	public WeakMapCache() {
 	}
 
+	/**
+	 * Returns the number of mappings that were removed because their values were cleared.
+	 * @return the number of purged mappings
+	 */
+	public synchronized long getPurgedCount() {
+		return purgedCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public IStatsCounter getStatsCounter() {
+		return statsCounter;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStatsCounter(IStatsCounter statsCounter) {
+		this.statsCounter = statsCounter != null ? statsCounter : IStatsCounter.DISABLED;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public int size() {
+	public synchronized int size() {
 		return cache.size();
 	}
 
@@ -60,7 +84,7 @@ public class WeakMapCache<K,V> implements ICache<K, V> {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public boolean isEmpty() {
+	public synchronized boolean isEmpty() {
 		return cache.isEmpty();
 	}
 
@@ -68,7 +92,7 @@ public class WeakMapCache<K,V> implements ICache<K, V> {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public boolean containsKey(Object key) {
+	public synchronized boolean containsKey(Object key) {
 		return cache.containsKey(key);
 	}
 
@@ -76,8 +100,8 @@ public class WeakMapCache<K,V> implements ICache<K, V> {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public boolean containsValue(Object value) {
-		for (Map.Entry<K,WeakReference<V>> entry : cache.entrySet()) {
+	public synchronized boolean containsValue(Object value) {
+		for (Map.Entry<K,WeakKeyReference<K,V>> entry : cache.entrySet()) {
 			if (CommonUtils.equals(entry.getValue().get(), value)) return true; 
 		}
 		return false;
@@ -87,30 +111,48 @@ public class WeakMapCache<K,V> implements ICache<K, V> {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public V get(Object key) {
-		if (clearCounter-- <= 0) clearMap();
-		WeakReference<V> ref = cache.get(key);
-		return ref != null ? ref.get() : null;
+	public synchronized V get(Object key) {
+		WeakKeyReference<K,V> ref = cache.get(key);
+		V rc = ref != null ? ref.get() : null;
+		if (rc != null) statsCounter.recordHits(1);
+		else statsCounter.recordMisses(1);
+		return rc;
+	}
+
+	/**
+	 * Removes the mapping of a cleared reference.
+	 * @param ref the reference
+	 * @return {@code true} when the mapping was removed
+	 */
+	protected synchronized boolean purge(KeyReference<K,V> ref) {
+		if (!cache.remove(ref.getKey(), ref)) return false;
+		purgedCount++;
+		statsCounter.recordEviction(RemovalCause.COLLECTED, 1);
+		return true;
 	}
 
 	/**
-	 * Clears the map by working on the reference queue.
+	 * Clears the map by removing the mappings of cleared references.
+	 * <p>The {@link ReferenceCleaner} does this in the background. Subclasses can call
+	 * this method to purge the map immediately.</p>
 	 */
-	protected void clearMap() {
-		Reference<? extends V> rf = referenceQueue.poll();
-		while (rf != null) {
-			cache.remove(rf); 
-			rf = referenceQueue.poll();
+	protected synchronized void clearMap() {
+		Iterator<Map.Entry<K,WeakKeyReference<K,V>>> i = cache.entrySet().iterator();
+		while (i.hasNext()) {
+			if (i.next().getValue().get() == null) {
+				i.remove();
+				purgedCount++;
+				statsCounter.recordEviction(RemovalCause.COLLECTED, 1);
+			}
 		}
-		clearCounter = DEFAULT_CLEAR_COUNT;
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public V put(K key, V value) {
-		WeakReference<V> ref = cache.put(key, new WeakReference<V>(value));
+	public synchronized V put(K key, V value) {
+		WeakKeyReference<K,V> ref = cache.put(key, new WeakKeyReference<K,V>(key, value, owner));
 		return ref != null ? ref.get() : null;
 	}
 
@@ -118,8 +160,8 @@ public class WeakMapCache<K,V> implements ICache<K, V> {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public V remove(Object key) {
-		WeakReference<V> ref = cache.remove(key);
+	public synchronized V remove(Object key) {
+		WeakKeyReference<K,V> ref = cache.remove(key);
 		return ref != null ? ref.get() : null;
 	}
 
@@ -127,29 +169,29 @@ public class WeakMapCache<K,V> implements ICache<K, V> {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void clear() {
+	public synchronized void clear() {
 		cache.clear();
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * <p>Iterators of the set work on a snapshot of the keys.</p>
 	 */
 	@Override
 	public Set<K> keySet() {
-		return cache.keySet();
+		return new KeySetView<K>(this, cache.keySet());
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Collection<V> values() {
+	public synchronized Collection<V> values() {
 		List<V> rc = new ArrayList<V>();
-		for (Map.Entry<K,WeakReference<V>> entry : cache.entrySet()) {
+		for (Map.Entry<K,WeakKeyReference<K,V>> entry : cache.entrySet()) {
 			rc.add(entry.getValue().get());
 		}		
 		return rc;
 	}
 	
-	
 }
@@ -0,0 +1,42 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * Calculates the weight of a cache entry.
+ * <p>Caches bounded by weight evict entries until the total weight of all entries is below the maximum.
+ * When the weight is an estimate of the memory used by the entry, the memory of the cache is bounded in bytes.</p>
+ * <p>The weight of an entry must not change while it is cached.</p>
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author ralph
+ * @see Weighers
+ *
+ */
+@FunctionalInterface
+public interface Weigher<K,V> {
+
+	/**
+	 * Returns the weight of the entry.
+	 * @param key the key
+	 * @param value the value
+	 * @return the weight (not negative)
+	 */
+	int weigh(K key, V value);
+
+}
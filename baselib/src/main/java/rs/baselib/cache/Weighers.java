@@ -0,0 +1,70 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+/**
+ * Common {@link Weigher}s.
+ * <p>The byte sizes are estimates for a 64-bit JVM with compressed references. They cover the value only.</p>
+ * @author ralph
+ *
+ */
+public class Weighers {
+
+	/** Object header and fields of a {@link String} */
+	private static final int STRING_OVERHEAD = 24;
+	/** Header and length of an array */
+	private static final int ARRAY_OVERHEAD = 16;
+
+	/** Each entry has weight 1, i.e. the weight is the number of entries. */
+	public static final Weigher<Object,Object> SINGLETON = (key, value) -> 1;
+
+	/** Estimates the memory of a {@link String} value in bytes. */
+	public static final Weigher<Object,String> STRING = (key, value) -> estimateString(value);
+
+	/** Estimates the memory of a byte array value in bytes. */
+	public static final Weigher<Object,byte[]> BYTE_ARRAY = (key, value) -> estimateArray(value != null ? value.length : 0);
+
+	/**
+	 * Estimates the memory of a string.
+	 * <p>Two bytes per character are assumed as a string might not be compactable to Latin-1.</p>
+	 * @param s the string
+	 * @return the estimated number of bytes
+	 */
+	public static int estimateString(String s) {
+		if (s == null) return 0;
+		return STRING_OVERHEAD + estimateArray(2L * s.length());
+	}
+
+	/**
+	 * Estimates the memory of an array.
+	 * @param bytes the number of bytes in the array elements
+	 * @return the estimated number of bytes including the array header and padding
+	 */
+	public static int estimateArray(long bytes) {
+		return (int)Math.min(Integer.MAX_VALUE, align(ARRAY_OVERHEAD + bytes));
+	}
+
+	/**
+	 * Aligns the size to 8 bytes as the JVM does for objects.
+	 * @param bytes the size
+	 * @return the aligned size
+	 */
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+}
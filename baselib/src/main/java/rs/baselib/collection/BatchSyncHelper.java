@@ -0,0 +1,101 @@
+package rs.baselib.collection;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link SyncHelper} that adds and removes values in batches.
+ * <p>Implementations override {@link #addAll(List)} and {@link #removeAll(List)}, e.g. to
+ * issue one bulk statement per batch instead of one per value. When an {@link #getExecutor() executor}
+ * is available, the batches of the add phase run in parallel, followed by the batches of the
+ * remove phase. The callbacks must be thread-safe then.</p>
+ * <p>Values are matched by {@link #getKey(Object)}. The keys of the existing collection are indexed once
+ * per synchronization, {@link #exists(Collection, Object)} is not called.</p>
+ * @param <T> the type of object in collections
+ */
+public interface BatchSyncHelper<T> extends SyncHelper<T> {
+
+	/** The default number of values in a batch */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * Synchronizes the collection with the given new content.
+	 * <p>The method will call {@link SyncUtils#syncBatched(Collection, Collection, BatchSyncHelper)}.</p>
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @throws SyncException when syncing fails
+	 */
+	@Override
+	default Collection<T> sync(Collection<T> collection, Collection<T> newValues) throws SyncException {
+		return SyncUtils.syncBatched(collection, newValues, this);
+	}
+
+	/**
+	 * Returns the maximum number of values passed to {@link #addAll(List)} or {@link #removeAll(List)}.
+	 * @return the batch size, {@link #DEFAULT_BATCH_SIZE} by default
+	 */
+	default int getBatchSize() {
+		return DEFAULT_BATCH_SIZE;
+	}
+
+	/**
+	 * Returns the key that matches a value with the values of the existing collection.
+	 * <p>Keys must implement {@link Object#hashCode()} and {@link Object#equals(Object)}.</p>
+	 * @param value the value
+	 * @return the key, the value itself by default
+	 */
+	default Object getKey(T value) {
+		return value;
+	}
+
+	/**
+	 * Returns the executor that runs the batches in parallel.
+	 * @return the executor or {@code null} (default) when batches shall run in the calling thread
+	 */
+	default Executor getExecutor() {
+		return null;
+	}
+
+	/**
+	 * Perform the add action for a batch of new values.
+	 * @param values the values to add
+	 * @return the values to be stored in the new collection, in the same order and number
+	 * @throws Exception when adding fails
+	 */
+	default List<T> addAll(List<T> values) throws Exception {
+		return values;
+	}
+
+	/**
+	 * Perform the remove action for a batch of values that were removed.
+	 * @param values the values to remove
+	 * @throws Exception when removing fails
+	 */
+	default void removeAll(List<T> values) throws Exception {
+	}
+
+	/**
+	 * Perform the add action for the given value because it is new.
+	 * <p>The standard implementation calls {@link #addAll(List)} with the single value.</p>
+	 * @param value the value to add
+	 * @throws Exception when adding fails
+	 */
+	@Override
+	default T add(T value) throws Exception {
+		return addAll(Collections.singletonList(value)).get(0);
+	}
+
+	/**
+	 * Perform the remove action for the given value because was removed.
+	 * <p>The standard implementation calls {@link #removeAll(List)} with the single value.</p>
+	 * @param value the value to remove
+	 * @throws Exception when removing fails
+	 */
+	@Override
+	default T remove(T value) throws Exception {
+		removeAll(Collections.singletonList(value));
+		return value;
+	}
+}
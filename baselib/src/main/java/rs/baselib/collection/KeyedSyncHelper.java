@@ -0,0 +1,68 @@
+package rs.baselib.collection;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * A {@link SyncHelper} that identifies values by a key.
+ * <p>Synchronization builds hash indexes of the keys and runs in linear time instead of
+ * calling {@link #exists(Collection, Object)} for every new value. Values with the same key
+ * that are not {@link #isChanged(Object, Object) equal} are passed to {@link #update(Object, Object)}.</p>
+ * @param <T> the type of object in collections
+ * @param <K> the type of the keys
+ */
+public interface KeyedSyncHelper<T,K> extends SyncHelper<T> {
+
+	/**
+	 * Synchronizes the collection with the given new content.
+	 * <p>The method will call {@link SyncUtils#syncByKey(Collection, Collection, KeyedSyncHelper)}.</p>
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @throws SyncException when syncing fails
+	 */
+	@Override
+	default Collection<T> sync(Collection<T> collection, Collection<T> newValues) throws SyncException {
+		return syncByKey(collection, newValues).getCollection();
+	}
+
+	/**
+	 * Synchronizes the collection with the given new content and reports the changes.
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @return the result of the synchronization
+	 * @throws SyncException when syncing fails
+	 */
+	default SyncResult<T> syncByKey(Collection<T> collection, Collection<T> newValues) throws SyncException {
+		return SyncUtils.syncByKey(collection, newValues, this);
+	}
+
+	/**
+	 * Returns the key of the value.
+	 * <p>Keys must implement {@link Object#hashCode()} and {@link Object#equals(Object)}.</p>
+	 * @param value the value
+	 * @return the key
+	 */
+	K getKey(T value);
+
+	/**
+	 * Returns whether a value with the same key changed.
+	 * <p>The standard implementation compares the values with {@link Object#equals(Object)}.</p>
+	 * @param oldValue the value in the existing collection
+	 * @param newValue the new value
+	 * @return {@code true} when the value shall be updated
+	 */
+	default boolean isChanged(T oldValue, T newValue) {
+		return !Objects.equals(oldValue, newValue);
+	}
+
+	/**
+	 * Perform the update action for a value that changed.
+	 * @param oldValue the value in the existing collection
+	 * @param newValue the new value
+	 * @return the value to be stored in the new collection
+	 * @throws Exception when updating fails
+	 */
+	default T update(T oldValue, T newValue) throws Exception {
+		return newValue;
+	}
+}
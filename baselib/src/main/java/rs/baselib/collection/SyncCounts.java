@@ -0,0 +1,61 @@
+package rs.baselib.collection;
+
+/**
+ * The number of changes made by a streaming synchronization.
+ * @see SyncUtils#syncSorted(java.util.Iterator, java.util.Iterator, java.util.Comparator, rs.baselib.function.ExceptionalConsumer, rs.baselib.function.ExceptionalBiConsumer, rs.baselib.function.ExceptionalConsumer)
+ */
+public class SyncCounts {
+
+	long added     = 0;
+	long updated   = 0;
+	long removed   = 0;
+	long unchanged = 0;
+
+	/**
+	 * Returns the number of elements added.
+	 * @return the number of added elements
+	 */
+	public long getAdded() {
+		return added;
+	}
+
+	/**
+	 * Returns the number of elements updated.
+	 * @return the number of updated elements
+	 */
+	public long getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * Returns the number of elements removed.
+	 * @return the number of removed elements
+	 */
+	public long getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Returns the number of elements that did not change.
+	 * @return the number of unchanged elements
+	 */
+	public long getUnchanged() {
+		return unchanged;
+	}
+
+	/**
+	 * Returns whether any element was added, updated or removed.
+	 * @return {@code true} when the elements changed
+	 */
+	public boolean hasChanges() {
+		return (added > 0) || (updated > 0) || (removed > 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "added="+added+", updated="+updated+", removed="+removed+", unchanged="+unchanged;
+	}
+}
@@ -0,0 +1,93 @@
+package rs.baselib.collection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a key-indexed synchronization.
+ * <p>The lists hold the values as returned by the callbacks in the order they were called.</p>
+ * @param <T> the type of object in collections
+ * @see SyncUtils#syncByKey(Collection, Collection, KeyedSyncHelper)
+ */
+public class SyncResult<T> {
+
+	private Collection<T> collection;
+	private List<T> added     = new ArrayList<>();
+	private List<T> updated   = new ArrayList<>();
+	private List<T> removed   = new ArrayList<>();
+	private int     unchanged = 0;
+
+	/**
+	 * Constructor.
+	 * @param collection the new collection
+	 */
+	public SyncResult(Collection<T> collection) {
+		this.collection = collection;
+	}
+
+	/**
+	 * Returns the new collection.
+	 * @return the collection after synchronization
+	 */
+	public Collection<T> getCollection() {
+		return collection;
+	}
+
+	/**
+	 * Returns the values that were added.
+	 * @return the added values
+	 */
+	public List<T> getAdded() {
+		return Collections.unmodifiableList(added);
+	}
+
+	/**
+	 * Returns the values that were updated.
+	 * @return the updated values
+	 */
+	public List<T> getUpdated() {
+		return Collections.unmodifiableList(updated);
+	}
+
+	/**
+	 * Returns the values that were removed.
+	 * @return the removed values
+	 */
+	public List<T> getRemoved() {
+		return Collections.unmodifiableList(removed);
+	}
+
+	/**
+	 * Returns the number of values that existed before and did not change.
+	 * @return the number of unchanged values
+	 */
+	public int getUnchangedCount() {
+		return unchanged;
+	}
+
+	/**
+	 * Returns whether any value was added, updated or removed.
+	 * @return {@code true} when the collection changed
+	 */
+	public boolean hasChanges() {
+		return !added.isEmpty() || !updated.isEmpty() || !removed.isEmpty();
+	}
+
+	void added(T value) {
+		added.add(value);
+	}
+
+	void updated(T value) {
+		updated.add(value);
+	}
+
+	void removed(T value) {
+		removed.add(value);
+	}
+
+	void unchanged() {
+		unchanged++;
+	}
+}
@@ -1,12 +1,31 @@
 package rs.baselib.collection;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.apache.commons.collections4.CollectionUtils;
 
+import rs.baselib.function.ExceptionalBiConsumer;
+import rs.baselib.function.ExceptionalBiFunction;
+import rs.baselib.function.ExceptionalConsumer;
 import rs.baselib.function.ExceptionalFunction;
 
 /**
@@ -118,4 +137,463 @@ public class SyncUtils {
 		return sync(collectionSupplier.get(), newValues, syncer::exists, syncer::add, syncer::remove);
 	}
 
+	/**
+	 * Synchronize a collection with a collection of to-be members that are identified by a key.
+	 * <p>Both collections are indexed by their keys, so the synchronization takes linear time.
+	 * Values are matched by key: new keys are added, keys that disappeared are removed and values
+	 * of existing keys are updated when {@code changedFunction} says so. Otherwise the new value is
+	 * taken over without a callback, as {@link #sync(Collection, Collection, BiFunction, ExceptionalFunction, ExceptionalFunction)} does.</p>
+	 * <p>When a key occurs several times in the existing collection, as many values are kept as
+	 * the new collection holds for this key. The others are removed.</p>
+	 * @param <T> the type of collection object
+	 * @param <K> the type of the keys
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @param keyFunction the function that returns the key of a value
+	 * @param changedFunction the function that checks whether the old value (first argument) differs from the new value (second argument)
+	 * @param addFunction the function that will be called for new members
+	 * @param updateFunction the function that will be called with the old and new value of changed members
+	 * @param removeFunction the function that will be called for old members
+	 * @return the result with the new collection and the changes
+	 * @throws SyncException when synchronization fails
+	 */
+	public static <T,K> SyncResult<T> syncByKey(
+			Collection<T>                 collection, 
+			Collection<T>                 newValues, 
+			Function<T,K>                 keyFunction,
+			BiPredicate<T,T>              changedFunction,
+			ExceptionalFunction<T,T>      addFunction,
+			ExceptionalBiFunction<T,T,T>  updateFunction,
+			ExceptionalFunction<T,T>      removeFunction
+	) throws SyncException {
+		try {
+			@SuppressWarnings("unchecked")
+			Collection<T> rc = (Collection<T>)collection.getClass().getConstructor().newInstance();
+			SyncResult<T> result = new SyncResult<>(rc);
+			
+			// Index the existing values
+			Map<K,T> oldIndex = new HashMap<>(Math.max(16, collection.size() * 4 / 3 + 1));
+			for (T value : collection) {
+				oldIndex.putIfAbsent(keyFunction.apply(value), value);
+			}
+			
+			// Add or update new values
+			Map<K,Integer> newCounts = new HashMap<>(Math.max(16, oldIndex.size() * 4 / 3 + 1));
+			if ((newValues != null) && !newValues.isEmpty()) {
+				for (T value : newValues) {
+					K key = keyFunction.apply(value);
+					if (oldIndex.containsKey(key)) {
+						newCounts.merge(key, 1, Integer::sum);
+						T oldValue = oldIndex.get(key);
+						if (changedFunction.test(oldValue, value)) {
+							value = updateFunction.apply(oldValue, value);
+							result.updated(value);
+						} else {
+							result.unchanged();
+						}
+					} else {
+						value = addFunction.apply(value);
+						result.added(value);
+					}
+					rc.add(value);
+				}
+			}
+			
+			// Remove values whose key we did not see
+			for (T value : collection) {
+				K key = keyFunction.apply(value);
+				Integer count = newCounts.get(key);
+				if ((count != null) && (count > 0)) {
+					newCounts.put(key, count - 1);
+				} else {
+					result.removed(removeFunction.apply(value));
+				}
+			}
+			
+			return result;
+		} catch (IllegalAccessException|InstantiationException|NoSuchMethodException|InvocationTargetException e) {
+			throw new SyncException("Cannot create new collection", e);
+		} catch (Throwable t) {
+			throw new SyncException("Cannot sync collection", t);
+		}
+	}
+	
+	/**
+	 * Synchronize a collection with a collection of to-be members that are identified by a key.
+	 * <p>Values with the same key are updated when they are not equal.</p>
+	 * @param <T> the type of collection object
+	 * @param <K> the type of the keys
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @param keyFunction the function that returns the key of a value
+	 * @param addFunction the function that will be called for new members
+	 * @param updateFunction the function that will be called with the old and new value of changed members
+	 * @param removeFunction the function that will be called for old members
+	 * @return the result with the new collection and the changes
+	 * @throws SyncException when synchronization fails
+	 * @see #syncByKey(Collection, Collection, Function, BiPredicate, ExceptionalFunction, ExceptionalBiFunction, ExceptionalFunction)
+	 */
+	public static <T,K> SyncResult<T> syncByKey(
+			Collection<T>                 collection, 
+			Collection<T>                 newValues, 
+			Function<T,K>                 keyFunction,
+			ExceptionalFunction<T,T>      addFunction,
+			ExceptionalBiFunction<T,T,T>  updateFunction,
+			ExceptionalFunction<T,T>      removeFunction
+	) throws SyncException {
+		return syncByKey(collection, newValues, keyFunction, (o,n) -> !Objects.equals(o, n), addFunction, updateFunction, removeFunction);
+	}
+	
+	/**
+	 * Synchronize a collection with a collection of to-be members that are identified by a key.
+	 * @param <T> the type of collection object
+	 * @param <K> the type of the keys
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @param syncer the object providing the key and the methods such as add, update and remove
+	 * @return the result with the new collection and the changes
+	 * @throws SyncException when synchronization fails
+	 */
+	public static <T,K> SyncResult<T> syncByKey(
+			Collection<T>          collection, 
+			Collection<T>          newValues,
+			KeyedSyncHelper<T,K>   syncer
+	) throws SyncException {
+		return syncByKey(collection, newValues, syncer::getKey, syncer::isChanged, syncer::add, syncer::update, syncer::remove);
+	}
+
+	/**
+	 * Synchronize a collection with a collection of to-be members and pass added and removed members in batches.
+	 * <p>The semantics are the same as of {@link #sync(Collection, Collection, BiFunction, ExceptionalFunction, ExceptionalFunction)}
+	 * but the callbacks receive up to {@code batchSize} values at once. When an executor is given, all add batches
+	 * run in parallel and then all remove batches run in parallel.</p>
+	 * <p>{@code existsFunction} is called for every new value. Use {@link #syncBatched(Collection, Collection, Function, ExceptionalFunction, ExceptionalConsumer, int, Executor)}
+	 * to index the existing collection instead.</p>
+	 * @param <T> the type of collection object
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @param existsFunction the function that checks whether a value exists in existing collection
+	 * @param addAllFunction the function that will be called for batches of new members, returning the values to be stored in the same order
+	 * @param removeAllFunction the function that will be called for batches of old members
+	 * @param batchSize the maximum number of values in a batch
+	 * @param executor the executor for parallel batches or {@code null} to run them in the calling thread
+	 * @return the new collection
+	 * @throws SyncException when synchronization fails
+	 */
+	public static <T> Collection<T> syncBatched(
+			Collection<T>                         collection, 
+			Collection<T>                         newValues, 
+			BiFunction<Collection<T>,T,Boolean>   existsFunction, 
+			ExceptionalFunction<List<T>,List<T>>  addAllFunction,
+			ExceptionalConsumer<List<T>>          removeAllFunction,
+			int                                   batchSize,
+			Executor                              executor
+	) throws SyncException {
+		return syncBatched(collection, newValues, value -> existsFunction.apply(collection, value), value -> value, addAllFunction, removeAllFunction, batchSize, executor);
+	}
+	
+	/**
+	 * Synchronize a collection with a collection of to-be members that are identified by a key and pass added and removed members in batches.
+	 * <p>The keys of the existing collection are indexed once, so finding the new values takes linear time.
+	 * A new value is added when its key does not exist yet. Existing values are removed when the new collection
+	 * does not hold their key (as often as the new collection holds the key less often).</p>
+	 * @param <T> the type of collection object
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @param keyFunction the function that returns the key of a value
+	 * @param addAllFunction the function that will be called for batches of new members, returning the values to be stored in the same order
+	 * @param removeAllFunction the function that will be called for batches of old members
+	 * @param batchSize the maximum number of values in a batch
+	 * @param executor the executor for parallel batches or {@code null} to run them in the calling thread
+	 * @return the new collection
+	 * @throws SyncException when synchronization fails
+	 * @see #syncBatched(Collection, Collection, BiFunction, ExceptionalFunction, ExceptionalConsumer, int, Executor)
+	 */
+	public static <T> Collection<T> syncBatched(
+			Collection<T>                         collection, 
+			Collection<T>                         newValues, 
+			Function<T,?>                         keyFunction, 
+			ExceptionalFunction<List<T>,List<T>>  addAllFunction,
+			ExceptionalConsumer<List<T>>          removeAllFunction,
+			int                                   batchSize,
+			Executor                              executor
+	) throws SyncException {
+		Set<Object> keys = new HashSet<>(Math.max(16, collection.size() * 4 / 3 + 1));
+		for (T value : collection) keys.add(keyFunction.apply(value));
+		return syncBatched(collection, newValues, value -> keys.contains(keyFunction.apply(value)), keyFunction, addAllFunction, removeAllFunction, batchSize, executor);
+	}
+	
+	/**
+	 * Synchronizes the collection in batches.
+	 * @param <T> the type of collection object
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @param existsFunction the function that checks whether a value exists in existing collection
+	 * @param keyFunction the function that returns the key that matches existing values with the new collection
+	 * @param addAllFunction the function that will be called for batches of new members, returning the values to be stored in the same order
+	 * @param removeAllFunction the function that will be called for batches of old members
+	 * @param batchSize the maximum number of values in a batch
+	 * @param executor the executor for parallel batches or {@code null} to run them in the calling thread
+	 * @return the new collection
+	 * @throws SyncException when synchronization fails
+	 */
+	private static <T> Collection<T> syncBatched(
+			Collection<T>                         collection, 
+			Collection<T>                         newValues, 
+			Predicate<T>                          existsFunction, 
+			Function<T,?>                         keyFunction, 
+			ExceptionalFunction<List<T>,List<T>>  addAllFunction,
+			ExceptionalConsumer<List<T>>          removeAllFunction,
+			int                                   batchSize,
+			Executor                              executor
+	) throws SyncException {
+		if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive");
+		try {
+			@SuppressWarnings("unchecked")
+			Collection<T> rc = (Collection<T>)collection.getClass().getConstructor().newInstance();
+			
+			// Find new values
+			List<T>       values = new ArrayList<>();
+			List<Integer> added  = new ArrayList<>();
+			if ((newValues != null) && !newValues.isEmpty()) {
+				for (T value : newValues) {
+					if (!existsFunction.test(value)) added.add(values.size());
+					values.add(value);
+				}
+			}
+			
+			// Add new values
+			List<List<T>> addBatches = new ArrayList<>();
+			for (int i=0; i<added.size(); i+=batchSize) {
+				List<T> batch = new ArrayList<>(Math.min(batchSize, added.size()-i));
+				for (int j=i; j<Math.min(i+batchSize, added.size()); j++) batch.add(values.get(added.get(j)));
+				addBatches.add(batch);
+			}
+			List<List<T>> addResults = runBatches(addBatches, batch -> {
+				List<T> result = addAllFunction.apply(batch);
+				if (result == null) return batch;
+				if (result.size() != batch.size()) throw new SyncException(batch, "addAll must return one value per value added");
+				return result;
+			}, executor);
+			int index = 0;
+			for (List<T> result : addResults) {
+				for (T value : result) values.set(added.get(index++), value);
+			}
+			rc.addAll(values);
+			
+			// Remove values we did not see yet
+			Map<Object,Integer> counts = new HashMap<>();
+			for (T value : rc) counts.merge(keyFunction.apply(value), 1, Integer::sum);
+			List<T> removed = new ArrayList<>();
+			for (T value : collection) {
+				Object key = keyFunction.apply(value);
+				Integer count = counts.get(key);
+				if ((count != null) && (count > 0)) counts.put(key, count - 1);
+				else removed.add(value);
+			}
+			List<List<T>> removeBatches = new ArrayList<>();
+			for (int i=0; i<removed.size(); i+=batchSize) {
+				removeBatches.add(new ArrayList<>(removed.subList(i, Math.min(i+batchSize, removed.size()))));
+			}
+			runBatches(removeBatches, batch -> {
+				removeAllFunction.accept(batch);
+				return batch;
+			}, executor);
+			
+			return rc;
+		} catch (IllegalAccessException|InstantiationException|NoSuchMethodException|InvocationTargetException e) {
+			throw new SyncException("Cannot create new collection", e);
+		} catch (Throwable t) {
+			throw new SyncException("Cannot sync collection", t);
+		}
+	}
+	
+	/**
+	 * Synchronize a collection with a collection of to-be members and pass added and removed members in batches.
+	 * @param <T> the type of collection object
+	 * @param collection the existing collection
+	 * @param newValues the collection holding all future members
+	 * @param syncer the object providing the methods such as getKey, addAll and removeAll and the batch configuration
+	 * @return the new collection
+	 * @throws SyncException when synchronization fails
+	 * @see #syncBatched(Collection, Collection, Function, ExceptionalFunction, ExceptionalConsumer, int, Executor)
+	 */
+	public static <T> Collection<T> syncBatched(
+			Collection<T>         collection, 
+			Collection<T>         newValues,
+			BatchSyncHelper<T>    syncer
+	) throws SyncException {
+		return syncBatched(collection, newValues, syncer::getKey, syncer::addAll, syncer::removeAll, syncer.getBatchSize(), syncer.getExecutor());
+	}
+	
+	/**
+	 * Runs the batches in the calling thread or in parallel on the executor.
+	 * @param <T> the type of collection object
+	 * @param batches the batches
+	 * @param function the function to be called for each batch
+	 * @param executor the executor or {@code null}
+	 * @return the results of the batches in the same order
+	 * @throws Exception when a batch fails (the first failure is thrown after all batches finished)
+	 */
+	private static <T> List<List<T>> runBatches(List<List<T>> batches, ExceptionalFunction<List<T>,List<T>> function, Executor executor) throws Exception {
+		List<List<T>> rc = new ArrayList<>(batches.size());
+		if ((executor == null) || (batches.size() < 2)) {
+			for (List<T> batch : batches) rc.add(function.apply(batch));
+			return rc;
+		}
+		List<CompletableFuture<List<T>>> futures = new ArrayList<>(batches.size());
+		for (List<T> batch : batches) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return function.apply(batch);
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+		Throwable failure = null;
+		for (CompletableFuture<List<T>> future : futures) {
+			try {
+				rc.add(future.join());
+			} catch (CompletionException e) {
+				if (failure == null) failure = e.getCause() != null ? e.getCause() : e;
+			}
+		}
+		if (failure instanceof Exception) throw (Exception)failure;
+		if (failure instanceof Error) throw (Error)failure;
+		if (failure != null) throw new SyncException("Batch failed", failure);
+		return rc;
+	}
+
+	/**
+	 * Synchronize two sorted sources by a merge join.
+	 * <p>Both sources must be sorted ascending by the comparator and must not contain two elements that compare equal.
+	 * The sources are read once and only the current element of each is kept in memory, so sources of
+	 * any size can be synchronized, e.g. a database cursor with a sorted export file. Callbacks are called
+	 * while reading: elements only in {@code newValues} are added, elements only in {@code existing} are removed
+	 * and elements in both are updated when {@code changedFunction} says so.</p>
+	 * @param <T> the type of elements
+	 * @param existing the existing elements in ascending order
+	 * @param newValues the future elements in ascending order
+	 * @param comparator the comparator that defines the order and identifies elements
+	 * @param changedFunction the function that checks whether the old element (first argument) differs from the new element (second argument)
+	 * @param addFunction the function that will be called for new elements
+	 * @param updateFunction the function that will be called with the old and new element of changed elements
+	 * @param removeFunction the function that will be called for old elements
+	 * @return the number of elements added, updated, removed and unchanged
+	 * @throws SyncException when synchronization fails or a source is not sorted
+	 */
+	public static <T> SyncCounts syncSorted(
+			Iterator<? extends T>        existing, 
+			Iterator<? extends T>        newValues, 
+			Comparator<? super T>        comparator,
+			BiPredicate<T,T>             changedFunction,
+			ExceptionalConsumer<T>       addFunction,
+			ExceptionalBiConsumer<T,T>   updateFunction,
+			ExceptionalConsumer<T>       removeFunction
+	) throws SyncException {
+		SyncCounts rc = new SyncCounts();
+		T oldValue = null;
+		T newValue = null;
+		try {
+			oldValue = next(existing, null, comparator);
+			newValue = next(newValues, null, comparator);
+			while ((oldValue != null) || (newValue != null)) {
+				int cmp = oldValue == null ? 1 : newValue == null ? -1 : comparator.compare(oldValue, newValue);
+				if (cmp < 0) {
+					removeFunction.accept(oldValue);
+					rc.removed++;
+					oldValue = next(existing, oldValue, comparator);
+				} else if (cmp > 0) {
+					addFunction.accept(newValue);
+					rc.added++;
+					newValue = next(newValues, newValue, comparator);
+				} else {
+					if (changedFunction.test(oldValue, newValue)) {
+						updateFunction.accept(oldValue, newValue);
+						rc.updated++;
+					} else {
+						rc.unchanged++;
+					}
+					oldValue = next(existing, oldValue, comparator);
+					newValue = next(newValues, newValue, comparator);
+				}
+			}
+			return rc;
+		} catch (SyncException e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new SyncException(newValue != null ? newValue : oldValue, "Cannot sync sorted sources", t);
+		}
+	}
+	
+	/**
+	 * Synchronize two sorted sources by a merge join.
+	 * <p>Elements that compare equal are updated when they are not equal.</p>
+	 * @param <T> the type of elements
+	 * @param existing the existing elements in ascending order
+	 * @param newValues the future elements in ascending order
+	 * @param comparator the comparator that defines the order and identifies elements
+	 * @param addFunction the function that will be called for new elements
+	 * @param updateFunction the function that will be called with the old and new element of changed elements
+	 * @param removeFunction the function that will be called for old elements
+	 * @return the number of elements added, updated, removed and unchanged
+	 * @throws SyncException when synchronization fails or a source is not sorted
+	 * @see #syncSorted(Iterator, Iterator, Comparator, BiPredicate, ExceptionalConsumer, ExceptionalBiConsumer, ExceptionalConsumer)
+	 */
+	public static <T> SyncCounts syncSorted(
+			Iterator<? extends T>        existing, 
+			Iterator<? extends T>        newValues, 
+			Comparator<? super T>        comparator,
+			ExceptionalConsumer<T>       addFunction,
+			ExceptionalBiConsumer<T,T>   updateFunction,
+			ExceptionalConsumer<T>       removeFunction
+	) throws SyncException {
+		return syncSorted(existing, newValues, comparator, (o,n) -> !Objects.equals(o, n), addFunction, updateFunction, removeFunction);
+	}
+	
+	/**
+	 * Synchronize two sorted streams by a merge join.
+	 * <p>The streams are consumed but not closed.</p>
+	 * @param <T> the type of elements
+	 * @param existing the existing elements in ascending order
+	 * @param newValues the future elements in ascending order
+	 * @param comparator the comparator that defines the order and identifies elements
+	 * @param addFunction the function that will be called for new elements
+	 * @param updateFunction the function that will be called with the old and new element of changed elements
+	 * @param removeFunction the function that will be called for old elements
+	 * @return the number of elements added, updated, removed and unchanged
+	 * @throws SyncException when synchronization fails or a stream is not sorted
+	 * @see #syncSorted(Iterator, Iterator, Comparator, BiPredicate, ExceptionalConsumer, ExceptionalBiConsumer, ExceptionalConsumer)
+	 */
+	public static <T> SyncCounts syncSorted(
+			Stream<? extends T>          existing, 
+			Stream<? extends T>          newValues, 
+			Comparator<? super T>        comparator,
+			ExceptionalConsumer<T>       addFunction,
+			ExceptionalBiConsumer<T,T>   updateFunction,
+			ExceptionalConsumer<T>       removeFunction
+	) throws SyncException {
+		return syncSorted(existing.iterator(), newValues.iterator(), comparator, addFunction, updateFunction, removeFunction);
+	}
+	
+	/**
+	 * Returns the next element of a sorted source.
+	 * @param <T> the type of elements
+	 * @param source the source
+	 * @param previous the previous element of the source or {@code null}
+	 * @param comparator the comparator
+	 * @return the next element or {@code null} when the source has no more elements
+	 * @throws SyncException when the element is not greater than the previous element or is {@code null}
+	 */
+	private static <T> T next(Iterator<? extends T> source, T previous, Comparator<? super T> comparator) throws SyncException {
+		if (!source.hasNext()) return null;
+		T rc = source.next();
+		if (rc == null) throw new SyncException("Sorted sources must not contain null");
+		if ((previous != null) && (comparator.compare(previous, rc) >= 0)) {
+			throw new SyncException(rc, "Source is not sorted or contains duplicates");
+		}
+		return rc;
+	}
+
 }
@@ -0,0 +1,415 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.scheduler;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rs.baselib.util.CompiledCronSchedule;
+import rs.baselib.util.CronSchedule;
+
+/**
+ * Runs jobs at the times of their {@link CronSchedule}.
+ * <p>All jobs are kept in a priority queue ordered by their next fire time. A single timer thread
+ * sleeps until the first job is due, hands it to the executor and computes its next fire time.
+ * So there is no polling and thousands of jobs need only one timer thread.</p>
+ * <p>Jobs run on the executor given to the constructor. The default executor starts a virtual thread per run.</p>
+ * <p>When the timer thread triggers a job more than the {@link #setMisfireThreshold(long, TimeUnit) misfire threshold}
+ * after its fire time, the {@link MisfirePolicy} of the job decides what happens. Runs that are due while
+ * the previous run of the job is active are handled by its {@link OverlapPolicy}.</p>
+ * @author ralph
+ *
+ */
+public class CronScheduler implements Closeable {
+
+	/** The default misfire threshold in milliseconds */
+	public static final long DEFAULT_MISFIRE_THRESHOLD = 5000L;
+
+	/** The default maximum number of queued runs per job */
+	public static final int DEFAULT_MAXIMUM_QUEUED_RUNS = 10;
+
+	/** The maximum time the timer thread sleeps before it checks the clock again */
+	private static final long MAX_SLEEP = 60000L;
+
+	private static Logger log = LoggerFactory.getLogger(CronScheduler.class);
+
+	private Executor executor;
+	private boolean ownExecutor;
+	private Clock clock;
+	private long misfireThreshold = DEFAULT_MISFIRE_THRESHOLD;
+	private volatile int maximumQueuedRuns = DEFAULT_MAXIMUM_QUEUED_RUNS;
+	private Map<String,ScheduledJob> jobs = new ConcurrentHashMap<String,ScheduledJob>();
+	private PriorityQueue<ScheduledJob> queue = new PriorityQueue<ScheduledJob>(Comparator.comparingLong(job -> job.nextFireTime));
+	private ReentrantLock lock = new ReentrantLock();
+	private Condition changed = lock.newCondition();
+	private TimerThread timerThread;
+
+	/**
+	 * Constructor.
+	 * <p>Jobs will run on virtual threads.</p>
+	 */
+	public CronScheduler() {
+		this(Executors.newVirtualThreadPerTaskExecutor(), Clock.systemDefaultZone());
+		this.ownExecutor = true;
+	}
+
+	/**
+	 * Constructor.
+	 * @param executor the executor that runs the jobs
+	 */
+	public CronScheduler(Executor executor) {
+		this(executor, Clock.systemDefaultZone());
+	}
+
+	/**
+	 * Constructor.
+	 * @param executor the executor that runs the jobs
+	 * @param clock the clock that provides the current time
+	 */
+	public CronScheduler(Executor executor, Clock clock) {
+		if ((executor == null) || (clock == null)) throw new IllegalArgumentException("Executor and clock must be set");
+		this.executor = executor;
+		this.clock    = clock;
+	}
+
+	/**
+	 * Returns the executor that runs the jobs.
+	 * @return the executor
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Returns the current time.
+	 * @return the time in ms since Epoch time
+	 */
+	public long currentTimeMillis() {
+		return clock.millis();
+	}
+
+	/**
+	 * Returns the time after a fire time when a trigger counts as misfire.
+	 * @param unit the time unit of the result
+	 * @return the threshold
+	 */
+	public long getMisfireThreshold(TimeUnit unit) {
+		lock.lock();
+		try {
+			return unit.convert(misfireThreshold, TimeUnit.MILLISECONDS);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sets the time after a fire time when a trigger counts as misfire.
+	 * <p>Default is {@value #DEFAULT_MISFIRE_THRESHOLD} milliseconds.</p>
+	 * @param threshold the threshold
+	 * @param unit the time unit of the threshold
+	 */
+	public void setMisfireThreshold(long threshold, TimeUnit unit) {
+		lock.lock();
+		try {
+			this.misfireThreshold = unit.toMillis(Math.max(0, threshold));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns how many runs of a job with {@link OverlapPolicy#QUEUE} can wait for the active run.
+	 * @return the maximum number of queued runs per job
+	 */
+	public int getMaximumQueuedRuns() {
+		return maximumQueuedRuns;
+	}
+
+	/**
+	 * Sets how many runs of a job with {@link OverlapPolicy#QUEUE} can wait for the active run.
+	 * <p>Further runs are skipped. Default is {@value #DEFAULT_MAXIMUM_QUEUED_RUNS}.</p>
+	 * @param maximumQueuedRuns the maximum number of queued runs per job
+	 */
+	public void setMaximumQueuedRuns(int maximumQueuedRuns) {
+		this.maximumQueuedRuns = Math.max(0, maximumQueuedRuns);
+	}
+
+	/**
+	 * Registers a job that will be skipped while its previous run is active and runs once after missed fire times.
+	 * @param name the unique name of the job
+	 * @param schedule the schedule (in the default time zone)
+	 * @param task the task to run
+	 * @return the job
+	 */
+	public ScheduledJob schedule(String name, CronSchedule schedule, Runnable task) {
+		return schedule(name, schedule.compile(), task, OverlapPolicy.SKIP, MisfirePolicy.FIRE_ONCE);
+	}
+
+	/**
+	 * Registers a job.
+	 * @param name the unique name of the job
+	 * @param schedule the schedule
+	 * @param task the task to run
+	 * @param overlapPolicy what happens when a run is due while the previous run is active
+	 * @param misfirePolicy what happens with missed fire times
+	 * @return the job
+	 */
+	public ScheduledJob schedule(String name, CompiledCronSchedule schedule, Runnable task, OverlapPolicy overlapPolicy, MisfirePolicy misfirePolicy) {
+		if ((name == null) || (schedule == null) || (task == null) || (overlapPolicy == null) || (misfirePolicy == null)) {
+			throw new IllegalArgumentException("All arguments must be set");
+		}
+		ScheduledJob rc = new ScheduledJob(this, name, schedule, task, overlapPolicy, misfirePolicy);
+		if (jobs.putIfAbsent(name, rc) != null) throw new IllegalStateException("Job already exists: "+name);
+		lock.lock();
+		try {
+			rc.nextFireTime = schedule.nextExecution(currentTimeMillis());
+			if (rc.nextFireTime >= 0) {
+				queue.add(rc);
+				changed.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return rc;
+	}
+
+	/**
+	 * Returns the job with the given name.
+	 * @param name the name
+	 * @return the job or {@code null}
+	 */
+	public ScheduledJob getJob(String name) {
+		return jobs.get(name);
+	}
+
+	/**
+	 * Returns all jobs.
+	 * @return the jobs
+	 */
+	public Collection<ScheduledJob> getJobs() {
+		return new ArrayList<ScheduledJob>(jobs.values());
+	}
+
+	/**
+	 * Removes the job.
+	 * <p>Active runs are not interrupted.</p>
+	 * @param job the job
+	 */
+	public void unschedule(ScheduledJob job) {
+		if (!jobs.remove(job.getName(), job)) return;
+		job.setCancelled();
+		lock.lock();
+		try {
+			queue.remove(job);
+			job.nextFireTime = -1L;
+			changed.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the next fire time of a job.
+	 * @param job the job
+	 * @return the time in ms since Epoch time or -1
+	 */
+	long getNextFireTime(ScheduledJob job) {
+		lock.lock();
+		try {
+			return job.nextFireTime;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts the timer thread.
+	 */
+	public void start() {
+		lock.lock();
+		try {
+			if (timerThread != null) return;
+			timerThread = new TimerThread();
+			timerThread.start();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns whether the timer thread runs.
+	 * @return {@code true} when jobs are triggered
+	 */
+	public boolean isStarted() {
+		lock.lock();
+		try {
+			return timerThread != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the timer thread.
+	 * <p>Active runs are not interrupted. The default executor is shut down.</p>
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			if (timerThread != null) {
+				timerThread.interrupt();
+				timerThread = null;
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (ownExecutor) ((ExecutorService)executor).shutdown();
+	}
+
+	/**
+	 * Removes all jobs that are due from the queue and computes their next fire times.
+	 * @param now the current time in ms since Epoch time
+	 * @return the runs to be triggered
+	 */
+	List<Trigger> pollDueJobs(long now) {
+		List<Trigger> rc = new ArrayList<Trigger>();
+		lock.lock();
+		try {
+			collectDueJobs(now, rc);
+		} finally {
+			lock.unlock();
+		}
+		return rc;
+	}
+
+	/**
+	 * Removes all jobs that are due from the queue and computes their next fire times.
+	 * <p>Collecting stops after the first missed run of a job with {@link MisfirePolicy#FIRE_ALL}.</p>
+	 * <p>Must be called while holding the lock.</p>
+	 * @param now the current time in ms since Epoch time
+	 * @param triggers receives the runs to be triggered
+	 * @return the time to sleep in ms until the next job is due
+	 */
+	private long collectDueJobs(long now, List<Trigger> triggers) {
+		while (true) {
+			ScheduledJob job = queue.peek();
+			if (job == null) return MAX_SLEEP;
+			long fireTime = job.nextFireTime;
+			if (fireTime > now) return Math.min(fireTime - now, MAX_SLEEP);
+			queue.poll();
+			long next = -1L;
+			if (now - fireTime <= misfireThreshold) {
+				triggers.add(new Trigger(job, fireTime));
+				next = job.getSchedule().nextExecution(fireTime);
+			} else {
+				job.misfired();
+				switch (job.getMisfirePolicy()) {
+				case FIRE_ALL:
+					// One missed run per call, so a long suspension does not collect all missed runs at once.
+					// The job is due again right away and the timer thread calls again after triggering.
+					triggers.add(new Trigger(job, fireTime));
+					job.nextFireTime = job.getSchedule().nextExecution(fireTime);
+					if (job.nextFireTime >= 0) queue.add(job);
+					return 0L;
+				case FIRE_ONCE:
+					triggers.add(new Trigger(job, fireTime));
+					next = job.getSchedule().nextExecution(now);
+					break;
+				default:
+					next = job.getSchedule().nextExecution(now);
+				}
+			}
+			job.nextFireTime = next;
+			if (next >= 0) queue.add(job);
+		}
+	}
+
+	/**
+	 * A run of a job that is due.
+	 * @param job the job
+	 * @param fireTime the fire time in ms since Epoch time
+	 */
+	record Trigger(ScheduledJob job, long fireTime) {
+	}
+
+	/**
+	 * The thread that triggers the jobs.
+	 * @author ralph
+	 *
+	 */
+	protected class TimerThread extends Thread {
+
+		/**
+		 * Constructor.
+		 */
+		public TimerThread() {
+			super("CronScheduler-Timer");
+			setDaemon(true);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			List<Trigger> triggers = new ArrayList<Trigger>();
+			while (true) {
+				lock.lock();
+				try {
+					if (timerThread != this) return;
+					long sleep = collectDueJobs(currentTimeMillis(), triggers);
+					if (triggers.isEmpty()) {
+						changed.await(sleep, TimeUnit.MILLISECONDS);
+						continue;
+					}
+				} catch (InterruptedException e) {
+					// Scheduler was closed
+					return;
+				} finally {
+					lock.unlock();
+				}
+				// Trigger outside the lock as the executor might block
+				for (Trigger trigger : triggers) {
+					try {
+						trigger.job().trigger(trigger.fireTime());
+					} catch (RuntimeException e) {
+						log.error("Cannot trigger job "+trigger.job(), e);
+					}
+				}
+				triggers.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.scheduler;
+
+/**
+ * What happens when the fire time of a job was missed, e.g. after the system was suspended
+ * or the clock was set forward.
+ * <p>A fire time is missed when it passed more than the {@link CronScheduler#setMisfireThreshold(long, java.util.concurrent.TimeUnit) misfire threshold}
+ * before the scheduler could trigger it.</p>
+ * @author ralph
+ *
+ */
+public enum MisfirePolicy {
+
+	/** The job runs once now for all missed fire times. */
+	FIRE_ONCE,
+
+	/** The job runs once for each missed fire time. */
+	FIRE_ALL,
+
+	/** Missed fire times are ignored, the job runs at its next regular fire time. */
+	IGNORE;
+
+}
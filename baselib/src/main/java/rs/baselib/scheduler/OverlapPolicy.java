@@ -0,0 +1,39 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.scheduler;
+
+/**
+ * What happens when a job is due while its previous run has not finished yet.
+ * @author ralph
+ *
+ */
+public enum OverlapPolicy {
+
+	/** The new run is skipped. */
+	SKIP,
+
+	/**
+	 * The new run starts when the previous run finished.
+	 * <p>At most {@link CronScheduler#getMaximumQueuedRuns()} runs wait, further runs are skipped.</p>
+	 */
+	QUEUE,
+
+	/** The new run starts immediately in parallel to the previous run. */
+	CONCURRENT;
+
+}
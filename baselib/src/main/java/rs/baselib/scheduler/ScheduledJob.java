@@ -0,0 +1,322 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rs.baselib.util.CompiledCronSchedule;
+
+/**
+ * A job registered at a {@link CronScheduler}.
+ * <p>The job collects metrics about its runs. The latency is the time between the
+ * fire time and the actual start of a run.</p>
+ * @author ralph
+ *
+ */
+public class ScheduledJob {
+
+	private static Logger log = LoggerFactory.getLogger(ScheduledJob.class);
+
+	private CronScheduler scheduler;
+	private String name;
+	private CompiledCronSchedule schedule;
+	private Runnable task;
+	private OverlapPolicy overlapPolicy;
+	private MisfirePolicy misfirePolicy;
+	/** Next fire time, guarded by the scheduler lock */
+	long nextFireTime;
+	private volatile boolean cancelled = false;
+	private int running = 0;
+	private Deque<Long> queuedRuns = new ArrayDeque<Long>();
+	private LongAdder runCount = new LongAdder();
+	private LongAdder failureCount = new LongAdder();
+	private LongAdder skipCount = new LongAdder();
+	private LongAdder misfireCount = new LongAdder();
+	private LongAdder totalLatency = new LongAdder();
+	private AtomicLong maxLatency = new AtomicLong(0);
+	private LongAdder totalDuration = new LongAdder();
+	private volatile long lastFireTime = -1L;
+
+	/**
+	 * Constructor.
+	 * @param scheduler the scheduler
+	 * @param name the name of the job
+	 * @param schedule the schedule
+	 * @param task the task to run
+	 * @param overlapPolicy what happens when a run is due while the previous run is active
+	 * @param misfirePolicy what happens with missed fire times
+	 */
+	ScheduledJob(CronScheduler scheduler, String name, CompiledCronSchedule schedule, Runnable task, OverlapPolicy overlapPolicy, MisfirePolicy misfirePolicy) {
+		this.scheduler     = scheduler;
+		this.name          = name;
+		this.schedule      = schedule;
+		this.task          = task;
+		this.overlapPolicy = overlapPolicy;
+		this.misfirePolicy = misfirePolicy;
+	}
+
+	/**
+	 * Returns the name of the job.
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the schedule.
+	 * @return the schedule
+	 */
+	public CompiledCronSchedule getSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Returns the overlap policy.
+	 * @return the policy
+	 */
+	public OverlapPolicy getOverlapPolicy() {
+		return overlapPolicy;
+	}
+
+	/**
+	 * Returns the misfire policy.
+	 * @return the policy
+	 */
+	public MisfirePolicy getMisfirePolicy() {
+		return misfirePolicy;
+	}
+
+	/**
+	 * Returns the next time the job will be triggered.
+	 * @return the time in ms since Epoch time or -1 when the job will not run anymore
+	 */
+	public long getNextFireTime() {
+		return scheduler.getNextFireTime(this);
+	}
+
+	/**
+	 * Returns the last time the job was triggered.
+	 * @return the fire time in ms since Epoch time or -1 when the job was not triggered yet
+	 */
+	public long getLastFireTime() {
+		return lastFireTime;
+	}
+
+	/**
+	 * Removes the job from the scheduler.
+	 * <p>Active runs are not interrupted.</p>
+	 */
+	public void cancel() {
+		scheduler.unschedule(this);
+	}
+
+	/**
+	 * Returns whether the job was removed from the scheduler.
+	 * @return {@code true} when the job was cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Marks the job as cancelled.
+	 */
+	void setCancelled() {
+		cancelled = true;
+		synchronized (this) {
+			queuedRuns.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of active runs.
+	 * @return the number of runs
+	 */
+	public synchronized int getRunningCount() {
+		return running;
+	}
+
+	/**
+	 * Returns the number of finished runs.
+	 * @return the number of runs
+	 */
+	public long getRunCount() {
+		return runCount.sum();
+	}
+
+	/**
+	 * Returns the number of runs that threw an exception.
+	 * @return the number of failed runs
+	 */
+	public long getFailureCount() {
+		return failureCount.sum();
+	}
+
+	/**
+	 * Returns the number of runs waiting for the active run to finish.
+	 * @return the number of queued runs
+	 */
+	public synchronized int getQueuedCount() {
+		return queuedRuns.size();
+	}
+
+	/**
+	 * Returns the number of runs skipped due to the overlap policy.
+	 * @return the number of skipped runs
+	 */
+	public long getSkipCount() {
+		return skipCount.sum();
+	}
+
+	/**
+	 * Returns the number of missed fire times.
+	 * @return the number of misfires
+	 */
+	public long getMisfireCount() {
+		return misfireCount.sum();
+	}
+
+	/**
+	 * Returns the average time between fire time and start of a run.
+	 * @param unit the time unit of the result
+	 * @return the average latency
+	 */
+	public long getAverageLatency(TimeUnit unit) {
+		long count = runCount.sum();
+		return count > 0 ? unit.convert(totalLatency.sum() / count, TimeUnit.MILLISECONDS) : 0L;
+	}
+
+	/**
+	 * Returns the maximum time between fire time and start of a run.
+	 * @param unit the time unit of the result
+	 * @return the maximum latency
+	 */
+	public long getMaxLatency(TimeUnit unit) {
+		return unit.convert(maxLatency.get(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the average duration of a run.
+	 * @param unit the time unit of the result
+	 * @return the average duration
+	 */
+	public long getAverageDuration(TimeUnit unit) {
+		long count = runCount.sum();
+		return count > 0 ? unit.convert(totalDuration.sum() / count, TimeUnit.NANOSECONDS) : 0L;
+	}
+
+	/**
+	 * Records a missed fire time.
+	 */
+	void misfired() {
+		misfireCount.increment();
+	}
+
+	/**
+	 * Starts a run for the fire time unless the overlap policy prevents it.
+	 * @param fireTime the fire time in ms since Epoch time
+	 */
+	void trigger(long fireTime) {
+		if (cancelled) return;
+		lastFireTime = fireTime;
+		synchronized (this) {
+			if (running > 0) {
+				switch (overlapPolicy) {
+				case SKIP:
+					skipCount.increment();
+					return;
+				case QUEUE:
+					// A job that is always slower than its schedule must not pile up runs
+					if (queuedRuns.size() < scheduler.getMaximumQueuedRuns()) {
+						queuedRuns.add(fireTime);
+					} else {
+						skipCount.increment();
+					}
+					return;
+				default:
+					break;
+				}
+			}
+			running++;
+		}
+		submit(fireTime);
+	}
+
+	/**
+	 * Hands a run to the executor.
+	 * @param fireTime the fire time in ms since Epoch time
+	 */
+	private void submit(long fireTime) {
+		try {
+			scheduler.getExecutor().execute(() -> run(fireTime));
+		} catch (RejectedExecutionException e) {
+			log.error("Cannot start job "+name, e);
+			finished();
+		}
+	}
+
+	/**
+	 * Performs a run.
+	 * @param fireTime the fire time in ms since Epoch time
+	 */
+	private void run(long fireTime) {
+		long latency = Math.max(0L, scheduler.currentTimeMillis() - fireTime);
+		totalLatency.add(latency);
+		maxLatency.accumulateAndGet(latency, Math::max);
+		long start = System.nanoTime();
+		try {
+			task.run();
+		} catch (Throwable t) {
+			failureCount.increment();
+			log.error("Job "+name+" failed", t);
+		} finally {
+			totalDuration.add(System.nanoTime() - start);
+			runCount.increment();
+			finished();
+		}
+	}
+
+	/**
+	 * Ends a run and starts the next queued run.
+	 */
+	private void finished() {
+		Long next = null;
+		synchronized (this) {
+			next = queuedRuns.poll();
+			if (next == null) running--;
+		}
+		if (next != null) submit(next);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return name+" ("+schedule+")";
+	}
+}
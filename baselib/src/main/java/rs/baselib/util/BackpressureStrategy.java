@@ -0,0 +1,43 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+/**
+ * How a producer reacts when the {@link RingBufferQueue} is full.
+ * @author ralph
+ * @see RingBufferQueue#submit(Object)
+ *
+ */
+public enum BackpressureStrategy {
+
+	/** The producer waits on a lock condition until a slot is free. */
+	BLOCK,
+
+	/** The producer spins and then parks with increasing pauses without using a lock. Lowest latency, burns CPU while waiting. */
+	SPIN_THEN_PARK,
+
+	/** The oldest element is removed to make room for the new element. */
+	DROP_OLDEST,
+
+	/** The new element is discarded. */
+	DROP_NEWEST,
+
+	/** The producer processes the element itself by the caller-runs handler of the queue. */
+	CALLER_RUNS;
+
+}
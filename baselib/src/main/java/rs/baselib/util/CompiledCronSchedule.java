@@ -0,0 +1,365 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Calendar;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable, compiled form of a {@link CronSchedule} for a time zone.
+ * <p>The fields are held as bitmasks and the local time of an epoch timestamp is computed
+ * arithmetically. The offset of the zone is cached for the period between two transitions,
+ * so matching allocates no objects except once per daylight saving period. The results
+ * are the same as of the {@link CronSchedule} in the default time zone.</p>
+ * <p>Instances are thread-safe.</p>
+ * @author ralph
+ * @see CronSchedule#compile(ZoneId)
+ *
+ */
+public final class CompiledCronSchedule implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	private final String cronString;
+	private final ZoneId zone;
+	private final long minuteMask;
+	private final long hourMask;
+	private final long dayOfMonthMask;
+	private final long monthMask;
+	private final long dayOfWeekMask;
+	private transient ZoneRules rules;
+	private transient volatile OffsetPeriod period;
+
+	/**
+	 * Constructor.
+	 * <p>The schedule will use the default time zone.</p>
+	 * @param schedule the cron-like schedule definition
+	 */
+	public CompiledCronSchedule(String schedule) {
+		this(new CronSchedule(schedule), ZoneId.systemDefault());
+	}
+
+	/**
+	 * Constructor.
+	 * @param schedule the schedule
+	 * @param zone the time zone that the fields refer to
+	 */
+	public CompiledCronSchedule(CronSchedule schedule, ZoneId zone) {
+		if ((schedule == null) || (zone == null)) throw new IllegalArgumentException("Schedule and zone must be set");
+		this.cronString     = schedule.getCronString();
+		this.zone           = zone;
+		this.minuteMask     = schedule.getMask(Calendar.MINUTE);
+		this.hourMask       = schedule.getMask(Calendar.HOUR_OF_DAY);
+		this.dayOfMonthMask = schedule.getMask(Calendar.DAY_OF_MONTH);
+		this.monthMask      = schedule.getMask(Calendar.MONTH);
+		this.dayOfWeekMask  = schedule.getMask(Calendar.DAY_OF_WEEK);
+	}
+
+	/**
+	 * Returns the cron-like definition of the schedule.
+	 * @return the cron-like string
+	 */
+	public String getCronString() {
+		return cronString;
+	}
+
+	/**
+	 * Returns the time zone that the fields refer to.
+	 * @return the zone
+	 */
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * Returns the bitmask of the values that match the given time type.
+	 * @param type Calendar constant defining the type
+	 * @return the bitmask
+	 * @see CronSchedule#getMask(int)
+	 */
+	public long getMask(int type) {
+		switch (type) {
+		case Calendar.MINUTE:       return minuteMask;
+		case Calendar.HOUR_OF_DAY:  return hourMask;
+		case Calendar.DAY_OF_MONTH: return dayOfMonthMask;
+		case Calendar.MONTH:        return monthMask;
+		case Calendar.DAY_OF_WEEK:  return dayOfWeekMask;
+		default: throw new IllegalArgumentException("No such time type: "+type);
+		}
+	}
+
+	/**
+	 * Checks whether given timestamp matches with the schedule.
+	 * <p>All criteria must be met including seconds to be 0.</p>
+	 * @param timeStamp time in ms since Epoch time
+	 * @return true when schedule matches
+	 */
+	public boolean matches(long timeStamp) {
+		long local = toLocalMillis(timeStamp);
+		return (Math.floorMod(local, 60000L) < 1000L) && isMinuteLocal(local);
+	}
+
+	/**
+	 * Checks whether given timestamp matches with the schedule, ignoring the seconds.
+	 * @param timeStamp time in ms since Epoch time
+	 * @return true when schedule matches
+	 */
+	public boolean isMinute(long timeStamp) {
+		return isMinuteLocal(toLocalMillis(timeStamp));
+	}
+
+	/**
+	 * Checks whether given timestamp matches with the hour and day fields of the schedule.
+	 * @param timeStamp time in ms since Epoch time
+	 * @return true when schedule matches
+	 */
+	public boolean isHour(long timeStamp) {
+		return isHourLocal(toLocalMillis(timeStamp));
+	}
+
+	/**
+	 * Checks whether given timestamp matches with the day fields of the schedule.
+	 * @param timeStamp time in ms since Epoch time
+	 * @return true when schedule matches
+	 */
+	public boolean isDay(long timeStamp) {
+		return isDayLocal(Math.floorDiv(toLocalMillis(timeStamp), MILLIS_PER_DAY));
+	}
+
+	/**
+	 * Checks whether given time matches with the schedule.
+	 * <p>The local fields of the argument are used, its zone is not converted.</p>
+	 * @param time the time
+	 * @return true when schedule matches
+	 */
+	public boolean matches(ZonedDateTime time) {
+		return (time.getSecond() == 0) && isMinute(time);
+	}
+
+	/**
+	 * Checks whether given time matches with the schedule, ignoring the seconds.
+	 * <p>The local fields of the argument are used, its zone is not converted.</p>
+	 * @param time the time
+	 * @return true when schedule matches
+	 */
+	public boolean isMinute(ZonedDateTime time) {
+		return isSet(minuteMask, time.getMinute()) 
+				&& isSet(hourMask, time.getHour())
+				&& isSet(dayOfMonthMask, time.getDayOfMonth())
+				&& isSet(monthMask, time.getMonthValue() - 1)
+				&& isSet(dayOfWeekMask, CronSchedule.toCalendarDayOfWeek(time.getDayOfWeek()));
+	}
+
+	/**
+	 * Returns the next time that matches the schedule.
+	 * @param after time in ms since Epoch time
+	 * @return the first matching time after the given time (in ms since Epoch time) or -1 when the schedule never matches
+	 */
+	public long nextExecution(long after) {
+		ZonedDateTime rc = nextExecution(ZonedDateTime.ofInstant(Instant.ofEpochMilli(after), zone));
+		return rc != null ? rc.toInstant().toEpochMilli() : -1L;
+	}
+
+	/**
+	 * Returns the next time that matches the schedule.
+	 * @param after the time
+	 * @return the first matching time after the given time in the zone of this schedule or {@code null} when the schedule never matches
+	 * @see CronSchedule#nextExecution(ZonedDateTime)
+	 */
+	public ZonedDateTime nextExecution(ZonedDateTime after) {
+		return CronSchedule.nextExecution(getMasks(), after.withZoneSameInstant(zone));
+	}
+
+	/**
+	 * Returns the previous time that matches the schedule.
+	 * @param before time in ms since Epoch time
+	 * @return the last matching time before the given time (in ms since Epoch time) or -1 when the schedule never matches
+	 */
+	public long previousExecution(long before) {
+		ZonedDateTime rc = previousExecution(ZonedDateTime.ofInstant(Instant.ofEpochMilli(before), zone));
+		return rc != null ? rc.toInstant().toEpochMilli() : -1L;
+	}
+
+	/**
+	 * Returns the previous time that matches the schedule.
+	 * @param before the time
+	 * @return the last matching time before the given time in the zone of this schedule or {@code null} when the schedule never matches
+	 */
+	public ZonedDateTime previousExecution(ZonedDateTime before) {
+		return CronSchedule.previousExecution(getMasks(), before.withZoneSameInstant(zone));
+	}
+
+	/**
+	 * Returns all times within the range that match the schedule.
+	 * <p>The fields are matched against the local time in the zone of this schedule. The occurrences are generated lazily
+	 * and the stream can be evaluated in parallel.</p>
+	 * @param from the start of the range (inclusive)
+	 * @param to the end of the range (exclusive)
+	 * @return the matching times in ascending order
+	 * @see CronOccurrenceSpliterator
+	 */
+	public Stream<ZonedDateTime> occurrences(ZonedDateTime from, ZonedDateTime to) {
+		return StreamSupport.stream(new CronOccurrenceSpliterator(this, from, to), false);
+	}
+
+	/**
+	 * Returns the bitmasks in the order of the {@link CronSchedule} types.
+	 * @return the bitmasks
+	 */
+	long[] getMasks() {
+		return new long[] { minuteMask, hourMask, dayOfMonthMask, monthMask, dayOfWeekMask };
+	}
+
+	/**
+	 * Checks the minute, hour and day fields.
+	 * @param local the local time in ms since Epoch time
+	 * @return true when the fields match
+	 */
+	private boolean isMinuteLocal(long local) {
+		int minute = (int)(Math.floorMod(local, 3600000L) / 60000L);
+		return isSet(minuteMask, minute) && isHourLocal(local);
+	}
+
+	/**
+	 * Checks the hour and day fields.
+	 * @param local the local time in ms since Epoch time
+	 * @return true when the fields match
+	 */
+	private boolean isHourLocal(long local) {
+		int hour = (int)(Math.floorMod(local, MILLIS_PER_DAY) / 3600000L);
+		return isSet(hourMask, hour) && isDayLocal(Math.floorDiv(local, MILLIS_PER_DAY));
+	}
+
+	/**
+	 * Checks the day fields.
+	 * @param epochDay the local day since Epoch time
+	 * @return true when the fields match
+	 */
+	private boolean isDayLocal(long epochDay) {
+		// 1970-01-01 was a Thursday (5 in Calendar)
+		if (!isSet(dayOfWeekMask, (int)Math.floorMod(epochDay + 4, 7L) + 1)) return false;
+		// Civil date from days, after Howard Hinnant
+		long z   = epochDay + 719468L;
+		long era = Math.floorDiv(z, 146097L);
+		long doe = z - era * 146097L;
+		long yoe = (doe - doe / 1460L + doe / 36524L - doe / 146096L) / 365L;
+		long doy = doe - (365L * yoe + yoe / 4L - yoe / 100L);
+		long mp  = (5L * doy + 2L) / 153L;
+		int day   = (int)(doy - (153L * mp + 2L) / 5L + 1L);
+		int month = (int)(mp < 10L ? mp + 2L : mp - 10L);
+		return isSet(dayOfMonthMask, day) && isSet(monthMask, month);
+	}
+
+	/**
+	 * Converts a timestamp into the local time of the zone.
+	 * @param timeStamp time in ms since Epoch time
+	 * @return the local time in ms since Epoch time
+	 */
+	private long toLocalMillis(long timeStamp) {
+		OffsetPeriod p = period;
+		if ((p == null) || (timeStamp < p.start) || (timeStamp >= p.end)) {
+			p = createPeriod(timeStamp);
+			period = p;
+		}
+		return timeStamp + p.offsetMillis;
+	}
+
+	/**
+	 * Computes the period of constant offset around the timestamp.
+	 * @param timeStamp time in ms since Epoch time
+	 * @return the period
+	 */
+	private OffsetPeriod createPeriod(long timeStamp) {
+		ZoneRules rules = this.rules;
+		if (rules == null) {
+			rules = zone.getRules();
+			this.rules = rules;
+		}
+		if (rules.isFixedOffset()) {
+			return new OffsetPeriod(Long.MIN_VALUE, Long.MAX_VALUE, rules.getOffset(Instant.EPOCH));
+		}
+		Instant instant = Instant.ofEpochMilli(timeStamp);
+		ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+		ZoneOffsetTransition next = rules.nextTransition(instant);
+		long start = previous != null ? previous.getInstant().toEpochMilli() : Long.MIN_VALUE;
+		long end   = next != null ? next.getInstant().toEpochMilli() : Long.MAX_VALUE;
+		return new OffsetPeriod(start, end, rules.getOffset(instant));
+	}
+
+	/**
+	 * Returns whether a bit is set.
+	 * @param mask the bitmask
+	 * @param value the bit position
+	 * @return true when the bit is set
+	 */
+	private static boolean isSet(long mask, int value) {
+		return ((mask >>> value) & 1L) != 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * cronString.hashCode() + zone.hashCode();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof CompiledCronSchedule)) return false;
+		CompiledCronSchedule other = (CompiledCronSchedule)obj;
+		return cronString.equals(other.cronString) && zone.equals(other.zone);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return cronString+" "+zone;
+	}
+
+	/**
+	 * A period of constant zone offset.
+	 */
+	private static class OffsetPeriod {
+		final long start;
+		final long end;
+		final long offsetMillis;
+
+		OffsetPeriod(long start, long end, ZoneOffset offset) {
+			this.start        = start;
+			this.end          = end;
+			this.offsetMillis = offset.getTotalSeconds() * 1000L;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Generates the occurrences of a cron schedule within a time range.
+ * <p>Occurrences are generated lazily by jumping from one matching time to the next through the
+ * bitmasks of the schedule, so only matching times are visited. The fields are matched against the
+ * local time in the zone of the range. Local times that do not exist due to a daylight saving gap are
+ * skipped, local times that occur twice are returned twice.</p>
+ * <p>The spliterator splits the remaining range in halves so that parallel streams can evaluate
+ * long ranges on several threads.</p>
+ * @author ralph
+ * @see CronSchedule#occurrences(ZonedDateTime, ZonedDateTime)
+ * @see CompiledCronSchedule#occurrences(ZonedDateTime, ZonedDateTime)
+ *
+ */
+public class CronOccurrenceSpliterator implements Spliterator<ZonedDateTime> {
+
+	/** Number of values per field in the order of {@link CronSchedule#TYPES} */
+	private static final double SIZES[] = new double[] { 60, 24, 31, 12, 7 };
+
+	private long masks[];
+	/** Occurrences must be after this time */
+	private ZonedDateTime after;
+	/** Occurrences must be before this time */
+	private ZonedDateTime end;
+
+	/**
+	 * Constructor.
+	 * @param schedule the schedule
+	 * @param from the start of the range (inclusive), its zone is used for matching
+	 * @param to the end of the range (exclusive)
+	 */
+	public CronOccurrenceSpliterator(CronSchedule schedule, ZonedDateTime from, ZonedDateTime to) {
+		this(schedule.getMasks(), from.minusNanos(1), to.withZoneSameInstant(from.getZone()));
+	}
+
+	/**
+	 * Constructor.
+	 * @param schedule the schedule, its zone is used for matching
+	 * @param from the start of the range (inclusive)
+	 * @param to the end of the range (exclusive)
+	 */
+	public CronOccurrenceSpliterator(CompiledCronSchedule schedule, ZonedDateTime from, ZonedDateTime to) {
+		this(schedule.getMasks(), from.withZoneSameInstant(schedule.getZone()).minusNanos(1), to.withZoneSameInstant(schedule.getZone()));
+	}
+
+	/**
+	 * Constructor.
+	 * @param masks the bitmasks in the order of {@link CronSchedule#TYPES}
+	 * @param after occurrences must be after this time
+	 * @param end occurrences must be before this time (same zone as after)
+	 */
+	private CronOccurrenceSpliterator(long masks[], ZonedDateTime after, ZonedDateTime end) {
+		this.masks = masks;
+		this.after = after;
+		this.end   = end;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super ZonedDateTime> action) {
+		if (!after.isBefore(end)) return false;
+		ZonedDateTime next = CronSchedule.nextExecution(masks, after);
+		if ((next == null) || !next.isBefore(end)) {
+			after = end;
+			return false;
+		}
+		after = next;
+		action.accept(next);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The remaining range is split at the full minute in its middle (on the instant timeline).</p>
+	 */
+	@Override
+	public Spliterator<ZonedDateTime> trySplit() {
+		if (Duration.between(after, end).toMinutes() < 2) return null;
+		Instant instant = after.toInstant().plus(Duration.between(after, end).dividedBy(2)).truncatedTo(ChronoUnit.MINUTES);
+		ZonedDateTime middle = ZonedDateTime.ofInstant(instant, after.getZone());
+		if (!middle.isAfter(after)) return null;
+		CronOccurrenceSpliterator rc = new CronOccurrenceSpliterator(masks, after, middle);
+		after = middle.minusNanos(1);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The estimate assumes that the matching values are evenly distributed.</p>
+	 */
+	@Override
+	public long estimateSize() {
+		if (!after.isBefore(end)) return 0L;
+		double rc = Duration.between(after, end).toMinutes();
+		for (int i=0; i<masks.length; i++) {
+			rc = rc * Long.bitCount(masks[i]) / SIZES[i];
+		}
+		return Math.round(rc);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int characteristics() {
+		return ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Occurrences are sorted by their instant.</p>
+	 */
+	@Override
+	public Comparator<? super ZonedDateTime> getComparator() {
+		return null;
+	}
+}
@@ -18,8 +18,20 @@
 package rs.baselib.util;
 
 import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import rs.baselib.lang.LangUtils;
 
@@ -31,6 +43,10 @@ import rs.baselib.lang.LangUtils;
  * this class. Cron describes a match when either the day of month and month
  * or the day of week are met. This class requires both to be met for a match.
  * Also note that Calendar defines Sunday through Saturday with 1 through 7 respectively
+ * and January through December with 0 through 11.
+ * <p>Each field is compiled into a bitmask of the values it matches. {@link #nextExecution(ZonedDateTime)}
+ * and {@link #previousExecution(ZonedDateTime)} use these masks to jump from field to field to the
+ * next set bit instead of probing every minute.</p>
  * @author RalphSchuster
  *
  */
@@ -350,8 +366,23 @@ public class CronSchedule implements Serializable {
 	 */
 	public static final CronSchedule NEVER = new CronSchedule(NEVER_MARKER);
 
+	/** The minimum value of each type */
+	private static final int MINIMUM[] = new int[] { 0, 0, 1, 0, 1 };
+
+	/** The maximum value of each type */
+	private static final int MAXIMUM[] = new int[] { 59, 23, 31, 11, 7 };
+
+	/** The days 1, 8, 15, 22 and 29 of a month */
+	private static final long WEEK_PATTERN = (1L << 1) | (1L << 8) | (1L << 15) | (1L << 22) | (1L << 29);
+
+	/** The number of years after which the Gregorian calendar repeats */
+	private static final int CALENDAR_CYCLE = 400;
+
 	private AbstractTimeValue timeValues[][] = new AbstractTimeValue[TYPES.length][];
 
+	/** The compiled bitmasks of the types, created on demand */
+	private transient volatile long masks[];
+
 	/**
 	 * Default constructor
 	 * Constructor with all terms set to "*".
@@ -436,6 +467,7 @@ public class CronSchedule implements Serializable {
 	 */
 	protected void set(int type, AbstractTimeValue values[]) {
 		timeValues[getIndex(type)] = values;
+		masks = null;
 	}
 
 	/**
@@ -447,6 +479,43 @@ public class CronSchedule implements Serializable {
 		return timeValues[getIndex(type)];
 	}
 
+	/**
+	 * Returns the bitmask of the values that match the given time type.
+	 * <p>Bit {@code n} is set when the value {@code n} matches, using the values of {@link Calendar}.
+	 * E.g. bit 0 of the month mask stands for January and bit 1 of the day-of-week mask for Sunday.</p>
+	 * @param type - Calendar constant defining the type
+	 * @return the bitmask
+	 */
+	public long getMask(int type) {
+		return getMasks()[getIndex(type)];
+	}
+
+	/**
+	 * Returns the bitmasks of all types in the order of {@link #TYPES}.
+	 * <p>The masks are compiled when first needed. Changing the time values directly
+	 * (instead of by the set methods) is not detected.</p>
+	 * @return the bitmasks (must not be modified)
+	 */
+	protected long[] getMasks() {
+		long rc[] = masks;
+		if (rc == null) {
+			rc = new long[TYPES.length];
+			for (int i=0; i<TYPES.length; i++) {
+				AbstractTimeValue defs[] = timeValues[i];
+				for (int value=MINIMUM[i]; value<=MAXIMUM[i]; value++) {
+					for (int j=0; j<defs.length; j++) {
+						if (defs[j].matches(value)) {
+							rc[i] |= 1L << value;
+							break;
+						}
+					}
+				}
+			}
+			masks = rc;
+		}
+		return rc;
+	}
+
 	/**
 	 * Returns the cron-like definition string for the given time value
 	 * @param type - Calendar constant defining time type
@@ -577,15 +646,336 @@ public class CronSchedule implements Serializable {
 	 * @return true when definition matches
 	 */
 	protected boolean matches(int type, Calendar calendar) {
-		// get the definitions and the comparison value
-		AbstractTimeValue defs[] = timeValues[getIndex(type)];
 		int value = calendar.get(type);
+		if ((value < 0) || (value > 63)) return false;
+		return ((getMask(type) >>> value) & 1L) != 0;
+	}
+
+	/**
+	 * Compiles the schedule for the default time zone.
+	 * @return the compiled schedule
+	 * @see CompiledCronSchedule
+	 */
+	public CompiledCronSchedule compile() {
+		return compile(ZoneId.systemDefault());
+	}
+
+	/**
+	 * Compiles the schedule for fast matching.
+	 * <p>Later changes of this schedule are not reflected by the compiled schedule.</p>
+	 * @param zone - the time zone that the fields refer to
+	 * @return the compiled schedule
+	 * @see CompiledCronSchedule
+	 */
+	public CompiledCronSchedule compile(ZoneId zone) {
+		return new CompiledCronSchedule(this, zone);
+	}
 
-		// Any of the criteria must be met
-		for (int i=0; i<defs.length; i++) {
-			if (defs[i].matches(value)) return true;
+	/**
+	 * Returns the next time that matches the schedule.
+	 * <p>The time is computed in the default time zone.</p>
+	 * @param after - time in ms since Epoch time
+	 * @return the first matching time after the given time (in ms since Epoch time) or -1 when the schedule never matches
+	 */
+	public long nextExecution(long after) {
+		ZonedDateTime rc = nextExecution(ZonedDateTime.ofInstant(Instant.ofEpochMilli(after), ZoneId.systemDefault()));
+		return rc != null ? rc.toInstant().toEpochMilli() : -1L;
+	}
+
+	/**
+	 * Returns the next time that matches the schedule.
+	 * <p>The fields are matched against the local time in the zone of the argument. Local times that
+	 * do not exist due to a daylight saving gap are skipped, local times that occur twice are returned twice.</p>
+	 * @param after - the time
+	 * @return the first matching time after the given time or {@code null} when the schedule never matches
+	 */
+	public ZonedDateTime nextExecution(ZonedDateTime after) {
+		return nextExecution(getMasks(), after);
+	}
+
+	/**
+	 * Returns the previous time that matches the schedule.
+	 * <p>The time is computed in the default time zone.</p>
+	 * @param before - time in ms since Epoch time
+	 * @return the last matching time before the given time (in ms since Epoch time) or -1 when the schedule never matches
+	 */
+	public long previousExecution(long before) {
+		ZonedDateTime rc = previousExecution(ZonedDateTime.ofInstant(Instant.ofEpochMilli(before), ZoneId.systemDefault()));
+		return rc != null ? rc.toInstant().toEpochMilli() : -1L;
+	}
+
+	/**
+	 * Returns the previous time that matches the schedule.
+	 * @param before - the time
+	 * @return the last matching time before the given time or {@code null} when the schedule never matches
+	 * @see #nextExecution(ZonedDateTime)
+	 */
+	public ZonedDateTime previousExecution(ZonedDateTime before) {
+		return previousExecution(getMasks(), before);
+	}
+
+	/**
+	 * Returns all times within the range that match the schedule.
+	 * <p>The fields are matched against the local time in the zone of {@code from}. The occurrences are generated lazily
+	 * and the stream can be evaluated in parallel.</p>
+	 * @param from - the start of the range (inclusive)
+	 * @param to - the end of the range (exclusive)
+	 * @return the matching times in ascending order
+	 * @see CronOccurrenceSpliterator
+	 */
+	public Stream<ZonedDateTime> occurrences(ZonedDateTime from, ZonedDateTime to) {
+		return StreamSupport.stream(new CronOccurrenceSpliterator(this, from, to), false);
+	}
+
+	/**
+	 * Returns the next time that matches the bitmasks.
+	 * <p>The search walks along the periods of constant offset of the zone. So the local times of an overlap
+	 * are visited with the earlier offset first and then again with the later offset.</p>
+	 * @param masks - the bitmasks in the order of {@link #TYPES}
+	 * @param after - the time
+	 * @return the first matching time after the given time or {@code null}
+	 */
+	static ZonedDateTime nextExecution(long masks[], ZonedDateTime after) {
+		ZoneId zone = after.getZone();
+		ZoneRules rules = zone.getRules();
+		int maxYear = after.getYear() + CALENDAR_CYCLE;
+		// Occurrences are full minutes, so the first possible one is at least one second later
+		long minSeconds = after.toEpochSecond() + 1;
+		// Local times in [searchedFrom, searchedTo) are known not to match
+		LocalDateTime searchedFrom = null;
+		LocalDateTime searchedTo = null;
+		while (true) {
+			Instant instant = Instant.ofEpochSecond(minSeconds);
+			ZoneOffset offset = rules.getOffset(instant);
+			ZoneOffsetTransition transition = rules.nextTransition(instant);
+			LocalDateTime start = LocalDateTime.ofEpochSecond(minSeconds, 0, offset);
+			if (start.getSecond() > 0) start = start.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+			LocalDateTime from = start;
+			if ((searchedFrom != null) && !start.isBefore(searchedFrom) && start.isBefore(searchedTo)) {
+				from = searchedFrom;
+				start = searchedTo;
+			}
+			LocalDateTime candidate = nextLocal(masks, start, maxYear);
+			if (candidate == null) return null;
+			searchedFrom = from;
+			searchedTo = candidate;
+			long seconds = candidate.toEpochSecond(offset);
+			if ((transition == null) || (seconds < transition.toEpochSecond())) {
+				return ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds), zone);
+			}
+			// Continue with the offset after the transition
+			minSeconds = transition.toEpochSecond();
 		}
-		return false;
+	}
+
+	/**
+	 * Returns the previous time that matches the bitmasks.
+	 * @param masks - the bitmasks in the order of {@link #TYPES}
+	 * @param before - the time
+	 * @return the last matching time before the given time or {@code null}
+	 * @see #nextExecution(long[], ZonedDateTime)
+	 */
+	static ZonedDateTime previousExecution(long masks[], ZonedDateTime before) {
+		ZoneId zone = before.getZone();
+		ZoneRules rules = zone.getRules();
+		int minYear = before.getYear() - CALENDAR_CYCLE;
+		long maxSeconds = before.getNano() > 0 ? before.toEpochSecond() : before.toEpochSecond() - 1;
+		// Local times in (searchedFrom, searchedTo] are known not to match
+		LocalDateTime searchedFrom = null;
+		LocalDateTime searchedTo = null;
+		while (true) {
+			Instant instant = Instant.ofEpochSecond(maxSeconds);
+			ZoneOffset offset = rules.getOffset(instant);
+			ZoneOffsetTransition transition = rules.previousTransition(instant.plusSeconds(1));
+			LocalDateTime start = LocalDateTime.ofEpochSecond(maxSeconds, 0, offset).truncatedTo(ChronoUnit.MINUTES);
+			LocalDateTime to = start;
+			if ((searchedTo != null) && !start.isAfter(searchedTo) && start.isAfter(searchedFrom)) {
+				to = searchedTo;
+				start = searchedFrom;
+			}
+			LocalDateTime candidate = previousLocal(masks, start, minYear);
+			if (candidate == null) return null;
+			searchedFrom = candidate;
+			searchedTo = to;
+			long seconds = candidate.toEpochSecond(offset);
+			if ((transition == null) || (seconds >= transition.toEpochSecond())) {
+				return ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds), zone);
+			}
+			// Continue with the offset before the transition
+			maxSeconds = transition.toEpochSecond() - 1;
+		}
+	}
+
+	/**
+	 * Returns the first local time at or after the given time that matches the bitmasks.
+	 * @param masks - the bitmasks in the order of {@link #TYPES}
+	 * @param start - the local time (seconds are ignored)
+	 * @param maxYear - the last year to search
+	 * @return the matching local time or {@code null} when there is none until the end of maxYear
+	 */
+	static LocalDateTime nextLocal(long masks[], LocalDateTime start, int maxYear) {
+		for (long mask : masks) if (mask == 0L) return null;
+		int year   = start.getYear();
+		int month  = start.getMonthValue() - 1;
+		int day    = start.getDayOfMonth();
+		int hour   = start.getHour();
+		int minute = start.getMinute();
+		while (year <= maxYear) {
+			int m = nextBit(masks[3], month);
+			if (m < 0) {
+				year++; month = 0; day = 1; hour = 0; minute = 0;
+				continue;
+			}
+			if (m != month) {
+				month = m; day = 1; hour = 0; minute = 0;
+			}
+			int d = nextBit(getDayMask(masks, year, month), day);
+			if (d < 0) {
+				month++; day = 1; hour = 0; minute = 0;
+				if (month > 11) {
+					year++; month = 0;
+				}
+				continue;
+			}
+			if (d != day) {
+				day = d; hour = 0; minute = 0;
+			}
+			int h = nextBit(masks[1], hour);
+			if (h < 0) {
+				day++; hour = 0; minute = 0;
+				continue;
+			}
+			if (h != hour) {
+				hour = h; minute = 0;
+			}
+			int min = nextBit(masks[0], minute);
+			if (min < 0) {
+				hour++; minute = 0;
+				continue;
+			}
+			return LocalDateTime.of(year, month+1, day, hour, min);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the last local time at or before the given time that matches the bitmasks.
+	 * @param masks - the bitmasks in the order of {@link #TYPES}
+	 * @param start - the local time (seconds are ignored)
+	 * @param minYear - the first year to search
+	 * @return the matching local time or {@code null} when there is none since the start of minYear
+	 */
+	static LocalDateTime previousLocal(long masks[], LocalDateTime start, int minYear) {
+		for (long mask : masks) if (mask == 0L) return null;
+		int year   = start.getYear();
+		int month  = start.getMonthValue() - 1;
+		int day    = start.getDayOfMonth();
+		int hour   = start.getHour();
+		int minute = start.getMinute();
+		while (year >= minYear) {
+			int m = previousBit(masks[3], month);
+			if (m < 0) {
+				year--; month = 11; day = 31; hour = 23; minute = 59;
+				continue;
+			}
+			if (m != month) {
+				month = m; day = 31; hour = 23; minute = 59;
+			}
+			int d = previousBit(getDayMask(masks, year, month), day);
+			if (d < 0) {
+				month--; day = 31; hour = 23; minute = 59;
+				if (month < 0) {
+					year--; month = 11;
+				}
+				continue;
+			}
+			if (d != day) {
+				day = d; hour = 23; minute = 59;
+			}
+			int h = previousBit(masks[1], hour);
+			if (h < 0) {
+				day--; hour = 23; minute = 59;
+				if (day < 1) {
+					month--; day = 31;
+					if (month < 0) {
+						year--; month = 11;
+					}
+				}
+				continue;
+			}
+			if (h != hour) {
+				hour = h; minute = 59;
+			}
+			int min = previousBit(masks[0], minute);
+			if (min < 0) {
+				hour--; minute = 59;
+				if (hour < 0) {
+					day--; hour = 23;
+					if (day < 1) {
+						month--; day = 31;
+						if (month < 0) {
+							year--; month = 11;
+						}
+					}
+				}
+				continue;
+			}
+			return LocalDateTime.of(year, month+1, day, hour, min);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the bitmask of the days in a month that match both the day of month and the day of week.
+	 * @param masks - the bitmasks in the order of {@link #TYPES}
+	 * @param year - the year
+	 * @param month - the month (0-11)
+	 * @return the bitmask with bit {@code n} for day {@code n}
+	 */
+	static long getDayMask(long masks[], int year, int month) {
+		LocalDate first = LocalDate.of(year, month+1, 1);
+		int length = first.lengthOfMonth();
+		int firstDow = toCalendarDayOfWeek(first.getDayOfWeek());
+		long rc = 0L;
+		for (int k=0; k<7; k++) {
+			// Calendar day of week of day 1+k
+			int dow = (firstDow - 1 + k) % 7 + 1;
+			if (((masks[4] >>> dow) & 1L) != 0) rc |= WEEK_PATTERN << k;
+		}
+		return rc & masks[2] & ((1L << (length + 1)) - 1);
+	}
+
+	/**
+	 * Converts a day of week to the value used by {@link Calendar}.
+	 * @param dayOfWeek - the day of week
+	 * @return 1 (Sunday) through 7 (Saturday)
+	 */
+	static int toCalendarDayOfWeek(DayOfWeek dayOfWeek) {
+		return dayOfWeek.getValue() % 7 + 1;
+	}
+
+	/**
+	 * Returns the lowest set bit at or above the given position.
+	 * @param mask - the bitmask
+	 * @param from - the position
+	 * @return the position of the bit or -1
+	 */
+	static int nextBit(long mask, int from) {
+		if (from > 63) return -1;
+		long rc = mask & (-1L << Math.max(0, from));
+		return rc == 0L ? -1 : Long.numberOfTrailingZeros(rc);
+	}
+
+	/**
+	 * Returns the highest set bit at or below the given position.
+	 * @param mask - the bitmask
+	 * @param from - the position
+	 * @return the position of the bit or -1
+	 */
+	static int previousBit(long mask, int from) {
+		if (from < 0) return -1;
+		long rc = from >= 63 ? mask : mask & ((1L << (from + 1)) - 1);
+		return rc == 0L ? -1 : 63 - Long.numberOfLeadingZeros(rc);
 	}
 
 	/**
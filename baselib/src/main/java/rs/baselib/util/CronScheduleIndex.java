@@ -0,0 +1,259 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the schedules that match a given time among many {@link CronSchedule}s.
+ * <p>Schedules with identical bitmasks share a group. For each value of each field the index
+ * holds a bitset of the groups that accept this value. A lookup intersects the five bitsets
+ * of the field values of the time and collects the values of the remaining groups. So
+ * the schedules do not need to be evaluated one by one.</p>
+ * <p>The index copies the bitmasks when a schedule is added. Later changes of the schedule are not
+ * reflected until it is added again.</p>
+ * <p>This class is thread-safe.</p>
+ * @param <T> the type of the values that are registered with a schedule, e.g. a tenant ID
+ * @author ralph
+ *
+ */
+public class CronScheduleIndex<T> {
+
+	/** Number of values per field in the order of {@link CronSchedule#TYPES} */
+	private static final int SIZES[] = new int[] { 60, 24, 32, 12, 8 };
+
+	private ZoneId zone;
+	private BitSet fields[][];
+	private List<Group<T>> groups = new ArrayList<Group<T>>();
+	private BitSet freeGroups = new BitSet();
+	private Map<MaskKey,Group<T>> groupsByMasks = new HashMap<MaskKey,Group<T>>();
+	private Map<T,Group<T>> groupsByValue = new HashMap<T,Group<T>>();
+
+	/**
+	 * Constructor.
+	 * <p>Times are evaluated in the default time zone.</p>
+	 */
+	public CronScheduleIndex() {
+		this(ZoneId.systemDefault());
+	}
+
+	/**
+	 * Constructor.
+	 * @param zone the time zone that times are evaluated in
+	 */
+	public CronScheduleIndex(ZoneId zone) {
+		if (zone == null) throw new IllegalArgumentException("Zone must be set");
+		this.zone = zone;
+		this.fields = new BitSet[SIZES.length][];
+		for (int i=0; i<SIZES.length; i++) {
+			fields[i] = new BitSet[SIZES[i]];
+			for (int j=0; j<SIZES[i]; j++) fields[i][j] = new BitSet();
+		}
+	}
+
+	/**
+	 * Returns the time zone that times are evaluated in.
+	 * @return the zone
+	 */
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * Registers a value with a schedule.
+	 * <p>A value registered already is moved to the new schedule.</p>
+	 * @param value the value
+	 * @param schedule the schedule
+	 */
+	public synchronized void put(T value, CronSchedule schedule) {
+		if ((value == null) || (schedule == null)) throw new IllegalArgumentException("Value and schedule must be set");
+		long masks[] = schedule.getMasks();
+		Group<T> group = groupsByValue.get(value);
+		if (group != null) {
+			if (Arrays.equals(group.masks, masks)) return;
+			remove(value);
+		}
+		MaskKey key = new MaskKey(masks);
+		group = groupsByMasks.get(key);
+		if (group == null) {
+			group = createGroup(key.masks);
+			groupsByMasks.put(key, group);
+		}
+		group.values.add(value);
+		groupsByValue.put(value, group);
+	}
+
+	/**
+	 * Removes a value.
+	 * @param value the value
+	 * @return {@code true} when the value was registered
+	 */
+	public synchronized boolean remove(T value) {
+		Group<T> group = groupsByValue.remove(value);
+		if (group == null) return false;
+		group.values.remove(value);
+		if (group.values.isEmpty()) {
+			groupsByMasks.remove(new MaskKey(group.masks));
+			setBits(group, false);
+			groups.set(group.id, null);
+			freeGroups.set(group.id);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public synchronized void clear() {
+		for (BitSet field[] : fields) {
+			for (BitSet bits : field) bits.clear();
+		}
+		groups.clear();
+		freeGroups.clear();
+		groupsByMasks.clear();
+		groupsByValue.clear();
+	}
+
+	/**
+	 * Returns the number of registered values.
+	 * @return the number of values
+	 */
+	public synchronized int size() {
+		return groupsByValue.size();
+	}
+
+	/**
+	 * Returns the number of distinct schedules.
+	 * @return the number of groups of identical schedules
+	 */
+	public synchronized int getGroupCount() {
+		return groupsByMasks.size();
+	}
+
+	/**
+	 * Returns the values whose schedules match the minute of the given time.
+	 * <p>Seconds are ignored so a lookup shortly after the minute boundary finds the same values.</p>
+	 * @param timeStamp time in ms since Epoch time
+	 * @return the matching values
+	 */
+	public Set<T> getMatches(long timeStamp) {
+		return getMatches(ZonedDateTime.ofInstant(Instant.ofEpochMilli(timeStamp), zone));
+	}
+
+	/**
+	 * Returns the values whose schedules match the minute of the given time.
+	 * <p>The local fields of the argument are used, its zone is not converted. Seconds are ignored.</p>
+	 * @param time the time
+	 * @return the matching values
+	 */
+	public synchronized Set<T> getMatches(ZonedDateTime time) {
+		Set<T> rc = new LinkedHashSet<T>();
+		BitSet matches = (BitSet)fields[0][time.getMinute()].clone();
+		if (!matches.isEmpty()) matches.and(fields[1][time.getHour()]);
+		if (!matches.isEmpty()) matches.and(fields[2][time.getDayOfMonth()]);
+		if (!matches.isEmpty()) matches.and(fields[3][time.getMonthValue()-1]);
+		if (!matches.isEmpty()) matches.and(fields[4][CronSchedule.toCalendarDayOfWeek(time.getDayOfWeek())]);
+		for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id+1)) {
+			rc.addAll(groups.get(id).values);
+		}
+		return rc;
+	}
+
+	/**
+	 * Creates a group and sets its bits in the field bitsets.
+	 * @param masks the bitmasks of the group
+	 * @return the group
+	 */
+	private Group<T> createGroup(long masks[]) {
+		int id = freeGroups.nextSetBit(0);
+		if (id < 0) {
+			id = groups.size();
+			groups.add(null);
+		} else {
+			freeGroups.clear(id);
+		}
+		Group<T> rc = new Group<T>(id, masks);
+		groups.set(id, rc);
+		setBits(rc, true);
+		return rc;
+	}
+
+	/**
+	 * Sets or clears the bits of a group in the field bitsets.
+	 * @param group the group
+	 * @param value whether to set or clear the bits
+	 */
+	private void setBits(Group<T> group, boolean value) {
+		for (int i=0; i<SIZES.length; i++) {
+			long mask = group.masks[i];
+			while (mask != 0L) {
+				int bit = Long.numberOfTrailingZeros(mask);
+				fields[i][bit].set(group.id, value);
+				mask &= mask - 1;
+			}
+		}
+	}
+
+	/**
+	 * Schedules with identical bitmasks.
+	 * @param <T> the type of the values
+	 */
+	private static class Group<T> {
+
+		int id;
+		long masks[];
+		Set<T> values = new LinkedHashSet<T>();
+
+		public Group(int id, long masks[]) {
+			this.id    = id;
+			this.masks = masks;
+		}
+	}
+
+	/**
+	 * Key for looking up groups by their bitmasks.
+	 */
+	private static class MaskKey {
+
+		long masks[];
+
+		public MaskKey(long masks[]) {
+			this.masks = masks.clone();
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(masks);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof MaskKey) && Arrays.equals(masks, ((MaskKey)obj).masks);
+		}
+	}
+}
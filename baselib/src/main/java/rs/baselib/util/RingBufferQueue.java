@@ -0,0 +1,564 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A bounded lock-free queue for multiple producers and consumers.
+ * <p>The queue is a preallocated ring buffer after the design of Dmitry Vyukov. Each slot has a
+ * sequence number that tells producers and consumers whether the slot is free or filled. Both sides
+ * claim a slot by a compare-and-set on their position counter only, so they do not contend on a
+ * common lock and no nodes are allocated per element.</p>
+ * <p>The non-blocking {@link #offer(Object)} and {@link #poll()} never take a lock. Blocking methods
+ * spin briefly and then park on a lock condition. The lock is only signalled when a thread is actually
+ * waiting. Blocking methods respond to interrupts by throwing an {@link InterruptedException}.</p>
+ * <p>{@link #submit(Object)} applies the {@link BackpressureStrategy} of the queue when it is full.
+ * Consumers can take many elements at once by {@link #drainTo(Collection, int)} and
+ * {@link #pollBatch(int, long, TimeUnit)}. Both claim all available slots by a single compare-and-set
+ * and wake up producers only once.</p>
+ * <p>{@link #size()} and the iterator are weakly consistent.</p>
+ * @param <E> the type of elements
+ * @author ralph
+ *
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+	private static final int SPINS = 64;
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private int capacity;
+	private int mask;
+	private Object buffer[];
+	private AtomicLongArray sequences;
+	private AtomicLong enqueuePosition = new AtomicLong(0);
+	private AtomicLong dequeuePosition = new AtomicLong(0);
+	private ReentrantLock lock = new ReentrantLock();
+	private Condition notEmpty = lock.newCondition();
+	private Condition notFull = lock.newCondition();
+	private volatile int waitingConsumers = 0;
+	private volatile int waitingProducers = 0;
+	private BackpressureStrategy backpressureStrategy;
+	private Consumer<? super E> callerRunsHandler;
+	private LongAdder droppedCount = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * <p>Producers will {@link BackpressureStrategy#BLOCK block} when the queue is full.</p>
+	 * @param capacity the maximum number of elements
+	 */
+	public RingBufferQueue(int capacity) {
+		this(capacity, BackpressureStrategy.BLOCK, null);
+	}
+
+	/**
+	 * Constructor.
+	 * @param capacity the maximum number of elements
+	 * @param backpressureStrategy how {@link #submit(Object)} reacts when the queue is full
+	 * @param callerRunsHandler the handler for {@link BackpressureStrategy#CALLER_RUNS}, ignored for other strategies
+	 */
+	public RingBufferQueue(int capacity, BackpressureStrategy backpressureStrategy, Consumer<? super E> callerRunsHandler) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+		if (backpressureStrategy == null) throw new IllegalArgumentException("backpressureStrategy must be set");
+		if ((backpressureStrategy == BackpressureStrategy.CALLER_RUNS) && (callerRunsHandler == null)) {
+			throw new IllegalArgumentException("CALLER_RUNS requires a handler");
+		}
+		this.backpressureStrategy = backpressureStrategy;
+		this.callerRunsHandler    = callerRunsHandler;
+		this.capacity  = capacity;
+		this.mask      = Integer.bitCount(capacity) == 1 ? capacity - 1 : -1;
+		this.buffer    = new Object[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i=0; i<capacity; i++) sequences.set(i, free(i));
+	}
+
+	/**
+	 * Returns the maximum number of elements.
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns how {@link #submit(Object)} reacts when the queue is full.
+	 * @return the strategy
+	 */
+	public BackpressureStrategy getBackpressureStrategy() {
+		return backpressureStrategy;
+	}
+
+	/**
+	 * Returns the number of elements dropped by {@link #submit(Object)}.
+	 * @return the number of dropped elements
+	 */
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	/**
+	 * Returns the slot of a position.
+	 * @param position the position
+	 * @return the index in the buffer
+	 */
+	private int index(long position) {
+		return mask >= 0 ? (int)(position & mask) : (int)(position % capacity);
+	}
+
+	/**
+	 * Returns the sequence number of a slot that is free for the position.
+	 * <p>Sequence numbers are doubled so that free and filled slots are distinct even with a capacity of 1.</p>
+	 * @param position the position
+	 * @return the sequence number
+	 */
+	private static long free(long position) {
+		return position << 1;
+	}
+
+	/**
+	 * Returns the sequence number of a slot that holds the element of the position.
+	 * @param position the position
+	 * @return the sequence number
+	 */
+	private static long filled(long position) {
+		return (position << 1) + 1;
+	}
+
+	/**
+	 * Adds the element when a slot is free.
+	 * @param e the element
+	 * @return {@code true} when the element was added
+	 */
+	private boolean enqueue(E e) {
+		long position = enqueuePosition.get();
+		while (true) {
+			int index = index(position);
+			long diff = sequences.get(index) - free(position);
+			if (diff == 0) {
+				if (enqueuePosition.compareAndSet(position, position + 1)) {
+					buffer[index] = e;
+					sequences.set(index, filled(position));
+					return true;
+				}
+				position = enqueuePosition.get();
+			} else if (diff < 0) {
+				// Slot still filled from the previous round
+				return false;
+			} else {
+				position = enqueuePosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes the next element when available.
+	 * @return the element or {@code null} when the queue is empty
+	 */
+	@SuppressWarnings("unchecked")
+	private E dequeue() {
+		long position = dequeuePosition.get();
+		while (true) {
+			int index = index(position);
+			long diff = sequences.get(index) - filled(position);
+			if (diff == 0) {
+				if (dequeuePosition.compareAndSet(position, position + 1)) {
+					E rc = (E)buffer[index];
+					buffer[index] = null;
+					sequences.set(index, free(position + capacity));
+					return rc;
+				}
+				position = dequeuePosition.get();
+			} else if (diff < 0) {
+				// Slot not filled yet
+				return null;
+			} else {
+				position = dequeuePosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes up to the given number of available elements at once.
+	 * @param c the collection to add the elements to
+	 * @param maxElements the maximum number of elements
+	 * @return the number of elements removed
+	 */
+	@SuppressWarnings("unchecked")
+	private int dequeue(Collection<? super E> c, int maxElements) {
+		int max = Math.min(maxElements, capacity);
+		while (true) {
+			long position = dequeuePosition.get();
+			int n = 0;
+			while ((n < max) && (sequences.get(index(position + n)) == filled(position + n))) n++;
+			if (n == 0) return 0;
+			if (dequeuePosition.compareAndSet(position, position + n)) {
+				for (int i=0; i<n; i++) {
+					int index = index(position + i);
+					E e = (E)buffer[index];
+					buffer[index] = null;
+					sequences.set(index, free(position + i + capacity));
+					c.add(e);
+				}
+				return n;
+			}
+		}
+	}
+
+	/**
+	 * Wakes up a waiting consumer.
+	 */
+	private void signalNotEmpty() {
+		if (waitingConsumers == 0) return;
+		lock.lock();
+		try {
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Wakes up a waiting producer.
+	 */
+	private void signalNotFull() {
+		signalNotFull(false);
+	}
+
+	/**
+	 * Wakes up waiting producers.
+	 * @param all whether all producers shall be woken up (after removing several elements)
+	 */
+	private void signalNotFull(boolean all) {
+		if (waitingProducers == 0) return;
+		lock.lock();
+		try {
+			if (all) notFull.signalAll();
+			else notFull.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Never blocks.</p>
+	 */
+	@Override
+	public boolean offer(E e) {
+		if (e == null) throw new NullPointerException();
+		if (!enqueue(e)) return false;
+		signalNotEmpty();
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		if (e == null) throw new NullPointerException();
+		long nanos = unit.toNanos(timeout);
+		long deadline = System.nanoTime() + nanos;
+		for (int i=0; i<SPINS; i++) {
+			if (offer(e)) return true;
+			if (Thread.interrupted()) throw new InterruptedException();
+			Thread.yield();
+		}
+		lock.lockInterruptibly();
+		try {
+			waitingProducers++;
+			try {
+				while (!enqueue(e)) {
+					nanos = deadline - System.nanoTime();
+					if (nanos <= 0L) return false;
+					notFull.awaitNanos(nanos);
+				}
+			} finally {
+				waitingProducers--;
+			}
+		} finally {
+			lock.unlock();
+		}
+		signalNotEmpty();
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(E e) throws InterruptedException {
+		if (e == null) throw new NullPointerException();
+		for (int i=0; i<SPINS; i++) {
+			if (offer(e)) return;
+			if (Thread.interrupted()) throw new InterruptedException();
+			Thread.yield();
+		}
+		lock.lockInterruptibly();
+		try {
+			waitingProducers++;
+			try {
+				while (!enqueue(e)) notFull.await();
+			} finally {
+				waitingProducers--;
+			}
+		} finally {
+			lock.unlock();
+		}
+		signalNotEmpty();
+	}
+
+	/**
+	 * Adds the element and applies the {@link #getBackpressureStrategy() backpressure strategy} when the queue is full.
+	 * @param e the element
+	 * @return {@code false} when the element was dropped ({@link BackpressureStrategy#DROP_NEWEST})
+	 * @throws InterruptedException when the thread was interrupted while waiting
+	 */
+	public boolean submit(E e) throws InterruptedException {
+		if (e == null) throw new NullPointerException();
+		if (offer(e)) return true;
+		switch (backpressureStrategy) {
+		case DROP_NEWEST:
+			droppedCount.increment();
+			return false;
+		case DROP_OLDEST:
+			while (!offer(e)) {
+				if (poll() != null) droppedCount.increment();
+			}
+			return true;
+		case CALLER_RUNS:
+			callerRunsHandler.accept(e);
+			return true;
+		case SPIN_THEN_PARK:
+			long park = 1000L;
+			for (int i=0; !offer(e); i++) {
+				if (Thread.interrupted()) throw new InterruptedException();
+				if (i < SPINS) {
+					Thread.yield();
+				} else {
+					LockSupport.parkNanos(this, park);
+					park = Math.min(park << 1, MAX_PARK_NANOS);
+				}
+			}
+			return true;
+		default:
+			put(e);
+			return true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Never blocks.</p>
+	 */
+	@Override
+	public E poll() {
+		E rc = dequeue();
+		if (rc != null) signalNotFull();
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		long deadline = System.nanoTime() + nanos;
+		for (int i=0; i<SPINS; i++) {
+			E rc = poll();
+			if (rc != null) return rc;
+			if (Thread.interrupted()) throw new InterruptedException();
+			Thread.yield();
+		}
+		E rc = null;
+		lock.lockInterruptibly();
+		try {
+			waitingConsumers++;
+			try {
+				while ((rc = dequeue()) == null) {
+					nanos = deadline - System.nanoTime();
+					if (nanos <= 0L) return null;
+					notEmpty.awaitNanos(nanos);
+				}
+			} finally {
+				waitingConsumers--;
+			}
+		} finally {
+			lock.unlock();
+		}
+		signalNotFull();
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public E take() throws InterruptedException {
+		for (int i=0; i<SPINS; i++) {
+			E rc = poll();
+			if (rc != null) return rc;
+			if (Thread.interrupted()) throw new InterruptedException();
+			Thread.yield();
+		}
+		E rc = null;
+		lock.lockInterruptibly();
+		try {
+			waitingConsumers++;
+			try {
+				while ((rc = dequeue()) == null) notEmpty.await();
+			} finally {
+				waitingConsumers--;
+			}
+		} finally {
+			lock.unlock();
+		}
+		signalNotFull();
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public E peek() {
+		while (true) {
+			long position = dequeuePosition.get();
+			int index = index(position);
+			if (sequences.get(index) != filled(position)) return null;
+			E rc = (E)buffer[index];
+			// Element might have been taken in the meantime
+			if ((rc != null) && (dequeuePosition.get() == position)) return rc;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		long size = enqueuePosition.get() - dequeuePosition.get();
+		return (int)Math.max(0, Math.min(size, capacity));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isEmpty() {
+		return peek() == null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int remainingCapacity() {
+		return capacity - size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if (c == null) throw new NullPointerException();
+		if (c == this) throw new IllegalArgumentException();
+		int rc = 0;
+		while (rc < maxElements) {
+			int n = dequeue(c, maxElements - rc);
+			if (n == 0) break;
+			rc += n;
+		}
+		if (rc > 0) signalNotFull(rc > 1);
+		return rc;
+	}
+
+	/**
+	 * Removes up to the given number of elements and waits for the first element.
+	 * <p>The method waits until at least one element is available or the timeout elapsed.
+	 * Then all available elements up to the maximum are removed without further waiting.</p>
+	 * @param maxElements the maximum number of elements
+	 * @param timeout the maximum time to wait for the first element
+	 * @param unit the time unit of the timeout
+	 * @return the elements in queue order, empty when the timeout elapsed
+	 * @throws InterruptedException when the thread was interrupted while waiting
+	 */
+	public List<E> pollBatch(int maxElements, long timeout, TimeUnit unit) throws InterruptedException {
+		List<E> rc = new ArrayList<E>(Math.min(Math.max(maxElements, 0), capacity));
+		if (maxElements <= 0) return rc;
+		if (drainTo(rc, maxElements) > 0) return rc;
+		E first = poll(timeout, unit);
+		if (first == null) return rc;
+		rc.add(first);
+		drainTo(rc, maxElements - 1);
+		return rc;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The iterator works on a snapshot of the elements and does not support removal.</p>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Iterator<E> iterator() {
+		List<E> snapshot = new ArrayList<E>();
+		long start = dequeuePosition.get();
+		long end   = enqueuePosition.get();
+		for (long position=start; position<end; position++) {
+			int index = index(position);
+			Object e = buffer[index];
+			if ((sequences.get(index) == filled(position)) && (e != null)) snapshot.add((E)e);
+		}
+		Iterator<E> i = snapshot.iterator();
+		return new Iterator<E>() {
+			@Override
+			public boolean hasNext() {
+				return i.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return i.next();
+			}
+		};
+	}
+}
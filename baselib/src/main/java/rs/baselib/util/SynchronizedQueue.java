@@ -3,11 +3,17 @@
  */
 package rs.baselib.util;
 
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implements a thread-safe synchronized object queue that also wakes up waiting threads.
+ * <p>The queue is backed by a {@link RingBufferQueue}. New code should use the {@link RingBufferQueue}
+ * directly as it offers non-blocking, timed and interruptible methods.</p>
  * @author ralph
  *
  */
@@ -17,9 +23,22 @@ public class SynchronizedQueue<E> {
 	public static final int MAX_CAPACITY = 100;
 	
 	/** The object queue */
-	protected List<E> available = new LinkedList<>();
+	protected RingBufferQueue<E> queue;
 	
-	/** The maximum number of objects to be held in this queue instance */
+	/**
+	 * A read-only view of the queued objects.
+	 * @deprecated The objects are held by the {@link #getQueue() ring buffer queue}. The view cannot be
+	 * modified and reading it by index walks the queue. Use {@link #getQueue()} instead.
+	 */
+	@Deprecated
+	protected List<E> available = new QueueView();
+	
+	/**
+	 * The maximum number of objects to be held in this queue instance.
+	 * @deprecated The capacity of the ring buffer is fixed when the queue is constructed,
+	 * changing this value has no effect. Use {@link RingBufferQueue#getCapacity()} instead.
+	 */
+	@Deprecated
 	protected int capacity = MAX_CAPACITY;
 	
 	/**
@@ -35,44 +54,140 @@ public class SynchronizedQueue<E> {
 	 * @param capacity - capacity of this queue
 	 */
 	public SynchronizedQueue(int capacity) {
+		this(capacity, BackpressureStrategy.BLOCK);
+	}
+
+	/**
+	 * Constructor.
+	 * <p>A capacity below 1 holds one object (such a queue blocked every {@link #push(Object)} forever before).</p>
+	 * @param capacity - capacity of this queue
+	 * @param backpressureStrategy - how {@link #push(Object)} reacts when the queue is full ({@link BackpressureStrategy#CALLER_RUNS} is not supported)
+	 */
+	public SynchronizedQueue(int capacity, BackpressureStrategy backpressureStrategy) {
 		this.capacity = capacity;
+		this.queue    = new RingBufferQueue<>(Math.max(1, capacity), backpressureStrategy, null);
+	}
+
+	/**
+	 * Returns the queue that holds the objects.
+	 * @return the underlying queue
+	 */
+	public RingBufferQueue<E> getQueue() {
+		return queue;
 	}
 
 	/**
 	 * Delivers the next object from the queue.
 	 * <p>The method will block when no object is available.</p>
-	 * <p>Used by the reader/consumer thread.</p>
+	 * <p>Used by the reader/consumer thread. An interrupt does not abort the method
+	 * but the interrupt status of the thread is restored before it returns.</p>
 	 * @return next object in queue
 	 */
-	public synchronized E poll() {
-		E rc;
-	 
-		while (available.isEmpty()) {
-			try {
-				wait();
-			} catch (InterruptedException e) { }
+	public E poll() {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return queue.take();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) Thread.currentThread().interrupt();
 		}
-		rc = available.remove(0);
-	 
-		notify();
-	 
-		return rc;
 	}
 
 	/**
 	 * Adds a new object to the list of available objects.
-	 * <p>The method will block when the queue is full.</p>
-	 * <p>Used by the writer/producer thread.</p>
+	 * <p>The method will block when the queue is full unless another {@link BackpressureStrategy} was chosen.</p>
+	 * <p>Used by the writer/producer thread. An interrupt does not abort the method
+	 * but the interrupt status of the thread is restored before it returns.</p>
+	 * <p>{@code null} cannot be queued as the queue uses it to mark free slots.</p>
 	 * @param o - the object to be queued
+	 * @throws IllegalArgumentException when the object is {@code null}
+	 */
+	public void push(E o) {
+		if (o == null) throw new IllegalArgumentException("Cannot queue null");
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					queue.submit(o);
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Removes all available objects up to the given number without blocking.
+	 * @param c - the collection to add the objects to
+	 * @param maxElements - the maximum number of objects
+	 * @return the number of objects removed
 	 */
-	public synchronized void push(E o) {
-		while (available.size() >= capacity) {
-			try {
-				wait();
-			} catch (InterruptedException e) {}
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		return queue.drainTo(c, maxElements);
+	}
+
+	/**
+	 * Delivers the next objects from the queue.
+	 * <p>The method will block until at least one object is available or the timeout elapsed.
+	 * An interrupt ends the waiting and the interrupt status of the thread is kept.</p>
+	 * @param maxElements - the maximum number of objects
+	 * @param timeout - the maximum time to wait
+	 * @param unit - the time unit of the timeout
+	 * @return the objects, empty when the timeout elapsed
+	 */
+	public List<E> pollBatch(int maxElements, long timeout, TimeUnit unit) {
+		try {
+			return queue.pollBatch(maxElements, timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * The read-only list view of the queued objects.
+	 * @author ralph
+	 *
+	 */
+	private class QueueView extends AbstractList<E> {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public E get(int index) {
+			if (index >= 0) {
+				Iterator<E> i = queue.iterator();
+				for (int n=0; i.hasNext(); n++) {
+					E rc = i.next();
+					if (n == index) return rc;
+				}
+			}
+			throw new IndexOutOfBoundsException("Index: "+index);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Iterator<E> iterator() {
+			return queue.iterator();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int size() {
+			return queue.size();
 		}
-		available.add(o);
-	 
-		notify();
 	}
 }
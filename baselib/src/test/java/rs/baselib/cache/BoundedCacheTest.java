@@ -0,0 +1,171 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.BoundedCache}.
+ * @author ralph
+ *
+ */
+public class BoundedCacheTest {
+
+	@Test
+	public void testPutAndGet() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(10);
+		assertNull(cache.put(1L, "ONE"));
+		assertEquals("ONE", cache.put(1L, "TWO"));
+		assertEquals("TWO", cache.get(1L));
+		assertEquals(1, cache.size());
+		assertEquals("TWO", cache.remove(1L));
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testMaximumSize() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(100);
+		for (long i=0; i<1000; i++) {
+			cache.put(i, "VALUE"+i);
+			assertTrue(cache.size() <= 100);
+		}
+		assertEquals(100, cache.size());
+	}
+
+	@Test
+	public void testZeroSize() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(0);
+		cache.put(1L, "ONE");
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLru() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(3, EvictionPolicy.LRU);
+		cache.put(1L, "ONE");
+		cache.put(2L, "TWO");
+		cache.put(3L, "THREE");
+		cache.get(1L);
+		cache.put(4L, "FOUR");
+		assertTrue(cache.containsKey(1L));
+		assertFalse(cache.containsKey(2L));
+		assertTrue(cache.containsKey(3L));
+		assertTrue(cache.containsKey(4L));
+	}
+
+	@Test
+	public void testTinyLfuResistsScans() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(100);
+		// Build up a frequently used working set
+		for (int round=0; round<5; round++) {
+			for (long i=0; i<50; i++) {
+				if (cache.get(i) == null) cache.put(i, "HOT"+i);
+			}
+		}
+		// A scan over many keys that are used once only
+		for (long i=1000; i<11000; i++) {
+			cache.put(i, "COLD"+i);
+		}
+		int hits = 0;
+		for (long i=0; i<50; i++) {
+			if (cache.get(i) != null) hits++;
+		}
+		assertTrue(hits >= 45, "Working set was evicted by scan: "+hits);
+		assertEquals(100, cache.size());
+	}
+
+	@Test
+	public void testClear() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(10);
+		cache.put(1L, "ONE");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertFalse(cache.containsValue("ONE"));
+	}
+
+	@Test
+	public void testWeight() {
+		BoundedCache<Long, byte[]> cache = new BoundedCache<Long, byte[]>(10000, Weighers.BYTE_ARRAY);
+		assertTrue(cache.isWeighted());
+		for (long i=0; i<100; i++) cache.put(i, new byte[984]);
+		assertEquals(10, cache.size());
+		assertEquals(10000, cache.getWeightedSize());
+		assertEquals(10000, cache.getEstimatedBytes());
+		// Replacing with a heavier value evicts another entry
+		Long key = cache.keySet().iterator().next();
+		cache.put(key, new byte[1984]);
+		assertTrue(cache.getWeightedSize() <= 10000);
+		assertEquals(9, cache.size());
+		// Too heavy entries are not held
+		assertNull(cache.put(1000L, new byte[20000]));
+		assertFalse(cache.containsKey(1000L));
+		cache.remove(key);
+		assertEquals(8000, cache.getWeightedSize());
+		cache.clear();
+		assertEquals(0, cache.getWeightedSize());
+	}
+
+	@Test
+	public void testStringWeigher() {
+		assertEquals(24 + 16, Weighers.STRING.weigh(null, ""));
+		assertEquals(24 + 24, Weighers.STRING.weigh(null, "ABCD"));
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(480, Weighers.STRING, EvictionPolicy.LRU);
+		for (long i=0; i<20; i++) cache.put(i, "ABCD");
+		assertEquals(10, cache.size());
+		assertEquals("ABCD", cache.get(19L));
+		assertNull(cache.get(0L));
+	}
+
+	@Test
+	public void testRemovalListener() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(2, EvictionPolicy.LRU);
+		List<String> removals = new ArrayList<String>();
+		cache.setRemovalListener((key, value, cause) -> removals.add(key+"="+value+":"+cause));
+		cache.put(1L, "ONE");
+		cache.put(1L, "EINS");
+		cache.put(2L, "TWO");
+		cache.put(3L, "THREE");
+		cache.remove(2L);
+		assertEquals(Arrays.asList("1=ONE:REPLACED", "1=EINS:SIZE", "2=TWO:EXPLICIT"), removals);
+	}
+
+	@Test
+	public void testStats() {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(10);
+		cache.setStatsCounter(new ConcurrentStatsCounter());
+		for (long i=0; i<20; i++) cache.put(i, "VALUE"+i);
+		cache.get(19L);
+		cache.get(100L);
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(0.5d, stats.getHitRate(), 0.0001d);
+		assertEquals(10, stats.getEvictionCount(RemovalCause.SIZE));
+		assertEquals(10, stats.getEntryCount());
+	}
+
+}
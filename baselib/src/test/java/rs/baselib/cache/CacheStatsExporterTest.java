@@ -0,0 +1,82 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.CacheStatsExporter}.
+ * @author ralph
+ *
+ */
+public class CacheStatsExporterTest {
+
+	@Test
+	public void testRegister() throws Exception {
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(10);
+		cache.setStatsCounter(new ConcurrentStatsCounter());
+		cache.put(1L, "ONE");
+		cache.get(1L);
+		cache.get(2L);
+		ObjectName name = CacheStatsExporter.register(cache, "test");
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertTrue(server.isRegistered(name));
+			assertEquals(1L, server.getAttribute(name, "HitCount"));
+			assertEquals(1L, server.getAttribute(name, "MissCount"));
+			assertEquals(1L, server.getAttribute(name, "EntryCount"));
+		} finally {
+			CacheStatsExporter.unregister("test");
+		}
+	}
+
+	@Test
+	public void testCountersWithoutSize() {
+		int sizeCalls[] = new int[1];
+		BoundedCache<Long, String> cache = new BoundedCache<Long, String>(10) {
+			@Override
+			public int size() {
+				sizeCalls[0]++;
+				return super.size();
+			}
+		};
+		cache.setStatsCounter(new ConcurrentStatsCounter());
+		cache.put(1L, "ONE");
+		cache.get(1L);
+		CacheStatsExporter exporter = new CacheStatsExporter(cache);
+		sizeCalls[0] = 0;
+		assertEquals(1L, exporter.getHitCount());
+		assertEquals(0L, exporter.getMissCount());
+		assertEquals(1d, exporter.getHitRate(), 0d);
+		assertEquals(0L, exporter.getLoadSuccessCount());
+		assertEquals(0L, exporter.getEvictionCount());
+		assertEquals(Long.valueOf(0L), exporter.getEvictionCounts().get(RemovalCause.SIZE.name()));
+		assertEquals(0L, exporter.getLoadLatency99thPercentile());
+		assertEquals(0, sizeCalls[0]);
+		assertEquals(1L, exporter.getEntryCount());
+		assertEquals(1, sizeCalls[0]);
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.CountingBloomFilter}.
+ * @author ralph
+ *
+ */
+public class CountingBloomFilterTest {
+
+	@Test
+	public void testNoFalseNegatives() {
+		CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01d);
+		for (int i=0; i<5000; i++) filter.add("key"+i);
+		assertEquals(5000, filter.getCount());
+		assertTrue(filter.getStageCount() > 1);
+		for (int i=0; i<5000; i++) assertTrue(filter.mightContain("key"+i));
+	}
+
+	@Test
+	public void testFalsePositiveRate() {
+		CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01d);
+		for (int i=0; i<10000; i++) filter.add("key"+i);
+		int falsePositives = 0;
+		for (int i=0; i<100000; i++) {
+			if (filter.mightContain("other"+i)) falsePositives++;
+		}
+		assertTrue(falsePositives < 1000, "Too many false positives: "+falsePositives);
+	}
+
+	@Test
+	public void testRemove() {
+		CountingBloomFilter filter = new CountingBloomFilter(100, 0.01d);
+		for (int i=0; i<100; i++) filter.add(i);
+		for (int i=0; i<50; i++) assertTrue(filter.remove(i));
+		assertEquals(50, filter.getCount());
+		for (int i=50; i<100; i++) assertTrue(filter.mightContain(i));
+		int stillContained = 0;
+		for (int i=0; i<50; i++) {
+			if (filter.mightContain(i)) stillContained++;
+		}
+		assertTrue(stillContained < 5);
+		filter.clear();
+		assertEquals(0, filter.getCount());
+		assertEquals(1, filter.getStageCount());
+		assertFalse(filter.mightContain(75));
+	}
+
+	@Test
+	public void testHash() {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		assertNotEquals(CountingBloomFilter.hash("Aa"), CountingBloomFilter.hash("BB"));
+		assertNotEquals(CountingBloomFilter.hash(1L), CountingBloomFilter.hash(1L << 32 | 1L));
+		CountingBloomFilter filter = new CountingBloomFilter(100, 0.01d);
+		filter.add("Aa");
+		assertFalse(filter.mightContain("BB"));
+	}
+}
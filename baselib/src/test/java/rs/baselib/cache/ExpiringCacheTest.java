@@ -0,0 +1,155 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.ExpiringCache}.
+ * @author ralph
+ *
+ */
+public class ExpiringCacheTest {
+
+	private TestTicker ticker;
+	private BoundedCache<Long, String> values;
+	private ExpiringCache<Long, String> cache;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		ticker = new TestTicker();
+		values = new BoundedCache<Long, String>(1000);
+		cache  = new ExpiringCache<Long, String>(values, ticker);
+	}
+
+	@Test
+	public void testNoExpiry() {
+		cache.put(1L, "ONE");
+		ticker.advance(100, TimeUnit.DAYS);
+		assertEquals("ONE", cache.get(1L));
+	}
+
+	@Test
+	public void testExpireAfterWrite() {
+		cache.setExpireAfterWrite(10, TimeUnit.SECONDS);
+		cache.put(1L, "ONE");
+		ticker.advance(9, TimeUnit.SECONDS);
+		assertEquals("ONE", cache.get(1L));
+		ticker.advance(1, TimeUnit.SECONDS);
+		assertNull(cache.get(1L));
+		assertFalse(values.containsKey(1L));
+	}
+
+	@Test
+	public void testExpireAfterAccess() {
+		cache.setExpireAfterAccess(10, TimeUnit.SECONDS);
+		cache.put(1L, "ONE");
+		for (int i=0; i<5; i++) {
+			ticker.advance(8, TimeUnit.SECONDS);
+			assertEquals("ONE", cache.get(1L));
+		}
+		ticker.advance(10, TimeUnit.SECONDS);
+		assertFalse(cache.containsKey(1L));
+	}
+
+	@Test
+	public void testPerEntryExpiry() {
+		cache.setExpireAfterWrite(1, TimeUnit.HOURS);
+		cache.put(1L, "ONE");
+		cache.put(2L, "TWO", 1, TimeUnit.MINUTES);
+		cache.put(3L, "THREE", ExpiringCache.NEVER, TimeUnit.MINUTES);
+		ticker.advance(2, TimeUnit.MINUTES);
+		assertEquals("ONE", cache.get(1L));
+		assertNull(cache.get(2L));
+		ticker.advance(2, TimeUnit.HOURS);
+		assertNull(cache.get(1L));
+		assertEquals("THREE", cache.get(3L));
+	}
+
+	@Test
+	public void testTimerWheelRemovesIdleEntries() {
+		Map<Long, Long> durations = new HashMap<Long, Long>();
+		for (long i=0; i<500; i++) {
+			long seconds = 1 + (i * 997) % 200000;
+			durations.put(i, seconds);
+			cache.put(i, "VALUE"+i, seconds, TimeUnit.SECONDS);
+		}
+		long elapsed = 0;
+		while (elapsed < 200001) {
+			ticker.advance(1000, TimeUnit.SECONDS);
+			elapsed += 1000;
+			cache.cleanUp();
+			for (Map.Entry<Long, Long> entry : durations.entrySet()) {
+				boolean present = values.containsKey(entry.getKey());
+				if (entry.getValue() < elapsed - 2) assertFalse(present, "Not removed: "+entry.getKey());
+				if (entry.getValue() > elapsed) assertTrue(present, "Removed early: "+entry.getKey());
+			}
+		}
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testRemoveAndClear() {
+		cache.setExpireAfterWrite(10, TimeUnit.SECONDS);
+		cache.put(1L, "ONE");
+		cache.put(2L, "TWO");
+		assertEquals("ONE", cache.remove(1L));
+		assertEquals(1, cache.size());
+		cache.clear();
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testStats() {
+		cache.setStatsCounter(new ConcurrentStatsCounter());
+		cache.setExpireAfterWrite(10, TimeUnit.SECONDS);
+		cache.put(1L, "ONE");
+		cache.put(2L, "TWO");
+		assertEquals("ONE", cache.get(1L));
+		ticker.advance(11, TimeUnit.SECONDS);
+		assertNull(cache.get(1L));
+		cache.cleanUp();
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(2, stats.getEvictionCount(RemovalCause.EXPIRED));
+	}
+
+	protected static class TestTicker implements Ticker {
+		private long nanos = 12345L;
+
+		public void advance(long duration, TimeUnit unit) {
+			nanos += unit.toNanos(duration);
+		}
+
+		@Override
+		public long read() {
+			return nanos;
+		}
+	}
+}
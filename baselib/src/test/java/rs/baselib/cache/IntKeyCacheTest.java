@@ -0,0 +1,52 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.IntKeyCache}.
+ * @author ralph
+ *
+ */
+public class IntKeyCacheTest {
+
+	@Test
+	public void testPutAndGet() {
+		IntKeyCache<String> cache = new IntKeyCache<String>(ReferenceType.SOFT, 10);
+		assertNull(cache.put(1, "ONE"));
+		assertEquals("ONE", cache.put(1, "EINS"));
+		assertEquals("EINS", cache.get(1));
+		assertEquals("EINS", cache.get(Integer.valueOf(1)));
+		assertNull(cache.get(Long.valueOf(1)));
+		assertTrue(cache.containsKey(1));
+		assertFalse(cache.containsKey(Long.valueOf(1)));
+		cache.put(-1, "MINUS");
+		assertEquals(2, cache.keySet().size());
+		assertTrue(cache.keySet().contains(-1));
+		for (int i=0; i<100; i++) cache.put(i, "V"+i);
+		assertEquals(10, cache.size());
+		assertEquals("V99", cache.remove(99));
+		assertEquals(9, cache.size());
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.InvalidationBus}.
+ * @author ralph
+ *
+ */
+public class InvalidationBusTest {
+
+	@Test
+	public void testInvalidate() throws Exception {
+		List<Consumer<byte[]>> receivers = new ArrayList<Consumer<byte[]>>();
+		InvalidationBus bus1 = new InvalidationBus(new TestTransport(receivers, 100));
+		InvalidationBus bus2 = new InvalidationBus(new TestTransport(receivers, 100));
+		bus1.start();
+		bus2.start();
+		bus1.setFlushDelay(1, TimeUnit.HOURS);
+		InvalidatingCache<String,String> cache1 = new InvalidatingCache<String,String>(bus1, "test", new SoftMapCache<String,String>(), Serializers.STRING);
+		InvalidatingCache<String,String> cache2 = new InvalidatingCache<String,String>(bus2, "test", new SoftMapCache<String,String>(), Serializers.STRING);
+		for (int i=0; i<20; i++) {
+			cache1.getWrapped().put("key"+i, "value"+i);
+			cache2.getWrapped().put("key"+i, "value"+i);
+		}
+
+		// Coalesced and batched
+		for (int i=0; i<10; i++) cache1.put("key"+i, "changed"+i);
+		for (int i=0; i<10; i++) cache1.remove("key"+i);
+		// The same instance might have been changed in place
+		cache1.put("key10", cache1.get("key10"));
+		assertEquals(0, bus1.getSentMessageCount());
+		bus1.flush();
+		assertEquals(11, bus1.getSentKeyCount());
+		assertEquals(2, bus1.getSentMessageCount());
+		assertEquals(11, bus2.getReceivedKeyCount());
+		assertEquals(0, bus1.getReceivedKeyCount());
+		for (int i=0; i<11; i++) assertNull(cache2.get("key"+i));
+		assertEquals("value11", cache2.get("key11"));
+		assertEquals(9, cache2.size());
+
+		// Clear
+		cache1.clear();
+		bus1.flush();
+		assertEquals(0, cache2.size());
+		bus1.close();
+		bus2.close();
+	}
+
+	@Test
+	public void testFlushDelay() throws Exception {
+		List<Consumer<byte[]>> receivers = new ArrayList<Consumer<byte[]>>();
+		InvalidationBus bus1 = new InvalidationBus(new TestTransport(receivers, 1000));
+		InvalidationBus bus2 = new InvalidationBus(new TestTransport(receivers, 1000));
+		bus1.start();
+		bus2.start();
+		InvalidatingCache<String,String> cache1 = new InvalidatingCache<String,String>(bus1, "test", new SoftMapCache<String,String>(), Serializers.STRING);
+		ICache<String,String> cache2 = new SoftMapCache<String,String>();
+		bus2.register("test", cache2, Serializers.STRING);
+		cache2.put("a", "A");
+		cache1.put("a", "B");
+		waitFor(() -> cache2.get("a") == null);
+		assertNull(cache2.get("a"));
+		bus1.close();
+		bus2.close();
+	}
+
+	@Test
+	public void testMulticast() throws Exception {
+		InvalidationBus bus1 = new InvalidationBus(new MulticastInvalidationTransport());
+		InvalidationBus bus2 = new InvalidationBus(new MulticastInvalidationTransport());
+		try {
+			bus1.start();
+			bus2.start();
+		} catch (IOException e) {
+			// No multicast available in this environment
+			bus1.close();
+			bus2.close();
+			return;
+		}
+		ICache<Long,String> cache1 = new SoftMapCache<Long,String>();
+		ICache<Long,String> cache2 = new SoftMapCache<Long,String>();
+		bus1.register("test", cache1, Serializers.LONG);
+		bus2.register("test", cache2, Serializers.LONG);
+		cache2.put(1L, "ONE");
+		bus1.invalidate("test", 1L);
+		bus1.flush();
+		waitFor(() -> cache2.get(1L) == null);
+		bus1.close();
+		bus2.close();
+		assertNull(cache2.get(1L));
+	}
+
+	private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+		for (int i=0; (i<200) && !condition.getAsBoolean(); i++) Thread.sleep(10);
+	}
+
+	/**
+	 * Delivers messages to all transports of a list synchronously.
+	 */
+	private static class TestTransport implements IInvalidationTransport {
+
+		private List<Consumer<byte[]>> receivers;
+		private int maximumMessageSize;
+
+		public TestTransport(List<Consumer<byte[]>> receivers, int maximumMessageSize) {
+			this.receivers = receivers;
+			this.maximumMessageSize = maximumMessageSize;
+		}
+
+		@Override
+		public void start(Consumer<byte[]> receiver) throws IOException {
+			receivers.add(receiver);
+		}
+
+		@Override
+		public void send(byte[] message) throws IOException {
+			for (Consumer<byte[]> receiver : receivers) receiver.accept(message);
+		}
+
+		@Override
+		public int getMaximumMessageSize() {
+			return maximumMessageSize;
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+	}
+}
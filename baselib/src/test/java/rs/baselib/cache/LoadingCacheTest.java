@@ -0,0 +1,247 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.LoadingCache}.
+ * @author ralph
+ *
+ */
+public class LoadingCacheTest {
+
+	@Test
+	public void testGetOrLoad() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(key -> {
+			calls.incrementAndGet();
+			return key < 0 ? null : "VALUE"+key;
+		});
+		assertEquals("VALUE1", cache.getOrLoad(1L));
+		assertEquals("VALUE1", cache.getOrLoad(1L));
+		assertEquals(1, calls.get());
+		assertNull(cache.getOrLoad(-1L));
+		assertFalse(cache.containsKey(-1L));
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(key -> {
+			calls.incrementAndGet();
+			started.countDown();
+			release.await();
+			return "VALUE"+key;
+		});
+		int threadCount = 10;
+		Thread threads[] = new Thread[threadCount];
+		String results[] = new String[threadCount];
+		for (int i=0; i<threadCount; i++) {
+			final int idx = i;
+			threads[i] = new Thread(() -> {
+				try {
+					results[idx] = cache.getOrLoad(1L);
+				} catch (CacheLoaderException e) {
+					results[idx] = e.toString();
+				}
+			});
+			threads[i].start();
+		}
+		started.await();
+		Thread.sleep(50);
+		release.countDown();
+		for (Thread thread : threads) thread.join();
+		assertEquals(1, calls.get());
+		for (String result : results) assertEquals("VALUE1", result);
+	}
+
+	@Test
+	public void testLoaderException() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		IllegalStateException error = new IllegalStateException("DB down");
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(key -> {
+			if (calls.incrementAndGet() == 1) throw error;
+			return "VALUE"+key;
+		});
+		CacheLoaderException e = assertThrows(CacheLoaderException.class, () -> cache.getOrLoad(1L));
+		assertSame(error, e.getCause());
+		assertEquals(1L, e.getKey());
+		assertFalse(cache.containsKey(1L));
+		assertEquals("VALUE1", cache.getOrLoad(1L));
+	}
+
+	@Test
+	public void testGetAll() throws Exception {
+		AtomicInteger bulkCalls = new AtomicInteger();
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(new CacheLoader<Long, String>() {
+			@Override
+			public String load(Long key) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public Map<Long, String> loadAll(Collection<? extends Long> keys) {
+				bulkCalls.incrementAndGet();
+				Map<Long, String> rc = new HashMap<Long, String>();
+				for (Long key : keys) {
+					if (key != 3L) rc.put(key, "VALUE"+key);
+				}
+				return rc;
+			}
+		});
+		cache.put(2L, "CACHED");
+		Map<Long, String> values = cache.getAll(Arrays.asList(1L, 2L, 3L, 4L, 1L));
+		assertEquals(1, bulkCalls.get());
+		List<Long> keys = Arrays.asList(values.keySet().toArray(new Long[0]));
+		assertEquals(Arrays.asList(1L, 2L, 4L), keys);
+		assertEquals("CACHED", values.get(2L));
+		assertEquals("VALUE4", values.get(4L));
+		assertTrue(cache.containsKey(1L));
+	}
+
+	@Test
+	public void testRefreshAfterWrite() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		AtomicInteger failures = new AtomicInteger();
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(key -> {
+			if (failures.getAndDecrement() > 0) throw new IllegalStateException("DB down");
+			return "VALUE"+calls.incrementAndGet();
+		});
+		ExpiringCacheTest.TestTicker ticker = new ExpiringCacheTest.TestTicker();
+		cache.setTicker(ticker);
+		cache.setExecutor(Runnable::run);
+		cache.setRefreshAfterWrite(1, TimeUnit.MINUTES);
+		cache.setRefreshBackoff(10, TimeUnit.SECONDS);
+		assertEquals("VALUE1", cache.getOrLoad(1L));
+
+		// Not due yet
+		ticker.advance(30, TimeUnit.SECONDS);
+		assertEquals("VALUE1", cache.get(1L));
+		assertEquals(1, calls.get());
+
+		// Due: stale value is returned and reloaded
+		ticker.advance(31, TimeUnit.SECONDS);
+		assertEquals("VALUE1", cache.get(1L));
+		assertEquals("VALUE2", cache.get(1L));
+
+		// Failing reload keeps old value and backs off
+		failures.set(1);
+		ticker.advance(61, TimeUnit.SECONDS);
+		assertEquals("VALUE2", cache.get(1L));
+		assertEquals("VALUE2", cache.get(1L));
+		ticker.advance(5, TimeUnit.SECONDS);
+		assertEquals("VALUE2", cache.get(1L));
+		assertEquals(2, calls.get());
+		ticker.advance(5, TimeUnit.SECONDS);
+		assertEquals("VALUE2", cache.get(1L));
+		assertEquals("VALUE3", cache.get(1L));
+	}
+
+	@Test
+	public void testRefreshDiscarded() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(key -> "VALUE"+calls.incrementAndGet());
+		ExpiringCacheTest.TestTicker ticker = new ExpiringCacheTest.TestTicker();
+		List<Runnable> refreshes = new ArrayList<Runnable>();
+		cache.setTicker(ticker);
+		cache.setExecutor(refreshes::add);
+		cache.setRefreshAfterWrite(1, TimeUnit.MINUTES);
+		assertEquals("VALUE1", cache.getOrLoad(1L));
+		assertEquals("VALUE2", cache.getOrLoad(2L));
+		ticker.advance(2, TimeUnit.MINUTES);
+		assertEquals("VALUE1", cache.get(1L));
+		assertEquals("VALUE2", cache.get(2L));
+		assertEquals(2, refreshes.size());
+
+		// Removing or writing the key while the refresh runs wins over the refresh
+		cache.remove(1L);
+		cache.put(2L, "PUT");
+		for (Runnable refresh : refreshes) refresh.run();
+		assertFalse(cache.containsKey(1L));
+		assertEquals("PUT", cache.get(2L));
+	}
+
+	@Test
+	public void testRefreshStatesOfEvictedKeys() throws Exception {
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(key -> "VALUE"+key);
+		cache.setRefreshAfterWrite(1, TimeUnit.MINUTES);
+		for (long key=0; key<10000; key++) {
+			cache.put(key, "VALUE"+key);
+			// The wrapped cache evicts the value behind the back of the loading cache
+			cache.getWrapped().remove(key);
+		}
+		assertTrue(cache.getRefreshStateCount() <= 65);
+	}
+
+	@Test
+	public void testDefaultExecutor() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicBoolean virtual = new AtomicBoolean();
+		new LoadingCache<Long, String>(key -> "VALUE").getExecutor().execute(() -> {
+			virtual.set(Thread.currentThread().isVirtual());
+			latch.countDown();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(virtual.get());
+	}
+
+	@Test
+	public void testStats() throws Exception {
+		LoadingCache<Long, String> cache = new LoadingCache<Long, String>(key -> {
+			if (key < 0) throw new IllegalArgumentException("Negative key");
+			return key == 0 ? null : "VALUE"+key;
+		});
+		cache.setStatsCounter(new ConcurrentStatsCounter());
+		cache.getOrLoad(1L);
+		cache.getOrLoad(1L);
+		cache.getOrLoad(0L);
+		assertThrows(CacheLoaderException.class, () -> cache.getOrLoad(-1L));
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(3, stats.getMissCount());
+		assertEquals(1, stats.getLoadSuccessCount());
+		assertEquals(2, stats.getLoadFailureCount());
+		long histogram[] = stats.getLoadLatencyHistogram();
+		long total = 0;
+		for (long count : histogram) total += count;
+		assertEquals(3, total);
+		assertTrue(stats.getLoadLatencyPercentile(99d) >= 0);
+	}
+
+}
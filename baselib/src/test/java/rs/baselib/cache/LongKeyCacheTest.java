@@ -0,0 +1,111 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.LongKeyCache}.
+ * @author ralph
+ *
+ */
+public class LongKeyCacheTest {
+
+	@Test
+	public void testPutAndGet() {
+		LongKeyCache<String> cache = new LongKeyCache<String>();
+		assertNull(cache.put(1L, "ONE"));
+		assertEquals("ONE", cache.put(1L, "EINS"));
+		assertEquals("EINS", cache.get(1L));
+		assertEquals("EINS", cache.get(Long.valueOf(1L)));
+		assertNull(cache.get(Integer.valueOf(1)));
+		assertTrue(cache.containsKey(1L));
+		assertTrue(cache.containsValue("EINS"));
+		assertFalse(cache.containsKey(2L));
+		assertEquals(1, cache.size());
+		assertEquals("EINS", cache.remove(1L));
+		assertTrue(cache.isEmpty());
+		cache.put(Long.MIN_VALUE, "MIN");
+		cache.put(0L, "ZERO");
+		assertEquals("MIN", cache.get(Long.MIN_VALUE));
+		assertEquals("ZERO", cache.get(0L));
+	}
+
+	@Test
+	public void testRandomOperations() {
+		LongKeyCache<String> cache = new LongKeyCache<String>();
+		Map<Long, String> expected = new HashMap<Long, String>();
+		Random random = new Random(42);
+		for (int i=0; i<200000; i++) {
+			long key = random.nextInt(5000) * 1024L;
+			switch (random.nextInt(3)) {
+			case 0:
+				assertEquals(expected.put(key, "V"+i), cache.put(key, "V"+i));
+				break;
+			case 1:
+				assertEquals(expected.remove(key), cache.remove(key));
+				break;
+			default:
+				assertEquals(expected.get(key), cache.get(key));
+			}
+		}
+		assertEquals(expected.size(), cache.size());
+		assertEquals(expected.keySet(), cache.keySet());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testBounded() {
+		LongKeyCache<String> cache = new LongKeyCache<String>(ReferenceType.STRONG, 100);
+		cache.setStatsCounter(new ConcurrentStatsCounter());
+		for (long i=0; i<1000; i++) {
+			cache.put(i, "V"+i);
+			// Keep the first key hot
+			cache.get(0L);
+		}
+		assertEquals(100, cache.size());
+		assertEquals("V0", cache.get(0L));
+		assertEquals("V999", cache.get(999L));
+		assertEquals(900, cache.getStats().getEvictionCount(RemovalCause.SIZE));
+	}
+
+	@Test
+	public void testWeak() throws Exception {
+		LongKeyCache<Object> cache = new LongKeyCache<Object>(ReferenceType.WEAK);
+		Object value = new Object();
+		cache.put(1L, value);
+		for (long i=2; i<100; i++) cache.put(i, new Object());
+		long start = System.currentTimeMillis();
+		while ((cache.size() > 1) && (System.currentTimeMillis() - start < 10000L)) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+		assertEquals(1, cache.size());
+		assertTrue(cache.get(1L) == value);
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.MappedFileCache}.
+ * @author ralph
+ *
+ */
+public class MappedFileCacheTest {
+
+	private File directory;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("mappedcache").toFile();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		File files[] = directory.listFiles();
+		if (files != null) for (File file : files) file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testPutAndGet() throws IOException {
+		try (MappedFileCache<String, String> cache = new MappedFileCache<String, String>(directory, Serializers.STRING, Serializers.STRING, 1024*1024, 64*1024)) {
+			assertNull(cache.put("one", "ONE"));
+			assertEquals("ONE", cache.put("one", "EINS"));
+			assertEquals("EINS", cache.get("one"));
+			assertTrue(cache.containsKey("one"));
+			assertTrue(cache.containsValue("EINS"));
+			assertFalse(cache.containsKey("two"));
+			assertNull(cache.get(Long.valueOf(1)));
+			assertEquals(1, cache.size());
+			assertEquals("EINS", cache.remove("one"));
+			assertTrue(cache.isEmpty());
+			assertThrows(IllegalArgumentException.class, () -> cache.put("large", new String(new byte[70000])));
+		}
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		MappedFileCache<Long, String> cache = new MappedFileCache<Long, String>(directory, Serializers.LONG, Serializers.STRING, 1024*1024, 64*1024);
+		for (long i=0; i<1000; i++) cache.put(i, "V"+i);
+		cache.remove(5L);
+		cache.put(7L, "SEVEN");
+		cache.close();
+		assertThrows(IllegalStateException.class, () -> cache.get(1L));
+
+		try (MappedFileCache<Long, String> reopened = new MappedFileCache<Long, String>(directory, Serializers.LONG, Serializers.STRING, 1024*1024, 64*1024)) {
+			assertEquals(999, reopened.size());
+			assertEquals("V1", reopened.get(1L));
+			assertNull(reopened.get(5L));
+			assertEquals("SEVEN", reopened.get(7L));
+			assertEquals("V999", reopened.get(999L));
+		}
+	}
+
+	@Test
+	public void testCorruptedRecord() throws IOException {
+		MappedFileCache<Long, String> cache = new MappedFileCache<Long, String>(directory, Serializers.LONG, Serializers.STRING, 1024*1024, 64*1024);
+		cache.put(1L, "ONE");
+		cache.put(2L, "TWO");
+		cache.close();
+		// Damage the value of the last record
+		File segment = directory.listFiles()[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			int first = 16 + 8 + 3;
+			file.seek(first + 16 + 8);
+			file.write('X');
+		}
+
+		try (MappedFileCache<Long, String> reopened = new MappedFileCache<Long, String>(directory, Serializers.LONG, Serializers.STRING, 1024*1024, 64*1024)) {
+			assertEquals("ONE", reopened.get(1L));
+			assertNull(reopened.get(2L));
+			reopened.put(3L, "THREE");
+		}
+		try (MappedFileCache<Long, String> reopened = new MappedFileCache<Long, String>(directory, Serializers.LONG, Serializers.STRING, 1024*1024, 64*1024)) {
+			assertEquals(2, reopened.size());
+			assertEquals("THREE", reopened.get(3L));
+		}
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		try (MappedFileCache<Long, byte[]> cache = new MappedFileCache<Long, byte[]>(directory, Serializers.LONG, Serializers.BYTE_ARRAY, 1024*1024, 16*1024)) {
+			byte value[] = new byte[1000];
+			for (int i=0; i<1000; i++) {
+				value[0] = (byte)i;
+				cache.put((long)(i % 10), value);
+			}
+			assertEquals(10, cache.size());
+			assertTrue(cache.getDiskBytes() < 1024*1024);
+			assertTrue(cache.getGarbageBytes() <= cache.getDiskBytes());
+			for (long i=0; i<10; i++) assertEquals((byte)(990+i), cache.get(i)[0]);
+		}
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		try (MappedFileCache<Long, byte[]> cache = new MappedFileCache<Long, byte[]>(directory, Serializers.LONG, Serializers.BYTE_ARRAY, 64*1024, 16*1024)) {
+			byte value[] = new byte[1000];
+			for (long i=0; i<1000; i++) {
+				value[0] = (byte)i;
+				cache.put(i, value);
+			}
+			assertEquals(64*1024, cache.getDiskBytes());
+			assertTrue(cache.size() < 64);
+			assertEquals((byte)999, cache.get(999L)[0]);
+			assertNull(cache.get(0L));
+			assertEquals(cache.size(), cache.keySet().size());
+			assertEquals(cache.size(), cache.values().size());
+		}
+	}
+
+	@Test
+	public void testRandomOperations() throws IOException {
+		Map<Long, String> expected = new HashMap<Long, String>();
+		try (MappedFileCache<Long, String> cache = new MappedFileCache<Long, String>(directory, Serializers.LONG, Serializers.STRING, 16*1024*1024, 256*1024)) {
+			Random random = new Random(42);
+			for (int i=0; i<100000; i++) {
+				long key = random.nextInt(5000);
+				switch (random.nextInt(3)) {
+				case 0:
+					assertEquals(expected.put(key, "V"+i), cache.put(key, "V"+i));
+					break;
+				case 1:
+					assertEquals(expected.remove(key), cache.remove(key));
+					break;
+				default:
+					assertEquals(expected.get(key), cache.get(key));
+				}
+			}
+			assertEquals(expected.size(), cache.size());
+			assertEquals(expected.keySet(), cache.keySet());
+		}
+		try (MappedFileCache<Long, String> cache = new MappedFileCache<Long, String>(directory, Serializers.LONG, Serializers.STRING, 16*1024*1024, 256*1024)) {
+			assertEquals(expected.size(), cache.size());
+			for (Map.Entry<Long, String> entry : expected.entrySet()) assertEquals(entry.getValue(), cache.get(entry.getKey()));
+			cache.clear();
+			assertEquals(0, cache.size());
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.NegativeLookupCache}.
+ * @author ralph
+ *
+ */
+public class NegativeLookupCacheTest {
+
+	@Test
+	public void testFilter() throws Exception {
+		AtomicInteger loads = new AtomicInteger(0);
+		LoadingCache<String,String> loading = new LoadingCache<String,String>(new SoftMapCache<String,String>(), key -> {
+			loads.incrementAndGet();
+			return key.startsWith("known") ? key.toUpperCase() : null;
+		});
+		NegativeLookupCache<String,String> cache = new NegativeLookupCache<String,String>(loading, 100, 0.001d);
+		for (int i=0; i<100; i++) cache.registerKey("known"+i);
+		cache.setKeysComplete(true);
+
+		assertEquals("KNOWN5", cache.getOrLoad("known5"));
+		assertEquals(1, loads.get());
+		for (int i=0; i<100; i++) assertNull(cache.getOrLoad("unknown"+i));
+		assertTrue(loads.get() < 5);
+		assertTrue(cache.getDefiniteMissCount() > 95);
+
+		cache.unregisterKey("known5");
+		assertFalse(cache.containsKey("known5"));
+		assertNull(cache.get("known5"));
+	}
+
+	@Test
+	public void testMisses() throws Exception {
+		AtomicInteger loads = new AtomicInteger(0);
+		LoadingCache<String,String> loading = new LoadingCache<String,String>(new SoftMapCache<String,String>(), key -> {
+			loads.incrementAndGet();
+			return key.startsWith("known") ? key.toUpperCase() : null;
+		});
+		long time[] = new long[] { 0L };
+		NegativeLookupCache<String,String> cache = new NegativeLookupCache<String,String>(loading);
+		cache.setTicker(() -> time[0]);
+		cache.setMissTtl(10, TimeUnit.SECONDS);
+		cache.setMaximumMisses(2);
+
+		assertNull(cache.getOrLoad("a"));
+		assertNull(cache.getOrLoad("a"));
+		assertEquals(1, loads.get());
+		assertTrue(cache.isDefiniteMiss("a"));
+
+		// Expiry
+		time[0] += TimeUnit.SECONDS.toNanos(11);
+		assertFalse(cache.isDefiniteMiss("a"));
+		assertNull(cache.getOrLoad("a"));
+		assertEquals(2, loads.get());
+
+		// Bounded set
+		assertNull(cache.getOrLoad("b"));
+		assertNull(cache.getOrLoad("c"));
+		assertFalse(cache.isDefiniteMiss("a"));
+		assertTrue(cache.isDefiniteMiss("c"));
+
+		// A put makes the key known
+		cache.put("c", "C");
+		assertFalse(cache.isDefiniteMiss("c"));
+		assertEquals("C", cache.get("c"));
+	}
+
+	@Test
+	public void testGetAll() throws Exception {
+		LoadingCache<String,String> loading = new LoadingCache<String,String>(new SoftMapCache<String,String>(), key -> key.startsWith("known") ? key.toUpperCase() : null);
+		NegativeLookupCache<String,String> cache = new NegativeLookupCache<String,String>(loading);
+		cache.registerKeys(Arrays.asList("known1", "known2"));
+		cache.setKeysComplete(true);
+		Map<String,String> values = cache.getAll(Arrays.asList("known1", "unknown", "known2"));
+		assertEquals(2, values.size());
+		assertEquals("KNOWN2", values.get("known2"));
+		assertEquals(1, cache.getDefiniteMissCount());
+	}
+
+	@Test
+	public void testCollidingKeys() throws Exception {
+		NegativeLookupCache<Object,String> cache = new NegativeLookupCache<Object,String>(new SoftMapCache<Object,String>());
+		cache.setKeysComplete(true);
+		// Same hashCode()
+		cache.put("Aa", "1");
+		cache.put("BB", "2");
+		cache.unregisterKey("Aa");
+		assertFalse(cache.isDefiniteMiss("BB"));
+		assertEquals("2", cache.get("BB"));
+		// Same 64-bit hash
+		CollidingKey key1 = new CollidingKey(1);
+		CollidingKey key2 = new CollidingKey(2);
+		cache.put(key1, "1");
+		cache.put(key2, "2");
+		cache.put(key2, "3");
+		cache.unregisterKey(key1);
+		assertFalse(cache.isDefiniteMiss(key2));
+		assertEquals("3", cache.get(key2));
+		cache.unregisterKey(key2);
+		assertTrue(cache.isDefiniteMiss(key2));
+	}
+
+	private static class CollidingKey {
+		private int id;
+
+		public CollidingKey(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof CollidingKey) && (((CollidingKey)obj).id == id);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.OffHeapCache}.
+ * @author ralph
+ *
+ */
+public class OffHeapCacheTest {
+
+	@Test
+	public void testPutAndGet() {
+		OffHeapCache<String, String> cache = new OffHeapCache<String, String>(Serializers.STRING, Serializers.STRING, 1024*1024);
+		assertNull(cache.put("one", "ONE"));
+		assertEquals("ONE", cache.put("one", "EINS"));
+		assertEquals("EINS", cache.get("one"));
+		assertTrue(cache.containsKey("one"));
+		assertTrue(cache.containsValue("EINS"));
+		assertFalse(cache.containsKey("two"));
+		assertNull(cache.get(Long.valueOf(1)));
+		assertEquals(1, cache.size());
+		assertEquals("EINS", cache.remove("one"));
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testEviction() {
+		OffHeapCache<Long, byte[]> cache = new OffHeapCache<Long, byte[]>(Serializers.LONG, Serializers.BYTE_ARRAY, 64*1024, 16*1024);
+		byte value[] = new byte[1000];
+		for (long i=0; i<1000; i++) {
+			value[0] = (byte)i;
+			cache.put(i, value);
+		}
+		assertEquals(64*1024, cache.getAllocatedBytes());
+		assertTrue(cache.size() < 64);
+		assertTrue(cache.size() > 40);
+		// The newest entries survive
+		assertEquals((byte)999, cache.get(999L)[0]);
+		assertNull(cache.get(0L));
+		assertEquals(cache.size(), cache.keySet().size());
+		assertEquals(cache.size(), cache.values().size());
+	}
+
+	@Test
+	public void testEntryTooLarge() {
+		OffHeapCache<Long, byte[]> cache = new OffHeapCache<Long, byte[]>(Serializers.LONG, Serializers.BYTE_ARRAY, 1024, 1024);
+		assertThrows(IllegalArgumentException.class, () -> cache.put(1L, new byte[2000]));
+	}
+
+	@Test
+	public void testRandomOperations() {
+		OffHeapCache<Long, String> cache = new OffHeapCache<Long, String>(Serializers.LONG, Serializers.STRING, 16*1024*1024);
+		Map<Long, String> expected = new HashMap<Long, String>();
+		Random random = new Random(42);
+		for (int i=0; i<100000; i++) {
+			long key = random.nextInt(5000);
+			switch (random.nextInt(3)) {
+			case 0:
+				assertEquals(expected.put(key, "V"+i), cache.put(key, "V"+i));
+				break;
+			case 1:
+				assertEquals(expected.remove(key), cache.remove(key));
+				break;
+			default:
+				assertEquals(expected.get(key), cache.get(key));
+			}
+		}
+		assertEquals(expected.size(), cache.size());
+		assertEquals(expected.keySet(), cache.keySet());
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(1L));
+	}
+}
@@ -18,9 +18,11 @@
 package rs.baselib.cache;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -106,6 +108,32 @@ public class SoftMapCacheTest {
 		Set<Long> keySet = cache.keySet();
 		assertEquals(1, keySet.size());
 		assertTrue(keySet.contains(1L));
+
+		// The set is backed by the cache
+		cache.put(2L, testValue);
+		assertEquals(2, keySet.size());
+		assertTrue(keySet.remove(1L));
+		assertFalse(cache.containsKey(1L));
+		Iterator<Long> i = keySet.iterator();
+		assertEquals(Long.valueOf(2L), i.next());
+		i.remove();
+		assertTrue(cache.isEmpty());
+		assertTrue(keySet.isEmpty());
+	}
+
+	@Test
+	public void testClearMap() {
+		String testValue = "TEST_VALUE";
+		SoftMapCache<Long, Object> subclass = new SoftMapCache<Long, Object>() {
+			@Override
+			public synchronized Object get(Object key) {
+				clearMap();
+				return super.get(key);
+			}
+		};
+		subclass.put(1L, testValue);
+		assertEquals(testValue, subclass.get(1L));
+		assertEquals(0L, subclass.getPurgedCount());
 	}
 
 	@Test
@@ -0,0 +1,100 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link rs.baselib.cache.TieredCache}.
+ * @author ralph
+ *
+ */
+public class TieredCacheTest {
+
+	@Test
+	public void testWriteThrough() {
+		BoundedCache<Long, String> l1 = new BoundedCache<Long, String>(2, EvictionPolicy.LRU);
+		OffHeapCache<Long, String> l2 = new OffHeapCache<Long, String>(Serializers.LONG, Serializers.STRING, 1024*1024);
+		TieredCache<Long, String> cache = new TieredCache<Long, String>(l1, l2);
+		assertTrue(cache.isDemotionSupported());
+		for (long i=0; i<10; i++) cache.put(i, "VALUE"+i);
+		assertEquals(2, l1.size());
+		assertEquals(10, l2.size());
+		assertEquals(10, cache.size());
+
+		// L1 hit
+		assertEquals("VALUE9", cache.get(9L));
+		// L2 hit and promotion
+		assertEquals("VALUE0", cache.get(0L));
+		assertTrue(l1.containsKey(0L));
+		// Miss
+		assertNull(cache.get(100L));
+		assertEquals(1, cache.getL1HitCount());
+		assertEquals(1, cache.getL2HitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1d/3d, cache.getL1HitRatio(), 0.0001d);
+		assertEquals(0.5d, cache.getL2HitRatio(), 0.0001d);
+
+		assertEquals("VALUE0", cache.remove(0L));
+		assertFalse(l1.containsKey(0L));
+		assertFalse(l2.containsKey(0L));
+		assertFalse(cache.containsKey(0L));
+		cache.clear();
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testDemotion() {
+		BoundedCache<Long, String> l1 = new BoundedCache<Long, String>(2, EvictionPolicy.LRU);
+		BoundedCache<Long, String> l2 = new BoundedCache<Long, String>(100);
+		TieredCache<Long, String> cache = new TieredCache<Long, String>(l1, l2, WriteMode.WRITE_BEHIND);
+		cache.setWriteBehindDelay(1, TimeUnit.HOURS);
+		cache.put(1L, "ONE");
+		cache.put(2L, "TWO");
+		assertEquals(0, l2.size());
+		// Evicts 1 from L1 which must be demoted
+		cache.put(3L, "THREE");
+		assertEquals("ONE", l2.get(1L));
+		assertFalse(l2.containsKey(3L));
+		assertEquals("THREE", cache.get(3L));
+		cache.close();
+		assertEquals(3, l2.size());
+		assertEquals("THREE", l2.get(3L));
+	}
+
+	@Test
+	public void testWriteBehind() throws Exception {
+		BoundedCache<Long, String> l1 = new BoundedCache<Long, String>(100);
+		BoundedCache<Long, String> l2 = new BoundedCache<Long, String>(100);
+		TieredCache<Long, String> cache = new TieredCache<Long, String>(l1, l2, WriteMode.WRITE_BEHIND);
+		cache.setWriteBehindDelay(10, TimeUnit.MILLISECONDS);
+		cache.put(1L, "ONE");
+		cache.put(1L, "EINS");
+		long start = System.currentTimeMillis();
+		while (!l2.containsKey(1L) && (System.currentTimeMillis() - start < 5000L)) Thread.sleep(5L);
+		assertEquals("EINS", l2.get(1L));
+		cache.close();
+	}
+}
@@ -18,9 +18,11 @@
 package rs.baselib.cache;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -105,6 +107,32 @@ public class WeakMapCacheTest {
 		Set<Long> keySet = cache.keySet();
 		assertEquals(1, keySet.size());
 		assertTrue(keySet.contains(1L));
+
+		// The set is backed by the cache
+		cache.put(2L, testValue);
+		assertEquals(2, keySet.size());
+		assertTrue(keySet.remove(1L));
+		assertFalse(cache.containsKey(1L));
+		Iterator<Long> i = keySet.iterator();
+		assertEquals(Long.valueOf(2L), i.next());
+		i.remove();
+		assertTrue(cache.isEmpty());
+		assertTrue(keySet.isEmpty());
+	}
+
+	@Test
+	public void testClearMap() {
+		String testValue = "TEST_VALUE";
+		WeakMapCache<Long, Object> subclass = new WeakMapCache<Long, Object>() {
+			@Override
+			public synchronized Object get(Object key) {
+				clearMap();
+				return super.get(key);
+			}
+		};
+		subclass.put(1L, testValue);
+		assertEquals(testValue, subclass.get(1L));
+		assertEquals(0L, subclass.getPurgedCount());
 	}
 
 	@Test
@@ -116,4 +144,33 @@ public class WeakMapCacheTest {
 		assertTrue(valueSet.contains(testValue));
 	}
 
+	@Test
+	public void testPurge() throws Exception {
+		for (long i=0; i<100; i++) cache.put(i, new Object());
+		long start = System.currentTimeMillis();
+		while ((cache.size() > 0) && (System.currentTimeMillis() - start < 10000L)) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+		assertEquals(0, cache.size());
+		assertEquals(100L, cache.getPurgedCount());
+		assertTrue(ReferenceCleaner.getInstance().getPurgedCount() >= 100L);
+	}
+
+	@Test
+	public void testReplacedNotPurged() throws Exception {
+		String testValue = "TEST_VALUE";
+		for (long i=0; i<100; i++) {
+			cache.put(i, new Object());
+			// The cleared reference of the old value must not remove the new mapping
+			cache.put(i, testValue);
+		}
+		for (int i=0; i<10; i++) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+		assertEquals(100, cache.size());
+		assertEquals(0L, cache.getPurgedCount());
+	}
+
 }
@@ -2,13 +2,23 @@ package rs.baselib.collection;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 
@@ -35,6 +45,208 @@ public class SyncUtilsTest {
 		assertTrue(helper.removed.contains("one"));
 	}
 	
+	@Test
+	public void testSyncByKey() throws Exception {
+		List<String> existing  = new ArrayList<>(Arrays.asList("1:one", "2:two", "3:three", "3:three"));
+		List<String> newValues = Arrays.asList("2:two", "3:drei", "4:four");
+		KeyedSyncTestHelper helper = new KeyedSyncTestHelper();
+		SyncResult<String> result = helper.syncByKey(existing, newValues);
+		assertEquals(newValues, result.getCollection());
+		assertEquals(Arrays.asList("4:four"), result.getAdded());
+		assertEquals(Arrays.asList("3:drei"), result.getUpdated());
+		assertEquals(Arrays.asList("1:one", "3:three"), result.getRemoved());
+		assertEquals(1, result.getUnchangedCount());
+		assertTrue(result.hasChanges());
+		assertEquals(Arrays.asList("3:three->3:drei"), helper.updates);
+	}
+	
+	@Test
+	public void testSyncByKeyLarge() throws Exception {
+		List<String> existing  = new ArrayList<>();
+		List<String> newValues = new ArrayList<>();
+		for (int i=0; i<50000; i++) existing.add(i+":"+i);
+		for (int i=25000; i<75000; i++) newValues.add(i+":"+(i % 10 == 0 ? "x" : ""+i));
+		SyncResult<String> result = SyncUtils.syncByKey(existing, newValues, v -> v.substring(0, v.indexOf(':')), v -> v, (o,n) -> n, v -> v);
+		assertEquals(50000, result.getCollection().size());
+		assertEquals(25000, result.getAdded().size());
+		assertEquals(2500, result.getUpdated().size());
+		assertEquals(25000, result.getRemoved().size());
+		assertEquals(22500, result.getUnchangedCount());
+	}
+	
+	@Test
+	public void testSyncBatched() throws Exception {
+		List<Integer> existing  = new ArrayList<>();
+		List<Integer> newValues = new ArrayList<>();
+		for (int i=0; i<1000; i++) existing.add(i);
+		for (int i=500; i<1500; i++) newValues.add(i);
+		BatchSyncTestHelper helper = new BatchSyncTestHelper(null);
+		Collection<Integer> synced = helper.sync(existing, newValues);
+		assertEquals(newValues, synced);
+		assertEquals(Arrays.asList(200, 200, 100), helper.addBatchSizes);
+		assertEquals(Arrays.asList(200, 200, 100), helper.removeBatchSizes);
+		assertEquals(500, helper.added.size());
+		assertEquals(500, helper.removed.size());
+	}
+	
+	@Test
+	public void testSyncBatchedByKey() throws Exception {
+		List<String> existing  = new ArrayList<>(Arrays.asList("1:one", "2:two", "3:three"));
+		List<String> newValues = Arrays.asList("2:zwei", "3:three", "4:four");
+		List<String> added     = new ArrayList<>();
+		List<String> removed   = new ArrayList<>();
+		Collection<String> synced = SyncUtils.syncBatched(existing, newValues, v -> v.substring(0, v.indexOf(':')), 
+				v -> { added.addAll(v); return v; }, removed::addAll, 10, null);
+		assertEquals(newValues, synced);
+		assertEquals(Arrays.asList("4:four"), added);
+		assertEquals(Arrays.asList("1:one"), removed);
+	}
+	
+	@Test
+	public void testSyncBatchedLarge() throws Exception {
+		List<Integer> existing  = new ArrayList<>();
+		List<Integer> newValues = new ArrayList<>();
+		for (int i=0; i<200000; i++) existing.add(i);
+		for (int i=100000; i<300000; i++) newValues.add(i);
+		BatchSyncTestHelper helper = new BatchSyncTestHelper(null);
+		Collection<Integer> synced = helper.sync(existing, newValues);
+		assertEquals(newValues, synced);
+		assertEquals(100000, helper.added.size());
+		assertEquals(100000, helper.removed.size());
+	}
+	
+	@Test
+	public void testSyncBatchedParallel() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Set<Integer> existing  = new HashSet<>();
+			Set<Integer> newValues = new HashSet<>();
+			for (int i=0; i<10000; i++) existing.add(i);
+			for (int i=5000; i<15000; i++) newValues.add(i);
+			BatchSyncTestHelper helper = new BatchSyncTestHelper(executor);
+			Collection<Integer> synced = helper.sync(existing, newValues);
+			assertEquals(newValues, synced);
+			assertEquals(25, helper.addBatchSizes.size());
+			assertEquals(5000, helper.added.size());
+			assertEquals(5000, helper.removed.size());
+			
+			helper.fail = true;
+			assertThrows(SyncException.class, () -> helper.sync(existing, newValues));
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testSyncSorted() throws Exception {
+		Comparator<String> byKey = Comparator.comparing(v -> v.substring(0, v.indexOf(':')));
+		List<String> added   = new ArrayList<>();
+		List<String> updated = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		SyncCounts counts = SyncUtils.syncSorted(
+				Stream.of("a:1", "b:2", "d:4", "e:5"),
+				Stream.of("b:2", "c:3", "d:40", "f:6"),
+				byKey, added::add, (o,n) -> updated.add(o+"->"+n), removed::add);
+		assertEquals(Arrays.asList("c:3", "f:6"), added);
+		assertEquals(Arrays.asList("d:4->d:40"), updated);
+		assertEquals(Arrays.asList("a:1", "e:5"), removed);
+		assertEquals(1, counts.getUnchanged());
+		assertTrue(counts.hasChanges());
+		
+		assertThrows(SyncException.class, () -> SyncUtils.syncSorted(
+				Stream.of("a:1"), Stream.of("c:3", "b:2"), byKey, v -> {}, (o,n) -> {}, v -> {}));
+	}
+	
+	@Test
+	public void testSyncSortedLarge() throws Exception {
+		long removed[] = new long[1];
+		SyncCounts counts = SyncUtils.syncSorted(
+				IntStream.range(0, 1000000).boxed(),
+				IntStream.range(500000, 1500000).boxed(),
+				Comparator.naturalOrder(), v -> {}, (o,n) -> {}, v -> removed[0]++);
+		assertEquals(500000, counts.getAdded());
+		assertEquals(500000, counts.getRemoved());
+		assertEquals(500000, counts.getUnchanged());
+		assertEquals(500000, removed[0]);
+	}
+	
+	@Test
+	public void testSyncBatchedParallelFailure() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Integer> newValues = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+			Throwable failure = new Throwable("Odd failure");
+			SyncException e = assertThrows(SyncException.class, () -> SyncUtils.syncBatched(new ArrayList<Integer>(), newValues, (c,v) -> false, 
+					batch -> { if (batch.contains(500)) sneakyThrow(failure); return batch; }, batch -> {}, 100, executor));
+			assertSame(failure, e.getCause().getCause());
+			Error error = new AssertionError("Batch error");
+			e = assertThrows(SyncException.class, () -> SyncUtils.syncBatched(new ArrayList<Integer>(), newValues, (c,v) -> false, 
+					batch -> { if (batch.contains(500)) throw error; return batch; }, batch -> {}, 100, executor));
+			assertSame(error, e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <X extends Throwable> void sneakyThrow(Throwable t) throws X {
+		throw (X)t;
+	}
+	
+	protected static class BatchSyncTestHelper implements BatchSyncHelper<Integer> {
+		public List<Integer> addBatchSizes    = new ArrayList<>();
+		public List<Integer> removeBatchSizes = new ArrayList<>();
+		public Set<Integer>  added            = new HashSet<>();
+		public Set<Integer>  removed          = new HashSet<>();
+		public boolean       fail             = false;
+		private Executor executor;
+		
+		public BatchSyncTestHelper(Executor executor) {
+			this.executor = executor;
+		}
+		
+		@Override
+		public int getBatchSize() {
+			return 200;
+		}
+		
+		@Override
+		public Executor getExecutor() {
+			return executor;
+		}
+		
+		@Override
+		public List<Integer> addAll(List<Integer> values) throws Exception {
+			if (fail) throw new Exception("Add failed");
+			synchronized (this) {
+				addBatchSizes.add(values.size());
+				added.addAll(values);
+			}
+			return values;
+		}
+		
+		@Override
+		public synchronized void removeAll(List<Integer> values) {
+			removeBatchSizes.add(values.size());
+			removed.addAll(values);
+		}
+	}
+	
+	protected static class KeyedSyncTestHelper implements KeyedSyncHelper<String,String> {
+		public List<String> updates = new ArrayList<>();
+		
+		@Override
+		public String getKey(String value) {
+			return value.substring(0, value.indexOf(':'));
+		}
+
+		@Override
+		public String update(String oldValue, String newValue) {
+			updates.add(oldValue+"->"+newValue);
+			return newValue;
+		}
+	}
+	
 	protected static class SyncTestHelper extends AbstractSyncHelper<String> {
 		public Set<String> added   = new HashSet<>();
 		public Set<String> removed = new HashSet<>();
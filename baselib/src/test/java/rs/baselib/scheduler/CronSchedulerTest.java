@@ -0,0 +1,302 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import rs.baselib.util.CompiledCronSchedule;
+import rs.baselib.util.CronSchedule;
+
+/**
+ * Tests the {@link CronScheduler}.
+ * @author ralph
+ *
+ */
+public class CronSchedulerTest {
+
+	private static final long MINUTE = 60000L;
+
+	@Test
+	public void testRun() throws Exception {
+		TestClock clock = new TestClock(100L);
+		CountDownLatch latch = new CountDownLatch(1);
+		try (CronScheduler scheduler = new CronScheduler(Runnable::run, clock)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *"), latch::countDown);
+			long fireTime = job.getNextFireTime();
+			assertEquals(0L, fireTime % MINUTE);
+			assertSame(job, scheduler.getJob("job"));
+			assertEquals(Integer.valueOf(1), Integer.valueOf(scheduler.getJobs().size()));
+			scheduler.start();
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			waitFor(() -> job.getRunCount() == 1);
+			assertEquals(fireTime, job.getLastFireTime());
+			assertEquals(fireTime + MINUTE, job.getNextFireTime());
+			assertEquals(0L, job.getMisfireCount());
+			assertTrue(job.getMaxLatency(TimeUnit.MILLISECONDS) < CronScheduler.DEFAULT_MISFIRE_THRESHOLD);
+		}
+	}
+
+	@Test
+	public void testDuplicateName() {
+		try (CronScheduler scheduler = new CronScheduler(Runnable::run)) {
+			scheduler.schedule("job", new CronSchedule("* * * * *"), () -> {});
+			assertThrows(IllegalStateException.class, () -> scheduler.schedule("job", new CronSchedule("0 * * * *"), () -> {}));
+		}
+	}
+
+	@Test
+	public void testCancel() {
+		try (CronScheduler scheduler = new CronScheduler(Runnable::run)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *"), () -> {});
+			job.cancel();
+			assertTrue(job.isCancelled());
+			assertEquals(-1L, job.getNextFireTime());
+			assertNull(scheduler.getJob("job"));
+			job.trigger(0L);
+			assertEquals(0L, job.getRunCount());
+		}
+	}
+
+	@Test
+	public void testNever() {
+		try (CronScheduler scheduler = new CronScheduler(Runnable::run)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("NEVER"), () -> {});
+			assertEquals(-1L, job.getNextFireTime());
+		}
+	}
+
+	@Test
+	public void testMisfireIgnore() throws Exception {
+		ScheduledJob job = runMisfire(MisfirePolicy.IGNORE);
+		assertEquals(1L, job.getRunCount());
+		assertEquals(1L, job.getMisfireCount());
+	}
+
+	@Test
+	public void testMisfireFireOnce() throws Exception {
+		ScheduledJob job = runMisfire(MisfirePolicy.FIRE_ONCE);
+		assertEquals(2L, job.getRunCount());
+		assertEquals(1L, job.getMisfireCount());
+	}
+
+	@Test
+	public void testMisfireFireAll() throws Exception {
+		ScheduledJob job = runMisfire(MisfirePolicy.FIRE_ALL);
+		assertEquals(11L, job.getRunCount());
+		assertEquals(10L, job.getMisfireCount());
+	}
+
+	@Test
+	public void testMisfireFireAllLongSuspension() {
+		Clock clock = Clock.fixed(Instant.parse("2025-03-01T11:59:30Z"), ZoneId.of("UTC"));
+		try (CronScheduler scheduler = new CronScheduler(Runnable::run, clock)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *").compile(), () -> {}, OverlapPolicy.CONCURRENT, MisfirePolicy.FIRE_ALL);
+			long first = job.getNextFireTime();
+			// Wake up after 5 hours
+			long now = first + 300 * MINUTE + 1000L;
+			for (int i=0; i<300; i++) {
+				assertEquals(List.of(new CronScheduler.Trigger(job, first + i * MINUTE)), scheduler.pollDueJobs(now));
+			}
+			// The last fire time is within the misfire threshold
+			assertEquals(List.of(new CronScheduler.Trigger(job, first + 300 * MINUTE)), scheduler.pollDueJobs(now));
+			assertEquals(List.of(), scheduler.pollDueJobs(now));
+			assertEquals(first + 301 * MINUTE, job.getNextFireTime());
+			assertEquals(300L, job.getMisfireCount());
+		}
+	}
+
+	/**
+	 * Schedules a minutely job, sets the clock 10 minutes forward and waits for the first regular run.
+	 * @param policy the misfire policy
+	 * @return the job
+	 */
+	private ScheduledJob runMisfire(MisfirePolicy policy) throws Exception {
+		TestClock clock = new TestClock(200L);
+		try (CronScheduler scheduler = new CronScheduler(Runnable::run, clock)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *").compile(), () -> {}, OverlapPolicy.CONCURRENT, policy);
+			long first = job.getNextFireTime();
+			clock.offset += 10 * MINUTE;
+			scheduler.start();
+			waitFor(() -> job.getNextFireTime() == first + 11 * MINUTE);
+			assertEquals(first + 10 * MINUTE, job.getLastFireTime());
+			return job;
+		}
+	}
+
+	@Test
+	public void testDaylightSavingOverlap() {
+		// Clocks go back from 03:00 CEST to 02:00 CET on 26 October 2025
+		long start = Instant.parse("2025-10-25T23:00:00Z").toEpochMilli();
+		Clock clock = Clock.fixed(Instant.ofEpochMilli(start - 1000L), ZoneId.of("UTC"));
+		try (CronScheduler scheduler = new CronScheduler(Runnable::run, clock)) {
+			CompiledCronSchedule schedule = new CronSchedule("* * * * *").compile(ZoneId.of("Europe/Berlin"));
+			ScheduledJob job = scheduler.schedule("job", schedule, () -> {}, OverlapPolicy.SKIP, MisfirePolicy.FIRE_ONCE);
+			for (int i=0; i<240; i++) {
+				long fireTime = job.getNextFireTime();
+				assertEquals(start + i * MINUTE, fireTime);
+				List<CronScheduler.Trigger> triggers = scheduler.pollDueJobs(fireTime);
+				assertEquals(List.of(new CronScheduler.Trigger(job, fireTime)), triggers);
+			}
+		}
+	}
+
+	@Test
+	public void testOverlapSkip() {
+		List<Runnable> runs = new ArrayList<Runnable>();
+		try (CronScheduler scheduler = new CronScheduler(runs::add)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *").compile(), () -> {}, OverlapPolicy.SKIP, MisfirePolicy.FIRE_ONCE);
+			job.trigger(0L);
+			job.trigger(MINUTE);
+			assertEquals(Integer.valueOf(1), Integer.valueOf(runs.size()));
+			assertEquals(1L, job.getSkipCount());
+			runs.get(0).run();
+			assertEquals(Integer.valueOf(0), Integer.valueOf(job.getRunningCount()));
+			job.trigger(2 * MINUTE);
+			assertEquals(Integer.valueOf(2), Integer.valueOf(runs.size()));
+		}
+	}
+
+	@Test
+	public void testOverlapQueue() {
+		List<Runnable> runs = new ArrayList<Runnable>();
+		AtomicInteger counter = new AtomicInteger(0);
+		try (CronScheduler scheduler = new CronScheduler(runs::add)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *").compile(), counter::incrementAndGet, OverlapPolicy.QUEUE, MisfirePolicy.FIRE_ONCE);
+			job.trigger(0L);
+			job.trigger(MINUTE);
+			job.trigger(2 * MINUTE);
+			assertEquals(Integer.valueOf(1), Integer.valueOf(runs.size()));
+			assertEquals(Integer.valueOf(1), Integer.valueOf(job.getRunningCount()));
+			// Each finished run starts the next queued one
+			runs.get(0).run();
+			assertEquals(Integer.valueOf(2), Integer.valueOf(runs.size()));
+			runs.get(1).run();
+			runs.get(2).run();
+			assertEquals(Integer.valueOf(3), Integer.valueOf(runs.size()));
+			assertEquals(Integer.valueOf(3), Integer.valueOf(counter.get()));
+			assertEquals(Integer.valueOf(0), Integer.valueOf(job.getRunningCount()));
+			assertEquals(0L, job.getSkipCount());
+		}
+	}
+
+	@Test
+	public void testOverlapQueueLimit() {
+		List<Runnable> runs = new ArrayList<Runnable>();
+		try (CronScheduler scheduler = new CronScheduler(runs::add)) {
+			scheduler.setMaximumQueuedRuns(2);
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *").compile(), () -> {}, OverlapPolicy.QUEUE, MisfirePolicy.FIRE_ONCE);
+			// A job that never finishes keeps at most two runs waiting
+			for (int i=0; i<100; i++) job.trigger(i * MINUTE);
+			assertEquals(1, runs.size());
+			assertEquals(2, job.getQueuedCount());
+			assertEquals(97L, job.getSkipCount());
+		}
+	}
+
+	@Test
+	public void testOverlapConcurrent() {
+		List<Runnable> runs = new ArrayList<Runnable>();
+		try (CronScheduler scheduler = new CronScheduler(runs::add)) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *").compile(), () -> { throw new IllegalStateException(); }, OverlapPolicy.CONCURRENT, MisfirePolicy.FIRE_ONCE);
+			job.trigger(0L);
+			job.trigger(MINUTE);
+			assertEquals(Integer.valueOf(2), Integer.valueOf(runs.size()));
+			assertEquals(Integer.valueOf(2), Integer.valueOf(job.getRunningCount()));
+			for (Runnable run : runs) run.run();
+			assertEquals(2L, job.getFailureCount());
+			assertEquals(Integer.valueOf(0), Integer.valueOf(job.getRunningCount()));
+		}
+	}
+
+	@Test
+	public void testDefaultExecutor() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		try (CronScheduler scheduler = new CronScheduler()) {
+			ScheduledJob job = scheduler.schedule("job", new CronSchedule("* * * * *"), latch::countDown);
+			job.trigger(0L);
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertFalse(scheduler.isStarted());
+		}
+	}
+
+	/**
+	 * Waits until the condition is true.
+	 * @param condition the condition
+	 */
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000L;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < end, "Timeout");
+			Thread.sleep(5L);
+		}
+	}
+
+	/**
+	 * A clock that runs with the system time shortly before a full minute.
+	 */
+	private static class TestClock extends Clock {
+
+		volatile long offset;
+
+		/**
+		 * Constructor.
+		 * @param beforeMinute milliseconds until the next full minute
+		 */
+		public TestClock(long beforeMinute) {
+			long now = System.currentTimeMillis();
+			offset = (now / MINUTE + 1) * MINUTE - beforeMinute - now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneId.systemDefault();
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public long millis() {
+			return System.currentTimeMillis() + offset;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis());
+		}
+	}
+}
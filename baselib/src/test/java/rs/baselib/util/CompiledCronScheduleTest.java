@@ -0,0 +1,100 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CompiledCronSchedule}.
+ * @author ralph
+ *
+ */
+public class CompiledCronScheduleTest {
+
+	private static final String SCHEDULES[] = new String[] {
+		"* * * * *", "*/5 */3 * * *", "0 0 1 * *", "15 10 * * 2-6", "0 12 1-7 * 2", "59 23 31 11 *", "*/7 1,13 */3 0-5 *", "0 0 29 1 *", "NEVER"
+	};
+
+	@Test
+	public void testSameResults() {
+		Random random = new Random(7);
+		for (String def : SCHEDULES) {
+			CronSchedule schedule = new CronSchedule(def);
+			CompiledCronSchedule compiled = schedule.compile();
+			for (int i=0; i<20000; i++) {
+				// Mostly whole minutes between 1990 and 2050
+				long time = 631152000000L + (long)(random.nextDouble() * 1893456000000L);
+				if (random.nextBoolean()) time = time / 60000L * 60000L;
+				assertEquals(schedule.matches(time), compiled.matches(time), def+" at "+time);
+				assertEquals(schedule.isMinute(time), compiled.isMinute(time), def+" at "+time);
+				assertEquals(schedule.isHour(time), compiled.isHour(time), def+" at "+time);
+				assertEquals(schedule.isDay(time), compiled.isDay(time), def+" at "+time);
+			}
+		}
+	}
+
+	@Test
+	public void testZone() {
+		ZoneId zone = ZoneId.of("America/New_York");
+		CompiledCronSchedule compiled = new CronSchedule("30 1 * * *").compile(zone);
+		Random random = new Random(3);
+		for (int i=0; i<20000; i++) {
+			long time = (1577836800000L + (long)(random.nextDouble() * 157680000000L)) / 60000L * 60000L;
+			ZonedDateTime local = ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), zone);
+			assertEquals(compiled.matches(local), compiled.matches(time));
+		}
+		// 01:30 occurs twice on 5 November 2023
+		ZonedDateTime first = compiled.nextExecution(ZonedDateTime.of(2023, 11, 4, 12, 0, 0, 0, zone));
+		assertTrue(compiled.matches(first.toInstant().toEpochMilli()));
+		long second = compiled.nextExecution(first.toInstant().toEpochMilli());
+		assertEquals(3600000L, second - first.toInstant().toEpochMilli());
+		assertTrue(compiled.matches(second));
+		assertFalse(compiled.matches(second + 1000L));
+	}
+
+	@Test
+	public void testDaylightSavingOverlap() {
+		// Clocks go back from 03:00 CEST to 02:00 CET on 26 October 2025
+		CompiledCronSchedule compiled = new CronSchedule("* * * * *").compile(ZoneId.of("Europe/Berlin"));
+		long start = Instant.parse("2025-10-25T23:00:00Z").toEpochMilli();
+		long time = start;
+		for (int i=1; i<=240; i++) {
+			time = compiled.nextExecution(time);
+			assertEquals(start + i * 60000L, time);
+			assertTrue(compiled.matches(time));
+		}
+		for (int i=239; i>=0; i--) {
+			time = compiled.previousExecution(time);
+			assertEquals(start + i * 60000L, time);
+		}
+	}
+
+	@Test
+	public void testEquals() {
+		assertEquals(new CronSchedule("*/5 * * * *").compile(ZoneId.of("UTC")), new CompiledCronSchedule(new CronSchedule("*/5 * * * *"), ZoneId.of("UTC")));
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CronOccurrenceSpliterator}.
+ * @author ralph
+ *
+ */
+public class CronOccurrenceSpliteratorTest {
+
+	private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+	@Test
+	public void testOccurrences() {
+		ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZONE);
+		List<ZonedDateTime> firstOfMonth = new ArrayList<ZonedDateTime>();
+		for (int month=1; month<=12; month++) firstOfMonth.add(ZonedDateTime.of(2023, month, 1, 0, 0, 0, 0, ZONE));
+		assertOccurrences(firstOfMonth, new CronSchedule("0 0 1 * *"), from, from.plusYears(1));
+
+		// Calendar days of week: 2 is Monday, 6 is Friday
+		ZonedDateTime monday = ZonedDateTime.of(2023, 6, 5, 0, 0, 0, 0, ZONE);
+		List<ZonedDateTime> workdays = new ArrayList<ZonedDateTime>();
+		for (int day=5; day<=9; day++) workdays.add(ZonedDateTime.of(2023, 6, day, 10, 15, 0, 0, ZONE));
+		assertOccurrences(workdays, new CronSchedule("15 10 * * 2-6"), monday, monday.plusWeeks(1));
+
+		// Calendar months are 0-based: 1 is February
+		List<ZonedDateTime> leapDays = List.of(
+			ZonedDateTime.of(2020, 2, 29, 0, 0, 0, 0, ZONE), ZonedDateTime.of(2024, 2, 29, 0, 0, 0, 0, ZONE), ZonedDateTime.of(2028, 2, 29, 0, 0, 0, 0, ZONE)
+		);
+		assertOccurrences(leapDays, new CronSchedule("0 0 29 1 *"), from.minusYears(3), from.plusYears(7));
+
+		assertOccurrences(List.of(), CronSchedule.NEVER, from, from.plusYears(1));
+
+		// The zone of the compiled schedule is used, not the one of the range
+		List<ZonedDateTime> compiled = new CronSchedule("0 0 1 * *").compile(ZONE).occurrences(from.withZoneSameInstant(ZoneId.of("UTC")), from.plusYears(1)).collect(Collectors.toList());
+		assertEquals(firstOfMonth, compiled);
+	}
+
+	@Test
+	public void testRange() {
+		CronSchedule schedule = new CronSchedule("0 * * * *");
+		ZonedDateTime from = ZonedDateTime.of(2023, 6, 1, 10, 0, 0, 0, ZONE);
+		// Start is inclusive, end is exclusive
+		List<ZonedDateTime> list = schedule.occurrences(from, from.plusHours(3)).collect(Collectors.toList());
+		assertEquals(List.of(from, from.plusHours(1), from.plusHours(2)), list);
+		assertEquals(2L, schedule.occurrences(from.plusNanos(1), from.plusHours(3)).count());
+		assertEquals(0L, schedule.occurrences(from, from).count());
+	}
+
+	@Test
+	public void testDaylightSavingGap() {
+		// 02:30 does not exist on 26 March 2023
+		CronSchedule schedule = new CronSchedule("30 2 * * *");
+		assertEquals(0L, schedule.occurrences(ZonedDateTime.of(2023, 3, 26, 0, 0, 0, 0, ZONE), ZonedDateTime.of(2023, 3, 27, 0, 0, 0, 0, ZONE)).count());
+	}
+
+	@Test
+	public void testDaylightSavingOverlap() {
+		// Clocks go back from 03:00 CEST to 02:00 CET on 26 October 2025
+		ZonedDateTime from = Instant.parse("2025-10-25T23:00:00Z").atZone(ZONE);
+		ZonedDateTime to = Instant.parse("2025-10-26T03:00:00Z").atZone(ZONE);
+
+		List<ZonedDateTime> minutes = new ArrayList<ZonedDateTime>();
+		for (int i=0; i<240; i++) minutes.add(from.plusMinutes(i));
+		assertOccurrences(minutes, new CronSchedule("* * * * *"), from, to);
+
+		List<ZonedDateTime> quarters = new ArrayList<ZonedDateTime>();
+		for (String instant : new String[] {
+			"2025-10-26T00:00:00Z", "2025-10-26T00:15:00Z", "2025-10-26T00:30:00Z", "2025-10-26T00:45:00Z",
+			"2025-10-26T01:00:00Z", "2025-10-26T01:15:00Z", "2025-10-26T01:30:00Z", "2025-10-26T01:45:00Z"
+		}) {
+			quarters.add(Instant.parse(instant).atZone(ZONE));
+		}
+		assertOccurrences(quarters, new CronSchedule("*/15 2 * * *"), from, to);
+
+		// 02:30 occurs twice
+		List<ZonedDateTime> list = new CronSchedule("30 2 * * *").occurrences(from, to).collect(Collectors.toList());
+		assertEquals(2, list.size());
+		assertEquals(Instant.parse("2025-10-26T00:30:00Z"), list.get(0).toInstant());
+		assertEquals(Instant.parse("2025-10-26T01:30:00Z"), list.get(1).toInstant());
+	}
+
+	@Test
+	public void testSplit() {
+		CronSchedule schedule = new CronSchedule("0 * * * *");
+		ZonedDateTime from = ZonedDateTime.of(2023, 1, 1, 0, 0, 0, 0, ZONE);
+		CronOccurrenceSpliterator spliterator = new CronOccurrenceSpliterator(schedule, from, from.plusDays(10));
+		assertEquals(240L, spliterator.estimateSize());
+		Spliterator<ZonedDateTime> prefix = spliterator.trySplit();
+		assertNotNull(prefix);
+		List<ZonedDateTime> first = new ArrayList<ZonedDateTime>();
+		List<ZonedDateTime> second = new ArrayList<ZonedDateTime>();
+		prefix.forEachRemaining(first::add);
+		spliterator.forEachRemaining(second::add);
+		assertEquals(120, first.size());
+		assertEquals(120, second.size());
+		assertEquals(from.plusHours(119), first.get(first.size()-1));
+		assertEquals(from.plusHours(120), second.get(0));
+		assertEquals(0L, spliterator.estimateSize());
+	}
+
+	/**
+	 * Checks the sequential and the parallel stream of occurrences.
+	 * @param expected the expected times
+	 * @param schedule the schedule
+	 * @param from the start of the range
+	 * @param to the end of the range
+	 */
+	private static void assertOccurrences(List<ZonedDateTime> expected, CronSchedule schedule, ZonedDateTime from, ZonedDateTime to) {
+		assertEquals(expected, schedule.occurrences(from, to).collect(Collectors.toList()), schedule.toString());
+		assertEquals(expected, schedule.occurrences(from, to).parallel().collect(Collectors.toList()), schedule.toString());
+	}
+}
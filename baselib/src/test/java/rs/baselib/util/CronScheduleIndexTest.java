@@ -0,0 +1,90 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CronScheduleIndex}.
+ * @author ralph
+ *
+ */
+public class CronScheduleIndexTest {
+
+	private static final String SCHEDULES[] = new String[] {
+		"* * * * *", "*/5 */3 * * *", "0 0 1 * *", "15 10 * * 2-6", "0 12 1-7 * 2", "59 23 31 11 *", "*/7 1,13 */3 0-5 *", "0 0 29 1 *", "NEVER"
+	};
+
+	@Test
+	public void testMatches() {
+		CronScheduleIndex<Integer> index = new CronScheduleIndex<Integer>(ZoneOffset.UTC);
+		CompiledCronSchedule compiled[] = new CompiledCronSchedule[SCHEDULES.length * 3];
+		for (int i=0; i<compiled.length; i++) {
+			CronSchedule schedule = new CronSchedule(SCHEDULES[i % SCHEDULES.length]);
+			compiled[i] = schedule.compile(ZoneOffset.UTC);
+			index.put(i, schedule);
+		}
+		assertEquals(Integer.valueOf(compiled.length), Integer.valueOf(index.size()));
+		assertEquals(Integer.valueOf(SCHEDULES.length), Integer.valueOf(index.getGroupCount()));
+		Random random = new Random(5);
+		for (int i=0; i<20000; i++) {
+			long time = 631152000000L + (long)(random.nextDouble() * 1893456000000L);
+			if (random.nextBoolean()) time = time / 3600000L * 3600000L;
+			Set<Integer> expected = new HashSet<Integer>();
+			for (int j=0; j<compiled.length; j++) {
+				if (compiled[j].isMinute(time)) expected.add(j);
+			}
+			assertEquals(expected, index.getMatches(time), "at "+time);
+		}
+	}
+
+	@Test
+	public void testRemove() {
+		CronScheduleIndex<String> index = new CronScheduleIndex<String>(ZoneOffset.UTC);
+		index.put("a", new CronSchedule("0 * * * *"));
+		index.put("b", new CronSchedule("0 * * * *"));
+		index.put("c", new CronSchedule("30 * * * *"));
+		assertEquals(Integer.valueOf(2), Integer.valueOf(index.getGroupCount()));
+		// 2020-01-01 00:00 UTC
+		long time = 1577836800000L;
+		assertEquals(Set.of("a", "b"), index.getMatches(time));
+		assertTrue(index.remove("a"));
+		assertFalse(index.remove("a"));
+		assertEquals(Set.of("b"), index.getMatches(time));
+		// Moving the last value of a group releases the group
+		index.put("b", new CronSchedule("30 * * * *"));
+		assertEquals(Integer.valueOf(1), Integer.valueOf(index.getGroupCount()));
+		assertTrue(index.getMatches(time).isEmpty());
+		assertEquals(Set.of("b", "c"), index.getMatches(time + 1800000L));
+		// Released group slot is reused
+		index.put("d", new CronSchedule("0 0 * * *"));
+		assertEquals(Set.of("d"), index.getMatches(time));
+		index.clear();
+		assertEquals(Integer.valueOf(0), Integer.valueOf(index.size()));
+		assertTrue(index.getMatches(time + 1800000L).isEmpty());
+	}
+}
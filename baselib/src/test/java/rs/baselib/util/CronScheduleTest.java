@@ -18,6 +18,15 @@
 package rs.baselib.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -46,4 +55,92 @@ public class CronScheduleTest {
 		CronSchedule s = CronSchedule.NEVER;
 		assertEquals(CronSchedule.NEVER_MARKER, s.getCronString());
 	}
+
+	@Test
+	public void testNextExecution() {
+		ZoneId zone = ZoneId.of("Europe/Berlin");
+		ZonedDateTime start = ZonedDateTime.of(2023, 3, 1, 12, 0, 0, 0, zone);
+		// Calendar months are 0-based: 1 is February
+		CronSchedule leapDay = new CronSchedule("0 0 29 1 *");
+		assertEquals(ZonedDateTime.of(2024, 2, 29, 0, 0, 0, 0, zone), leapDay.nextExecution(start));
+		assertEquals(ZonedDateTime.of(2020, 2, 29, 0, 0, 0, 0, zone), leapDay.previousExecution(start));
+		assertNull(new CronSchedule("0 0 30 1 *").nextExecution(start));
+		assertNull(CronSchedule.NEVER.nextExecution(start));
+		assertEquals(-1L, CronSchedule.NEVER.nextExecution(System.currentTimeMillis()));
+	}
+
+	@Test
+	public void testDaylightSaving() {
+		ZoneId zone = ZoneId.of("Europe/Berlin");
+		// 02:30 does not exist on 26 March 2023
+		CronSchedule s = new CronSchedule("30 2 * * *");
+		ZonedDateTime next = s.nextExecution(ZonedDateTime.of(2023, 3, 25, 12, 0, 0, 0, zone));
+		assertEquals(ZonedDateTime.of(2023, 3, 27, 2, 30, 0, 0, zone), next);
+		// 02:30 occurs twice on 29 October 2023
+		ZonedDateTime first = s.nextExecution(ZonedDateTime.of(2023, 10, 28, 12, 0, 0, 0, zone));
+		ZonedDateTime second = s.nextExecution(first);
+		assertEquals(2, first.getHour());
+		assertEquals(3600, second.toEpochSecond() - first.toEpochSecond());
+		assertEquals(first, s.previousExecution(second));
+	}
+
+	@Test
+	public void testDaylightSavingOverlap() {
+		ZoneId zone = ZoneId.of("Europe/Berlin");
+		ZoneOffset summer = ZoneOffset.ofHours(2);
+		ZoneOffset winter = ZoneOffset.ofHours(1);
+		// Clocks go back from 03:00 CEST to 02:00 CET on 26 October 2025
+		CronSchedule minutely = new CronSchedule("* * * * *");
+		assertEquals(Instant.parse("2025-10-26T00:59:00Z"), minutely.nextExecution(ZonedDateTime.ofLocal(LocalDateTime.of(2025, 10, 26, 2, 58), zone, summer)).toInstant());
+		assertEquals(Instant.parse("2025-10-26T01:00:00Z"), minutely.nextExecution(ZonedDateTime.ofLocal(LocalDateTime.of(2025, 10, 26, 2, 59), zone, summer)).toInstant());
+		assertEquals(Instant.parse("2025-10-26T01:00:00Z"), minutely.previousExecution(ZonedDateTime.ofLocal(LocalDateTime.of(2025, 10, 26, 2, 1), zone, winter)).toInstant());
+		assertEquals(Instant.parse("2025-10-26T00:59:00Z"), minutely.previousExecution(ZonedDateTime.ofLocal(LocalDateTime.of(2025, 10, 26, 2, 0), zone, winter)).toInstant());
+		// Every minute of a 4 hour walk over the night, in both directions
+		ZonedDateTime start = Instant.parse("2025-10-25T23:00:00Z").atZone(zone);
+		ZonedDateTime time = start;
+		for (int i=1; i<=240; i++) {
+			time = minutely.nextExecution(time);
+			assertEquals(start.toInstant().plusSeconds(i * 60L), time.toInstant());
+		}
+		for (int i=239; i>=0; i--) {
+			time = minutely.previousExecution(time);
+			assertEquals(start.toInstant().plusSeconds(i * 60L), time.toInstant());
+		}
+
+		CronSchedule quarterly = new CronSchedule("*/15 * * * *");
+		String expected[] = new String[] {
+			"2025-10-26T00:45:00Z", "2025-10-26T01:00:00Z", "2025-10-26T01:15:00Z", "2025-10-26T01:30:00Z", "2025-10-26T01:45:00Z", "2025-10-26T02:00:00Z"
+		};
+		time = ZonedDateTime.ofLocal(LocalDateTime.of(2025, 10, 26, 2, 30), zone, summer);
+		for (String instant : expected) {
+			time = quarterly.nextExecution(time);
+			assertEquals(Instant.parse(instant), time.toInstant());
+		}
+		for (int i=expected.length-2; i>=0; i--) {
+			time = quarterly.previousExecution(time);
+			assertEquals(Instant.parse(expected[i]), time.toInstant());
+		}
+	}
+
+	@Test
+	public void testNextExecutionMatches() {
+		String schedules[] = new String[] {
+			"*/5 */3 * * *", "0 0 1 * *", "15 10 * * 2-6", "0 12 1-7 * 2", "59 23 31 11 *", "*/7 1,13 */3 0-5 *", "0 0 13 * 6"
+		};
+		Random random = new Random(1);
+		for (String def : schedules) {
+			CronSchedule s = new CronSchedule(def);
+			long time = 1672531200000L + random.nextInt(365) * 86400000L;
+			for (int i=0; i<20; i++) {
+				long next = s.nextExecution(time);
+				// No minute between must match
+				for (long t=(time / 60000L + 1) * 60000L; t<next; t+=60000L) {
+					if (s.matches(t)) throw new AssertionError(def+" matches "+t+" before "+next);
+				}
+				assertEquals(true, s.matches(next));
+				if (i > 0) assertEquals(time, s.previousExecution(next));
+				time = next;
+			}
+		}
+	}
 }
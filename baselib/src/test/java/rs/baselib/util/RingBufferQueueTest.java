@@ -0,0 +1,221 @@
+/*
+ * This file is part of RS Library (Base Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package rs.baselib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link RingBufferQueue}.
+ * @author ralph
+ *
+ */
+public class RingBufferQueueTest {
+
+	@Test
+	public void testOfferAndPoll() throws Exception {
+		RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(3);
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+		for (int round=0; round<5; round++) {
+			assertTrue(queue.offer(1));
+			assertTrue(queue.offer(2));
+			assertTrue(queue.offer(3));
+			assertFalse(queue.offer(4));
+			assertFalse(queue.offer(4, 10, TimeUnit.MILLISECONDS));
+			assertEquals(3, queue.size());
+			assertEquals(0, queue.remainingCapacity());
+			assertEquals(Integer.valueOf(1), queue.peek());
+			List<Integer> snapshot = new ArrayList<Integer>(queue);
+			assertEquals(3, snapshot.size());
+			assertEquals(Integer.valueOf(1), queue.poll());
+			assertEquals(Integer.valueOf(2), queue.poll());
+			assertEquals(Integer.valueOf(3), queue.poll(10, TimeUnit.MILLISECONDS));
+			assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	@Test
+	public void testInterrupt() throws Exception {
+		RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(1);
+		boolean interrupted[] = new boolean[1];
+		Thread consumer = new Thread(() -> {
+			try {
+				queue.take();
+			} catch (InterruptedException e) {
+				interrupted[0] = true;
+			}
+		});
+		consumer.start();
+		Thread.sleep(50);
+		consumer.interrupt();
+		consumer.join(1000);
+		assertTrue(interrupted[0]);
+	}
+
+	@Test
+	public void testProducersAndConsumers() throws Exception {
+		RingBufferQueue<Long> queue = new RingBufferQueue<Long>(100);
+		int threads = 4;
+		int count = 50000;
+		AtomicLong sum = new AtomicLong(0);
+		List<Thread> all = new ArrayList<Thread>();
+		for (int t=0; t<threads; t++) {
+			all.add(new Thread(() -> {
+				try {
+					for (long i=1; i<=count; i++) queue.put(i);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			all.add(new Thread(() -> {
+				try {
+					for (int i=0; i<count; i++) sum.addAndGet(queue.take());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+		}
+		for (Thread t : all) t.start();
+		for (Thread t : all) t.join(30000);
+		assertEquals(threads * (long)count * (count + 1) / 2, sum.get());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testDrainAndPollBatch() throws Exception {
+		RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(10);
+		for (int i=0; i<7; i++) queue.offer(i);
+		List<Integer> drained = new ArrayList<Integer>();
+		assertEquals(5, queue.drainTo(drained, 5));
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), drained);
+		for (int i=7; i<15; i++) queue.offer(i);
+		assertEquals(10, queue.drainTo(drained));
+		assertEquals(15, drained.size());
+		assertTrue(queue.isEmpty());
+
+		assertTrue(queue.pollBatch(5, 10, TimeUnit.MILLISECONDS).isEmpty());
+		Thread producer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+				for (int i=0; i<3; i++) queue.put(i);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		List<Integer> batch = queue.pollBatch(5, 5, TimeUnit.SECONDS);
+		assertFalse(batch.isEmpty());
+		assertEquals(Integer.valueOf(0), batch.get(0));
+		producer.join(1000);
+	}
+
+	@Test
+	public void testBackpressure() throws Exception {
+		RingBufferQueue<Integer> dropOldest = new RingBufferQueue<Integer>(2, BackpressureStrategy.DROP_OLDEST, null);
+		for (int i=0; i<5; i++) assertTrue(dropOldest.submit(i));
+		assertEquals(3, dropOldest.getDroppedCount());
+		assertEquals(Integer.valueOf(3), dropOldest.poll());
+		assertEquals(Integer.valueOf(4), dropOldest.poll());
+
+		RingBufferQueue<Integer> dropNewest = new RingBufferQueue<Integer>(2, BackpressureStrategy.DROP_NEWEST, null);
+		assertTrue(dropNewest.submit(0));
+		assertTrue(dropNewest.submit(1));
+		assertFalse(dropNewest.submit(2));
+		assertEquals(1, dropNewest.getDroppedCount());
+		assertEquals(Integer.valueOf(0), dropNewest.poll());
+
+		List<Integer> ranByCaller = new ArrayList<Integer>();
+		RingBufferQueue<Integer> callerRuns = new RingBufferQueue<Integer>(1, BackpressureStrategy.CALLER_RUNS, ranByCaller::add);
+		assertTrue(callerRuns.submit(0));
+		assertTrue(callerRuns.submit(1));
+		assertEquals(Arrays.asList(1), ranByCaller);
+
+		RingBufferQueue<Integer> spin = new RingBufferQueue<Integer>(1, BackpressureStrategy.SPIN_THEN_PARK, null);
+		spin.submit(0);
+		Thread consumer = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+				spin.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+		assertTrue(spin.submit(1));
+		consumer.join(1000);
+		assertEquals(Integer.valueOf(1), spin.poll());
+	}
+
+	@Test
+	public void testSynchronizedQueue() throws Exception {
+		SynchronizedQueue<String> queue = new SynchronizedQueue<String>(2);
+		Thread producer = new Thread(() -> {
+			for (int i=0; i<100; i++) queue.push("item"+i);
+		});
+		producer.start();
+		for (int i=0; i<50; i++) assertEquals("item"+i, queue.poll());
+		List<String> batch = new ArrayList<String>();
+		while (batch.size() < 50) batch.addAll(queue.pollBatch(10, 1, TimeUnit.SECONDS));
+		assertEquals("item50", batch.get(0));
+		assertEquals("item99", batch.get(49));
+		producer.join(1000);
+	}
+
+	@Test
+	public void testSynchronizedQueueNull() {
+		SynchronizedQueue<String> queue = new SynchronizedQueue<String>(2);
+		assertThrows(IllegalArgumentException.class, () -> queue.push(null));
+		assertTrue(queue.getQueue().isEmpty());
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testSynchronizedQueueCompatibility() {
+		SynchronizedQueue<String> queue = new SynchronizedQueue<String>(0) {
+			{
+				assertEquals(0, capacity);
+				assertTrue(available.isEmpty());
+			}
+		};
+		queue.push("a");
+		assertEquals(1, queue.getQueue().getCapacity());
+		SynchronizedQueue<String> legacy = new SynchronizedQueue<String>(3) {
+			{
+				push("x");
+				push("y");
+				assertEquals(List.of("x", "y"), available);
+				assertEquals("y", available.get(1));
+				assertThrows(UnsupportedOperationException.class, () -> available.add("z"));
+			}
+		};
+		assertEquals("x", legacy.poll());
+		assertEquals("a", queue.poll());
+	}
+}
@@ -0,0 +1,97 @@
+package rs.jackson;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import rs.baselib.cache.Weigher;
+import rs.baselib.cache.Weighers;
+
+/**
+ * Estimates the memory of a {@link JsonNode} tree in bytes.
+ * <p>Use this weigher to bound a cache of JSON documents by memory, e.g.</p>
+ * <pre>
+ * ICache&lt;String,JsonNode&gt; cache = new BoundedCache&lt;&gt;(64*1024*1024, JsonNodeWeigher.INSTANCE);
+ * </pre>
+ * <p>The tree is traversed without recursion so that deeply nested documents can be weighed.
+ * The estimate assumes a 64-bit JVM with compressed references.</p>
+ * @author ralph
+ *
+ */
+public class JsonNodeWeigher implements Weigher<Object, JsonNode> {
+
+	/** The shared instance */
+	public static final JsonNodeWeigher INSTANCE = new JsonNodeWeigher();
+
+	/** Object header of a node with a single field */
+	private static final int NODE_SIZE = 16;
+	/** A node and its LinkedHashMap */
+	private static final int OBJECT_NODE_SIZE = NODE_SIZE + 56;
+	/** A LinkedHashMap entry and its share of the hash table */
+	private static final int OBJECT_ENTRY_SIZE = 40 + 8;
+	/** A node and its ArrayList */
+	private static final int ARRAY_NODE_SIZE = NODE_SIZE + 24 + 16;
+	/** A reference in the ArrayList */
+	private static final int ARRAY_ELEMENT_SIZE = 4;
+	/** A numeric node with a boxed or large value */
+	private static final int NUMBER_NODE_SIZE = 24;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int weigh(Object key, JsonNode value) {
+		return (int)Math.min(Integer.MAX_VALUE, estimate(value));
+	}
+
+	/**
+	 * Estimates the memory of the tree.
+	 * @param root the root node
+	 * @return the estimated number of bytes
+	 */
+	public long estimate(JsonNode root) {
+		if (root == null) return 0L;
+		long rc = 0L;
+		Deque<JsonNode> stack = new ArrayDeque<JsonNode>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			JsonNode node = stack.pop();
+			if (node instanceof ObjectNode) {
+				rc += OBJECT_NODE_SIZE;
+				Iterator<Map.Entry<String,JsonNode>> fields = node.fields();
+				while (fields.hasNext()) {
+					Map.Entry<String,JsonNode> field = fields.next();
+					rc += OBJECT_ENTRY_SIZE + Weighers.estimateString(field.getKey());
+					stack.push(field.getValue());
+				}
+			} else if (node instanceof ArrayNode) {
+				rc += ARRAY_NODE_SIZE;
+				for (JsonNode element : node) {
+					rc += ARRAY_ELEMENT_SIZE;
+					stack.push(element);
+				}
+			} else if (node instanceof TextNode) {
+				rc += NODE_SIZE + Weighers.estimateString(node.textValue());
+			} else if (node instanceof BinaryNode) {
+				rc += NODE_SIZE + Weighers.estimateArray(((BinaryNode)node).binaryValue().length);
+			} else if ((node instanceof BooleanNode) || (node instanceof NullNode) || (node instanceof MissingNode)) {
+				// Shared singletons
+			} else if (node.isBigDecimal() || node.isBigInteger()) {
+				rc += NUMBER_NODE_SIZE + 40;
+			} else {
+				rc += NUMBER_NODE_SIZE;
+			}
+		}
+		return rc;
+	}
+}
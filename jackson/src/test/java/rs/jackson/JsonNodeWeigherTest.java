@@ -0,0 +1,42 @@
+package rs.jackson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rs.baselib.cache.BoundedCache;
+
+/**
+ * Test {@link JsonNodeWeigher}.
+ * @author ralph
+ *
+ */
+public class JsonNodeWeigherTest {
+
+	private ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void testEstimate() throws Exception {
+		JsonNode small = mapper.readTree("{\"name\":\"Max\"}");
+		JsonNode large = mapper.readTree("{\"name\":\"Max\",\"tags\":[\"a\",\"b\",\"c\"],\"address\":{\"city\":\"Berlin\",\"zip\":10115}}");
+		long smallSize = JsonNodeWeigher.INSTANCE.estimate(small);
+		long largeSize = JsonNodeWeigher.INSTANCE.estimate(large);
+		assertTrue(smallSize > 0);
+		assertTrue(largeSize > smallSize);
+		assertEquals(0L, JsonNodeWeigher.INSTANCE.estimate(null));
+	}
+
+	@Test
+	public void testBoundedCache() throws Exception {
+		JsonNode node = mapper.readTree("{\"name\":\"Max\",\"tags\":[\"a\",\"b\",\"c\"]}");
+		int weight = JsonNodeWeigher.INSTANCE.weigh(null, node);
+		BoundedCache<Integer, JsonNode> cache = new BoundedCache<Integer, JsonNode>(10L * weight, JsonNodeWeigher.INSTANCE);
+		for (int i=0; i<100; i++) cache.put(i, node);
+		assertEquals(10, cache.size());
+		assertTrue(cache.getWeightedSize() <= 10L * weight);
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * This file is part of RS Library (Templating Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package templating;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A template that was parsed once for fast rendering with different markers.
+ * <p>The positions of all delimiters (###) are found when the template is compiled.
+ * Rendering copies the text between the markers and the marker values in a single pass.
+ * The result is the same as {@link Templating#replace(String, Map)} with the exceptions named below:</p>
+ * <ul>
+ * <li>Marker names in the map are converted to upper case.</li>
+ * <li>Markers that are not in the map remain in the text.</li>
+ * <li>Markers within values are replaced as well. A value that reproduces its own marker (directly
+ *     or by other markers), e.g. B=###B###, leaves the marker in the text. A value that contains its own
+ *     marker and more text is rejected. {@link Templating#replace(String, Map)} does not return for most
+ *     of these values.</li>
+ * <li>Backslashes in values escape the following character (as in {@link String#replaceAll(String, String)}).</li>
+ * </ul>
+ * <p>Marker texts that share their hash signs, such as ###A###B###, are resolved from left to right.
+ * {@link Templating#replace(String, Map)} resolves them in the iteration order of the map instead.
+ * The same applies to markers whose values reproduce each other. Values with hash signs that form
+ * markers together with the surrounding text are resolved before that text, so the result can differ
+ * from {@link Templating#replace(String, Map)} for them.
+ * The closing hash signs of an unknown marker can still open the next marker. Markers that appear
+ * only after replacing, e.g. when a value ends with hash signs, are replaced in another pass.</p>
+ * <p>Compiled templates are immutable and can be rendered by multiple threads concurrently.</p>
+ * @author ralph
+ *
+ */
+public class CompiledTemplate {
+
+	private static final String DELIMITER = "###";
+	/** Maximum number of passes for markers that appear after replacing */
+	private static final int MAX_PASSES = 100;
+
+	private String template;
+	/** The positions of all delimiters, including overlapping ones */
+	private int delimiters[];
+	/** The marker names, in order of their first occurrence */
+	private Set<String> markers;
+
+	/**
+	 * Constructor.
+	 * @param template - text template
+	 */
+	public CompiledTemplate(String template) {
+		if (template == null) throw new IllegalArgumentException("Template must be set");
+		this.template = template;
+		List<Integer> delimiters = new ArrayList<Integer>();
+		int pos = template.indexOf(DELIMITER);
+		while (pos >= 0) {
+			delimiters.add(pos);
+			pos = template.indexOf(DELIMITER, pos+1);
+		}
+		this.delimiters = new int[delimiters.size()];
+		for (int i=0; i<this.delimiters.length; i++) this.delimiters[i] = delimiters.get(i);
+		this.markers = new LinkedHashSet<String>();
+		for (int i=0; i<this.delimiters.length; i++) {
+			int nameStart = this.delimiters[i] + DELIMITER.length();
+			int end = template.indexOf(DELIMITER, nameStart);
+			if (end > nameStart) {
+				String name = template.substring(nameStart, end);
+				if (isMarkerName(name)) markers.add(name);
+			}
+		}
+	}
+
+	/**
+	 * Tells whether a text between two delimiters is reported as marker.
+	 * @param name - the text
+	 * @return {@code true} when the text contains no hash signs or whitespace
+	 */
+	private static boolean isMarkerName(String name) {
+		for (int i=0; i<name.length(); i++) {
+			char c = name.charAt(i);
+			if ((c == '#') || Character.isWhitespace(c)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the template text.
+	 * @return the template
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Returns the names of all markers in the template.
+	 * <p>These are the texts between two delimiters that contain no hash signs or whitespace.</p>
+	 * @return the marker names in order of their first occurrence
+	 */
+	public Set<String> getMarkers() {
+		return Collections.unmodifiableSet(markers);
+	}
+
+	/**
+	 * Replaces the markers.
+	 * @param markers - markers map
+	 * @return the template text with all markers replaced
+	 */
+	public String render(Map<String,Object> markers) {
+		if (delimiters.length < 2) return template;
+		Map<String,Object> values = new HashMap<String,Object>();
+		int maxLength = 0;
+		for (Map.Entry<String,Object> entry : markers.entrySet()) {
+			String name = entry.getKey().toUpperCase();
+			values.put(name, entry.getValue());
+			maxLength = Math.max(maxLength, name.length());
+		}
+		return render(values, maxLength, new HashMap<String,String>(), new HashMap<String,Boolean>());
+	}
+
+	/**
+	 * Replaces the markers, repeating when replacing created new markers.
+	 * @param values - marker values by upper-case name
+	 * @param maxLength - length of the longest marker name
+	 * @param resolved - values with their markers replaced already
+	 * @param resolving - markers whose value is being resolved
+	 * @return the template text with all markers replaced
+	 */
+	private String render(Map<String,Object> values, int maxLength, Map<String,String> resolved, Map<String,Boolean> resolving) {
+		CompiledTemplate current = this;
+		boolean joined[] = new boolean[1];
+		for (int pass=0; pass<MAX_PASSES; pass++) {
+			joined[0] = false;
+			String rc = current.renderOnce(values, maxLength, resolved, resolving, joined);
+			if (!joined[0] || rc.equals(current.template)) return rc;
+			current = new CompiledTemplate(rc);
+		}
+		throw new IllegalArgumentException("Markers do not resolve: "+template);
+	}
+
+	/**
+	 * Replaces the markers in a single pass.
+	 * <p>At each delimiter the marker names up to the following delimiters are looked up.
+	 * When a name is known, its value is inserted and scanning continues after its closing
+	 * delimiter. Otherwise scanning continues with the next delimiter.</p>
+	 * @param values - marker values by upper-case name
+	 * @param maxLength - length of the longest marker name
+	 * @param resolved - values with their markers replaced already
+	 * @param resolving - markers whose value is being resolved
+	 * @param joined - set to {@code true} when a value may form a new marker with its surrounding text
+	 * @return the template text with the markers replaced
+	 */
+	private String renderOnce(Map<String,Object> values, int maxLength, Map<String,String> resolved, Map<String,Boolean> resolving, boolean joined[]) {
+		int starts[] = new int[delimiters.length/2];
+		int ends[] = new int[delimiters.length/2];
+		String replacements[] = new String[delimiters.length/2];
+		int count = 0;
+		int length = template.length();
+		int cursor = 0;
+		for (int i=0; i<delimiters.length; i++) {
+			int pos = delimiters[i];
+			if (pos < cursor) continue;
+			int nameStart = pos + DELIMITER.length();
+			for (int j=i+1; (j<delimiters.length) && (delimiters[j]-nameStart <= maxLength); j++) {
+				int end = delimiters[j];
+				if (end < nameStart) continue;
+				String value = resolve(template.substring(nameStart, end), values, maxLength, resolved, resolving);
+				// Unknown markers and markers that reproduce themselves do not consume their closing delimiter
+				if ((value == null) || ((value.length() == end + DELIMITER.length() - pos) && template.startsWith(value, pos))) continue;
+				cursor = end + DELIMITER.length();
+				starts[count] = pos;
+				ends[count] = cursor;
+				replacements[count++] = value;
+				length += value.length() - (cursor - pos);
+				if ((value.indexOf('#') >= 0) || ((pos > 0) && (template.charAt(pos-1) == '#'))
+						|| ((cursor < template.length()) && (template.charAt(cursor) == '#'))) {
+					joined[0] = true;
+				}
+				break;
+			}
+		}
+		if (count == 0) return template;
+		StringBuilder rc = new StringBuilder(length);
+		int start = 0;
+		for (int i=0; i<count; i++) {
+			rc.append(template, start, starts[i]).append(replacements[i]);
+			start = ends[i];
+		}
+		rc.append(template, start, template.length());
+		return rc.toString();
+	}
+
+	/**
+	 * Returns the value of a marker with its own markers replaced.
+	 * @param marker - marker name
+	 * @param values - marker values by upper-case name
+	 * @param maxLength - length of the longest marker name
+	 * @param resolved - values with their markers replaced already
+	 * @param resolving - markers whose value is being resolved, mapped to whether their value contains them
+	 * @return the value or {@code null} when the marker is unknown
+	 * @throws IllegalArgumentException when the value contains the marker and does not reproduce it
+	 */
+	private static String resolve(String marker, Map<String,Object> values, int maxLength, Map<String,String> resolved, Map<String,Boolean> resolving) {
+		String rc = resolved.get(marker);
+		if (rc != null) return rc;
+		if (!values.containsKey(marker)) return null;
+		String text = DELIMITER+marker+DELIMITER;
+		if (resolving.containsKey(marker)) {
+			// The marker stays in the text, its value must reproduce it
+			resolving.put(marker, Boolean.TRUE);
+			return text;
+		}
+		resolving.put(marker, Boolean.FALSE);
+		Object value = values.get(marker);
+		rc = unescape(value != null ? value.toString() : "");
+		if (rc.contains(DELIMITER)) {
+			rc = new CompiledTemplate(rc).render(values, maxLength, resolved, resolving);
+		}
+		if (resolving.remove(marker) && !rc.equals(text)) throw new IllegalArgumentException("Marker contains itself: "+marker);
+		resolved.put(marker, rc);
+		return rc;
+	}
+
+	/**
+	 * Converts a value the way {@link Templating#replace(String, Map)} does.
+	 * <p>The value is escaped like there and then evaluated as replacement string
+	 * of {@link String#replaceAll(String, String)}.</p>
+	 * @param value - the value
+	 * @return the text to be inserted
+	 */
+	private static String unescape(String value) {
+		if (value.indexOf('\\') < 0) return value;
+		String escaped = value.replace("(", "\\(").replace(")", "\\)").replace("$", "\\$");
+		StringBuilder rc = new StringBuilder(escaped.length());
+		int pos = 0;
+		while (pos < escaped.length()) {
+			char c = escaped.charAt(pos++);
+			if (c == '\\') {
+				if (pos == escaped.length()) throw new IllegalArgumentException("character to be escaped is missing");
+				c = escaped.charAt(pos++);
+			} else if (c == '$') {
+				throw new IllegalArgumentException("Illegal group reference");
+			}
+			rc.append(c);
+		}
+		return rc.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return template;
+	}
+}
@@ -83,6 +83,20 @@ public class Templating {
 		return template;
 	}
 	
+	/**
+	 * Compiles a template for repeated replacements.
+	 * The compiled template renders the same result as {@link #replace(String, Map)}
+	 * in a single pass over the template, except for overlapping or self-reproducing markers,
+	 * where {@link #replace(String, Map)} depends on the iteration order of the map, and for
+	 * values that contain their own marker, where it never returns (see {@link CompiledTemplate}).
+	 * @param template - text template
+	 * @return the compiled template, or null if template is null
+	 */
+	public static CompiledTemplate compile(String template) {
+		if (template == null) return null;
+		return new CompiledTemplate(template);
+	}
+	
 	/**
 	 * Returns a sub template.
 	 * Sub templates are enclosed by XML comment tags as known from TYPO3:
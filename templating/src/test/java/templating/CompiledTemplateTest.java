@@ -0,0 +1,154 @@
+/*
+ * This file is part of RS Library (Templating Library).
+ *
+ *  RS Library is free software: you can redistribute it 
+ *  and/or modify it under the terms of version 3 of the GNU 
+ *  Lesser General Public  License as published by the Free Software 
+ *  Foundation.
+ *  
+ *  RS Library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public 
+ *  License along with RS Library.  If not, see 
+ *  <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+package templating;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link CompiledTemplate}.
+ * @author ralph
+ *
+ */
+public class CompiledTemplateTest {
+
+	private static final String TEMPLATES[] = new String[] {
+		"",
+		"No markers at all",
+		"###NAME###",
+		"Dear ###NAME###,\nyour order ###ORDER### costs ###PRICE###.\n###FOOTER###",
+		"###UNKNOWN### and ###NAME### and ###name###",
+		"####NAME### ###NAME####, ##NAME## ###NAME",
+		"### header ###NAME###",
+		"###NAME######ORDER###",
+	};
+
+	@Test
+	public void testSameAsReplace() {
+		Map<String,Object> markers = new HashMap<String,Object>();
+		markers.put("name", "John (Doe)");
+		markers.put("ORDER", 4711);
+		markers.put("PRICE", "$10 \\( a\\b \\\\");
+		markers.put("FOOTER", "Regards, ###SENDER###");
+		markers.put("SENDER", "###COMPANY### team");
+		markers.put("COMPANY", "ACME");
+		markers.put("EMPTY", null);
+		for (String template : TEMPLATES) {
+			assertEquals(Templating.replace(template, markers), Templating.compile(template).render(markers), template);
+		}
+	}
+
+	@Test
+	public void testMarkers() {
+		CompiledTemplate template = new CompiledTemplate("###A### ###B### ###A### #### ###");
+		assertEquals(Set.of("A", "B"), template.getMarkers());
+		assertEquals("1 ###B### 1 #### ###", template.render(Map.of("A", "1")));
+		CompiledTemplate plain = new CompiledTemplate("plain");
+		assertSame(plain.getTemplate(), plain.render(Map.of("A", "1")));
+	}
+
+	@Test
+	public void testInvalidEscape() {
+		for (String value : new String[] { "\\$", "x\\" }) {
+			Map<String,Object> markers = Map.of("A", value);
+			assertThrows(IllegalArgumentException.class, () -> Templating.replace("###A###", markers));
+			assertThrows(IllegalArgumentException.class, () -> Templating.compile("###A###").render(markers));
+		}
+	}
+
+	@Test
+	public void testCycle() {
+		CompiledTemplate template = new CompiledTemplate("###A###");
+		assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("A", "###B###", "B", "x###A###")));
+	}
+
+	@Test
+	public void testSelfReference() {
+		String templates[] = new String[] { "$###B###", "###A###", "###A### and ###B###" };
+		Map<String,Object> markers = new HashMap<String,Object>();
+		markers.put("A", "x###B###");
+		markers.put("B", "###B###");
+		for (String template : templates) {
+			assertEquals(Templating.replace(template, markers), Templating.compile(template).render(markers), template);
+		}
+		assertEquals("$###B###", Templating.compile("$###B###").render(markers));
+		assertEquals("x###B### and ###B###", Templating.compile("###A### and ###B###").render(markers));
+		// The reproduced marker does not consume its closing hash signs
+		markers.put("A", "");
+		String template = "###B###A######A#######A####";
+		assertEquals(Templating.replace(template, markers), Templating.compile(template).render(markers));
+		assertEquals("###B##", Templating.compile(template).render(markers));
+	}
+
+	@Test
+	public void testSharedDelimiters() {
+		Map<String,Object> markers = Map.of("B", "w");
+		for (String template : new String[] { "$###)###B### ", "###A###B###", "####B###", "###A B###B###", "###B######B###" }) {
+			assertEquals(Templating.replace(template, markers), Templating.compile(template).render(markers), template);
+		}
+		assertEquals("$###)w ", Templating.compile("$###)###B### ").render(markers));
+	}
+
+	@Test
+	public void testJoinedMarkers() {
+		Map<String,Object> markers = Map.of("A", "B", "B", "x");
+		for (String template : new String[] { "######A######", "##A###", "###A###B" }) {
+			assertEquals(Templating.replace(template, markers), Templating.compile(template).render(markers), template);
+		}
+		assertEquals("x", Templating.compile("######A######").render(markers));
+	}
+
+	@Test
+	public void testRandomTemplates() {
+		Random random = new Random(20261017L);
+		int compared = 0;
+		for (int i=0; i<20000; i++) {
+			String template = randomText(random, "####AB$) ", 16);
+			// values without hash signs let Templating.replace() terminate
+			Map<String,Object> markers = new LinkedHashMap<String,Object>();
+			markers.put("A", randomText(random, "AB$() ", 3));
+			markers.put("B", randomText(random, "AB$() ", 3));
+			Map<String,Object> reversed = new LinkedHashMap<String,Object>();
+			reversed.put("B", markers.get("B"));
+			reversed.put("A", markers.get("A"));
+			String expected = Templating.replace(template, markers);
+			// Overlapping markers depend on the iteration order
+			if (!expected.equals(Templating.replace(template, reversed))) continue;
+			assertEquals(expected, Templating.compile(template).render(markers), template+" "+markers);
+			compared++;
+		}
+		assertTrue(compared > 15000);
+	}
+
+	private static String randomText(Random random, String chars, int maxLength) {
+		int length = random.nextInt(maxLength+1);
+		StringBuilder rc = new StringBuilder(length);
+		for (int i=0; i<length; i++) rc.append(chars.charAt(random.nextInt(chars.length())));
+		return rc.toString();
+	}
+}